@@ -0,0 +1,8 @@
+package com.gocomet.ridehailing.cache;
+
+public interface CacheInvalidationPublisher {
+
+    void publishEvict(String cacheName, String key);
+
+    void publishClear(String cacheName);
+}
@@ -0,0 +1,200 @@
+package com.gocomet.ridehailing.cache;
+
+import com.google.common.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local size-bounded L1 in front of a shared L2 (Redis). L1 holds live object
+ * references, so cached values must be treated as immutable by callers.
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache<String, Object> local;
+    private final org.springframework.cache.Cache remote;
+    private final CacheInvalidationPublisher invalidationPublisher;
+
+    // One in-flight load per key on this node; concurrent misses wait on the same future
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+
+    private final AtomicLong l1Hits = new AtomicLong();
+    private final AtomicLong l1Misses = new AtomicLong();
+    private final AtomicLong l2Hits = new AtomicLong();
+    private final AtomicLong l2Misses = new AtomicLong();
+    private final Counter sharedLoads;
+
+    public TwoLevelCache(String name,
+                         Cache<String, Object> local,
+                         org.springframework.cache.Cache remote,
+                         CacheInvalidationPublisher invalidationPublisher,
+                         MeterRegistry meterRegistry) {
+        super(true);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+
+        registerTier(meterRegistry, "l1", l1Hits, l1Misses);
+        registerTier(meterRegistry, "l2", l2Hits, l2Misses);
+        this.sharedLoads = Counter.builder("cache.loads.shared")
+            .description("Cache misses that waited on a load already in flight for the same key")
+            .tag("cache", name)
+            .register(meterRegistry);
+    }
+
+    private void registerTier(MeterRegistry registry, String tier, AtomicLong hits, AtomicLong misses) {
+        FunctionCounter.builder("cache.tier.gets", hits, AtomicLong::get)
+            .tags("cache", name, "tier", tier, "result", "hit")
+            .register(registry);
+        FunctionCounter.builder("cache.tier.gets", misses, AtomicLong::get)
+            .tags("cache", name, "tier", tier, "result", "miss")
+            .register(registry);
+        Gauge.builder("cache.tier.hit.ratio", () -> ratio(hits.get(), misses.get()))
+            .tags("cache", name, "tier", tier)
+            .register(registry);
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            l1Hits.incrementAndGet();
+            return value;
+        }
+        l1Misses.incrementAndGet();
+
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null) {
+            l2Misses.incrementAndGet();
+            return null;
+        }
+        l2Hits.incrementAndGet();
+        Object storeValue = toStoreValue(wrapper.get());
+        local.put(localKey, storeValue);
+        return storeValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object storeValue = lookup(key);
+        if (storeValue != null) {
+            return (T) fromStoreValue(storeValue);
+        }
+
+        String localKey = localKey(key);
+        CompletableFuture<Object> ours = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(localKey, ours);
+        if (inFlight != null) {
+            sharedLoads.increment();
+            return (T) fromStoreValue(await(key, valueLoader, inFlight));
+        }
+
+        try {
+            // A load that completed between our miss and claiming the slot has already filled L1
+            Object cached = local.getIfPresent(localKey);
+            if (cached != null) {
+                ours.complete(cached);
+                return (T) fromStoreValue(cached);
+            }
+            T value = valueLoader.call();
+            Object loaded = toStoreValue(value);
+            local.put(localKey, loaded);
+            remote.put(key, value);
+            ours.complete(loaded);
+            return value;
+        } catch (Exception e) {
+            ours.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlightLoads.remove(localKey, ours);
+        }
+    }
+
+    // Fails the way our own load would have, so callers see a single exception type
+    private Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } catch (ExecutionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        local.put(localKey(key), toStoreValue(value));
+        remote.put(key, value);
+        invalidationPublisher.publishEvict(name, localKey(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        if (existing == null) {
+            local.put(localKey(key), toStoreValue(value));
+            invalidationPublisher.publishEvict(name, localKey(key));
+        } else {
+            local.put(localKey(key), toStoreValue(existing.get()));
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.invalidate(localKey(key));
+        remote.evict(key);
+        invalidationPublisher.publishEvict(name, localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        remote.clear();
+        invalidationPublisher.publishClear(name);
+    }
+
+    // Invalidation received from another node: only L1 needs dropping, L2 is shared
+    void evictLocal(String localKey) {
+        local.invalidate(localKey);
+    }
+
+    void clearLocal() {
+        local.invalidateAll();
+    }
+
+    static String localKey(Object key) {
+        return key instanceof String ? (String) key : String.valueOf(key);
+    }
+}
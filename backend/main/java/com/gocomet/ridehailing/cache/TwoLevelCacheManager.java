@@ -0,0 +1,119 @@
+package com.gocomet.ridehailing.cache;
+
+import com.gocomet.ridehailing.config.CacheProperties;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds {@link TwoLevelCache}s on demand and keeps L1 coherent across nodes by
+ * broadcasting evictions over Redis pub/sub.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, CacheInvalidationPublisher, MessageListener {
+
+    private static final String CLEAR_KEY = "*";
+    private static final char SEPARATOR = '|';
+
+    private final CacheManager remoteCacheManager;
+    private final CacheProperties properties;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager,
+                                CacheProperties properties,
+                                StringRedisTemplate stringRedisTemplate,
+                                MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.properties = properties;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoLevelCache createCache(String name) {
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            throw new IllegalStateException("No remote cache configured for " + name);
+        }
+        com.google.common.cache.Cache<String, Object> local = CacheBuilder.newBuilder()
+            .maximumSize(properties.localMaxSizeFor(name))
+            .expireAfterWrite(properties.localTtlFor(name).toMillis(), TimeUnit.MILLISECONDS)
+            .build();
+        log.info("Created two-level cache '{}' (L1 max {} entries, L1 ttl {}, L2 ttl {})",
+            name, properties.localMaxSizeFor(name), properties.localTtlFor(name), properties.ttlFor(name));
+        return new TwoLevelCache(name, local, remote, this, meterRegistry);
+    }
+
+    @Override
+    public void publishEvict(String cacheName, String key) {
+        publish(cacheName, key);
+    }
+
+    @Override
+    public void publishClear(String cacheName) {
+        publish(cacheName, CLEAR_KEY);
+    }
+
+    private void publish(String cacheName, String key) {
+        try {
+            stringRedisTemplate.convertAndSend(properties.getInvalidationChannel(),
+                nodeId + SEPARATOR + cacheName + SEPARATOR + key);
+        } catch (Exception e) {
+            // Peers fall back to L1 expiry if the broadcast is lost
+            log.warn("Failed to publish cache invalidation for {}:{}", cacheName, key, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int first = body.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : body.indexOf(SEPARATOR, first + 1);
+        if (second < 0) {
+            log.warn("Ignoring malformed cache invalidation message: {}", body);
+            return;
+        }
+
+        String sender = body.substring(0, first);
+        if (nodeId.equals(sender)) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(body.substring(first + 1, second));
+        if (cache == null) {
+            return;
+        }
+
+        String key = body.substring(second + 1);
+        if (CLEAR_KEY.equals(key)) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(key);
+        }
+    }
+}
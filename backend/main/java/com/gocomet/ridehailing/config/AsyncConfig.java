@@ -21,4 +21,16 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    // Finalizes payments when the gateway answers; each task holds a connection only briefly
+    @Bean(name = "paymentExecutor")
+    public Executor paymentExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(5000);
+        executor.setThreadNamePrefix("payment-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,35 @@
+package com.gocomet.ridehailing.config;
+
+import com.gocomet.ridehailing.notification.ClusterBrokerRelay;
+import com.gocomet.ridehailing.notification.RedisBrokerTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+/**
+ * Multi-node notification delivery ({@code app.notifications.broker.mode=cluster}): nodes
+ * exchange notifications over Redis pub/sub and each delivers to the sessions it holds.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.notifications.broker.mode", havingValue = "cluster")
+public class BrokerRelayConfig {
+
+    @Bean(destroyMethod = "destroy")
+    public RedisBrokerTransport brokerTransport(StringRedisTemplate redisTemplate,
+                                                RedisConnectionFactory connectionFactory) {
+        return new RedisBrokerTransport(redisTemplate, connectionFactory);
+    }
+
+    @Bean
+    public ClusterBrokerRelay brokerRelay(SimpMessagingTemplate messagingTemplate,
+                                          RedisBrokerTransport brokerTransport,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${app.notifications.broker.channel-prefix:ws:}") String channelPrefix) {
+        return new ClusterBrokerRelay(messagingTemplate, brokerTransport, meterRegistry, channelPrefix);
+    }
+}
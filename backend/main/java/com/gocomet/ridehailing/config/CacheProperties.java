@@ -0,0 +1,50 @@
+package com.gocomet.ridehailing.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.cache")
+public class CacheProperties {
+
+    // Defaults applied to every cache unless overridden under app.cache.caches.<name>
+    private Duration ttl = Duration.ofMinutes(10);
+    private Duration localTtl = Duration.ofMinutes(1);
+    private long localMaxSize = 10_000;
+
+    private String invalidationChannel = "cache:invalidation";
+
+    private Map<String, Spec> caches = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Spec {
+        private Duration ttl;
+        private Duration localTtl;
+        private Long localMaxSize;
+    }
+
+    public Duration ttlFor(String cacheName) {
+        Spec spec = caches.get(cacheName);
+        return spec != null && spec.getTtl() != null ? spec.getTtl() : ttl;
+    }
+
+    public Duration localTtlFor(String cacheName) {
+        Spec spec = caches.get(cacheName);
+        Duration local = spec != null && spec.getLocalTtl() != null ? spec.getLocalTtl() : localTtl;
+        // L1 must never outlive L2, otherwise a node keeps serving values Redis already expired
+        Duration remote = ttlFor(cacheName);
+        return local.compareTo(remote) > 0 ? remote : local;
+    }
+
+    public long localMaxSizeFor(String cacheName) {
+        Spec spec = caches.get(cacheName);
+        return spec != null && spec.getLocalMaxSize() != null ? spec.getLocalMaxSize() : localMaxSize;
+    }
+}
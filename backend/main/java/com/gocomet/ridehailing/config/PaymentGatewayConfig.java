@@ -0,0 +1,35 @@
+package com.gocomet.ridehailing.config;
+
+import com.gocomet.ridehailing.payment.CircuitBreaker;
+import com.gocomet.ridehailing.payment.GatewayGuard;
+import com.gocomet.ridehailing.payment.PaymentGatewayClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@Slf4j
+public class PaymentGatewayConfig {
+
+    @Bean
+    public GatewayGuard gatewayGuard(PaymentGatewayClient paymentGateway, MeterRegistry meterRegistry,
+                                     @Value("${app.payment.gateway.circuit-breaker.window-size:20}") int windowSize,
+                                     @Value("${app.payment.gateway.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                     @Value("${app.payment.gateway.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                     @Value("${app.payment.gateway.circuit-breaker.open-duration:30s}") Duration openDuration,
+                                     @Value("${app.payment.gateway.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+                                     @Value("${app.payment.gateway.bulkhead.max-concurrent-calls:64}") int maxConcurrentCalls,
+                                     @Value("${app.payment.timeout-ms:5000}") long timeoutMs) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+            openDuration, halfOpenCalls, System::nanoTime, (from, to) -> {
+                log.warn("Payment gateway circuit {} -> {}", from, to);
+                meterRegistry.counter("payment.gateway.circuit.transitions",
+                    "from", from.name().toLowerCase(), "to", to.name().toLowerCase()).increment();
+            });
+        return new GatewayGuard(paymentGateway, circuitBreaker, meterRegistry, maxConcurrentCalls, timeoutMs);
+    }
+}
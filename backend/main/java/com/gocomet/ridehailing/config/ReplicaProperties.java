@@ -0,0 +1,40 @@
+package com.gocomet.ridehailing.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Streaming replica for query endpoints ({@code app.datasource.replica.enabled=true}).
+ * Username and password default to the primary's.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.datasource.replica")
+public class ReplicaProperties {
+
+    private boolean enabled = false;
+
+    private String url;
+    private String username;
+    private String password;
+    private int maximumPoolSize = 20;
+
+    // Reads fall back to the primary while the replica is further behind than this
+    private Duration maxLag = Duration.ofSeconds(2);
+    private long lagCheckIntervalMs = 1000;
+
+    // Added to a write's commit time before comparing it with the replica's replay position,
+    // to cover clock skew between the application and the primary
+    private Duration clockSkewMargin = Duration.ofMillis(500);
+
+    /**
+     * How long a client keeps reading from the primary after its write, at most. Past this the
+     * replica is either caught up with the write or lagging and bypassed anyway.
+     */
+    public Duration readYourWritesWindow() {
+        return maxLag.plus(clockSkewMargin);
+    }
+}
@@ -0,0 +1,36 @@
+package com.gocomet.ridehailing.config;
+
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.tariffs")
+public class TariffProperties {
+
+    // Optional JSON file with the same shape as this class; reloaded when it changes
+    private String file;
+
+    private long reloadIntervalMs = 30_000;
+
+    // Per-tier defaults; missing fields fall back to the global app.fare.* rates
+    private Map<VehicleTier, Rates> defaults = new EnumMap<>(VehicleTier.class);
+
+    // Per-region overrides; missing fields fall back to the tier default
+    private Map<String, Map<VehicleTier, Rates>> regions = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Rates {
+        private Double baseFare;
+        private Double perKmRate;
+        private Double perMinuteRate;
+        private Double minimumFare;
+    }
+}
@@ -18,6 +18,9 @@ public class WebConfig implements WebMvcConfigurer {
                 )
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
+                // Ride listings return their next-page cursor in a header; writes return the
+                // read-your-writes token for clients that cannot keep the cookie
+                .exposedHeaders("X-Next-Cursor", "X-Read-After")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
@@ -1,15 +1,39 @@
 package com.gocomet.ridehailing.config;
 
+import com.gocomet.ridehailing.notification.SlowConsumerGuard;
+import com.gocomet.ridehailing.notification.TopicSubscriptionFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final TopicSubscriptionFilter topicSubscriptionFilter;
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimit;
+
+    public WebSocketConfig(TopicSubscriptionFilter topicSubscriptionFilter,
+                           SlowConsumerGuard slowConsumerGuard,
+                           @Value("${app.notifications.sessions.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                           @Value("${app.notifications.sessions.send-buffer-size-limit:524288}") int sendBufferSizeLimit) {
+        this.topicSubscriptionFilter = topicSubscriptionFilter;
+        this.slowConsumerGuard = slowConsumerGuard;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
@@ -22,4 +46,41 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(topicSubscriptionFilter);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(slowConsumerGuard);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // A session whose send stalls past the limit, or whose buffer overflows, is closed
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .addDecoratorFactory(slowConsumerGuard);
+    }
+
+    /**
+     * With a topic per ride the broker sees far more destinations than its default cache of
+     * 1024, and every cache miss scans all subscriptions. Size the cache for the live rides.
+     */
+    @Bean
+    static BeanPostProcessor brokerSubscriptionCache(
+            @Value("${app.notifications.broker.subscription-cache-limit:16384}") int cacheLimit) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof SimpleBrokerMessageHandler broker
+                        && broker.getSubscriptionRegistry() instanceof DefaultSubscriptionRegistry registry) {
+                    registry.setCacheLimit(cacheLimit);
+                }
+                return bean;
+            }
+        };
+    }
 }
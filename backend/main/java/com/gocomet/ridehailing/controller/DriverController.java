@@ -2,25 +2,27 @@ package com.gocomet.ridehailing.controller;
 
 import com.gocomet.ridehailing.model.dto.AcceptRideRequest;
 import com.gocomet.ridehailing.model.dto.ApiResponse;
+import com.gocomet.ridehailing.model.dto.DriverEarnings;
 import com.gocomet.ridehailing.model.dto.DriverLocationUpdate;
 import com.gocomet.ridehailing.model.dto.RideResponse;
-import com.gocomet.ridehailing.model.entity.Ride;
-import com.gocomet.ridehailing.model.enums.RideStatus;
-import com.gocomet.ridehailing.repository.RideRepository;
+import com.gocomet.ridehailing.notification.DriverLocationStreamer;
+import com.gocomet.ridehailing.service.LedgerService;
 import com.gocomet.ridehailing.service.LocationCacheService;
 import com.gocomet.ridehailing.service.RideService;
+import com.gocomet.ridehailing.service.TripDistanceTracker;
 import com.newrelic.api.agent.Trace;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/v1/drivers")
@@ -32,7 +34,9 @@ public class DriverController {
     private final RideService rideService;
     private final com.gocomet.ridehailing.service.DriverService driverService;
     private final LocationCacheService locationCacheService;
-    private final RideRepository rideRepository;
+    private final TripDistanceTracker tripDistanceTracker;
+    private final DriverLocationStreamer driverLocationStreamer;
+    private final LedgerService ledgerService;
     
     @PostMapping("/{id}/location")
     @Trace(dispatcher = true)
@@ -48,6 +52,8 @@ public class DriverController {
             locationUpdate.getLatitude(),
             locationUpdate.getLongitude()
         );
+        tripDistanceTracker.recordLocation(id, locationUpdate.getLatitude(), locationUpdate.getLongitude(), startTime);
+        driverLocationStreamer.onLocation(id, locationUpdate.getLatitude(), locationUpdate.getLongitude(), startTime);
         
         long duration = System.currentTimeMillis() - startTime;
         
@@ -116,17 +122,20 @@ public class DriverController {
         log.debug("Getting pending rides for driver {}", id);
         
         // Find all rides matched to this driver that haven't been accepted yet
-        List<Ride> pendingRides = rideRepository.findByDriverIdOrderByCreatedAtDesc(id)
-            .stream()
-            .filter(ride -> ride.getStatus() == RideStatus.MATCHED)
-            .collect(Collectors.toList());
-        
-        List<RideResponse> responses = pendingRides.stream()
-            .map(rideService::mapRideToResponse)
-            .collect(Collectors.toList());
+        List<RideResponse> responses = rideService.getPendingRides(id);
         
         log.info("Found {} pending rides for driver {}", responses.size(), id);
         
         return ResponseEntity.ok(ApiResponse.success(responses));
     }
+    
+    @GetMapping("/{id}/earnings")
+    @Trace(dispatcher = true)
+    @Operation(summary = "Get driver earnings", description = "Daily earnings, commission and payouts from the settlement ledger")
+    public ResponseEntity<ApiResponse<List<DriverEarnings>>> getEarnings(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(ApiResponse.success(ledgerService.getDriverEarnings(id, from, to)));
+    }
 }
@@ -0,0 +1,33 @@
+package com.gocomet.ridehailing.controller;
+
+import com.gocomet.ridehailing.model.dto.ApiResponse;
+import com.gocomet.ridehailing.model.dto.FareQuoteRequest;
+import com.gocomet.ridehailing.model.dto.FareQuoteResponse;
+import com.gocomet.ridehailing.service.FareQuoteService;
+import com.newrelic.api.agent.Trace;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/v1/fares")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Fares", description = "Fare quote APIs")
+public class FareController {
+    
+    private final FareQuoteService fareQuoteService;
+    
+    @PostMapping("/quotes")
+    @Trace(dispatcher = true)
+    @Operation(summary = "Quote all vehicle tiers", description = "Prices every vehicle tier for one pickup/destination pair in a single call")
+    public ResponseEntity<ApiResponse<FareQuoteResponse>> quote(@Valid @RequestBody FareQuoteRequest request) {
+        log.debug("Quoting fares in region {}", request.getRegion());
+        FareQuoteResponse response = fareQuoteService.quoteAllTiers(request);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+}
@@ -14,6 +14,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/v1/payments")
 @RequiredArgsConstructor
@@ -26,30 +28,31 @@ public class PaymentController {
     @PostMapping
     @Trace(dispatcher = true)
     @Operation(summary = "Process payment", description = "Processes payment for a completed trip via external PSP")
-    public ResponseEntity<ApiResponse<PaymentResponse>> processPayment(@Valid @RequestBody PaymentRequest request) {
+    public CompletableFuture<ResponseEntity<ApiResponse<PaymentResponse>>> processPayment(
+            @Valid @RequestBody PaymentRequest request) {
         log.info("Processing payment for ride: {}", request.getRideId());
         long startTime = System.currentTimeMillis();
         
-        PaymentResponse response = paymentService.processPayment(request);
-        
-        long duration = System.currentTimeMillis() - startTime;
-        log.info("Payment {} processed in {}ms with status: {}", 
-            response.getId(), duration, response.getStatus());
-        
-        return ResponseEntity
-            .status(HttpStatus.CREATED)
-            .body(ApiResponse.success("Payment processed successfully", response));
+        // The request thread is released while the gateway call is in flight
+        return paymentService.processPayment(request).thenApply(response -> {
+            long duration = System.currentTimeMillis() - startTime;
+            log.info("Payment {} processed in {}ms with status: {}", 
+                response.getId(), duration, response.getStatus());
+            
+            return ResponseEntity
+                .status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Payment processed successfully", response));
+        });
     }
     
     @PostMapping("/{id}/retry")
     @Trace(dispatcher = true)
     @Operation(summary = "Retry failed payment", description = "Retries a failed payment transaction")
-    public ResponseEntity<ApiResponse<PaymentResponse>> retryPayment(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<ApiResponse<PaymentResponse>>> retryPayment(@PathVariable Long id) {
         log.info("Retrying payment: {}", id);
         
-        PaymentResponse response = paymentService.retryPayment(id);
-        
-        return ResponseEntity.ok(ApiResponse.success("Payment retried successfully", response));
+        return paymentService.retryPayment(id)
+            .thenApply(response -> ResponseEntity.ok(ApiResponse.success("Payment retried successfully", response)));
     }
     
     @GetMapping("/ride/{rideId}")
@@ -2,6 +2,7 @@ package com.gocomet.ridehailing.controller;
 
 import com.gocomet.ridehailing.model.dto.ApiResponse;
 import com.gocomet.ridehailing.model.dto.CreateRideRequest;
+import com.gocomet.ridehailing.model.dto.RidePage;
 import com.gocomet.ridehailing.model.dto.RideResponse;
 import com.gocomet.ridehailing.service.RideService;
 import com.newrelic.api.agent.Trace;
@@ -21,6 +22,8 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "Rides", description = "Ride management APIs")
 public class RideController {
     
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
     private final RideService rideService;
     
     @PostMapping
@@ -57,24 +60,23 @@ public class RideController {
     
     @GetMapping
     @Trace(dispatcher = true)
-    @Operation(summary = "Get all rides", description = "Retrieves all rides, optionally filtered by status")
+    @Operation(summary = "List rides", description = "Newest first, optionally filtered by rider, driver or status. "
+        + "Pages are keyset-paginated: pass the X-Next-Cursor header of a page as cursor to get the next one")
     public ResponseEntity<ApiResponse<java.util.List<RideResponse>>> getAllRides(
             @RequestParam(required = false) String status,
             @RequestParam(required = false) Long riderId,
             @RequestParam(required = false) Long driverId,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false, defaultValue = "100") int limit) {
         log.debug("Getting rides, status: {}, riderId: {}, driverId: {}, limit: {}", status, riderId, driverId, limit);
         
-        java.util.List<RideResponse> responses;
-        if (riderId != null) {
-            responses = rideService.getRidesByRiderId(riderId);
-        } else if (driverId != null) {
-            responses = rideService.getRidesByDriverId(driverId);
-        } else {
-            responses = rideService.getAllRides(status, limit);
-        }
+        RidePage page = rideService.listRides(status, riderId, driverId, cursor, limit);
         
-        return ResponseEntity.ok(ApiResponse.success(responses));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(ApiResponse.success(page.rides()));
     }
     
     @PostMapping("/{id}/cancel")
@@ -0,0 +1,83 @@
+package com.gocomet.ridehailing.controller;
+
+import com.gocomet.ridehailing.model.dto.ApiResponse;
+import com.gocomet.ridehailing.model.dto.SurgeTileResponse;
+import com.gocomet.ridehailing.pricing.SurgeHeatmap;
+import com.gocomet.ridehailing.service.SurgeHeatmapService;
+import com.gocomet.ridehailing.service.SurgePricingService;
+import com.gocomet.ridehailing.util.GeoHash;
+import com.newrelic.api.agent.Trace;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/v1/surge")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Surge", description = "Surge heatmap APIs")
+public class SurgeController {
+    
+    private static final int MIN_TILE_PRECISION = 3;
+    
+    private final SurgeHeatmapService surgeHeatmapService;
+    private final SurgePricingService surgePricingService;
+    
+    @GetMapping("/tiles/{tile}")
+    @Trace(dispatcher = true)
+    @Operation(summary = "Get surge tile", description = "Returns surging cells inside a geohash tile from the latest heatmap snapshot")
+    public ResponseEntity<ApiResponse<SurgeTileResponse>> getTile(@PathVariable String tile) {
+        String prefix = tile.toLowerCase();
+        SurgeHeatmap snapshot = surgeHeatmapService.getSnapshot();
+        
+        if (!GeoHash.isValid(prefix) || prefix.length() < MIN_TILE_PRECISION 
+                || prefix.length() > snapshot.getPrecision()) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(String.format(
+                "Tile must be a geohash of length %d to %d", MIN_TILE_PRECISION, snapshot.getPrecision())));
+        }
+        
+        List<SurgeTileResponse.Cell> cells = snapshot.cellsWithPrefix(prefix).entrySet().stream()
+            .map(entry -> {
+                double[] center = GeoHash.decodeCenter(entry.getKey());
+                return SurgeTileResponse.Cell.builder()
+                    .geohash(entry.getKey())
+                    .latitude(center[0])
+                    .longitude(center[1])
+                    .multiplier(entry.getValue())
+                    .build();
+            })
+            .collect(Collectors.toList());
+        
+        SurgeTileResponse response = SurgeTileResponse.builder()
+            .tile(prefix)
+            .precision(snapshot.getPrecision())
+            .builtAt(snapshot.getBuiltAt())
+            .cells(cells)
+            .build();
+        
+        // Snapshots are rebuilt on a fixed schedule, so clients and proxies can cache briefly
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(10, TimeUnit.SECONDS).cachePublic())
+            .body(ApiResponse.success(response));
+    }
+    
+    @GetMapping
+    @Trace(dispatcher = true)
+    @Operation(summary = "Get surge at location", description = "Returns the surge multiplier for a pickup point")
+    public ResponseEntity<ApiResponse<Double>> getSurgeAt(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam String region) {
+        Double multiplier = surgeHeatmapService.multiplierAt(latitude, longitude)
+            .orElseGet(() -> surgePricingService.calculateSurgeMultiplier(region));
+        return ResponseEntity.ok(ApiResponse.success(multiplier));
+    }
+}
@@ -0,0 +1,96 @@
+package com.gocomet.ridehailing.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+/**
+ * Remembers when a client last wrote, so its reads stay on the primary until the replica has
+ * replayed that write. The token is the epoch millis the replica must have replayed up to; it
+ * goes back to the client as a short-lived cookie (browsers) and the {@code X-Read-After}
+ * header (API clients echo it on their next request).
+ */
+public class ReadYourWrites {
+
+    public static final String COOKIE = "read-after";
+    public static final String HEADER = "X-Read-After";
+    private static final String ATTRIBUTE = ReadYourWrites.class.getName() + ".token";
+
+    private final long clockSkewMarginMillis;
+    private final Duration window;
+
+    public ReadYourWrites(Duration clockSkewMargin, Duration window) {
+        this.clockSkewMarginMillis = clockSkewMargin.toMillis();
+        this.window = window;
+    }
+
+    /**
+     * Called after a read-write transaction commits. Outside a request (async matching,
+     * scheduled jobs) there is no client to hand the token to, and those threads read from the
+     * primary anyway.
+     */
+    public void recordWrite(long committedAtMillis) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servlet)) {
+            return;
+        }
+        long token = committedAtMillis + clockSkewMarginMillis;
+        // Later reads in the same request see it too
+        servlet.getRequest().setAttribute(ATTRIBUTE, token);
+        HttpServletResponse response = servlet.getResponse();
+        if (response == null || response.isCommitted()) {
+            return;
+        }
+        ResponseCookie cookie = ResponseCookie.from(COOKIE, Long.toString(token))
+            .path("/")
+            .maxAge(Duration.ofSeconds(Math.max(1, (window.toMillis() + 999) / 1000)))
+            .httpOnly(true)
+            .sameSite("Lax")
+            .build();
+        // A later commit in the same request adds a newer cookie; the client keeps the last one
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        response.setHeader(HEADER, Long.toString(token));
+    }
+
+    /**
+     * The replay position this request's reads need, or 0 when the client has no recent write.
+     * Tokens further ahead than a fresh write could produce are ignored, so a client cannot pin
+     * itself to the primary indefinitely.
+     */
+    public long requiredUpTo(HttpServletRequest request, long nowMillis) {
+        long latest = nowMillis + clockSkewMarginMillis;
+        long required = 0;
+        if (request.getAttribute(ATTRIBUTE) instanceof Long token) {
+            required = token;
+        }
+        required = Math.max(required, parse(request.getHeader(HEADER), latest));
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    required = Math.max(required, parse(cookie.getValue(), latest));
+                }
+            }
+        }
+        return required;
+    }
+
+    private static long parse(String value, long latest) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            long token = Long.parseLong(value);
+            return token > latest ? 0 : token;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
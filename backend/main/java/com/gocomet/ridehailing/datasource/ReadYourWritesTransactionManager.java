@@ -0,0 +1,26 @@
+package com.gocomet.ridehailing.datasource;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Hands the client a read-your-writes token whenever a read-write transaction commits.
+ */
+public class ReadYourWritesTransactionManager extends JpaTransactionManager {
+
+    private final transient ReadYourWrites readYourWrites;
+
+    public ReadYourWritesTransactionManager(EntityManagerFactory entityManagerFactory, ReadYourWrites readYourWrites) {
+        super(entityManagerFactory);
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        super.doCommit(status);
+        if (!status.isReadOnly()) {
+            readYourWrites.recordWrite(System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.gocomet.ridehailing.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+/**
+ * Polls the replica for how far behind the primary it is. Routing trusts a sample for three
+ * poll intervals; a failed or missing poll sends reads to the primary until the next good one.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // Lag is zero when everything received has been replayed: an idle primary writes no WAL,
+    // so now() - last replay time would otherwise grow without the replica falling behind.
+    // The replay position is the commit time of the last transaction the replica applied
+    private static final String LAG_QUERY =
+        "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END, "
+            + "EXTRACT(EPOCH FROM CASE WHEN pg_is_in_recovery() THEN pg_last_xact_replay_timestamp() "
+            + "ELSE now() END) * 1000";
+
+    record Sample(long lagMillis, long replayedUpToMillis, long sampledAtMillis) {
+    }
+
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+    private final long staleAfterMillis;
+
+    private volatile Sample sample;
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(JdbcTemplate replica, Duration maxLag, long checkIntervalMs, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.maxLagMillis = maxLag.toMillis();
+        this.staleAfterMillis = 3 * checkIntervalMs;
+        Gauge.builder("db.replica.lag", this, monitor -> {
+                Sample current = monitor.sample;
+                return current != null ? current.lagMillis() : Double.NaN;
+            })
+            .baseUnit("milliseconds")
+            .description("Replica replay lag at the last successful check")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:1000}")
+    public void poll() {
+        try {
+            Sample polled = replica.queryForObject(LAG_QUERY, (rs, rowNum) -> {
+                double lag = rs.getDouble(1);
+                boolean noLag = rs.wasNull();
+                double replayed = rs.getDouble(2);
+                // A replica that has not replayed anything yet has no replay time
+                if (noLag || rs.wasNull()) {
+                    return null;
+                }
+                return new Sample((long) lag, (long) replayed, System.currentTimeMillis());
+            });
+            update(polled);
+        } catch (DataAccessException e) {
+            log.debug("Replica lag check failed", e);
+            update(null);
+        }
+    }
+
+    void update(Sample polled) {
+        sample = polled;
+        boolean nowUsable = polled != null && polled.lagMillis() <= maxLagMillis;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                log.info("Replica caught up (lag {} ms), serving reads from it", polled.lagMillis());
+            } else {
+                log.warn("Replica unavailable or lagging ({}), reading from the primary",
+                    polled == null ? "no lag sample" : polled.lagMillis() + " ms");
+            }
+            usable = nowUsable;
+        }
+    }
+
+    /**
+     * Whether the replica can serve a read that must see writes committed up to
+     * {@code requiredUpToMillis} (0 for none).
+     */
+    public boolean canServe(long requiredUpToMillis, long nowMillis) {
+        Sample current = sample;
+        if (current == null || nowMillis - current.sampledAtMillis() > staleAfterMillis
+                || current.lagMillis() > maxLagMillis) {
+            return false;
+        }
+        return requiredUpToMillis <= current.replayedUpToMillis();
+    }
+}
@@ -0,0 +1,61 @@
+package com.gocomet.ridehailing.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Target for read-only transactions. Only reads made while serving a GET go to the replica:
+ * write requests read-then-write (status checks, idempotency lookups) and background work
+ * (matching, settlement, outbox relays) feeds writes too, so both stay on the primary. A GET
+ * still reads from the primary while the replica lags or has not replayed the client's own
+ * last write.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWrites readYourWrites;
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+                                    ReadYourWrites readYourWrites, MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.readYourWrites = readYourWrites;
+        this.primaryReads = meterRegistry.counter("db.routing.reads", "target", "primary");
+        this.replicaReads = meterRegistry.counter("db.routing.reads", "target", "replica");
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Target target = route(currentRequest(), System.currentTimeMillis());
+        (target == Target.REPLICA ? replicaReads : primaryReads).increment();
+        return target;
+    }
+
+    Target route(HttpServletRequest request, long nowMillis) {
+        if (request == null || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            return Target.PRIMARY;
+        }
+        long requiredUpTo = readYourWrites.requiredUpTo(request, nowMillis);
+        return lagMonitor.canServe(requiredUpTo, nowMillis) ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet.getRequest() : null;
+    }
+}
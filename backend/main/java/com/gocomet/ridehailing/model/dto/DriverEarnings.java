@@ -0,0 +1,19 @@
+package com.gocomet.ridehailing.model.dto;
+
+import com.gocomet.ridehailing.pricing.Money;
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DriverEarnings {
+    private LocalDate date;
+    private Money earnings;
+    private Money commission;
+    private Integer paymentCount;
+    private Money paidOut;
+}
@@ -19,6 +19,7 @@ public class EndTripRequest {
     @NotNull(message = "End longitude is required")
     private Double endLongitude;
     
-    @NotNull(message = "Distance is required")
+    // Optional: the server bills the distance it accumulated from location updates
+    // and only falls back to this when the trip was not tracked
     private Double distanceKm;
 }
@@ -0,0 +1,34 @@
+package com.gocomet.ridehailing.model.dto;
+
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FareQuoteRequest {
+    
+    @NotNull(message = "Pickup latitude is required")
+    private Double pickupLatitude;
+    
+    @NotNull(message = "Pickup longitude is required")
+    private Double pickupLongitude;
+    
+    @NotNull(message = "Destination latitude is required")
+    private Double destinationLatitude;
+    
+    @NotNull(message = "Destination longitude is required")
+    private Double destinationLongitude;
+    
+    @NotBlank(message = "Region is required")
+    private String region;
+    
+    // Optional subset of tiers; all tiers are quoted when empty
+    private List<VehicleTier> vehicleTiers;
+}
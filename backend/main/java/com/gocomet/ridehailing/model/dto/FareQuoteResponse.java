@@ -0,0 +1,37 @@
+package com.gocomet.ridehailing.model.dto;
+
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FareQuoteResponse {
+    private String region;
+    private String pickupCell;
+    private String destinationCell;
+    private Double distanceKm;
+    private Double estimatedMinutes;
+    private Double surgeMultiplier;
+    private Long tariffVersion;
+    private List<TierQuote> quotes;
+    
+    @Getter
+    @Setter
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TierQuote {
+        private VehicleTier vehicleTier;
+        private Money estimatedFare;
+        private Money baseFare;
+        private Money perKmRate;
+        private Money perMinuteRate;
+        private Money minimumFare;
+    }
+}
@@ -0,0 +1,77 @@
+package com.gocomet.ridehailing.model.dto;
+
+import com.gocomet.ridehailing.pricing.Money;
+
+/**
+ * Payloads of rider/driver notifications, the {@code data} of a {@link NotificationMessage}.
+ * Each is serialized once, when it is written to the outbox.
+ */
+public sealed interface NotificationEvent {
+
+    String eventType();
+
+    record RideMatched(Long rideId, Long driverId, String message) implements NotificationEvent {
+        public String eventType() {
+            return "RIDE_MATCHED";
+        }
+    }
+
+    record NewRideRequest(Long rideId, String pickupAddress, Double pickupLatitude, Double pickupLongitude)
+            implements NotificationEvent {
+        public String eventType() {
+            return "NEW_RIDE_REQUEST";
+        }
+    }
+
+    record RideAccepted(Long rideId, String message) implements NotificationEvent {
+        public String eventType() {
+            return "RIDE_ACCEPTED";
+        }
+    }
+
+    record RideFailed(Long rideId, String reason) implements NotificationEvent {
+        public String eventType() {
+            return "RIDE_FAILED";
+        }
+    }
+
+    /** A tracking tick for the rider; {@code pickupDistanceKm} is null once the trip has started. */
+    record DriverLocation(Long rideId, Long driverId, double latitude, double longitude, Double pickupDistanceKm)
+            implements NotificationEvent {
+        public String eventType() {
+            return "DRIVER_LOCATION";
+        }
+    }
+
+    record TripStarted(Long rideId, String message) implements NotificationEvent {
+        public String eventType() {
+            return "TRIP_STARTED";
+        }
+    }
+
+    record TripEnded(Long rideId, Money fare, String message) implements NotificationEvent {
+        public String eventType() {
+            return "TRIP_ENDED";
+        }
+    }
+
+    record PaymentSucceeded(Long rideId, Long paymentId, Money amount, String transactionId, String message)
+            implements NotificationEvent {
+        public String eventType() {
+            return "PAYMENT_SUCCESS";
+        }
+    }
+
+    record PaymentReceived(Long rideId, Long paymentId, Money amount, String message) implements NotificationEvent {
+        public String eventType() {
+            return "PAYMENT_RECEIVED";
+        }
+    }
+
+    record PaymentFailed(Long rideId, Long paymentId, Money amount, String reason, String message)
+            implements NotificationEvent {
+        public String eventType() {
+            return "PAYMENT_FAILED";
+        }
+    }
+}
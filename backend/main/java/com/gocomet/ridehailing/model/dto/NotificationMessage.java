@@ -0,0 +1,11 @@
+package com.gocomet.ridehailing.model.dto;
+
+/**
+ * Envelope for rider/driver notifications: {@code {eventType, data, timestamp}}.
+ */
+public record NotificationMessage(String eventType, NotificationEvent data, long timestamp) {
+
+    public static NotificationMessage of(NotificationEvent event) {
+        return new NotificationMessage(event.eventType(), event, System.currentTimeMillis());
+    }
+}
@@ -1,6 +1,7 @@
 package com.gocomet.ridehailing.model.dto;
 
 import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.pricing.Money;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
@@ -18,7 +19,7 @@ public class PaymentRequest {
     private Long tripId;
     
     @NotNull(message = "Amount is required")
-    private Double amount;
+    private Money amount;
     
     @NotNull(message = "Payment method is required")
     private PaymentMethod paymentMethod;
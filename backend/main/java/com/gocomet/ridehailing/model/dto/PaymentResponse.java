@@ -2,6 +2,7 @@ package com.gocomet.ridehailing.model.dto;
 
 import com.gocomet.ridehailing.model.enums.PaymentMethod;
 import com.gocomet.ridehailing.model.enums.PaymentStatus;
+import com.gocomet.ridehailing.pricing.Money;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -15,7 +16,7 @@ public class PaymentResponse {
     private Long id;
     private Long rideId;
     private Long tripId;
-    private Double amount;
+    private Money amount;
     private PaymentMethod paymentMethod;
     private PaymentStatus status;
     private String transactionId;
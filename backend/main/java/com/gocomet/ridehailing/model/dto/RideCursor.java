@@ -0,0 +1,32 @@
+package com.gocomet.ridehailing.model.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a newest-first ride listing: the next page holds rides strictly before
+ * {@code (createdAt, id)}. Clients get it as an opaque token.
+ */
+public record RideCursor(LocalDateTime createdAt, Long id) {
+
+    // Before every real ride; stands in for "no cursor" so the first page uses the same query
+    public static final RideCursor START = new RideCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    public String encode() {
+        String raw = createdAt + "_" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Parses a token from {@link #encode()}; throws IllegalArgumentException if it is not one. */
+    public static RideCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('_');
+            return new RideCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.gocomet.ridehailing.model.dto;
+
+import java.util.List;
+
+/**
+ * One page of a ride listing; {@code nextCursor} is null on the last page.
+ */
+public record RidePage(List<RideResponse> rides, String nextCursor) {
+}
@@ -3,6 +3,7 @@ package com.gocomet.ridehailing.model.dto;
 import com.gocomet.ridehailing.model.enums.PaymentMethod;
 import com.gocomet.ridehailing.model.enums.RideStatus;
 import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -25,9 +26,10 @@ public class RideResponse {
     private Double destinationLatitude;
     private Double destinationLongitude;
     private String destinationAddress;
-    private Double estimatedFare;
+    private Money estimatedFare;
     private Double surgeMultiplier;
     private String region;
+    private String tenantId;
     private LocalDateTime createdAt;
     private LocalDateTime matchedAt;
     private LocalDateTime acceptedAt;
@@ -35,6 +37,8 @@ public class RideResponse {
     private LocalDateTime endedAt;
     private String failureReason;
     private DriverInfo driverInfo;
+    // Bumped by every change; the seq of ride update frames
+    private Long version;
     
     @Getter
     @Setter
@@ -0,0 +1,28 @@
+package com.gocomet.ridehailing.model.dto;
+
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One window of ride activity for the operations dashboard: how many rides entered each
+ * status, and the latest state of each ride that changed. {@code truncated} counts changed
+ * rides left out once the window's ride cap was reached.
+ */
+public record RideSummary(long windowStart, long windowEnd, Map<RideStatus, Long> transitions,
+                          List<Entry> rides, int truncated) {
+
+    public record Entry(Long id, Long riderId, Long driverId, RideStatus status, VehicleTier vehicleTier,
+                        String region, String pickupAddress, String destinationAddress,
+                        Money estimatedFare, Double surgeMultiplier) {
+
+        public static Entry of(RideResponse ride) {
+            return new Entry(ride.getId(), ride.getRiderId(), ride.getDriverId(), ride.getStatus(),
+                ride.getVehicleTier(), ride.getRegion(), ride.getPickupAddress(),
+                ride.getDestinationAddress(), ride.getEstimatedFare(), ride.getSurgeMultiplier());
+        }
+    }
+}
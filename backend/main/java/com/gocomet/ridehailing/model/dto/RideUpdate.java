@@ -0,0 +1,27 @@
+package com.gocomet.ridehailing.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Frame on the ride-scoped topics. {@code seq} is the ride's version.
+ *
+ * <p>A SNAPSHOT carries the whole ride and becomes the base for later deltas. A DELTA carries
+ * the fields that differ from the snapshot at {@code baseSeq}, so applying it to that
+ * snapshot gives the ride at {@code seq}. A client whose base is not {@code baseSeq} has
+ * missed a snapshot and reloads the ride ({@code GET /v1/rides/{id}}, whose {@code version}
+ * is a valid base).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RideUpdate(Type type, Long rideId, long seq, Long baseSeq, RideResponse ride, ObjectNode changes) {
+
+    public enum Type { SNAPSHOT, DELTA }
+
+    public static RideUpdate snapshot(RideResponse ride, long seq) {
+        return new RideUpdate(Type.SNAPSHOT, ride.getId(), seq, null, ride, null);
+    }
+
+    public static RideUpdate delta(Long rideId, long seq, long baseSeq, ObjectNode changes) {
+        return new RideUpdate(Type.DELTA, rideId, seq, baseSeq, null, changes);
+    }
+}
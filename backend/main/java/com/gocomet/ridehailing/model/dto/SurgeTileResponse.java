@@ -0,0 +1,30 @@
+package com.gocomet.ridehailing.model.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SurgeTileResponse {
+    private String tile;
+    private Integer precision;
+    private Instant builtAt;
+    private List<Cell> cells;
+    
+    @Getter
+    @Setter
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Cell {
+        private String geohash;
+        private Double latitude;
+        private Double longitude;
+        private Double multiplier;
+    }
+}
@@ -23,7 +23,8 @@ import java.time.LocalDateTime;
 public class Driver {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "drivers_seq")
+    @SequenceGenerator(name = "drivers_seq", sequenceName = "drivers_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
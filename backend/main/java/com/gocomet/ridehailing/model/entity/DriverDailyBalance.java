@@ -0,0 +1,45 @@
+package com.gocomet.ridehailing.model.entity;
+
+import com.gocomet.ridehailing.pricing.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * A driver's earnings for one day, rolled up from {@link LedgerEntry} rows by the settlement
+ * job. Payouts pay the difference between {@code earnings} and {@code paidOut}, so entries
+ * that arrive after a day was settled are picked up by the next run.
+ */
+@Entity
+@Table(name = "driver_daily_balances",
+    uniqueConstraints = @UniqueConstraint(name = "uk_driver_daily_balance", columnNames = {"driverId", "balanceDate"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DriverDailyBalance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long driverId;
+
+    @Column(nullable = false)
+    private LocalDate balanceDate;
+
+    @Column(name = "earnings_paise", nullable = false)
+    private Money earnings;
+
+    @Column(name = "commission_paise", nullable = false)
+    private Money commission;
+
+    @Column(nullable = false)
+    private Integer paymentCount;
+
+    @Column(name = "paid_out_paise", nullable = false)
+    private Money paidOut;
+}
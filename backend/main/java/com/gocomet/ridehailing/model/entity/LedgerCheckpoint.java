@@ -0,0 +1,21 @@
+package com.gocomet.ridehailing.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Highest ledger entry id a streaming job has consumed; the row is also its run lock
+@Entity
+@Table(name = "ledger_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerCheckpoint {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private Long lastEntryId;
+}
@@ -0,0 +1,57 @@
+package com.gocomet.ridehailing.model.entity;
+
+import com.gocomet.ridehailing.model.enums.LedgerAccount;
+import com.gocomet.ridehailing.model.enums.LedgerDirection;
+import com.gocomet.ridehailing.pricing.Money;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One leg of a double-entry posting. The legs sharing a {@code reference} (one payment, one
+ * payout) debit and credit the same total; (reference, account, direction) is unique, so
+ * posting the same payment twice is rejected rather than double-counted.
+ */
+@Entity
+@Table(name = "ledger_entries",
+    uniqueConstraints = @UniqueConstraint(name = "uk_ledger_entry_leg", columnNames = {"reference", "account", "direction"}),
+    indexes = @Index(name = "idx_ledger_driver", columnList = "driverId, entryDate"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64, updatable = false)
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32, updatable = false)
+    private LedgerAccount account;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8, updatable = false)
+    private LedgerDirection direction;
+
+    @Column(name = "amount_paise", nullable = false, updatable = false)
+    private Money amount;
+
+    @Column(updatable = false)
+    private Long driverId;
+
+    // Business day the entry counts towards in the driver's daily balance
+    @Column(nullable = false, updatable = false)
+    private LocalDate entryDate;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
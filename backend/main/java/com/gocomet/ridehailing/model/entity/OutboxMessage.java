@@ -0,0 +1,42 @@
+package com.gocomet.ridehailing.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification written in the same transaction as the state change it describes. The
+ * payload is serialized at write time; the relay only forwards bytes.
+ */
+@Entity
+@Table(name = "notification_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, updatable = false, length = 200)
+    private String destination;
+
+    @Column(nullable = false, updatable = false, length = 16384)
+    private String payload;
+
+    // Messages sharing a key supersede each other while queued for the same destination
+    @Column(updatable = false, length = 64)
+    private String coalesceKey;
+
+    // Set when handed to the fan-out queue; the row is deleted once the broker has it
+    private LocalDateTime dispatchedAt;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -2,9 +2,11 @@ package com.gocomet.ridehailing.model.entity;
 
 import com.gocomet.ridehailing.model.enums.PaymentMethod;
 import com.gocomet.ridehailing.model.enums.PaymentStatus;
+import com.gocomet.ridehailing.pricing.Money;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -14,7 +16,8 @@ import java.time.LocalDateTime;
     @Index(name = "idx_payment_ride", columnList = "rideId"),
     @Index(name = "idx_payment_trip", columnList = "tripId"),
     @Index(name = "idx_payment_status", columnList = "status"),
-    @Index(name = "idx_payment_idempotency", columnList = "idempotencyKey")
+    @Index(name = "idx_payment_idempotency", columnList = "idempotencyKey"),
+    @Index(name = "idx_payment_retry_due", columnList = "status, nextRetryAt")
 })
 @Getter
 @Setter
@@ -24,10 +27,12 @@ import java.time.LocalDateTime;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    // Claimed in partitioned_unique_keys by an insert trigger, like Ride.idempotencyKey
+    @Column(nullable = false)
     private String idempotencyKey;
 
     @Column(nullable = false)
@@ -42,8 +47,8 @@ public class Payment {
     @Column(nullable = false)
     private Long driverId;
 
-    @Column(nullable = false)
-    private Double amount;
+    @Column(name = "amount_paise", nullable = false)
+    private Money amount;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -60,11 +65,15 @@ public class Payment {
     private String failureReason;
     
     private Integer retryCount = 0;
+    
+    // When the retry scheduler may pick up a FAILED payment; null once retries are exhausted
+    private LocalDateTime nextRetryAt;
 
     @Version
     private Long version;
 
     @CreationTimestamp
+    @PartitionKey
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -3,19 +3,21 @@ package com.gocomet.ridehailing.model.entity;
 import com.gocomet.ridehailing.model.enums.PaymentMethod;
 import com.gocomet.ridehailing.model.enums.RideStatus;
 import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "rides", indexes = {
-    @Index(name = "idx_ride_rider", columnList = "riderId"),
-    @Index(name = "idx_ride_driver", columnList = "driverId"),
-    @Index(name = "idx_ride_status", columnList = "status"),
-    @Index(name = "idx_ride_created", columnList = "createdAt"),
+    @Index(name = "idx_ride_rider_created", columnList = "riderId, createdAt DESC, id DESC"),
+    @Index(name = "idx_ride_driver_created", columnList = "driverId, createdAt DESC, id DESC"),
+    @Index(name = "idx_ride_status_created", columnList = "status, createdAt DESC, id DESC"),
+    @Index(name = "idx_ride_created_id", columnList = "createdAt DESC, id DESC"),
     @Index(name = "idx_ride_region", columnList = "region"),
     @Index(name = "idx_ride_idempotency", columnList = "idempotencyKey")
 })
@@ -27,10 +29,13 @@ import java.time.LocalDateTime;
 public class Ride {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rides_seq")
+    @SequenceGenerator(name = "rides_seq", sequenceName = "rides_seq", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    // Unique across partitions via the partitioned_unique_keys insert trigger (V10); a unique
+    // constraint on a table partitioned by created_at would have to include created_at
+    @Column(nullable = false)
     private String idempotencyKey;
 
     @Column(nullable = false)
@@ -73,7 +78,8 @@ public class Ride {
 
     private String tenantId;
 
-    private Double estimatedFare;
+    @Column(name = "estimated_fare_paise")
+    private Money estimatedFare;
     
     private Double surgeMultiplier = 1.0;
 
@@ -93,7 +99,9 @@ public class Ride {
     @Version
     private Long version; // For optimistic locking
 
+    // Partition column: entity updates and deletes add it to their WHERE so they hit one partition
     @CreationTimestamp
+    @PartitionKey
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
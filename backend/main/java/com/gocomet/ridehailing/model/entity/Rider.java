@@ -20,7 +20,8 @@ import java.time.LocalDateTime;
 public class Rider {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "riders_seq")
+    @SequenceGenerator(name = "riders_seq", sequenceName = "riders_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
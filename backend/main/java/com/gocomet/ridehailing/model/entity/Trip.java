@@ -1,9 +1,11 @@
 package com.gocomet.ridehailing.model.entity;
 
 import com.gocomet.ridehailing.model.enums.TripStatus;
+import com.gocomet.ridehailing.pricing.Money;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -22,10 +24,12 @@ import java.time.LocalDateTime;
 public class Trip {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trips_seq")
+    @SequenceGenerator(name = "trips_seq", sequenceName = "trips_seq", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    // One trip per ride, enforced by the partitioned_unique_keys insert trigger (see Ride.idempotencyKey)
+    @Column(nullable = false)
     private Long rideId;
 
     @Column(nullable = false)
@@ -61,16 +65,22 @@ public class Trip {
     
     private Long durationMinutes = 0L;
 
-    private Double baseFare;
+    @Column(name = "base_fare_paise")
+    private Money baseFare;
     
     private Double surgeMultiplier;
     
-    private Double totalFare;
+    @Column(name = "total_fare_paise")
+    private Money totalFare;
+
+    // Sequence of the last trip event folded into this row
+    private Long snapshotSequence;
 
     @Version
     private Long version;
 
     @CreationTimestamp
+    @PartitionKey
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
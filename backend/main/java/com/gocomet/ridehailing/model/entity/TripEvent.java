@@ -0,0 +1,50 @@
+package com.gocomet.ridehailing.model.entity;
+
+import com.gocomet.ridehailing.model.enums.TripEventType;
+import com.gocomet.ridehailing.pricing.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Append-only trip lifecycle log. (tripId, sequence) is unique, so two writers that
+ * folded the same state cannot both append the next event.
+ */
+@Entity
+@Table(name = "trip_events",
+    uniqueConstraints = @UniqueConstraint(name = "uk_trip_event_sequence", columnNames = {"tripId", "seq_no"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TripEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private Long tripId;
+
+    @Column(name = "seq_no", nullable = false, updatable = false)
+    private Long sequence;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private TripEventType type;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime occurredAt;
+
+    // ENDED payload
+    private Double latitude;
+
+    private Double longitude;
+
+    private Double distanceKm;
+
+    @Column(name = "fare_paise")
+    private Money fare;
+}
@@ -0,0 +1,9 @@
+package com.gocomet.ridehailing.model.enums;
+
+public enum LedgerAccount {
+    // Rider money collected through the PSP and not yet paid out
+    PLATFORM_CASH,
+    // Owed to drivers until their daily balance is paid out
+    DRIVER_PAYABLE,
+    PLATFORM_REVENUE
+}
@@ -0,0 +1,6 @@
+package com.gocomet.ridehailing.model.enums;
+
+public enum LedgerDirection {
+    DEBIT,
+    CREDIT
+}
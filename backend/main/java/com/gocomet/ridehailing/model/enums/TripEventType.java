@@ -0,0 +1,8 @@
+package com.gocomet.ridehailing.model.enums;
+
+public enum TripEventType {
+    STARTED,
+    PAUSED,
+    RESUMED,
+    ENDED
+}
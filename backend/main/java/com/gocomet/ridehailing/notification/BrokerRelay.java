@@ -0,0 +1,13 @@
+package com.gocomet.ridehailing.notification;
+
+import java.util.Map;
+
+/**
+ * Last hop of the notification pipeline: hands a message for a broker destination to
+ * whichever node(s) hold the sessions subscribed to it. Payloads are already serialized
+ * JSON and go out as raw frames, with no message conversion.
+ */
+public interface BrokerRelay {
+
+    void send(String destination, byte[] payload, Map<String, Object> headers);
+}
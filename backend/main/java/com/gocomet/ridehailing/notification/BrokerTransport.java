@@ -0,0 +1,17 @@
+package com.gocomet.ridehailing.notification;
+
+import java.util.function.Consumer;
+
+/**
+ * Pub/sub between backend nodes. A node subscribes to a channel while it has local sessions
+ * interested in it; messages published by any node reach every node subscribed at the time.
+ */
+public interface BrokerTransport {
+
+    void publish(String channel, byte[] message);
+
+    /** Replaces any handler this node already has for {@code channel}. */
+    void subscribe(String channel, Consumer<byte[]> handler);
+
+    void unsubscribe(String channel);
+}
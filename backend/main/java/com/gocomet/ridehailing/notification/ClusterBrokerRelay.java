@@ -0,0 +1,166 @@
+package com.gocomet.ridehailing.notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Multi-node mode: messages travel between nodes over a {@link BrokerTransport}, one channel
+ * per broker destination, and each node delivers them to its own in-process broker.
+ *
+ * <p>A node subscribes to a destination's channel only while one of its sessions is
+ * subscribed to that destination, so it receives only what it can deliver. The sending node
+ * has no local shortcut; its own sessions get the message back through the transport like
+ * everyone else's, which keeps per-destination ordering the same on every node.
+ */
+@Slf4j
+public class ClusterBrokerRelay implements BrokerRelay {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final BrokerTransport transport;
+    private final String channelPrefix;
+
+    // sessionId -> subscriptionId -> destination, to resolve UNSUBSCRIBE and DISCONNECT
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    // destination -> local subscriptions; guarded by this
+    private final Map<String, Integer> interest = new HashMap<>();
+
+    private final Counter published;
+    private final Counter delivered;
+    private final Timer latency;
+
+    public ClusterBrokerRelay(SimpMessagingTemplate messagingTemplate, BrokerTransport transport,
+                              MeterRegistry meterRegistry, String channelPrefix) {
+        this.messagingTemplate = messagingTemplate;
+        this.transport = transport;
+        this.channelPrefix = channelPrefix;
+        this.published = Counter.builder("notification.broker.relay.published")
+            .description("Notifications published to the cluster transport")
+            .register(meterRegistry);
+        this.delivered = Counter.builder("notification.broker.relay.delivered")
+            .description("Notifications received from the cluster transport and delivered locally")
+            .register(meterRegistry);
+        // Across nodes this includes clock skew between them
+        this.latency = Timer.builder("notification.broker.relay.latency")
+            .description("Time from publish on any node to local delivery")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        Gauge.builder("notification.broker.relay.channels", this, ClusterBrokerRelay::subscribedChannels)
+            .description("Destinations this node is subscribed to on the transport")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void send(String destination, byte[] payload, Map<String, Object> headers) {
+        transport.publish(channelPrefix + destination, encode(System.currentTimeMillis(), headers, payload));
+        published.increment();
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (accessor.getSessionId() == null || accessor.getSubscriptionId() == null || destination == null) {
+            return;
+        }
+        String previous = sessions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+            .put(accessor.getSubscriptionId(), destination);
+        if (previous != null) {
+            release(previous);
+        }
+        retain(destination);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = accessor.getSessionId() == null ? null : sessions.get(accessor.getSessionId());
+        String destination = subscriptions == null || accessor.getSubscriptionId() == null
+            ? null : subscriptions.remove(accessor.getSubscriptionId());
+        if (destination != null) {
+            release(destination);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    private synchronized void retain(String destination) {
+        if (interest.merge(destination, 1, Integer::sum) == 1) {
+            transport.subscribe(channelPrefix + destination, message -> deliver(destination, message));
+        }
+    }
+
+    private synchronized void release(String destination) {
+        Integer remaining = interest.computeIfPresent(destination, (key, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            transport.unsubscribe(channelPrefix + destination);
+        }
+    }
+
+    private synchronized int subscribedChannels() {
+        return interest.size();
+    }
+
+    private void deliver(String destination, byte[] message) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            long sentAt = in.readLong();
+            int headerCount = in.readUnsignedShort();
+            Map<String, Object> headers = new LinkedHashMap<>();
+            for (int i = 0; i < headerCount; i++) {
+                String name = in.readUTF();
+                String value = in.readUTF();
+                headers.put(name, value);
+            }
+            messagingTemplate.send(destination, LocalBrokerRelay.frame(in.readAllBytes(), headers));
+            delivered.increment();
+            latency.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - sentAt)));
+        } catch (Exception e) {
+            log.warn("Could not deliver relayed notification for {}: {}", destination, e.getMessage());
+        }
+    }
+
+    // Wire format: sent-at millis, header count, (name, value) pairs, then the payload as is
+    static byte[] encode(long sentAt, Map<String, Object> headers, byte[] payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sentAt);
+            out.writeShort(headers.size());
+            for (Map.Entry<String, Object> header : headers.entrySet()) {
+                out.writeUTF(header.getKey());
+                Object value = header.getValue();
+                out.writeUTF(value instanceof MimeType mimeType ? mimeType.toString() : String.valueOf(value));
+            }
+            out.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
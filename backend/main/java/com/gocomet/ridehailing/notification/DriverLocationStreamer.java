@@ -0,0 +1,188 @@
+package com.gocomet.ridehailing.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gocomet.ridehailing.model.dto.Location;
+import com.gocomet.ridehailing.model.dto.NotificationEvent;
+import com.gocomet.ridehailing.model.dto.NotificationMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes an assigned driver's position to the rider's topic straight from the location
+ * ingest path, so riders no longer poll the ride endpoint to follow their driver.
+ *
+ * <p>The tick rate adapts to distance from pickup: every {@code near-interval-ms} within
+ * {@code near-km}, every {@code far-interval-ms} beyond {@code far-km}, linear in between.
+ * Once the trip starts the rate is a flat {@code on-trip-interval-ms}. Ticks skip the outbox
+ * (a lost one is replaced by the next) and coalesce per ride in the fan-out queue, low
+ * priority for slow sessions.
+ *
+ * <p>State is per node and in memory, like {@link com.gocomet.ridehailing.service.TripDistanceTracker};
+ * a driver whose fixes land on a node that did not see the match is simply not streamed,
+ * and the ride endpoint still reports the location.
+ */
+@Component
+@Slf4j
+public class DriverLocationStreamer {
+
+    private final FanoutQueue fanoutQueue;
+    private final ObjectMapper objectMapper;
+    private final long nearIntervalMs;
+    private final long farIntervalMs;
+    private final double nearKm;
+    private final double farKm;
+    private final long onTripIntervalMs;
+    private final long idleEvictionMs;
+
+    private final Map<Long, Tracked> byDriver = new ConcurrentHashMap<>();
+
+    private final Counter sent;
+    private final Counter throttled;
+
+    public DriverLocationStreamer(FanoutQueue fanoutQueue, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                  @Value("${app.notifications.driver-tracking.near-interval-ms:1000}") long nearIntervalMs,
+                                  @Value("${app.notifications.driver-tracking.far-interval-ms:10000}") long farIntervalMs,
+                                  @Value("${app.notifications.driver-tracking.near-km:0.5}") double nearKm,
+                                  @Value("${app.notifications.driver-tracking.far-km:5}") double farKm,
+                                  @Value("${app.notifications.driver-tracking.on-trip-interval-ms:5000}") long onTripIntervalMs,
+                                  @Value("${app.notifications.driver-tracking.idle-eviction-minutes:30}") long idleEvictionMinutes) {
+        if (nearKm >= farKm || nearIntervalMs > farIntervalMs) {
+            throw new IllegalArgumentException("Driver tracking needs near-km < far-km and near-interval-ms <= far-interval-ms");
+        }
+        this.fanoutQueue = fanoutQueue;
+        this.objectMapper = objectMapper;
+        this.nearIntervalMs = nearIntervalMs;
+        this.farIntervalMs = farIntervalMs;
+        this.nearKm = nearKm;
+        this.farKm = farKm;
+        this.onTripIntervalMs = onTripIntervalMs;
+        this.idleEvictionMs = idleEvictionMinutes * 60_000;
+        this.sent = Counter.builder("notification.driver_location.ticks")
+            .description("Driver location ticks pushed to riders")
+            .tag("result", "sent")
+            .register(meterRegistry);
+        this.throttled = Counter.builder("notification.driver_location.ticks")
+            .description("Driver location ticks pushed to riders")
+            .tag("result", "throttled")
+            .register(meterRegistry);
+        Gauge.builder("notification.driver_location.tracked", byDriver, Map::size)
+            .description("Assigned drivers whose location is streamed to a rider")
+            .register(meterRegistry);
+    }
+
+    /** Starts streaming {@code driverId}'s fixes to the rider of {@code rideId}. */
+    public void track(Long rideId, Long riderId, Long driverId, double pickupLatitude, double pickupLongitude) {
+        byDriver.put(driverId, new Tracked(rideId, riderId, pickupLatitude, pickupLongitude, System.currentTimeMillis()));
+        log.debug("Streaming driver {} location for ride {}", driverId, rideId);
+    }
+
+    public void tripStarted(Long rideId, Long driverId) {
+        Tracked tracked = tracked(rideId, driverId);
+        if (tracked != null) {
+            tracked.onTrip = true;
+        }
+    }
+
+    public void stop(Long rideId, Long driverId) {
+        Tracked tracked = tracked(rideId, driverId);
+        if (tracked != null) {
+            byDriver.remove(driverId, tracked);
+        }
+    }
+
+    /**
+     * Feeds one location fix. A driver without an assigned ride costs one map miss.
+     */
+    public void onLocation(Long driverId, double latitude, double longitude, long timestampMs) {
+        Tracked tracked = byDriver.get(driverId);
+        if (tracked == null) {
+            return;
+        }
+        Double pickupDistanceKm = null;
+        long intervalMs = onTripIntervalMs;
+        if (!tracked.onTrip) {
+            pickupDistanceKm = Location.calculateDistance(latitude, longitude,
+                tracked.pickupLatitude, tracked.pickupLongitude);
+            intervalMs = intervalFor(pickupDistanceKm);
+        }
+        synchronized (tracked) {
+            tracked.lastSeenMs = Math.max(tracked.lastSeenMs, timestampMs);
+            if (timestampMs - tracked.lastSentMs < intervalMs) {
+                throttled.increment();
+                return;
+            }
+            tracked.lastSentMs = timestampMs;
+        }
+
+        NotificationMessage message = NotificationMessage.of(new NotificationEvent.DriverLocation(
+            tracked.rideId, driverId, latitude, longitude, pickupDistanceKm));
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(message);
+            // Only the newest position matters: a tick still queued is replaced, not followed
+            if (fanoutQueue.offer(Topics.rider(tracked.riderId), "driver-location:" + tracked.rideId, payload,
+                    Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON,
+                        SlowConsumerGuard.PRIORITY_HEADER, SlowConsumerGuard.LOW_PRIORITY))) {
+                sent.increment();
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize driver location for ride {}: {}", tracked.rideId, e.getMessage());
+        }
+    }
+
+    long intervalFor(double pickupDistanceKm) {
+        if (pickupDistanceKm <= nearKm) {
+            return nearIntervalMs;
+        }
+        if (pickupDistanceKm >= farKm) {
+            return farIntervalMs;
+        }
+        double fraction = (pickupDistanceKm - nearKm) / (farKm - nearKm);
+        return nearIntervalMs + Math.round(fraction * (farIntervalMs - nearIntervalMs));
+    }
+
+    // Rides that ended on another node never call stop() here
+    @Scheduled(fixedDelayString = "${app.notifications.driver-tracking.eviction-interval-ms:300000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMs;
+        byDriver.values().removeIf(tracked -> tracked.lastSeenMs < cutoff);
+    }
+
+    int tracked() {
+        return byDriver.size();
+    }
+
+    private Tracked tracked(Long rideId, Long driverId) {
+        Tracked tracked = byDriver.get(driverId);
+        return tracked != null && tracked.rideId.equals(rideId) ? tracked : null;
+    }
+
+    private static final class Tracked {
+        private final Long rideId;
+        private final Long riderId;
+        private final double pickupLatitude;
+        private final double pickupLongitude;
+        private volatile boolean onTrip;
+        private volatile long lastSeenMs;
+        // The first fix after assignment always goes out
+        private long lastSentMs = Long.MIN_VALUE / 2;
+
+        private Tracked(Long rideId, Long riderId, double pickupLatitude, double pickupLongitude, long trackedAtMs) {
+            this.rideId = rideId;
+            this.riderId = riderId;
+            this.pickupLatitude = pickupLatitude;
+            this.pickupLongitude = pickupLongitude;
+            this.lastSeenMs = trackedAtMs;
+        }
+    }
+}
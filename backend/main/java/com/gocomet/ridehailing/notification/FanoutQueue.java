@@ -0,0 +1,198 @@
+package com.gocomet.ridehailing.notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbound queue between the outbox relay and the {@link BrokerRelay}, one FIFO per destination.
+ *
+ * <p>A message with a coalesce key (a ride's id for ride updates) replaces a queued message
+ * with the same key in place, so a burst of transitions for one ride goes out as its latest
+ * state. The first message after a flush arms a short linger; everything queued by then is
+ * sent as one micro-batch from a single thread.
+ *
+ * <p>Memory is bounded by {@code max-pending}. A full queue refuses new messages instead of
+ * evicting queued ones; the relay leaves refused messages in the outbox for a later pass.
+ *
+ * <p>A message's {@code onSent} callback runs on the flush thread once the broker has accepted
+ * it. A message replaced by coalescing is acknowledged together with its replacement; one whose
+ * send fails is never acknowledged.
+ */
+@Component
+@Slf4j
+public class FanoutQueue implements DisposableBean {
+
+    private final BrokerRelay brokerRelay;
+    private final int maxPending;
+    private final long lingerMs;
+
+    private final Map<String, DestinationQueue> queues = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<DestinationQueue> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean flushArmed = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-fanout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter sent;
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final DistributionSummary batchSize;
+
+    public FanoutQueue(BrokerRelay brokerRelay, MeterRegistry meterRegistry,
+                       @Value("${app.notifications.fanout.max-pending:10000}") int maxPending,
+                       @Value("${app.notifications.fanout.linger-ms:5}") long lingerMs) {
+        this.brokerRelay = brokerRelay;
+        this.maxPending = maxPending;
+        this.lingerMs = lingerMs;
+        this.sent = Counter.builder("notification.fanout.sent")
+            .description("Notifications handed to the broker")
+            .register(meterRegistry);
+        this.coalesced = Counter.builder("notification.fanout.coalesced")
+            .description("Queued notifications replaced by a newer one for the same key")
+            .register(meterRegistry);
+        this.dropped = Counter.builder("notification.fanout.dropped")
+            .description("Notifications refused because the fan-out queue was full")
+            .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("notification.fanout.batch.size")
+            .description("Notifications sent per flush")
+            .register(meterRegistry);
+        Gauge.builder("notification.fanout.pending", pending, AtomicInteger::get)
+            .description("Notifications waiting to be sent")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queues a message for {@code destination}; returns false if the queue is full. A null
+     * {@code coalesceKey} never coalesces.
+     */
+    public boolean offer(String destination, String coalesceKey, byte[] payload, Map<String, Object> headers) {
+        return offer(destination, coalesceKey, payload, headers, null);
+    }
+
+    /** As {@link #offer(String, String, byte[], Map)}, running {@code onSent} once the broker has the message. */
+    public boolean offer(String destination, String coalesceKey, byte[] payload, Map<String, Object> headers,
+                         Runnable onSent) {
+        Outbound message = new Outbound(payload, headers, onSent);
+        while (true) {
+            DestinationQueue queue = queues.computeIfAbsent(destination, DestinationQueue::new);
+            synchronized (queue) {
+                if (queue.retired) {
+                    // Emptied and unmapped by a flush since we looked it up
+                    continue;
+                }
+                Outbound superseded = coalesceKey != null ? queue.messages.get(coalesceKey) : null;
+                if (superseded != null) {
+                    queue.messages.put(coalesceKey, message.supersede(superseded));
+                    coalesced.increment();
+                    return true;
+                }
+                if (pending.incrementAndGet() > maxPending) {
+                    pending.decrementAndGet();
+                    dropped.increment();
+                    return false;
+                }
+                queue.messages.put(coalesceKey != null ? coalesceKey : new Object(), message);
+                if (!queue.ready) {
+                    queue.ready = true;
+                    ready.add(queue);
+                }
+            }
+            if (flushArmed.compareAndSet(false, true)) {
+                flusher.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        }
+    }
+
+    void flush() {
+        // Disarmed first: an offer racing this flush arms the next one
+        flushArmed.set(false);
+        int batch = 0;
+        DestinationQueue queue;
+        while ((queue = ready.poll()) != null) {
+            List<Outbound> messages;
+            synchronized (queue) {
+                messages = new ArrayList<>(queue.messages.values());
+                queue.messages.clear();
+                queue.ready = false;
+                queue.retired = true;
+                queues.remove(queue.destination, queue);
+            }
+            pending.addAndGet(-messages.size());
+            for (Outbound message : messages) {
+                try {
+                    brokerRelay.send(queue.destination, message.payload(), message.headers());
+                    batch++;
+                    if (message.onSent() != null) {
+                        message.onSent().run();
+                    }
+                } catch (Exception e) {
+                    log.warn("Could not send notification to {}: {}", queue.destination, e.getMessage());
+                }
+            }
+        }
+        if (batch > 0) {
+            sent.increment(batch);
+            batchSize.record(batch);
+        }
+    }
+
+    int pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void destroy() {
+        flusher.shutdownNow();
+    }
+
+    private record Outbound(byte[] payload, Map<String, Object> headers, Runnable onSent) {
+
+        // Sending this one also delivers what it replaced, so both are acknowledged together
+        Outbound supersede(Outbound previous) {
+            if (previous.onSent == null) {
+                return this;
+            }
+            if (onSent == null) {
+                return new Outbound(payload, headers, previous.onSent);
+            }
+            return new Outbound(payload, headers, () -> {
+                previous.onSent.run();
+                onSent.run();
+            });
+        }
+    }
+
+    private static final class DestinationQueue {
+        private final String destination;
+        // Keyed by coalesce key, or a fresh token for messages that never coalesce
+        private final LinkedHashMap<Object, Outbound> messages = new LinkedHashMap<>();
+        private boolean ready;
+        private boolean retired;
+
+        DestinationQueue(String destination) {
+            this.destination = destination;
+        }
+    }
+}
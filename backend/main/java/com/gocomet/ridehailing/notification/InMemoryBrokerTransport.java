@@ -0,0 +1,49 @@
+package com.gocomet.ridehailing.notification;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Stand-in for Redis pub/sub so several nodes can run in one JVM: each node gets its own
+ * transport over a shared {@link Hub}. Delivery is synchronous, on the publishing thread.
+ */
+public class InMemoryBrokerTransport implements BrokerTransport {
+
+    /** The shared "Redis": channel to subscribed node to handler. */
+    public static class Hub {
+        private final Map<String, Map<InMemoryBrokerTransport, Consumer<byte[]>>> channels = new ConcurrentHashMap<>();
+
+        int subscribers(String channel) {
+            Map<InMemoryBrokerTransport, Consumer<byte[]>> nodes = channels.get(channel);
+            return nodes == null ? 0 : nodes.size();
+        }
+    }
+
+    private final Hub hub;
+
+    public InMemoryBrokerTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void publish(String channel, byte[] message) {
+        Map<InMemoryBrokerTransport, Consumer<byte[]>> nodes = hub.channels.get(channel);
+        if (nodes != null) {
+            nodes.values().forEach(handler -> handler.accept(message));
+        }
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<byte[]> handler) {
+        hub.channels.computeIfAbsent(channel, name -> new ConcurrentHashMap<>()).put(this, handler);
+    }
+
+    @Override
+    public void unsubscribe(String channel) {
+        hub.channels.computeIfPresent(channel, (name, nodes) -> {
+            nodes.remove(this);
+            return nodes.isEmpty() ? null : nodes;
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.gocomet.ridehailing.notification;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+
+/** Single-node mode: every session is on this node's in-process broker. */
+@Component
+@ConditionalOnProperty(name = "app.notifications.broker.mode", havingValue = "local", matchIfMissing = true)
+@RequiredArgsConstructor
+public class LocalBrokerRelay implements BrokerRelay {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Override
+    public void send(String destination, byte[] payload, Map<String, Object> headers) {
+        messagingTemplate.send(destination, frame(payload, headers));
+    }
+
+    /**
+     * Wraps serialized bytes as a broker MESSAGE: content type as the frame's content-type,
+     * anything else as a STOMP header.
+     */
+    static Message<byte[]> frame(byte[] payload, Map<String, Object> headers) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.forEach((name, value) -> {
+            if (MessageHeaders.CONTENT_TYPE.equals(name)) {
+                accessor.setContentType(value instanceof MimeType mimeType
+                    ? mimeType : MimeTypeUtils.parseMimeType(String.valueOf(value)));
+            } else {
+                accessor.setNativeHeader(name, String.valueOf(value));
+            }
+        });
+        // Left mutable so the template can set the destination without copying the headers
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,65 @@
+package com.gocomet.ridehailing.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gocomet.ridehailing.model.entity.OutboxMessage;
+import com.gocomet.ridehailing.repository.OutboxMessageRepository;
+import com.gocomet.ridehailing.util.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write side of the notification outbox. Joins the caller's transaction, so a message is
+ * only ever visible to the relay if the state change it announces committed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationOutbox {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelay outboxRelay;
+
+    @Transactional
+    public void enqueue(String destination, Object message) {
+        enqueue(destination, message, null);
+    }
+
+    /** As {@link #enqueue(String, Object)}, but a newer message with the same key may replace it before send. */
+    @Transactional
+    public void enqueue(String destination, Object message, String coalesceKey) {
+        enqueue(List.of(destination), message, coalesceKey);
+    }
+
+    /** Sends the same message to several destinations; it is serialized once for all of them. */
+    @Transactional
+    public void enqueue(List<String> destinations, Object message, String coalesceKey) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            // A notification must never fail the business transaction
+            log.error("Dropping unserializable notification for {}", destinations, e);
+            return;
+        }
+
+        List<OutboxMessage> rows = new ArrayList<>(destinations.size());
+        for (String destination : destinations) {
+            rows.add(OutboxMessage.builder()
+                .destination(destination)
+                .payload(payload)
+                .coalesceKey(coalesceKey)
+                .build());
+        }
+        outboxMessageRepository.saveAll(rows);
+
+        // Wake the relay as soon as the rows are visible rather than on its next poll
+        AfterCommit.run(outboxRelay::signal);
+    }
+}
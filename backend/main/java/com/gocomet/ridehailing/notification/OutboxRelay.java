@@ -0,0 +1,157 @@
+package com.gocomet.ridehailing.notification;
+
+import com.gocomet.ridehailing.model.entity.OutboxMessage;
+import com.gocomet.ridehailing.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains the notification outbox to the {@link FanoutQueue} in batches, oldest first.
+ *
+ * <p>A batch is locked, handed over and marked dispatched in one transaction; when the fan-out
+ * queue is full only the accepted prefix is marked and the rest stays for the next pass. A row
+ * is deleted only after the fan-out flush has handed it to the broker. A row still dispatched
+ * after {@code redeliver-after-ms} (lost to a crash before the flush, or a failed send) is
+ * offered again, so delivery is at-least-once; every frame carries an {@code outbox-id} header
+ * that clients can use to drop repeats. Commits signal the relay directly; the poll only catches
+ * signals lost to a restart.
+ */
+@Component
+@Slf4j
+public class OutboxRelay implements DisposableBean {
+
+    static final String OUTBOX_ID_HEADER = "outbox-id";
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final FanoutQueue fanoutQueue;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration redeliverAfter;
+    // Ids the broker has accepted, deleted at the start of the next drain (at most a poll away)
+    private final Queue<Long> sentIds = new ConcurrentLinkedQueue<>();
+
+    private final ExecutorService drainer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    private final Counter published;
+    private final Timer deliveryLag;
+
+    public OutboxRelay(OutboxMessageRepository outboxMessageRepository, FanoutQueue fanoutQueue,
+                       TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                       @Value("${app.notifications.outbox.batch-size:200}") int batchSize,
+                       @Value("${app.notifications.outbox.redeliver-after-ms:30000}") long redeliverAfterMs) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.fanoutQueue = fanoutQueue;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.redeliverAfter = Duration.ofMillis(redeliverAfterMs);
+        this.published = Counter.builder("notification.outbox.published")
+            .description("Outbox messages handed to the fan-out queue")
+            .register(meterRegistry);
+        this.deliveryLag = Timer.builder("notification.outbox.lag")
+            .description("Time from outbox write to publish")
+            .register(meterRegistry);
+    }
+
+    /** Requests a drain; signals that arrive while one is queued collapse into it. */
+    public void signal() {
+        if (drainQueued.compareAndSet(false, true)) {
+            drainer.execute(this::drain);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        signal();
+    }
+
+    void drain() {
+        // Cleared first: a commit landing mid-drain queues one more pass
+        drainQueued.set(false);
+        try {
+            deleteSent();
+            while (drainBatch() == batchSize) {
+                // keep going while batches come back full
+            }
+        } catch (Exception e) {
+            log.error("Outbox relay failed, will retry on next signal", e);
+        }
+    }
+
+    void deleteSent() {
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = sentIds.poll()) != null) {
+            ids.add(id);
+        }
+        if (!ids.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> outboxMessageRepository.deleteByIdIn(ids));
+        }
+    }
+
+    int drainBatch() {
+        Integer drained = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxMessage> batch = outboxMessageRepository.lockNextBatch(
+                now.minus(redeliverAfter), PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<Long> accepted = new ArrayList<>(batch.size());
+            for (OutboxMessage message : batch) {
+                if (!publish(message)) {
+                    // Fan-out queue is full; keep order by stopping at the first refusal
+                    break;
+                }
+                accepted.add(message.getId());
+                deliveryLag.record(Duration.between(message.getCreatedAt(), now));
+            }
+            if (accepted.isEmpty()) {
+                return 0;
+            }
+            outboxMessageRepository.markDispatched(accepted, now);
+            published.increment(accepted.size());
+            return accepted.size();
+        });
+        return drained != null ? drained : 0;
+    }
+
+    private boolean publish(OutboxMessage message) {
+        return fanoutQueue.offer(message.getDestination(), message.getCoalesceKey(),
+            message.getPayload().getBytes(StandardCharsets.UTF_8),
+            Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON,
+                OUTBOX_ID_HEADER, message.getId().toString()),
+            () -> sentIds.add(message.getId()));
+    }
+
+    @Override
+    public void destroy() {
+        drainer.shutdownNow();
+    }
+}
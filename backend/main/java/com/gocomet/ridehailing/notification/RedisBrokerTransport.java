@@ -0,0 +1,65 @@
+package com.gocomet.ridehailing.notification;
+
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/** {@link BrokerTransport} over Redis pub/sub, one Redis channel per broker destination. */
+public class RedisBrokerTransport implements BrokerTransport {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer container;
+    private final Map<String, MessageListener> listeners = new ConcurrentHashMap<>();
+
+    public RedisBrokerTransport(StringRedisTemplate redisTemplate, RedisMessageListenerContainer container) {
+        this.redisTemplate = redisTemplate;
+        this.container = container;
+    }
+
+    public RedisBrokerTransport(StringRedisTemplate redisTemplate, RedisConnectionFactory connectionFactory) {
+        this(redisTemplate, listenerContainer(connectionFactory));
+    }
+
+    private static RedisMessageListenerContainer listenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.afterPropertiesSet();
+        container.start();
+        return container;
+    }
+
+    @Override
+    public void publish(String channel, byte[] message) {
+        byte[] rawChannel = channel.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute(connection -> connection.publish(rawChannel, message), true);
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<byte[]> handler) {
+        MessageListener listener = (message, pattern) -> handler.accept(message.getBody());
+        MessageListener previous = listeners.put(channel, listener);
+        container.addMessageListener(listener, new ChannelTopic(channel));
+        if (previous != null) {
+            container.removeMessageListener(previous, new ChannelTopic(channel));
+        }
+    }
+
+    @Override
+    public void unsubscribe(String channel) {
+        MessageListener listener = listeners.remove(channel);
+        if (listener != null) {
+            container.removeMessageListener(listener, new ChannelTopic(channel));
+        }
+    }
+
+    public void destroy() throws Exception {
+        container.destroy();
+    }
+}
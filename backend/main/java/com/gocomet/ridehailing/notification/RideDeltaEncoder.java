@@ -0,0 +1,129 @@
+package com.gocomet.ridehailing.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gocomet.ridehailing.model.dto.RideResponse;
+import com.gocomet.ridehailing.model.dto.RideUpdate;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Turns ride updates into {@link RideUpdate} frames: a snapshot the first time this node
+ * publishes a ride, then deltas against that snapshot.
+ *
+ * <p>Deltas are cumulative (against the snapshot, not the previous update), so a queued delta
+ * replaced by a newer one in the fan-out queue loses nothing. A new snapshot goes out every
+ * {@code snapshot-interval} deltas, or when the delta would be most of a snapshot anyway.
+ * Snapshots are kept per node and for a bounded number of rides; a node without one sends a
+ * snapshot, and clients recover from any base mismatch by reloading the ride. An update no newer
+ * than the snapshot is dropped: watchers already have a later state.
+ */
+@Component
+public class RideDeltaEncoder {
+
+    private static final Set<RideStatus> TERMINAL = EnumSet.of(RideStatus.COMPLETED, RideStatus.CANCELLED, RideStatus.FAILED);
+
+    private final ObjectMapper objectMapper;
+    private final int snapshotInterval;
+    private final Map<Long, Base> bases;
+
+    private final Counter snapshots;
+    private final Counter deltas;
+    private final Counter stale;
+
+    public RideDeltaEncoder(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${app.notifications.ride-delta.snapshot-interval:8}") int snapshotInterval,
+                            @Value("${app.notifications.ride-delta.max-rides:50000}") int maxRides) {
+        this.objectMapper = objectMapper;
+        this.snapshotInterval = snapshotInterval;
+        this.bases = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Base> eldest) {
+                return size() > maxRides;
+            }
+        };
+        this.snapshots = Counter.builder("notification.ride_update.frames").tag("type", "snapshot")
+            .description("Ride update frames published")
+            .register(meterRegistry);
+        this.deltas = Counter.builder("notification.ride_update.frames").tag("type", "delta")
+            .description("Ride update frames published")
+            .register(meterRegistry);
+        this.stale = Counter.builder("notification.ride_update.stale")
+            .description("Ride updates dropped for being no newer than the last snapshot")
+            .register(meterRegistry);
+    }
+
+    /** The frame to publish for this state of the ride, or empty if it is older than one already sent. */
+    public synchronized Optional<RideUpdate> encode(RideResponse ride) {
+        ObjectNode state = objectMapper.valueToTree(ride);
+        if (ride.getVersion() == null) {
+            // Nothing to order it by: always whole, never a base
+            snapshots.increment();
+            return Optional.of(RideUpdate.snapshot(ride, 0));
+        }
+        long seq = ride.getVersion();
+        Base base = bases.get(ride.getId());
+        if (base != null && seq <= base.seq) {
+            stale.increment();
+            return Optional.empty();
+        }
+        boolean terminal = TERMINAL.contains(ride.getStatus());
+        if (terminal) {
+            bases.remove(ride.getId());
+        }
+
+        if (base != null && base.deltas < snapshotInterval) {
+            ObjectNode changes = diff(base.state, state);
+            if (changes.size() * 2 < state.size()) {
+                base.deltas++;
+                deltas.increment();
+                return Optional.of(RideUpdate.delta(ride.getId(), seq, base.seq, changes));
+            }
+        }
+
+        if (!terminal) {
+            bases.put(ride.getId(), new Base(seq, state));
+        }
+        snapshots.increment();
+        return Optional.of(RideUpdate.snapshot(ride, seq));
+    }
+
+    private static ObjectNode diff(ObjectNode from, ObjectNode to) {
+        ObjectNode changes = to.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = to.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!field.getValue().equals(from.get(field.getKey()))) {
+                changes.set(field.getKey(), field.getValue());
+            }
+        }
+        from.fieldNames().forEachRemaining(name -> {
+            if (!to.has(name)) {
+                changes.putNull(name);
+            }
+        });
+        return changes;
+    }
+
+    private static final class Base {
+        private final long seq;
+        private final ObjectNode state;
+        private int deltas;
+
+        Base(long seq, ObjectNode state) {
+            this.seq = seq;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.gocomet.ridehailing.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gocomet.ridehailing.model.dto.RideResponse;
+import com.gocomet.ridehailing.model.dto.RideSummary;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates ride updates into one {@link RideSummary} per interval for the operations
+ * dashboard, so its traffic is bounded by the interval rather than by ride volume.
+ *
+ * <p>Each summary covers only the rides this node saw change since the previous one. Windows
+ * from several nodes are disjoint, so the dashboard merges them like any other update.
+ */
+@Component
+@Slf4j
+public class RideSummaryPublisher {
+
+    private final FanoutQueue fanoutQueue;
+    private final ObjectMapper objectMapper;
+    private final int maxRides;
+
+    private volatile Window window;
+
+    private final Counter published;
+
+    public RideSummaryPublisher(FanoutQueue fanoutQueue, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                @Value("${app.notifications.ride-summary.max-rides:500}") int maxRides) {
+        this.fanoutQueue = fanoutQueue;
+        this.objectMapper = objectMapper;
+        this.maxRides = maxRides;
+        this.window = new Window(System.currentTimeMillis());
+        this.published = Counter.builder("notification.ride_summary.published")
+            .description("Ride summaries sent to the operations dashboard")
+            .register(meterRegistry);
+    }
+
+    public void record(RideResponse ride) {
+        Window current = window;
+        if (ride.getStatus() != null) {
+            current.transitions.computeIfAbsent(ride.getStatus(), status -> new LongAdder()).increment();
+        }
+        // Rides already in the window always take their newer state; new ones only while under the cap
+        if (current.rides.containsKey(ride.getId()) || current.size.incrementAndGet() <= maxRides) {
+            current.rides.put(ride.getId(), RideSummary.Entry.of(ride));
+        } else {
+            current.size.decrementAndGet();
+            current.truncated.incrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.notifications.ride-summary.interval-ms:1000}")
+    public void publish() {
+        long now = System.currentTimeMillis();
+        Window closed = window;
+        // An update racing the swap can land in the closed window after it is read; the
+        // dashboard's periodic REST refresh covers that
+        window = new Window(now);
+        if (closed.transitions.isEmpty()) {
+            return;
+        }
+
+        Map<RideStatus, Long> transitions = new EnumMap<>(RideStatus.class);
+        closed.transitions.forEach((status, count) -> transitions.put(status, count.sum()));
+        RideSummary summary = new RideSummary(closed.start, now, transitions,
+            new ArrayList<>(closed.rides.values()), closed.truncated.get());
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(summary);
+            // Not coalesced: each summary is a delta, so a queued one must not be replaced
+            if (fanoutQueue.offer(Topics.RIDE_SUMMARY, null, payload,
+                    Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON,
+                        SlowConsumerGuard.PRIORITY_HEADER, SlowConsumerGuard.LOW_PRIORITY))) {
+                published.increment();
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize ride summary: {}", e.getMessage());
+        }
+    }
+
+    private static final class Window {
+        private final long start;
+        private final Map<RideStatus, LongAdder> transitions = new ConcurrentHashMap<>();
+        private final Map<Long, RideSummary.Entry> rides = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger truncated = new AtomicInteger();
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+}
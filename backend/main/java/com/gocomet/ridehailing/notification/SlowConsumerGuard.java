@@ -0,0 +1,229 @@
+package com.gocomet.ridehailing.notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-session backpressure on outbound STOMP messages.
+ *
+ * <p>A session's queue depth is the MESSAGE frames accepted for it on the client outbound
+ * channel minus those written to its socket, so it covers both the channel's executor queue
+ * and the session's send buffer. Past {@code max-queued} the session only gets critical
+ * messages; frames marked {@code x-priority: low} (location ticks, dashboard summaries) are
+ * dropped. A session that stays past the limit for {@code slow-session-grace-ms}, or reaches
+ * {@code max-queued-critical}, is closed: its client reconnects and reloads state.
+ *
+ * <p>Byte-level buffer caps and the send time limit are enforced by Spring's session
+ * decorator, configured in {@code WebSocketConfig}.
+ */
+@Component
+@Slf4j
+public class SlowConsumerGuard implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    public static final String PRIORITY_HEADER = "x-priority";
+    public static final String LOW_PRIORITY = "low";
+
+    private static final long NOT_BACKLOGGED = Long.MIN_VALUE;
+    private static final byte[] MESSAGE_COMMAND = "MESSAGE\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final int maxQueued;
+    private final int maxQueuedCritical;
+    private final long graceNanos;
+    private final LongSupplier nanoClock;
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private final Counter dropped;
+    private final Counter evicted;
+    private final DistributionSummary queueDepth;
+
+    @Autowired
+    public SlowConsumerGuard(MeterRegistry meterRegistry,
+                             @Value("${app.notifications.sessions.max-queued:100}") int maxQueued,
+                             @Value("${app.notifications.sessions.max-queued-critical:1000}") int maxQueuedCritical,
+                             @Value("${app.notifications.sessions.slow-session-grace-ms:30000}") long graceMs) {
+        this(meterRegistry, maxQueued, maxQueuedCritical, graceMs, System::nanoTime);
+    }
+
+    SlowConsumerGuard(MeterRegistry meterRegistry, int maxQueued, int maxQueuedCritical, long graceMs,
+                      LongSupplier nanoClock) {
+        this.maxQueued = maxQueued;
+        this.maxQueuedCritical = maxQueuedCritical;
+        this.graceNanos = graceMs * 1_000_000L;
+        this.nanoClock = nanoClock;
+        this.dropped = Counter.builder("websocket.session.dropped")
+            .description("Low-priority messages dropped for backlogged sessions")
+            .register(meterRegistry);
+        this.evicted = Counter.builder("websocket.session.evicted")
+            .description("Sessions closed for being persistently slow")
+            .register(meterRegistry);
+        this.queueDepth = DistributionSummary.builder("websocket.session.queue.depth")
+            .description("Per-session outbound queue depth, sampled on every outbound message")
+            .register(meterRegistry);
+        Gauge.builder("websocket.session.queue.depth.max", this, SlowConsumerGuard::maxDepth)
+            .description("Deepest outbound queue across sessions")
+            .register(meterRegistry);
+        Gauge.builder("websocket.sessions.backlogged", this, SlowConsumerGuard::backlogged)
+            .description("Sessions past the outbound queue limit")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionState state = new SessionState(session);
+                sessions.put(session.getId(), state);
+                super.afterConnectionEstablished(new CountingSession(session, state));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        SessionState state = sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (state == null) {
+            return message;
+        }
+
+        int depth = state.depth.get();
+        queueDepth.record(depth);
+        if (depth < maxQueued) {
+            state.backloggedSince = NOT_BACKLOGGED;
+            state.depth.incrementAndGet();
+            return message;
+        }
+
+        long now = nanoClock.getAsLong();
+        if (state.backloggedSince == NOT_BACKLOGGED) {
+            state.backloggedSince = now;
+        }
+        if (depth >= maxQueuedCritical || now - state.backloggedSince >= graceNanos) {
+            evict(state, depth);
+            return null;
+        }
+        if (LOW_PRIORITY.equals(NativeMessageHeaderAccessor.getFirstNativeHeader(PRIORITY_HEADER, message.getHeaders()))) {
+            dropped.increment();
+            return null;
+        }
+        state.depth.incrementAndGet();
+        return message;
+    }
+
+    private void evict(SessionState state, int depth) {
+        if (sessions.remove(state.session.getId(), state)) {
+            evicted.increment();
+            log.warn("Closing slow WebSocket session {} with {} messages queued", state.session.getId(), depth);
+            try {
+                state.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                log.debug("Error closing slow session {}: {}", state.session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    int depth(String sessionId) {
+        SessionState state = sessions.get(sessionId);
+        return state == null ? 0 : state.depth.get();
+    }
+
+    private double maxDepth() {
+        return sessions.values().stream().mapToInt(state -> state.depth.get()).max().orElse(0);
+    }
+
+    private double backlogged() {
+        return sessions.values().stream().filter(state -> state.depth.get() >= maxQueued).count();
+    }
+
+    private static final class SessionState {
+        private final WebSocketSession session;
+        private final AtomicInteger depth = new AtomicInteger();
+        // nanoTime can be any value, so "not backlogged" needs its own marker
+        private volatile long backloggedSince = NOT_BACKLOGGED;
+
+        SessionState(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+
+    /** Sits under Spring's buffering decorator and counts MESSAGE frames as they hit the socket. */
+    private static final class CountingSession extends WebSocketSessionDecorator {
+        private final SessionState state;
+
+        CountingSession(WebSocketSession session, SessionState state) {
+            super(session);
+            this.state = state;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            try {
+                super.sendMessage(message);
+            } finally {
+                if (isMessageFrame(message)) {
+                    // Never below zero, even if a frame was accepted before we saw the session
+                    state.depth.updateAndGet(depth -> Math.max(0, depth - 1));
+                }
+            }
+        }
+
+        private static boolean isMessageFrame(WebSocketMessage<?> message) {
+            ByteBuffer frame;
+            if (message instanceof TextMessage text) {
+                frame = ByteBuffer.wrap(text.asBytes());
+            } else if (message instanceof BinaryMessage binary) {
+                frame = binary.getPayload().duplicate();
+            } else {
+                return false;
+            }
+            if (frame.remaining() < MESSAGE_COMMAND.length) {
+                return false;
+            }
+            for (int i = 0; i < MESSAGE_COMMAND.length; i++) {
+                if (frame.get(frame.position() + i) != MESSAGE_COMMAND[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
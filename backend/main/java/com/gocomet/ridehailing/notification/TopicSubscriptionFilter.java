@@ -0,0 +1,31 @@
+package com.gocomet.ridehailing.notification;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rejects SUBSCRIBE frames for anything but a scoped topic from {@link Topics}, so no client
+ * can attach to a firehose (the old global ride feed, or a broker wildcard).
+ */
+@Component
+@Slf4j
+public class TopicSubscriptionFilter implements ChannelInterceptor {
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && accessor.getCommand() == StompCommand.SUBSCRIBE
+                && !Topics.isSubscribable(accessor.getDestination())) {
+            log.warn("Session {} refused subscription to {}", accessor.getSessionId(), accessor.getDestination());
+            throw new MessagingException(message, "Unknown destination " + accessor.getDestination());
+        }
+        return message;
+    }
+}
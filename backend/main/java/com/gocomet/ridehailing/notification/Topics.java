@@ -0,0 +1,65 @@
+package com.gocomet.ridehailing.notification;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Broker destinations clients may subscribe to. Ride updates are published per ride, per
+ * region and per tenant, so a subscriber only receives the rides in its scope; operations
+ * dashboards get the periodic {@link #RIDE_SUMMARY} instead of every ride event.
+ */
+public final class Topics {
+
+    public static final String RIDE_SUMMARY = "/topic/rides/summary";
+
+    private static final Pattern UNSAFE = Pattern.compile("[^A-Za-z0-9_-]");
+
+    private static final List<Pattern> SUBSCRIBABLE = List.of(
+        Pattern.compile("/topic/rider/\\d+"),
+        Pattern.compile("/topic/driver/\\d+"),
+        Pattern.compile("/topic/rides/\\d+"),
+        Pattern.compile("/topic/regions/[A-Za-z0-9_-]+/rides"),
+        Pattern.compile("/topic/tenants/[A-Za-z0-9_-]+/rides"),
+        Pattern.compile(Pattern.quote(RIDE_SUMMARY))
+    );
+
+    private Topics() {
+    }
+
+    public static String rider(Long riderId) {
+        return "/topic/rider/" + riderId;
+    }
+
+    public static String driver(Long driverId) {
+        return "/topic/driver/" + driverId;
+    }
+
+    public static String ride(Long rideId) {
+        return "/topic/rides/" + rideId;
+    }
+
+    public static String region(String region) {
+        return "/topic/regions/" + segment(region) + "/rides";
+    }
+
+    public static String tenant(String tenantId) {
+        return "/topic/tenants/" + segment(tenantId) + "/rides";
+    }
+
+    /** True for exact destinations built by this class; wildcards and unknown topics are refused. */
+    public static boolean isSubscribable(String destination) {
+        if (destination == null) {
+            return false;
+        }
+        for (Pattern pattern : SUBSCRIBABLE) {
+            if (pattern.matcher(destination).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String segment(String value) {
+        return UNSAFE.matcher(value).replaceAll("_");
+    }
+}
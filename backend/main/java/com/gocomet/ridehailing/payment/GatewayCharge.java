@@ -0,0 +1,11 @@
+package com.gocomet.ridehailing.payment;
+
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.pricing.Money;
+
+/**
+ * One charge attempt. The idempotency key is forwarded to the PSP so a retry after a
+ * timeout cannot charge the rider twice.
+ */
+public record GatewayCharge(Long paymentId, String idempotencyKey, Money amount, PaymentMethod paymentMethod) {
+}
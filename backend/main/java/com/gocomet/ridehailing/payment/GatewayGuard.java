@@ -0,0 +1,122 @@
+package com.gocomet.ridehailing.payment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Isolates the PSP from the rest of the app: a {@link CircuitBreaker} in front of a bulkhead
+ * that caps charges in flight. The charge itself is issued from a small dedicated pool, so a
+ * client that blocks while connecting cannot tie up request or payment threads either.
+ *
+ * <p>Nothing waits for capacity. A charge refused by the breaker or the bulkhead fails fast
+ * with {@link GatewayUnavailableException}; the gateway was never called, so the payment
+ * can be parked for the retrier.
+ */
+public class GatewayGuard implements DisposableBean {
+
+    private final PaymentGatewayClient gateway;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final ThreadPoolExecutor callExecutor;
+    private final long timeoutMs;
+
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadFullRejections;
+
+    public GatewayGuard(PaymentGatewayClient gateway, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry,
+                        int maxConcurrentCalls, long timeoutMs) {
+        this.gateway = gateway;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.timeoutMs = timeoutMs;
+
+        // The semaphore is taken first, so the queue is only a backstop
+        AtomicInteger threadCount = new AtomicInteger();
+        this.callExecutor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(maxConcurrentCalls), runnable -> {
+                Thread thread = new Thread(runnable, "payment-gateway-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.callExecutor.allowCoreThreadTimeOut(true);
+
+        this.circuitOpenRejections = rejectionCounter(meterRegistry, "circuit_open");
+        this.bulkheadFullRejections = rejectionCounter(meterRegistry, "bulkhead_full");
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("payment.gateway.circuit.state", circuitBreaker, b -> b.getState() == state ? 1 : 0)
+                .description("1 for the payment gateway circuit's current state")
+                .tag("state", state.name().toLowerCase())
+                .register(meterRegistry);
+        }
+        Gauge.builder("payment.gateway.bulkhead.in_flight", bulkhead, s -> maxConcurrentCalls - s.availablePermits())
+            .description("Charges waiting on the payment gateway")
+            .register(meterRegistry);
+        Gauge.builder("payment.gateway.bulkhead.max", () -> maxConcurrentCalls)
+            .description("Cap on charges in flight to the payment gateway")
+            .register(meterRegistry);
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("payment.gateway.rejected")
+            .description("Charges refused without calling the payment gateway")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    public CompletableFuture<GatewayResult> charge(GatewayCharge charge) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            circuitOpenRejections.increment();
+            return CompletableFuture.failedFuture(new GatewayUnavailableException("Payment gateway circuit open"));
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.releasePermission();
+            bulkheadFullRejections.increment();
+            return CompletableFuture.failedFuture(new GatewayUnavailableException("Payment gateway bulkhead full"));
+        }
+
+        CompletableFuture<GatewayResult> response;
+        try {
+            response = CompletableFuture.supplyAsync(() -> gateway.charge(charge), callExecutor)
+                .thenCompose(Function.identity());
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            circuitBreaker.releasePermission();
+            bulkheadFullRejections.increment();
+            return CompletableFuture.failedFuture(new GatewayUnavailableException("Payment gateway bulkhead full"));
+        }
+
+        // A timeout counts against the gateway and frees the slot even if the PSP never answers
+        return response
+            .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((result, error) -> {
+                bulkhead.release();
+                if (error == null) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+            });
+    }
+
+    /** How long an open circuit will keep refusing charges. */
+    public Duration retryAfter() {
+        return circuitBreaker.retryAfter();
+    }
+
+    @Override
+    public void destroy() {
+        callExecutor.shutdownNow();
+    }
+}
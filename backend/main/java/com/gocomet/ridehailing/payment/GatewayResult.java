@@ -0,0 +1,12 @@
+package com.gocomet.ridehailing.payment;
+
+public record GatewayResult(boolean approved, String transactionId, String pspReference, String declineReason) {
+
+    public static GatewayResult approved(String transactionId, String pspReference) {
+        return new GatewayResult(true, transactionId, pspReference, null);
+    }
+
+    public static GatewayResult declined(String pspReference, String declineReason) {
+        return new GatewayResult(false, null, pspReference, declineReason);
+    }
+}
@@ -0,0 +1,11 @@
+package com.gocomet.ridehailing.payment;
+
+/**
+ * The charge was refused before reaching the PSP (circuit open, bulkhead full), so it is
+ * safe to try again later without risk of a double charge.
+ */
+public class GatewayUnavailableException extends RuntimeException {
+    public GatewayUnavailableException(String message) {
+        super(message);
+    }
+}
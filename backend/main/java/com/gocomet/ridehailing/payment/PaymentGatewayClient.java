@@ -0,0 +1,13 @@
+package com.gocomet.ridehailing.payment;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client for the external payment service provider. Implementations must not block the
+ * caller: the returned future completes when the PSP answers. Callers apply their own
+ * timeout, so an implementation may leave a lost request incomplete.
+ */
+public interface PaymentGatewayClient {
+
+    CompletableFuture<GatewayResult> charge(GatewayCharge charge);
+}
@@ -0,0 +1,18 @@
+package com.gocomet.ridehailing.payment;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Exponential backoff with equal jitter: attempt {@code n} waits between half and all of
+ * {@code min(max, base * 2^n)}. The floor keeps a failed payment from being hammered; the
+ * jitter spreads payments that failed together (a gateway outage) across the window.
+ */
+public record RetryBackoff(Duration baseDelay, Duration maxDelay) {
+
+    public Duration delayFor(int attempt, RandomGenerator random) {
+        long ceilingMs = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(attempt, 30));
+        long halfMs = ceilingMs / 2;
+        return Duration.ofMillis(halfMs + random.nextLong(ceilingMs - halfMs + 1));
+    }
+}
@@ -0,0 +1,83 @@
+package com.gocomet.ridehailing.payment;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the PSP, used until a real provider is wired in and for load runs.
+ *
+ * <p>Latency is log-normal, fitted to the configured median and p99, which gives the long
+ * right tail real gateways have. A fraction of requests never answer so the caller's
+ * timeout path gets exercised. Responses are scheduled, not slept on: one timer thread
+ * serves any number of in-flight charges.
+ */
+@Component
+@ConditionalOnProperty(name = "app.payment.gateway.type", havingValue = "simulated", matchIfMissing = true)
+@Slf4j
+public class SimulatedPaymentGateway implements PaymentGatewayClient, DisposableBean {
+
+    // z-score of the 99th percentile of a standard normal
+    private static final double Z_99 = 2.3263;
+
+    private final double mu;
+    private final double sigma;
+    private final double approvalRate;
+    private final double lostRate;
+    private final ScheduledExecutorService timer;
+
+    public SimulatedPaymentGateway(@Value("${app.payment.gateway.median-latency-ms:300}") double medianLatencyMs,
+                                   @Value("${app.payment.gateway.p99-latency-ms:1500}") double p99LatencyMs,
+                                   @Value("${app.payment.gateway.approval-rate:0.95}") double approvalRate,
+                                   @Value("${app.payment.gateway.lost-rate:0.0}") double lostRate) {
+        if (medianLatencyMs <= 0 || p99LatencyMs < medianLatencyMs) {
+            throw new IllegalArgumentException("Gateway latency needs 0 < median <= p99");
+        }
+        this.mu = Math.log(medianLatencyMs);
+        this.sigma = Math.log(p99LatencyMs / medianLatencyMs) / Z_99;
+        this.approvalRate = approvalRate;
+        this.lostRate = lostRate;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-gateway-sim");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> charge(GatewayCharge charge) {
+        CompletableFuture<GatewayResult> response = new CompletableFuture<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < lostRate) {
+            log.debug("Simulated gateway dropped charge for payment {}", charge.paymentId());
+            return response;
+        }
+
+        boolean approved = random.nextDouble() < approvalRate;
+        long latencyMs = sampleLatencyMs(random.nextGaussian());
+        String pspReference = "sim_" + UUID.randomUUID();
+        timer.schedule(() -> response.complete(approved
+                ? GatewayResult.approved(UUID.randomUUID().toString(), pspReference)
+                : GatewayResult.declined(pspReference, "Payment gateway declined")),
+            latencyMs, TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+    long sampleLatencyMs(double standardNormal) {
+        return Math.round(Math.exp(mu + sigma * standardNormal));
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,117 @@
+package com.gocomet.ridehailing.pricing;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Rupee amount held as a whole number of paise.
+ *
+ * <p>The static {@code long} helpers are the allocation-free arithmetic used on the
+ * pricing hot path; instances only wrap the final result for entities and APIs.
+ * All rounding is HALF_UP, matching {@link RoundingMode#HALF_UP} on the exact decimal.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    public static final long PAISE_PER_RUPEE = 100;
+
+    // Multipliers (surge) are carried in basis points: 1.5x == 15_000
+    public static final long BASIS_POINTS = 10_000;
+
+    public static final Money ZERO = new Money(0);
+
+    private final long paise;
+
+    private Money(long paise) {
+        this.paise = paise;
+    }
+
+    public static Money ofPaise(long paise) {
+        return paise == 0 ? ZERO : new Money(paise);
+    }
+
+    public static Money ofRupees(BigDecimal rupees) {
+        return ofPaise(rupees.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact());
+    }
+
+    public static Money ofRupees(double rupees) {
+        return ofPaise(toPaise(rupees));
+    }
+
+    @JsonCreator
+    public static Money fromJson(BigDecimal rupees) {
+        return rupees == null ? null : ofRupees(rupees);
+    }
+
+    public long getPaise() {
+        return paise;
+    }
+
+    @JsonValue
+    public BigDecimal toRupees() {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    public Money plus(Money other) {
+        return ofPaise(Math.addExact(paise, other.paise));
+    }
+
+    public Money minus(Money other) {
+        return ofPaise(Math.subtractExact(paise, other.paise));
+    }
+
+    public Money times(long basisPoints) {
+        return ofPaise(applyBasisPoints(paise, basisPoints));
+    }
+
+    public boolean isPositive() {
+        return paise > 0;
+    }
+
+    // ---- allocation-free helpers -------------------------------------------------
+
+    /**
+     * Converts a decimal rupee amount (config values, legacy doubles) to paise.
+     * Goes through the shortest decimal representation so 0.285 rounds to 29, not 28.
+     */
+    public static long toPaise(double rupees) {
+        return BigDecimal.valueOf(rupees).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static long toBasisPoints(double multiplier) {
+        return BigDecimal.valueOf(multiplier).movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /** {@code value * numerator / denominator}, rounded HALF_UP; non-negative inputs. */
+    public static long mulDivHalfUp(long value, long numerator, long denominator) {
+        long product = Math.multiplyExact(value, numerator);
+        return (product + denominator / 2) / denominator;
+    }
+
+    public static long applyBasisPoints(long paise, long basisPoints) {
+        return mulDivHalfUp(paise, basisPoints, BASIS_POINTS);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(paise, other.paise);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money other && paise == other.paise);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(paise);
+    }
+
+    @Override
+    public String toString() {
+        return toRupees().toPlainString();
+    }
+}
@@ -0,0 +1,19 @@
+package com.gocomet.ridehailing.pricing;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores Money as a BIGINT paise column
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.getPaise();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Long paise) {
+        return paise == null ? null : Money.ofPaise(paise);
+    }
+}
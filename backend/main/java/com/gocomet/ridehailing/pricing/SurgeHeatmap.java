@@ -0,0 +1,67 @@
+package com.gocomet.ridehailing.pricing;
+
+import com.gocomet.ridehailing.util.GeoHash;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.OptionalDouble;
+import java.util.TreeMap;
+
+/**
+ * Immutable per-cell surge snapshot. Built off the request path and swapped in
+ * atomically, so readers never lock.
+ */
+public final class SurgeHeatmap {
+
+    private final int precision;
+    private final double baseMultiplier;
+    private final Instant builtAt;
+    private final NavigableMap<String, Double> multipliers;
+
+    public SurgeHeatmap(int precision, double baseMultiplier, Instant builtAt, NavigableMap<String, Double> multipliers) {
+        this.precision = precision;
+        this.baseMultiplier = baseMultiplier;
+        this.builtAt = builtAt;
+        this.multipliers = Collections.unmodifiableNavigableMap(new TreeMap<>(multipliers));
+    }
+
+    public static SurgeHeatmap empty(int precision, double baseMultiplier) {
+        return new SurgeHeatmap(precision, baseMultiplier, Instant.EPOCH, new TreeMap<>());
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    public int getCellCount() {
+        return multipliers.size();
+    }
+
+    public NavigableMap<String, Double> getMultipliers() {
+        return multipliers;
+    }
+
+    public boolean isFresh(Instant now, long maxStalenessMs) {
+        return !builtAt.equals(Instant.EPOCH) && builtAt.plusMillis(maxStalenessMs).isAfter(now);
+    }
+
+    // Cells without elevated demand are not stored, so a miss means the base multiplier
+    public double multiplierAt(double latitude, double longitude) {
+        return multipliers.getOrDefault(GeoHash.encode(latitude, longitude, precision), baseMultiplier);
+    }
+
+    public OptionalDouble multiplierForCell(String geohash) {
+        Double value = multipliers.get(geohash);
+        return value != null ? OptionalDouble.of(value) : OptionalDouble.empty();
+    }
+
+    // All surging cells inside the tile identified by the given (shorter) geohash prefix
+    public NavigableMap<String, Double> cellsWithPrefix(String prefix) {
+        return multipliers.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+}
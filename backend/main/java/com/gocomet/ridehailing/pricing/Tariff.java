@@ -0,0 +1,47 @@
+package com.gocomet.ridehailing.pricing;
+
+/**
+ * Rates for one region/vehicle tier, in paise. Fare = base + distance + time, then surge,
+ * then the minimum-fare floor.
+ *
+ * <p>The pre-surge fare is carried as an exact integer in units of 1/{@link #SCALE} paise
+ * (distance in decimetres, time in milliseconds), so the only rounding step is the final
+ * HALF_UP after surge.
+ */
+public record Tariff(long baseFarePaise, long perKmPaise, long perMinutePaise, long minimumFarePaise) {
+
+    public static final long DECIMETRES_PER_KM = 10_000;
+    public static final long MILLIS_PER_MINUTE = 60_000;
+
+    // lcm(DECIMETRES_PER_KM, MILLIS_PER_MINUTE): one unit of the scaled pre-surge fare
+    public static final long SCALE = 60_000;
+
+    public static Tariff ofRupees(double baseFare, double perKmRate, double perMinuteRate, double minimumFare) {
+        return new Tariff(
+            Money.toPaise(baseFare),
+            Money.toPaise(perKmRate),
+            Money.toPaise(perMinuteRate),
+            Money.toPaise(minimumFare));
+    }
+
+    public static long toDecimetres(double distanceKm) {
+        return Math.round(distanceKm * DECIMETRES_PER_KM);
+    }
+
+    public long preSurgeScaled(long distanceDecimetres, long durationMillis) {
+        long scaled = Math.multiplyExact(baseFarePaise, SCALE);
+        scaled = Math.addExact(scaled,
+            Math.multiplyExact(perKmPaise, distanceDecimetres * (SCALE / DECIMETRES_PER_KM)));
+        return Math.addExact(scaled,
+            Math.multiplyExact(perMinutePaise, durationMillis * (SCALE / MILLIS_PER_MINUTE)));
+    }
+
+    public long applySurge(long preSurgeScaled, long surgeBasisPoints) {
+        long fare = Money.mulDivHalfUp(preSurgeScaled, surgeBasisPoints, SCALE * Money.BASIS_POINTS);
+        return Math.max(fare, minimumFarePaise);
+    }
+
+    public long fare(long distanceDecimetres, long durationMillis, long surgeBasisPoints) {
+        return applySurge(preSurgeScaled(distanceDecimetres, durationMillis), surgeBasisPoints);
+    }
+}
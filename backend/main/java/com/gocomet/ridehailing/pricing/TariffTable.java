@@ -0,0 +1,38 @@
+package com.gocomet.ridehailing.pricing;
+
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+
+import java.util.Map;
+
+/**
+ * Immutable region x tier tariff lookup. Region rows are fully merged with the
+ * defaults at compile time, so a lookup is one map get and one array index.
+ */
+public final class TariffTable {
+
+    private final long version;
+    private final Tariff[] defaults;
+    private final Map<String, Tariff[]> byRegion;
+
+    public TariffTable(long version, Tariff[] defaults, Map<String, Tariff[]> byRegion) {
+        if (defaults.length != VehicleTier.values().length) {
+            throw new IllegalArgumentException("Default tariffs must cover every vehicle tier");
+        }
+        this.version = version;
+        this.defaults = defaults.clone();
+        this.byRegion = Map.copyOf(byRegion);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Tariff lookup(String region, VehicleTier tier) {
+        Tariff[] row = region != null ? byRegion.get(region) : null;
+        return (row != null ? row : defaults)[tier.ordinal()];
+    }
+
+    public int getRegionCount() {
+        return byRegion.size();
+    }
+}
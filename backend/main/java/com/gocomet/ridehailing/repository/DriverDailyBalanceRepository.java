@@ -0,0 +1,15 @@
+package com.gocomet.ridehailing.repository;
+
+import com.gocomet.ridehailing.model.entity.DriverDailyBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DriverDailyBalanceRepository extends JpaRepository<DriverDailyBalance, Long> {
+
+    List<DriverDailyBalance> findByDriverIdAndBalanceDateBetweenOrderByBalanceDate(
+        Long driverId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,37 @@
+package com.gocomet.ridehailing.repository;
+
+import com.gocomet.ridehailing.model.entity.OutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Lock timeout -2 is SKIP LOCKED where the dialect has it, so relays on several nodes
+    // take disjoint batches instead of queueing behind each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    // Rows dispatched before staleBefore were never acknowledged by a flush and are offered again
+    @Query("SELECT m FROM OutboxMessage m WHERE m.dispatchedAt IS NULL OR m.dispatchedAt < :staleBefore ORDER BY m.id")
+    List<OutboxMessage> lockNextBatch(@Param("staleBefore") LocalDateTime staleBefore, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.dispatchedAt = :now WHERE m.id IN :ids")
+    int markDispatched(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM OutboxMessage m WHERE m.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
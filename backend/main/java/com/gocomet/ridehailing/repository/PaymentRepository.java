@@ -2,11 +2,13 @@ package com.gocomet.ridehailing.repository;
 
 import com.gocomet.ridehailing.model.entity.Payment;
 import com.gocomet.ridehailing.model.enums.PaymentStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,9 +21,19 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     
     Optional<Payment> findByTripId(Long tripId);
     
-    @Query("SELECT p FROM Payment p WHERE p.status = :status AND p.retryCount < :maxRetries")
-    List<Payment> findFailedPaymentsForRetry(
-        @Param("status") PaymentStatus status,
-        @Param("maxRetries") Integer maxRetries
+    // Keyset page of payments whose backoff or charge lease has elapsed, oldest id first.
+    // Deferred payments never reached the gateway and a PROCESSING one was counted when it was
+    // claimed, so the attempt limit only applies to failed ones.
+    @Query("SELECT p.id FROM Payment p WHERE ((p.status = :failed AND p.retryCount < :maxRetries) " +
+           "OR p.status = :deferred OR p.status = :processing) AND p.nextRetryAt <= :now AND p.id > :afterId " +
+           "ORDER BY p.id")
+    List<Long> findDueForRetry(
+        @Param("failed") PaymentStatus failed,
+        @Param("deferred") PaymentStatus deferred,
+        @Param("processing") PaymentStatus processing,
+        @Param("maxRetries") Integer maxRetries,
+        @Param("now") LocalDateTime now,
+        @Param("afterId") Long afterId,
+        Pageable pageable
     );
 }
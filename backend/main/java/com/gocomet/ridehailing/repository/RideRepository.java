@@ -1,16 +1,18 @@
 package com.gocomet.ridehailing.repository;
 
+import com.gocomet.ridehailing.model.dto.Location;
 import com.gocomet.ridehailing.model.entity.Ride;
 import com.gocomet.ridehailing.model.enums.RideStatus;
-import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,15 +21,48 @@ public interface RideRepository extends JpaRepository<Ride, Long> {
     
     Optional<Ride> findByIdempotencyKey(String idempotencyKey);
     
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT r FROM Ride r WHERE r.id = :id")
-    Optional<Ride> findByIdWithLock(@Param("id") Long id);
+    // Keyset pages, newest first: rides strictly before the cursor (createdAt, id). Each
+    // filter has a (filter, created_at DESC, id DESC) index, so a page reads only its own rows
+    // however deep it is. The ORDER BY repeats the filter column to match the index exactly;
+    // some planners (H2) otherwise sort the whole range. Pass a Pageable of page 0 for the size.
     
-    @Query("SELECT r FROM Ride r WHERE r.riderId = :riderId ORDER BY r.createdAt DESC")
-    List<Ride> findByRiderIdOrderByCreatedAtDesc(@Param("riderId") Long riderId);
+    @Query("SELECT r FROM Ride r WHERE (r.createdAt, r.id) < (:createdAt, :id) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findPage(
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable page
+    );
+    
+    @Query("SELECT r FROM Ride r WHERE r.status = :status AND (r.createdAt, r.id) < (:createdAt, :id) " +
+           "ORDER BY r.status, r.createdAt DESC, r.id DESC")
+    List<Ride> findPageByStatus(
+        @Param("status") RideStatus status,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable page
+    );
+    
+    @Query("SELECT r FROM Ride r WHERE r.riderId = :riderId AND (r.createdAt, r.id) < (:createdAt, :id) " +
+           "ORDER BY r.riderId, r.createdAt DESC, r.id DESC")
+    List<Ride> findPageByRiderId(
+        @Param("riderId") Long riderId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable page
+    );
+    
+    @Query("SELECT r FROM Ride r WHERE r.driverId = :driverId AND (r.createdAt, r.id) < (:createdAt, :id) " +
+           "ORDER BY r.driverId, r.createdAt DESC, r.id DESC")
+    List<Ride> findPageByDriverId(
+        @Param("driverId") Long driverId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable page
+    );
     
-    @Query("SELECT r FROM Ride r WHERE r.driverId = :driverId ORDER BY r.createdAt DESC")
-    List<Ride> findByDriverIdOrderByCreatedAtDesc(@Param("driverId") Long driverId);
+    @Query("SELECT r FROM Ride r WHERE r.driverId = :driverId AND r.status = :status ORDER BY r.createdAt DESC")
+    List<Ride> findByDriverIdAndStatus(@Param("driverId") Long driverId, @Param("status") RideStatus status);
     
     @Query("SELECT r FROM Ride r WHERE r.status = :status AND r.region = :region")
     List<Ride> findByStatusAndRegion(@Param("status") RideStatus status, @Param("region") String region);
@@ -39,12 +74,96 @@ public interface RideRepository extends JpaRepository<Ride, Long> {
         @Param("since") LocalDateTime since
     );
     
-    @Modifying
-    @Query("UPDATE Ride r SET r.status = :status, r.driverId = :driverId, r.matchedAt = :matchedAt WHERE r.id = :rideId")
-    int assignDriver(
+    @Query("SELECT new com.gocomet.ridehailing.model.dto.Location(r.pickupLatitude, r.pickupLongitude, r.createdAt) " +
+           "FROM Ride r WHERE r.status IN :statuses AND r.createdAt > :since")
+    List<Location> findActivePickupsSince(
+        @Param("statuses") List<RideStatus> statuses,
+        @Param("since") LocalDateTime since
+    );
+    
+    // Conditional transitions: a single UPDATE guarded by the expected status, no prior read
+    // or row lock. They return the affected-row count; 0 means the ride was not in a state
+    // the transition applies to. Bulk updates bypass @Version/@UpdateTimestamp, so both are
+    // maintained here.
+    
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.status = :to, r.updatedAt = :now, r.version = r.version + 1 " +
+           "WHERE r.id = :rideId AND r.status = :from")
+    int transitionSearching(
+        @Param("rideId") Long rideId,
+        @Param("from") RideStatus from,
+        @Param("to") RideStatus to,
+        @Param("now") LocalDateTime now
+    );
+    
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.status = :to, r.driverId = :driverId, r.matchedAt = :now, " +
+           "r.updatedAt = :now, r.version = r.version + 1 " +
+           "WHERE r.id = :rideId AND r.status = :from")
+    int transitionAssigningDriver(
         @Param("rideId") Long rideId,
         @Param("driverId") Long driverId,
-        @Param("status") RideStatus status,
-        @Param("matchedAt") LocalDateTime matchedAt
+        @Param("from") RideStatus from,
+        @Param("to") RideStatus to,
+        @Param("now") LocalDateTime now
+    );
+    
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.status = :to, r.acceptedAt = :now, r.updatedAt = :now, r.version = r.version + 1 " +
+           "WHERE r.id = :rideId AND r.status = :from AND r.driverId = :driverId")
+    int transitionAccepting(
+        @Param("rideId") Long rideId,
+        @Param("driverId") Long driverId,
+        @Param("from") RideStatus from,
+        @Param("to") RideStatus to,
+        @Param("now") LocalDateTime now
+    );
+    
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.status = :to, r.startedAt = :now, r.updatedAt = :now, r.version = r.version + 1 " +
+           "WHERE r.id = :rideId AND r.status IN :from")
+    int transitionStarting(
+        @Param("rideId") Long rideId,
+        @Param("from") Collection<RideStatus> from,
+        @Param("to") RideStatus to,
+        @Param("now") LocalDateTime now
+    );
+    
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.status = :to, r.endedAt = :now, r.updatedAt = :now, r.version = r.version + 1 " +
+           "WHERE r.id = :rideId AND r.status = :from")
+    int transitionEnding(
+        @Param("rideId") Long rideId,
+        @Param("from") RideStatus from,
+        @Param("to") RideStatus to,
+        @Param("now") LocalDateTime now
+    );
+    
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.status = :to, r.failureReason = :failureReason, r.updatedAt = :now, " +
+           "r.version = r.version + 1 WHERE r.id = :rideId AND r.status = :from")
+    int transitionFailing(
+        @Param("rideId") Long rideId,
+        @Param("from") RideStatus from,
+        @Param("to") RideStatus to,
+        @Param("failureReason") String failureReason,
+        @Param("now") LocalDateTime now
+    );
+    
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.status = :to, r.cancelledAt = :now, r.updatedAt = :now, r.version = r.version + 1 " +
+           "WHERE r.id = :rideId AND r.status NOT IN :terminal")
+    int transitionCancelling(
+        @Param("rideId") Long rideId,
+        @Param("terminal") Collection<RideStatus> terminal,
+        @Param("to") RideStatus to,
+        @Param("now") LocalDateTime now
     );
 }
@@ -0,0 +1,24 @@
+package com.gocomet.ridehailing.repository;
+
+import com.gocomet.ridehailing.model.entity.TripEvent;
+import com.gocomet.ridehailing.model.enums.TripStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TripEventRepository extends JpaRepository<TripEvent, Long> {
+
+    // Events not yet folded into the trip row's snapshot
+    @Query("SELECT e FROM TripEvent e WHERE e.tripId = :tripId AND e.sequence > :afterSequence ORDER BY e.sequence")
+    List<TripEvent> findTail(@Param("tripId") Long tripId, @Param("afterSequence") Long afterSequence);
+
+    // Tails for every trip whose snapshot is still active, in one pass for startup rebuild
+    @Query("SELECT e FROM TripEvent e, Trip t WHERE e.tripId = t.id AND t.status IN :statuses " +
+           "AND e.sequence > COALESCE(t.snapshotSequence, 0) ORDER BY e.tripId, e.sequence")
+    List<TripEvent> findActiveTails(@Param("statuses") Collection<TripStatus> statuses);
+}
@@ -20,6 +20,7 @@ public class DriverService {
     private final DriverRepository driverRepository;
 
     @Trace
+    @Transactional(readOnly = true)
     public DriverDTO getDriverById(Long driverId) {
         Driver driver = driverRepository.findById(driverId)
                 .orElseThrow(() -> new DriverException("Driver not found with ID: " + driverId));
@@ -0,0 +1,299 @@
+package com.gocomet.ridehailing.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming settlement batch over the ledger, in two steps:
+ *
+ * <ol>
+ *   <li>Rollup: streams driver-side ledger legs past the checkpoint through a JDBC cursor
+ *       and adds them to {@code driver_daily_balances}. Each chunk (at most {@code chunk-size}
+ *       entries) commits its balance deltas together with the new checkpoint, so memory is
+ *       bounded by the chunk and a crash replays at most one chunk.</li>
+ *   <li>Payout: for closed days, pays each balance the difference between earnings and what
+ *       was already paid out, posting DEBIT driver payable / CREDIT platform cash.</li>
+ * </ol>
+ *
+ * <p>Neither step scans the payments table. Rollup only reads entries newer than the
+ * checkpoint, and stops at the first entry younger than {@code settle-lag}: ids are handed
+ * out before commit, so a younger entry may still have an uncommitted lower-id neighbour.
+ */
+@Service
+@Slf4j
+public class DriverSettlementJob {
+
+    static final String ROLLUP_CHECKPOINT = "driver-daily-rollup";
+
+    private static final String ROLLUP_SQL =
+        "SELECT id, account, driver_id, entry_date, amount_paise, created_at FROM ledger_entries " +
+        "WHERE id > ? AND direction = 'CREDIT' AND account IN ('DRIVER_PAYABLE', 'PLATFORM_REVENUE') " +
+        "AND driver_id IS NOT NULL ORDER BY id";
+
+    private static final String ADD_TO_BALANCE_SQL =
+        "UPDATE driver_daily_balances SET earnings_paise = earnings_paise + ?, " +
+        "commission_paise = commission_paise + ?, payment_count = payment_count + ? " +
+        "WHERE driver_id = ? AND balance_date = ?";
+
+    private static final String INSERT_BALANCE_SQL =
+        "INSERT INTO driver_daily_balances (driver_id, balance_date, earnings_paise, commission_paise, " +
+        "payment_count, paid_out_paise) VALUES (?, ?, ?, ?, ?, 0)";
+
+    private static final String UNPAID_SQL =
+        "SELECT id, driver_id, balance_date, earnings_paise, paid_out_paise FROM driver_daily_balances " +
+        "WHERE balance_date < ? AND earnings_paise > paid_out_paise AND id > ? ORDER BY id";
+
+    private static final String MARK_PAID_SQL =
+        "UPDATE driver_daily_balances SET paid_out_paise = ? WHERE id = ? AND paid_out_paise = ?";
+
+    private static final String INSERT_ENTRY_SQL =
+        "INSERT INTO ledger_entries (reference, account, direction, amount_paise, driver_id, entry_date, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int fetchSize;
+    private final Duration settleLag;
+
+    private final Counter entriesRolledUp;
+    private final Counter payoutsPosted;
+
+    public DriverSettlementJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.ledger.settlement.chunk-size:10000}") int chunkSize,
+                               @Value("${app.ledger.settlement.fetch-size:500}") int fetchSize,
+                               @Value("${app.ledger.settlement.settle-lag:1m}") Duration settleLag) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.fetchSize = fetchSize;
+        this.settleLag = settleLag;
+        this.entriesRolledUp = Counter.builder("ledger.rollup.entries")
+            .description("Ledger entries folded into driver daily balances")
+            .register(meterRegistry);
+        this.payoutsPosted = Counter.builder("ledger.payouts.posted")
+            .description("Driver daily balances paid out")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.ledger.settlement.rollup-interval-ms:60000}")
+    public void rollUp() {
+        int total = 0;
+        RollupChunk chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> rollUpChunk());
+            total += chunk.entries();
+        } while (chunk.hasMore());
+
+        if (total > 0) {
+            log.info("Rolled up {} ledger entries into driver daily balances", total);
+        }
+    }
+
+    @Scheduled(cron = "${app.ledger.settlement.payout-cron:0 30 0 * * *}")
+    public void settleClosedDays() {
+        rollUp();
+        settleBefore(LocalDate.now());
+    }
+
+    /** Pays out every balance dated before {@code today}; returns the number of payouts. */
+    public int settleBefore(LocalDate today) {
+        int total = 0;
+        long afterId = 0L;
+        while (true) {
+            List<Payout> chunk = readUnpaid(today, afterId);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            total += transactionTemplate.execute(status -> postPayouts(chunk));
+            afterId = chunk.get(chunk.size() - 1).balanceId();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("Posted {} driver payouts for days before {}", total, today);
+        }
+        return total;
+    }
+
+    private RollupChunk rollUpChunk() {
+        long checkpoint = lockCheckpoint();
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(settleLag));
+        Aggregator aggregator = new Aggregator(checkpoint, cutoff);
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ROLLUP_SQL);
+            statement.setFetchSize(fetchSize);
+            statement.setMaxRows(chunkSize);
+            statement.setLong(1, checkpoint);
+            return statement;
+        }, aggregator);
+
+        if (aggregator.lastId > checkpoint) {
+            applyToBalances(aggregator.totals);
+            jdbcTemplate.update("UPDATE ledger_checkpoints SET last_entry_id = ? WHERE name = ?",
+                aggregator.lastId, ROLLUP_CHECKPOINT);
+            entriesRolledUp.increment(aggregator.entries);
+        }
+        return new RollupChunk(aggregator.entries, !aggregator.reachedCutoff && aggregator.read == chunkSize);
+    }
+
+    // The checkpoint row lock also keeps a second instance from rolling up the same chunk
+    private long lockCheckpoint() {
+        String select = "SELECT last_entry_id FROM ledger_checkpoints WHERE name = ? FOR UPDATE";
+        List<Long> found = jdbcTemplate.queryForList(select, Long.class, ROLLUP_CHECKPOINT);
+        if (!found.isEmpty()) {
+            return found.get(0);
+        }
+        // Seeded by the migration; if two instances race to create it here, the loser's run
+        // fails on the key and the next poll picks up the row
+        jdbcTemplate.update("INSERT INTO ledger_checkpoints (name, last_entry_id) VALUES (?, 0)", ROLLUP_CHECKPOINT);
+        return jdbcTemplate.queryForObject(select, Long.class, ROLLUP_CHECKPOINT);
+    }
+
+    private void applyToBalances(Map<BalanceKey, Totals> totals) {
+        List<Map.Entry<BalanceKey, Totals>> deltas = new ArrayList<>(totals.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(ADD_TO_BALANCE_SQL, deltas, deltas.size(), (statement, delta) -> {
+            statement.setLong(1, delta.getValue().earnings);
+            statement.setLong(2, delta.getValue().commission);
+            statement.setInt(3, delta.getValue().payments);
+            statement.setLong(4, delta.getKey().driverId());
+            statement.setObject(5, delta.getKey().date());
+        })[0];
+
+        List<Map.Entry<BalanceKey, Totals>> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(deltas.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_BALANCE_SQL, missing, missing.size(), (statement, delta) -> {
+            statement.setLong(1, delta.getKey().driverId());
+            statement.setObject(2, delta.getKey().date());
+            statement.setLong(3, delta.getValue().earnings);
+            statement.setLong(4, delta.getValue().commission);
+            statement.setInt(5, delta.getValue().payments);
+        });
+    }
+
+    private List<Payout> readUnpaid(LocalDate today, long afterId) {
+        List<Payout> chunk = new ArrayList<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(UNPAID_SQL);
+            statement.setFetchSize(fetchSize);
+            statement.setMaxRows(chunkSize);
+            statement.setObject(1, today);
+            statement.setLong(2, afterId);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            chunk.add(new Payout(rs.getLong("id"), rs.getLong("driver_id"), rs.getObject("balance_date", LocalDate.class),
+                rs.getLong("earnings_paise"), rs.getLong("paid_out_paise")));
+        });
+        return chunk;
+    }
+
+    private int postPayouts(List<Payout> chunk) {
+        int[] marked = jdbcTemplate.batchUpdate(MARK_PAID_SQL, chunk, chunk.size(), (statement, payout) -> {
+            statement.setLong(1, payout.earnings());
+            statement.setLong(2, payout.balanceId());
+            statement.setLong(3, payout.paidOut());
+        })[0];
+
+        // Only balances this run moved get entries; a concurrent run that lost the update posts nothing
+        List<Payout> won = new ArrayList<>();
+        for (int i = 0; i < marked.length; i++) {
+            if (marked[i] == 1) {
+                won.add(chunk.get(i));
+            }
+        }
+        if (won.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> legs = new ArrayList<>(won.size() * 2);
+        for (Payout payout : won) {
+            String reference = "payout:" + payout.balanceId() + ":" + payout.earnings();
+            long amount = payout.earnings() - payout.paidOut();
+            legs.add(new Object[]{reference, "DRIVER_PAYABLE", "DEBIT", amount, payout.driverId(), payout.date(), now});
+            legs.add(new Object[]{reference, "PLATFORM_CASH", "CREDIT", amount, payout.driverId(), payout.date(), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, legs);
+        payoutsPosted.increment(won.size());
+        return won.size();
+    }
+
+    record RollupChunk(int entries, boolean hasMore) {
+    }
+
+    private record BalanceKey(long driverId, LocalDate date) {
+    }
+
+    private record Payout(long balanceId, long driverId, LocalDate date, long earnings, long paidOut) {
+    }
+
+    private static final class Totals {
+        long earnings;
+        long commission;
+        int payments;
+    }
+
+    // Folds streamed rows into per-driver, per-day deltas; rows past the cutoff are ignored
+    private static final class Aggregator implements RowCallbackHandler {
+        private final Timestamp cutoff;
+        private final Map<BalanceKey, Totals> totals = new HashMap<>();
+        private long lastId;
+        private int read;
+        private int entries;
+        private boolean reachedCutoff;
+
+        Aggregator(long checkpoint, Timestamp cutoff) {
+            this.lastId = checkpoint;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            read++;
+            if (reachedCutoff || rs.getTimestamp("created_at").after(cutoff)) {
+                reachedCutoff = true;
+                return;
+            }
+            Totals day = totals.computeIfAbsent(
+                new BalanceKey(rs.getLong("driver_id"), rs.getObject("entry_date", LocalDate.class)), key -> new Totals());
+            long amount = rs.getLong("amount_paise");
+            if ("DRIVER_PAYABLE".equals(rs.getString("account"))) {
+                day.earnings += amount;
+                day.payments++;
+            } else {
+                day.commission += amount;
+            }
+            lastId = rs.getLong("id");
+            entries++;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.gocomet.ridehailing.service;
 
 import com.gocomet.ridehailing.model.dto.Location;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.pricing.Tariff;
 import com.newrelic.api.agent.Trace;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -12,66 +14,79 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class FareCalculationService {
     
-    @Value("${app.fare.base-fare:50.0}")
-    private Double baseFare;
+    // Average city speed used to turn distance into an estimated trip time
+    public static final double AVERAGE_SPEED_KMH = 30.0;
     
-    @Value("${app.fare.per-km-rate:12.0}")
-    private Double perKmRate;
+    private final TariffService tariffService;
     
-    @Value("${app.fare.per-minute-rate:2.0}")
-    private Double perMinuteRate;
-    
-    @Value("${app.fare.minimum-fare:70.0}")
-    private Double minimumFare;
+    @Trace
+    public Money calculateEstimatedFare(Double pickupLat, Double pickupLon, 
+                                        Double destLat, Double destLon, 
+                                        Double surgeMultiplier) {
+        return calculateEstimatedFare(defaultTariff(), pickupLat, pickupLon, destLat, destLon, surgeMultiplier);
+    }
     
     @Trace
-    public Double calculateEstimatedFare(Double pickupLat, Double pickupLon, 
+    public Money calculateEstimatedFare(Tariff tariff,
+                                        Double pickupLat, Double pickupLon, 
                                         Double destLat, Double destLon, 
                                         Double surgeMultiplier) {
         try {
             double distance = Location.calculateDistance(pickupLat, pickupLon, destLat, destLon);
+            long decimetres = Tariff.toDecimetres(distance);
             
-            // Estimate time based on average speed of 30 km/h
-            double estimatedMinutes = (distance / 30.0) * 60.0;
-            
-            double fare = baseFare 
-                        + (distance * perKmRate) 
-                        + (estimatedMinutes * perMinuteRate);
+            long fare = tariff.fare(decimetres, estimateDurationMillis(decimetres), toBasisPoints(surgeMultiplier));
             
-            fare = fare * surgeMultiplier;
-            
-            // Apply minimum fare
-            fare = Math.max(fare, minimumFare);
-            
-            log.debug("Estimated fare: {} (distance: {}km, surge: {}x)", 
+            log.debug("Estimated fare: {} paise (distance: {}km, surge: {}x)", 
                 fare, distance, surgeMultiplier);
             
-            return Math.round(fare * 100.0) / 100.0; // Round to 2 decimal places
+            return Money.ofPaise(fare);
         } catch (Exception e) {
             log.error("Error calculating estimated fare", e);
-            return minimumFare;
+            return Money.ofPaise(tariff.minimumFarePaise());
         }
     }
     
     @Trace
-    public Double calculateFinalFare(Double distanceKm, Long durationMinutes, Double surgeMultiplier) {
+    public Money calculateFinalFare(Double distanceKm, Long durationMinutes, Double surgeMultiplier) {
+        return calculateFinalFare(defaultTariff(), distanceKm, durationMinutes, surgeMultiplier);
+    }
+    
+    @Trace
+    public Money calculateFinalFare(Tariff tariff, Double distanceKm, Long durationMinutes, Double surgeMultiplier) {
         try {
-            double fare = baseFare 
-                        + (distanceKm * perKmRate) 
-                        + (durationMinutes * perMinuteRate);
+            long fare = tariff.fare(
+                Tariff.toDecimetres(distanceKm),
+                durationMinutes * Tariff.MILLIS_PER_MINUTE,
+                toBasisPoints(surgeMultiplier));
             
-            fare = fare * surgeMultiplier;
-            
-            // Apply minimum fare
-            fare = Math.max(fare, minimumFare);
-            
-            log.info("Final fare: {} (distance: {}km, duration: {}min, surge: {}x)", 
+            log.info("Final fare: {} paise (distance: {}km, duration: {}min, surge: {}x)", 
                 fare, distanceKm, durationMinutes, surgeMultiplier);
             
-            return Math.round(fare * 100.0) / 100.0;
+            return Money.ofPaise(fare);
         } catch (Exception e) {
             log.error("Error calculating final fare", e);
-            return minimumFare;
+            return Money.ofPaise(tariff.minimumFarePaise());
         }
     }
+    
+    public static double estimateMinutes(double distanceKm) {
+        return (distanceKm / AVERAGE_SPEED_KMH) * 60.0;
+    }
+    
+    // Exact for the configured speed: 30 km/h covers one decimetre in 12 ms
+    public static long estimateDurationMillis(long distanceDecimetres) {
+        return Money.mulDivHalfUp(distanceDecimetres,
+            60 * Tariff.MILLIS_PER_MINUTE, (long) AVERAGE_SPEED_KMH * Tariff.DECIMETRES_PER_KM);
+    }
+    
+    // Multipliers arrive as 1.2, 1.5, ... so a plain round lands on the intended basis point
+    public static long toBasisPoints(double surgeMultiplier) {
+        return Math.round(surgeMultiplier * Money.BASIS_POINTS);
+    }
+    
+    // No region or tier known: the current table's default economy rates
+    private Tariff defaultTariff() {
+        return tariffService.tariffFor(null, VehicleTier.ECONOMY);
+    }
 }
@@ -0,0 +1,142 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.dto.FareQuoteRequest;
+import com.gocomet.ridehailing.model.dto.FareQuoteResponse;
+import com.gocomet.ridehailing.model.dto.Location;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.pricing.Tariff;
+import com.gocomet.ridehailing.pricing.TariffTable;
+import com.gocomet.ridehailing.util.GeoHash;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.newrelic.api.agent.Trace;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class FareQuoteService {
+    
+    private final TariffService tariffService;
+    private final SurgeHeatmapService surgeHeatmapService;
+    private final SurgePricingService surgePricingService;
+    private final int cellPrecision;
+    
+    // Pre-surge quotes by (pickup cell, destination cell, region, tier, tariff version).
+    // Surge is applied per request so a cached entry never carries a stale multiplier.
+    private final Cache<QuoteKey, CachedQuote> quoteCache;
+    
+    public FareQuoteService(TariffService tariffService,
+                            SurgeHeatmapService surgeHeatmapService,
+                            SurgePricingService surgePricingService,
+                            @Value("${app.fare.quote.cell-precision:7}") int cellPrecision,
+                            @Value("${app.fare.quote.cache-size:100000}") long cacheSize,
+                            @Value("${app.fare.quote.cache-ttl-seconds:600}") long cacheTtlSeconds) {
+        this.tariffService = tariffService;
+        this.surgeHeatmapService = surgeHeatmapService;
+        this.surgePricingService = surgePricingService;
+        this.cellPrecision = cellPrecision;
+        this.quoteCache = CacheBuilder.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+            .build();
+    }
+    
+    @Trace
+    public FareQuoteResponse quoteAllTiers(FareQuoteRequest request) {
+        String pickupCell = GeoHash.encode(request.getPickupLatitude(), request.getPickupLongitude(), cellPrecision);
+        String destinationCell = GeoHash.encode(
+            request.getDestinationLatitude(), request.getDestinationLongitude(), cellPrecision);
+        
+        double surgeMultiplier = surgeHeatmapService
+            .multiplierAt(request.getPickupLatitude(), request.getPickupLongitude())
+            .orElseGet(() -> surgePricingService.calculateSurgeMultiplier(request.getRegion()));
+        long surgeBasisPoints = FareCalculationService.toBasisPoints(surgeMultiplier);
+        
+        List<VehicleTier> tiers = request.getVehicleTiers() == null || request.getVehicleTiers().isEmpty()
+            ? Arrays.asList(VehicleTier.values())
+            : request.getVehicleTiers();
+        
+        // Read the table once so every tier in the batch is priced from the same version
+        TariffTable table = tariffService.getTable();
+        
+        List<FareQuoteResponse.TierQuote> quotes = new ArrayList<>(tiers.size());
+        CachedQuote first = null;
+        for (VehicleTier tier : tiers) {
+            Tariff tariff = table.lookup(request.getRegion(), tier);
+            CachedQuote cached = cachedQuote(
+                new QuoteKey(pickupCell, destinationCell, request.getRegion(), tier, table.getVersion()), tariff);
+            if (first == null) {
+                first = cached;
+            }
+            quotes.add(FareQuoteResponse.TierQuote.builder()
+                .vehicleTier(tier)
+                .estimatedFare(Money.ofPaise(tariff.applySurge(cached.preSurgeScaled(), surgeBasisPoints)))
+                .baseFare(Money.ofPaise(tariff.baseFarePaise()))
+                .perKmRate(Money.ofPaise(tariff.perKmPaise()))
+                .perMinuteRate(Money.ofPaise(tariff.perMinutePaise()))
+                .minimumFare(Money.ofPaise(tariff.minimumFarePaise()))
+                .build());
+        }
+        
+        return FareQuoteResponse.builder()
+            .region(request.getRegion())
+            .pickupCell(pickupCell)
+            .destinationCell(destinationCell)
+            .distanceKm(first != null ? first.distanceKm() : null)
+            .estimatedMinutes(first != null ? first.minutes() : null)
+            .surgeMultiplier(surgeMultiplier)
+            .tariffVersion(table.getVersion())
+            .quotes(quotes)
+            .build();
+    }
+    
+    /**
+     * Single-tier estimate used when a ride is created, so the stored estimate matches
+     * what the quote endpoint showed the rider.
+     */
+    @Trace
+    public Money estimateFare(String region, VehicleTier tier,
+                               Double pickupLat, Double pickupLon,
+                               Double destLat, Double destLon,
+                               Double surgeMultiplier) {
+        TariffTable table = tariffService.getTable();
+        Tariff tariff = table.lookup(region, tier);
+        QuoteKey key = new QuoteKey(
+            GeoHash.encode(pickupLat, pickupLon, cellPrecision),
+            GeoHash.encode(destLat, destLon, cellPrecision),
+            region, tier, table.getVersion());
+        return Money.ofPaise(tariff.applySurge(
+            cachedQuote(key, tariff).preSurgeScaled(), FareCalculationService.toBasisPoints(surgeMultiplier)));
+    }
+    
+    private CachedQuote cachedQuote(QuoteKey key, Tariff tariff) {
+        try {
+            return quoteCache.get(key, () -> {
+                // Priced between cell centres so every point in the cell pair shares the entry
+                double[] from = GeoHash.decodeCenter(key.pickupCell());
+                double[] to = GeoHash.decodeCenter(key.destinationCell());
+                double distanceKm = Location.calculateDistance(from[0], from[1], to[0], to[1]);
+                long decimetres = Tariff.toDecimetres(distanceKm);
+                return new CachedQuote(distanceKm, FareCalculationService.estimateMinutes(distanceKm),
+                    tariff.preSurgeScaled(decimetres, FareCalculationService.estimateDurationMillis(decimetres)));
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to compute fare quote", e.getCause());
+        }
+    }
+    
+    record QuoteKey(String pickupCell, String destinationCell, String region, VehicleTier tier, long tariffVersion) {
+    }
+    
+    record CachedQuote(double distanceKm, double minutes, long preSurgeScaled) {
+    }
+}
@@ -0,0 +1,112 @@
+package com.gocomet.ridehailing.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Redis fast path for idempotency keys, in front of the unique constraint on the entity.
+ *
+ * <p>{@link #claim} is a SETNX: the first request for a key reserves it, so a new key
+ * never costs a database lookup. Once the entity is written the reservation is replaced
+ * by its id, and a duplicate is answered with a primary-key read. Any doubt (a reservation
+ * still pending, Redis unavailable) answers {@link Outcome#UNKNOWN} and the caller falls
+ * back to the database lookup; the unique constraint stays the final safety net.
+ */
+@Service
+@Slf4j
+public class IdempotencyRegistry {
+
+    public static final String RIDES = "ride";
+    public static final String PAYMENTS = "payment";
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String PENDING = "pending";
+
+    public enum Outcome { NEW, DUPLICATE, UNKNOWN }
+
+    public record Claim(Outcome outcome, Long existingId) {
+
+        static Claim fresh() {
+            return new Claim(Outcome.NEW, null);
+        }
+
+        static Claim duplicateOf(Long id) {
+            return new Claim(Outcome.DUPLICATE, id);
+        }
+
+        static Claim unknown() {
+            return new Claim(Outcome.UNKNOWN, null);
+        }
+
+        public boolean isNew() {
+            return outcome == Outcome.NEW;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration reservationTtl;
+
+    public IdempotencyRegistry(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                               @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                               @Value("${app.idempotency.reservation-ttl:30s}") Duration reservationTtl) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.reservationTtl = reservationTtl;
+    }
+
+    public Claim claim(String scope, String idempotencyKey) {
+        String key = key(scope, idempotencyKey);
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, PENDING, reservationTtl))) {
+                count(scope, "new");
+                return Claim.fresh();
+            }
+            String value = redisTemplate.opsForValue().get(key);
+            if (value == null || PENDING.equals(value)) {
+                // Still being created, or expired between the two calls
+                count(scope, "pending");
+                return Claim.unknown();
+            }
+            count(scope, "duplicate");
+            return Claim.duplicateOf(Long.valueOf(value));
+        } catch (Exception e) {
+            log.warn("Idempotency registry unavailable for {} key, falling back to database: {}", scope, e.getMessage());
+            count(scope, "unavailable");
+            return Claim.unknown();
+        }
+    }
+
+    /** Records the entity created for a claimed key; duplicates now resolve to it. */
+    public void complete(String scope, String idempotencyKey, Long entityId) {
+        try {
+            redisTemplate.opsForValue().set(key(scope, idempotencyKey), entityId.toString(), ttl);
+        } catch (Exception e) {
+            log.warn("Could not record idempotency key for {} {}: {}", scope, entityId, e.getMessage());
+        }
+    }
+
+    /** Drops a reservation whose request failed, so a retry is not stuck behind it. */
+    public void release(String scope, String idempotencyKey) {
+        try {
+            redisTemplate.delete(key(scope, idempotencyKey));
+        } catch (Exception e) {
+            log.warn("Could not release idempotency key for {}: {}", scope, e.getMessage());
+        }
+    }
+
+    private void count(String scope, String result) {
+        meterRegistry.counter("idempotency.claims", "scope", scope, "result", result).increment();
+    }
+
+    private static String key(String scope, String idempotencyKey) {
+        return KEY_PREFIX + scope + ":" + idempotencyKey;
+    }
+}
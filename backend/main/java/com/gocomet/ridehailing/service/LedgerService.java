@@ -0,0 +1,92 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.dto.DriverEarnings;
+import com.gocomet.ridehailing.model.entity.LedgerEntry;
+import com.gocomet.ridehailing.model.entity.Payment;
+import com.gocomet.ridehailing.model.enums.LedgerAccount;
+import com.gocomet.ridehailing.model.enums.LedgerDirection;
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.repository.DriverDailyBalanceRepository;
+import com.gocomet.ridehailing.repository.LedgerEntryRepository;
+import com.newrelic.api.agent.Trace;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Posts successful payments to the double-entry ledger: the rider's charge is debited to
+ * platform cash and credited to the driver's payable and the platform's commission. The
+ * driver side is rolled up into daily balances by {@link DriverSettlementJob}.
+ */
+@Service
+@Slf4j
+public class LedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final DriverDailyBalanceRepository driverDailyBalanceRepository;
+    private final long commissionBasisPoints;
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository,
+                         DriverDailyBalanceRepository driverDailyBalanceRepository,
+                         @Value("${app.ledger.commission-rate:0.20}") double commissionRate) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.driverDailyBalanceRepository = driverDailyBalanceRepository;
+        this.commissionBasisPoints = Money.toBasisPoints(commissionRate);
+    }
+
+    /** Posts the legs for a successful payment; joins the caller's transaction. */
+    @Transactional
+    public void postPayment(Payment payment) {
+        String reference = paymentReference(payment.getId());
+        if (ledgerEntryRepository.existsByReference(reference)) {
+            log.warn("Payment {} already posted to the ledger", payment.getId());
+            return;
+        }
+
+        Money amount = payment.getAmount();
+        Money commission = amount.times(commissionBasisPoints);
+        Money driverShare = amount.minus(commission);
+        LocalDate entryDate = LocalDate.now();
+
+        ledgerEntryRepository.saveAll(List.of(
+            leg(reference, LedgerAccount.PLATFORM_CASH, LedgerDirection.DEBIT, amount, payment.getDriverId(), entryDate),
+            leg(reference, LedgerAccount.DRIVER_PAYABLE, LedgerDirection.CREDIT, driverShare, payment.getDriverId(), entryDate),
+            leg(reference, LedgerAccount.PLATFORM_REVENUE, LedgerDirection.CREDIT, commission, payment.getDriverId(), entryDate)
+        ));
+    }
+
+    @Trace
+    @Transactional(readOnly = true)
+    public List<DriverEarnings> getDriverEarnings(Long driverId, LocalDate from, LocalDate to) {
+        return driverDailyBalanceRepository.findByDriverIdAndBalanceDateBetweenOrderByBalanceDate(driverId, from, to)
+            .stream()
+            .map(balance -> DriverEarnings.builder()
+                .date(balance.getBalanceDate())
+                .earnings(balance.getEarnings())
+                .commission(balance.getCommission())
+                .paymentCount(balance.getPaymentCount())
+                .paidOut(balance.getPaidOut())
+                .build())
+            .toList();
+    }
+
+    static String paymentReference(Long paymentId) {
+        return "payment:" + paymentId;
+    }
+
+    private static LedgerEntry leg(String reference, LedgerAccount account, LedgerDirection direction,
+                                   Money amount, Long driverId, LocalDate entryDate) {
+        return LedgerEntry.builder()
+            .reference(reference)
+            .account(account)
+            .direction(direction)
+            .amount(amount)
+            .driverId(driverId)
+            .entryDate(entryDate)
+            .build();
+    }
+}
@@ -19,6 +19,8 @@ public class LocationCacheService {
     private final RedisTemplate<String, Object> redisTemplate;
     private static final String DRIVER_LOCATION_PREFIX = "driver:location:";
     private static final String DRIVER_LOCATION_INDEX_PREFIX = "location:index:";
+    // Every ping a driver has sent, whichever node took it; never expires (one key per driver)
+    private static final String DRIVER_FIX_COUNT_PREFIX = "driver:location:fixes:";
     private static final long LOCATION_TTL_SECONDS = 300; // 5 minutes for demo/testing
     
     @Trace
@@ -37,6 +39,7 @@ public class LocationCacheService {
             String geoKey = DRIVER_LOCATION_INDEX_PREFIX + "all";
             redisTemplate.opsForGeo().add(geoKey, new org.springframework.data.geo.Point(longitude, latitude), driverId.toString());
             redisTemplate.expire(geoKey, LOCATION_TTL_SECONDS * 2, TimeUnit.SECONDS);
+            incrementLocationFixCount(driverId);
             
             log.debug("Updated location for driver {}: {}, {}", driverId, latitude, longitude);
         } catch (Exception e) {
@@ -44,42 +47,83 @@ public class LocationCacheService {
         }
     }
     
+    /** Counts one location fix for the driver, shared by every node. */
+    public void incrementLocationFixCount(Long driverId) {
+        redisTemplate.opsForValue().increment(DRIVER_FIX_COUNT_PREFIX + driverId);
+    }
+    
+    /** The driver's shared fix count, or empty if Redis could not be read. */
+    public OptionalLong getLocationFixCount(Long driverId) {
+        try {
+            Object count = redisTemplate.opsForValue().get(DRIVER_FIX_COUNT_PREFIX + driverId);
+            return OptionalLong.of(count instanceof Number number ? number.longValue() : 0L);
+        } catch (Exception e) {
+            log.error("Error reading location fix count for driver {}", driverId, e);
+            return OptionalLong.empty();
+        }
+    }
+    
     @Trace
     public Optional<Location> getDriverLocation(Long driverId) {
         try {
             String key = DRIVER_LOCATION_PREFIX + driverId;
-            Object value = redisTemplate.opsForValue().get(key);
-            
-            if (value instanceof Location) {
-                return Optional.of((Location) value);
-            } else if (value instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> map = (Map<String, Object>) value;
-                return Optional.of(Location.builder()
-                        .latitude(((Number) map.get("latitude")).doubleValue())
-                        .longitude(((Number) map.get("longitude")).doubleValue())
-                        .build());
-            }
-            return Optional.empty();
+            return toLocation(redisTemplate.opsForValue().get(key));
         } catch (Exception e) {
             log.error("Error getting driver location", e);
             return Optional.empty();
         }
     }
     
+    /**
+     * Locations for many drivers in one MGET round trip; drivers without a fresh location are
+     * left out of the map.
+     */
     @Trace
     public Map<Long, Location> getDriverLocations(List<Long> driverIds) {
         Map<Long, Location> locations = new HashMap<>();
+        if (driverIds.isEmpty()) {
+            return locations;
+        }
         
-        for (Long driverId : driverIds) {
-            getDriverLocation(driverId).ifPresent(location -> 
-                locations.put(driverId, location)
-            );
+        try {
+            List<String> keys = new ArrayList<>(driverIds.size());
+            for (Long driverId : driverIds) {
+                keys.add(DRIVER_LOCATION_PREFIX + driverId);
+            }
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return locations;
+            }
+            for (int i = 0; i < driverIds.size(); i++) {
+                Long driverId = driverIds.get(i);
+                try {
+                    toLocation(values.get(i)).ifPresent(location -> locations.put(driverId, location));
+                } catch (RuntimeException e) {
+                    // One unreadable entry shouldn't hide every other driver from matching
+                    log.warn("Unreadable location for driver {}", driverId, e);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error getting driver locations", e);
         }
         
         return locations;
     }
     
+    private static Optional<Location> toLocation(Object value) {
+        if (value instanceof Location) {
+            return Optional.of((Location) value);
+        } else if (value instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = (Map<String, Object>) value;
+            return Optional.of(Location.builder()
+                    .latitude(((Number) map.get("latitude")).doubleValue())
+                    .longitude(((Number) map.get("longitude")).doubleValue())
+                    .build());
+        }
+        return Optional.empty();
+    }
+    
     @Trace
     public List<Long> findNearbyDrivers(Double latitude, Double longitude, Double radiusKm) {
         try {
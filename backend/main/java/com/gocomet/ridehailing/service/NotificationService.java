@@ -1,108 +1,91 @@
 package com.gocomet.ridehailing.service;
 
+import com.gocomet.ridehailing.model.dto.NotificationEvent;
+import com.gocomet.ridehailing.model.dto.NotificationMessage;
 import com.gocomet.ridehailing.model.dto.RideResponse;
 import com.gocomet.ridehailing.model.entity.Ride;
+import com.gocomet.ridehailing.notification.NotificationOutbox;
+import com.gocomet.ridehailing.notification.RideDeltaEncoder;
+import com.gocomet.ridehailing.notification.RideSummaryPublisher;
+import com.gocomet.ridehailing.notification.Topics;
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.util.AfterCommit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Notifications go through the transactional outbox: each call is an insert in the
+ * caller's transaction, published by {@link com.gocomet.ridehailing.notification.OutboxRelay}
+ * after commit. Called outside a transaction, the insert commits on its own.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
     
-    private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationOutbox notificationOutbox;
+    private final RideSummaryPublisher rideSummaryPublisher;
+    private final RideDeltaEncoder rideDeltaEncoder;
     
-    @Async
-    public void notifyRider(Long riderId, String eventType, Object data) {
-        try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("eventType", eventType);
-            message.put("data", data);
-            message.put("timestamp", System.currentTimeMillis());
-            
-            messagingTemplate.convertAndSend("/topic/rider/" + riderId, message);
-            log.debug("Notified rider {} about event: {}", riderId, eventType);
-        } catch (Exception e) {
-            log.error("Error notifying rider", e);
-        }
+    public void notifyRider(Long riderId, NotificationEvent event) {
+        notificationOutbox.enqueue(Topics.rider(riderId), NotificationMessage.of(event));
+        log.debug("Queued {} for rider {}", event.eventType(), riderId);
     }
     
-    @Async
-    public void notifyDriver(Long driverId, String eventType, Object data) {
-        try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("eventType", eventType);
-            message.put("data", data);
-            message.put("timestamp", System.currentTimeMillis());
-            
-            messagingTemplate.convertAndSend("/topic/driver/" + driverId, message);
-            log.debug("Notified driver {} about event: {}", driverId, eventType);
-        } catch (Exception e) {
-            log.error("Error notifying driver", e);
-        }
+    public void notifyDriver(Long driverId, NotificationEvent event) {
+        notificationOutbox.enqueue(Topics.driver(driverId), NotificationMessage.of(event));
+        log.debug("Queued {} for driver {}", event.eventType(), driverId);
     }
     
-    @Async
+    /**
+     * Publishes a ride's new state to the scopes that watch it: the ride itself, its region
+     * and its tenant, as a snapshot or delta frame. The operations dashboard gets it through
+     * the periodic ride summary.
+     */
     public void broadcastRideUpdate(RideResponse rideResponse) {
-        try {
-            messagingTemplate.convertAndSend("/topic/rides/updates", rideResponse);
-            log.debug("Broadcasted ride update for ride {}", rideResponse.getId());
-        } catch (Exception e) {
-            log.error("Error broadcasting ride update", e);
+        // Only the latest state of a ride matters to watchers
+        List<String> destinations = new ArrayList<>(3);
+        destinations.add(Topics.ride(rideResponse.getId()));
+        if (rideResponse.getRegion() != null) {
+            destinations.add(Topics.region(rideResponse.getRegion()));
+        }
+        if (rideResponse.getTenantId() != null) {
+            destinations.add(Topics.tenant(rideResponse.getTenantId()));
         }
+        // Serialized once for all scopes; deltas are cumulative, so coalescing them is safe
+        rideDeltaEncoder.encode(rideResponse).ifPresent(update ->
+            notificationOutbox.enqueue(destinations, update, "ride:" + rideResponse.getId()));
+        AfterCommit.run(() -> rideSummaryPublisher.record(rideResponse));
+        log.debug("Queued ride update for ride {}", rideResponse.getId());
     }
     
     public void sendRideMatchedNotification(Ride ride, Long driverId) {
-        notifyRider(ride.getRiderId(), "RIDE_MATCHED", Map.of(
-            "rideId", ride.getId(),
-            "driverId", driverId,
-            "message", "Driver found! They are on their way."
-        ));
+        notifyRider(ride.getRiderId(), new NotificationEvent.RideMatched(ride.getId(), driverId,
+            "Driver found! They are on their way."));
         
-        notifyDriver(driverId, "NEW_RIDE_REQUEST", Map.of(
-            "rideId", ride.getId(),
-            "pickupAddress", ride.getPickupAddress(),
-            "pickupLatitude", ride.getPickupLatitude(),
-            "pickupLongitude", ride.getPickupLongitude()
-        ));
+        notifyDriver(driverId, new NotificationEvent.NewRideRequest(ride.getId(), ride.getPickupAddress(),
+            ride.getPickupLatitude(), ride.getPickupLongitude()));
     }
     
     public void sendRideAcceptedNotification(Ride ride) {
-        notifyRider(ride.getRiderId(), "RIDE_ACCEPTED", Map.of(
-            "rideId", ride.getId(),
-            "message", "Driver accepted your ride!"
-        ));
+        notifyRider(ride.getRiderId(), new NotificationEvent.RideAccepted(ride.getId(), "Driver accepted your ride!"));
     }
     
     public void sendTripStartedNotification(Ride ride) {
-        notifyRider(ride.getRiderId(), "TRIP_STARTED", Map.of(
-            "rideId", ride.getId(),
-            "message", "Your trip has started!"
-        ));
+        notifyRider(ride.getRiderId(), new NotificationEvent.TripStarted(ride.getId(), "Your trip has started!"));
         
-        notifyDriver(ride.getDriverId(), "TRIP_STARTED", Map.of(
-            "rideId", ride.getId(),
-            "message", "Trip started successfully!"
-        ));
+        notifyDriver(ride.getDriverId(), new NotificationEvent.TripStarted(ride.getId(), "Trip started successfully!"));
     }
     
-    public void sendTripEndedNotification(Ride ride, Double fare) {
-        notifyRider(ride.getRiderId(), "TRIP_ENDED", Map.of(
-            "rideId", ride.getId(),
-            "fare", fare,
-            "message", "Trip completed! Total fare: ₹" + fare
-        ));
+    public void sendTripEndedNotification(Ride ride, Money fare) {
+        notifyRider(ride.getRiderId(), new NotificationEvent.TripEnded(ride.getId(), fare,
+            "Trip completed! Total fare: ₹" + fare));
         
-        notifyDriver(ride.getDriverId(), "TRIP_ENDED", Map.of(
-            "rideId", ride.getId(),
-            "fare", fare,
-            "message", "Trip completed successfully!"
-        ));
+        notifyDriver(ride.getDriverId(), new NotificationEvent.TripEnded(ride.getId(), fare,
+            "Trip completed successfully!"));
     }
 }
@@ -0,0 +1,236 @@
+package com.gocomet.ridehailing.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the monthly partitions of rides, trips and payments (see
+ * {@code V10__partition_by_created_at.sql}) rolling:
+ *
+ * <ol>
+ *   <li>Converts a table that is still plain with V10's {@code partition_by_month}. On a
+ *       fresh schema Hibernate creates the tables after the migrations have run, so the first
+ *       startup partitions them here.</li>
+ *   <li>Creates the partitions for the current month and the next {@code premake-months},
+ *       so inserts never fall through to the DEFAULT partition.</li>
+ *   <li>Archives partitions older than {@code retention-months}: the rows are copied out to
+ *       {@code <archive-dir>/<table>/<partition>.csv.gz}, then the partition is dropped together
+ *       with its claims in {@code partitioned_unique_keys}.</li>
+ * </ol>
+ *
+ * <p>Every step is idempotent, so a run that dies half way (or races another instance) is
+ * finished by the next one: a partition is only dropped after its archive file is complete,
+ * and copying it again overwrites the file.
+ */
+@Service
+@Slf4j
+public class PartitionMaintenanceJob {
+
+    // Partitioned table -> the scope its unique key is claimed under in partitioned_unique_keys
+    static final Map<String, String> TABLES = Map.of(
+        "rides", "rides.idempotency_key",
+        "trips", "trips.ride_id",
+        "payments", "payments.idempotency_key");
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'_p'yyyy_MM");
+
+    private static final String IS_PARTITIONED_SQL =
+        "SELECT COUNT(*) FROM pg_partitioned_table WHERE partrelid = to_regclass(?)";
+
+    private static final String CONVERT_SQL = "SELECT partition_by_month(?, ?, ?)";
+
+    private static final String PARTITIONS_SQL =
+        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final Path archiveDir;
+
+    private final Counter partitionsCreated;
+    private final Counter partitionsArchived;
+    private final Counter rowsArchived;
+
+    public PartitionMaintenanceJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.partitions.premake-months:3}") int premakeMonths,
+                                   @Value("${app.partitions.retention-months:6}") int retentionMonths,
+                                   @Value("${app.partitions.archive-dir:archive}") String archiveDir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.premakeMonths = premakeMonths;
+        this.retentionMonths = retentionMonths;
+        this.archiveDir = Paths.get(archiveDir);
+        this.partitionsCreated = Counter.builder("db.partitions.created")
+            .description("Monthly partitions created ahead of time")
+            .register(meterRegistry);
+        this.partitionsArchived = Counter.builder("db.partitions.archived")
+            .description("Partitions copied to the archive and dropped")
+            .register(meterRegistry);
+        this.rowsArchived = Counter.builder("db.partitions.archived.rows")
+            .description("Rows moved to the archive")
+            .register(meterRegistry);
+    }
+
+    // At startup too, so an instance that was down over a month boundary catches up before traffic
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.partitions.cron:0 15 1 * * *}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        for (String table : TABLES.keySet()) {
+            try {
+                maintain(table, current);
+            } catch (DataAccessException | UncheckedIOException e) {
+                log.error("Partition maintenance failed for {}", table, e);
+            }
+        }
+    }
+
+    void maintain(String table, YearMonth current) {
+        Integer partitioned = jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Integer.class, table);
+        if ((partitioned == null || partitioned == 0) && !convert(table)) {
+            log.debug("{} is not there to partition yet, skipping maintenance", table);
+            return;
+        }
+
+        TreeSet<YearMonth> months = new TreeSet<>();
+        for (String partition : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, table)) {
+            monthOf(table, partition).ifPresent(months::add);
+        }
+
+        for (YearMonth month = current; !month.isAfter(current.plusMonths(premakeMonths)); month = month.plusMonths(1)) {
+            if (!months.contains(month)) {
+                createPartition(table, month);
+            }
+        }
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (YearMonth month : months.headSet(oldestKept)) {
+            archive(table, month);
+        }
+    }
+
+    private boolean convert(String table) {
+        String scope = TABLES.get(table);
+        Boolean converted = jdbcTemplate.queryForObject(CONVERT_SQL, Boolean.class,
+            table, scope, scope.substring(table.length() + 1));
+        if (Boolean.TRUE.equals(converted)) {
+            log.info("Converted plain table {} to monthly partitions", table);
+            return true;
+        }
+        return false;
+    }
+
+    // Built standalone and attached once filled: Postgres refuses a new partition while DEFAULT
+    // holds rows in its range (after downtime, or a fresh conversion), and inserting them into an
+    // attached partition would claim their unique keys a second time
+    private void createPartition(String table, YearMonth month) {
+        String partition = partitionName(table, month);
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        String inMonth = String.format("created_at >= '%s' AND created_at < '%s'", from, to);
+
+        Integer moved = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(String.format("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS INCLUDING CONSTRAINTS)",
+                partition, table));
+            int rows = jdbcTemplate.update(String.format("INSERT INTO %s SELECT * FROM %s_default WHERE %s",
+                partition, table, inMonth));
+            if (rows > 0) {
+                jdbcTemplate.update(String.format("DELETE FROM %s_default WHERE %s", table, inMonth));
+            }
+            jdbcTemplate.execute(String.format("ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')",
+                table, partition, from, to));
+            return rows;
+        });
+        partitionsCreated.increment();
+        log.info("Created partition {} ({} rows moved out of {}_default)", partition, moved, table);
+    }
+
+    private void archive(String table, YearMonth month) {
+        String partition = partitionName(table, month);
+        Path target = archiveDir.resolve(table).resolve(partition + ".csv.gz");
+        long rows = copyOut(partition, target);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            jdbcTemplate.update("DELETE FROM partitioned_unique_keys WHERE scope = ? AND created_at < ?",
+                TABLES.get(table), month.plusMonths(1).atDay(1).atStartOfDay());
+        });
+        partitionsArchived.increment();
+        rowsArchived.increment(rows);
+        log.info("Archived {} rows of {} to {}", rows, partition, target);
+    }
+
+    // Written next to the target and moved into place once synced, so a file under the final
+    // name is always complete
+    private long copyOut(String partition, Path target) {
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                Files.createDirectories(target.getParent());
+                try (FileOutputStream file = new FileOutputStream(partial.toFile());
+                     GZIPOutputStream out = new GZIPOutputStream(new BufferedOutputStream(file))) {
+                    long copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyOut("COPY " + partition + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+                    out.finish();
+                    out.flush();
+                    file.getFD().sync();
+                    return copied;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not archive " + partition, e);
+            }
+        });
+        try {
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive " + partition, e);
+        }
+        return rows != null ? rows : 0;
+    }
+
+    static String partitionName(String table, YearMonth month) {
+        return table + month.format(SUFFIX);
+    }
+
+    // The DEFAULT partition and anything not named <table>_pYYYY_MM is left alone
+    static Optional<YearMonth> monthOf(String table, String partition) {
+        if (!partition.startsWith(table + "_p")) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(YearMonth.parse(partition.substring(table.length()), SUFFIX));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
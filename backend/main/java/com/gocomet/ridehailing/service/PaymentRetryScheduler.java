@@ -0,0 +1,132 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.dto.PaymentResponse;
+import com.gocomet.ridehailing.model.enums.PaymentStatus;
+import com.gocomet.ridehailing.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Retries FAILED payments, PENDING ones the gateway guard refused, and charges (PENDING or
+ * PROCESSING) that never finalized, in the background once their backoff or lease
+ * ({@code nextRetryAt}) has elapsed. Due payments are paged by id so a pass never loads the whole backlog, and a
+ * semaphore caps gateway calls in flight. When the cap is reached the pass stops; the
+ * rest is picked up on the next poll rather than blocking the scheduler thread.
+ */
+@Service
+@Slf4j
+public class PaymentRetryScheduler {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final int batchSize;
+    private final int maxRetryAttempts;
+    private final Semaphore inFlight;
+
+    private final Counter succeeded;
+    private final Counter declined;
+    private final Counter deferred;
+    private final Counter errored;
+
+    public PaymentRetryScheduler(PaymentRepository paymentRepository, PaymentService paymentService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.payment.retry.batch-size:100}") int batchSize,
+                                 @Value("${app.payment.retry.max-in-flight:32}") int maxInFlight,
+                                 @Value("${app.payment.retry-attempts:3}") int maxRetryAttempts) {
+        this.paymentRepository = paymentRepository;
+        this.paymentService = paymentService;
+        this.batchSize = batchSize;
+        this.maxRetryAttempts = maxRetryAttempts;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.succeeded = attemptCounter(meterRegistry, "success");
+        this.declined = attemptCounter(meterRegistry, "declined");
+        this.deferred = attemptCounter(meterRegistry, "deferred");
+        this.errored = attemptCounter(meterRegistry, "error");
+        Gauge.builder("payment.retry.in_flight", inFlight, s -> maxInFlight - s.availablePermits())
+            .description("Scheduled payment retries waiting on the gateway")
+            .register(meterRegistry);
+    }
+
+    private static Counter attemptCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payment.retry.attempts")
+            .description("Scheduled payment retries by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.retry.poll-interval-ms:5000}")
+    public void retryDuePayments() {
+        LocalDateTime now = LocalDateTime.now();
+        long afterId = 0L;
+        int dispatched = 0;
+
+        while (true) {
+            List<Long> due = paymentRepository.findDueForRetry(PaymentStatus.FAILED, PaymentStatus.PENDING,
+                PaymentStatus.PROCESSING, maxRetryAttempts, now, afterId, PageRequest.of(0, batchSize));
+            for (Long paymentId : due) {
+                if (!inFlight.tryAcquire()) {
+                    log.debug("Payment retry cap reached after {} dispatches, resuming next poll", dispatched);
+                    return;
+                }
+                if (dispatch(paymentId, now)) {
+                    dispatched++;
+                }
+                afterId = paymentId;
+            }
+            if (due.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (dispatched > 0) {
+            log.info("Dispatched {} payment retries", dispatched);
+        }
+    }
+
+    // Returns whether a gateway call was started; the permit is released when it settles
+    private boolean dispatch(Long paymentId, LocalDateTime now) {
+        Optional<CompletableFuture<PaymentResponse>> attempt;
+        try {
+            attempt = paymentService.retryIfDue(paymentId, now);
+        } catch (Exception e) {
+            inFlight.release();
+            errored.increment();
+            log.error("Could not retry payment {}", paymentId, e);
+            return false;
+        }
+
+        if (attempt.isEmpty()) {
+            // Claimed or settled by someone else since the page was read
+            inFlight.release();
+            return false;
+        }
+
+        attempt.get().whenComplete((response, error) -> {
+            inFlight.release();
+            if (error != null) {
+                errored.increment();
+                log.error("Payment retry {} failed", paymentId, error);
+            } else if (response.getStatus() == PaymentStatus.SUCCESS) {
+                succeeded.increment();
+            } else if (response.getStatus() == PaymentStatus.PENDING) {
+                // Circuit still open or bulkhead full; requeued without calling the gateway
+                deferred.increment();
+            } else {
+                declined.increment();
+            }
+        });
+        return true;
+    }
+}
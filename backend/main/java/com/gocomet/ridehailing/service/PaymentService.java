@@ -1,27 +1,48 @@
 package com.gocomet.ridehailing.service;
 
 import com.gocomet.ridehailing.exception.PaymentException;
+import com.gocomet.ridehailing.model.dto.NotificationEvent;
 import com.gocomet.ridehailing.model.dto.PaymentRequest;
 import com.gocomet.ridehailing.model.dto.PaymentResponse;
 import com.gocomet.ridehailing.model.entity.Payment;
 import com.gocomet.ridehailing.model.entity.Ride;
-import com.gocomet.ridehailing.model.entity.Trip;
 import com.gocomet.ridehailing.model.enums.PaymentStatus;
+import com.gocomet.ridehailing.payment.GatewayCharge;
+import com.gocomet.ridehailing.payment.GatewayGuard;
+import com.gocomet.ridehailing.payment.GatewayResult;
+import com.gocomet.ridehailing.payment.GatewayUnavailableException;
+import com.gocomet.ridehailing.payment.RetryBackoff;
 import com.gocomet.ridehailing.repository.PaymentRepository;
 import com.gocomet.ridehailing.repository.RideRepository;
 import com.gocomet.ridehailing.repository.TripRepository;
 import com.newrelic.api.agent.Trace;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Map;
-import java.util.UUID;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Payments run in three steps so no connection or request thread is held while the PSP
+ * thinks: persist the payment (short transaction), charge through the non-blocking
+ * {@link GatewayGuard} with a timeout, then finalize in a second short transaction
+ * on the payment executor. A charge the guard refuses stays PENDING for the retrier. A
+ * charge in flight (PENDING first charge or PROCESSING retry) holds a lease in
+ * {@code nextRetryAt}; if its finalization never runs, the retrier takes it over once the
+ * lease expires.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class PaymentService {
     
@@ -29,41 +50,104 @@ public class PaymentService {
     private final RideRepository rideRepository;
     private final TripRepository tripRepository;
     private final NotificationService notificationService;
+    private final GatewayGuard gatewayGuard;
+    private final IdempotencyRegistry idempotencyRegistry;
+    private final LedgerService ledgerService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor paymentExecutor;
     
+    @Value("${app.payment.retry-attempts:3}")
+    private Integer maxRetryAttempts = 3;
+    
+    @Value("${app.payment.retry.base-delay-ms:2000}")
+    private long retryBaseDelayMs = 2000;
+    
+    @Value("${app.payment.retry.max-delay-ms:60000}")
+    private long retryMaxDelayMs = 60000;
+    
+    // A charge in flight holds its payment for the gateway timeout plus this margin (time to
+    // finalize on a busy executor). Past that the retrier presumes the attempt lost
     @Value("${app.payment.timeout-ms:5000}")
-    private Long paymentTimeoutMs;
+    private long gatewayTimeoutMs = 5000;
     
-    @Value("${app.payment.retry-attempts:3}")
-    private Integer maxRetryAttempts;
+    @Value("${app.payment.charge-lease-margin-ms:30000}")
+    private long chargeLeaseMarginMs = 30000;
+    
+    public PaymentService(PaymentRepository paymentRepository, RideRepository rideRepository,
+                          TripRepository tripRepository, NotificationService notificationService,
+                          GatewayGuard gatewayGuard, IdempotencyRegistry idempotencyRegistry,
+                          LedgerService ledgerService, TransactionTemplate transactionTemplate,
+                          @Qualifier("paymentExecutor") Executor paymentExecutor) {
+        this.paymentRepository = paymentRepository;
+        this.rideRepository = rideRepository;
+        this.tripRepository = tripRepository;
+        this.notificationService = notificationService;
+        this.gatewayGuard = gatewayGuard;
+        this.idempotencyRegistry = idempotencyRegistry;
+        this.ledgerService = ledgerService;
+        this.transactionTemplate = transactionTemplate;
+        this.paymentExecutor = paymentExecutor;
+    }
     
     @Trace
-    @Transactional
-    public PaymentResponse processPayment(PaymentRequest request) {
+    public CompletableFuture<PaymentResponse> processPayment(PaymentRequest request) {
+        // Check for idempotency
+        final String idempotencyKey = (request.getIdempotencyKey() == null || request.getIdempotencyKey().isEmpty()) 
+            ? generateIdempotencyKey(request) 
+            : request.getIdempotencyKey();
+        
+        IdempotencyRegistry.Claim claim = idempotencyRegistry.claim(IdempotencyRegistry.PAYMENTS, idempotencyKey);
+        Payment payment;
         try {
-            // Check for idempotency
-            final String idempotencyKey = (request.getIdempotencyKey() == null || request.getIdempotencyKey().isEmpty()) 
-                ? generateIdempotencyKey(request) 
-                : request.getIdempotencyKey();
-            
-            // Check if payment already exists
-            return paymentRepository.findByIdempotencyKey(idempotencyKey)
-                .map(this::mapToResponse)
-                .orElseGet(() -> createAndProcessPayment(request, idempotencyKey));
-            
+            // Check if payment already exists; a key Redis has never seen skips the lookup
+            Payment existing = findExisting(claim, idempotencyKey).orElse(null);
+            if (existing != null) {
+                return CompletableFuture.completedFuture(mapToResponse(existing));
+            }
+            payment = transactionTemplate.execute(status -> createPendingPayment(request, idempotencyKey));
+        } catch (DataIntegrityViolationException e) {
+            // Lost the insert race to a concurrent request with the same key, or the registry entry expired
+            Payment existing = paymentRepository.findByIdempotencyKey(idempotencyKey)
+                .orElseThrow(() -> new PaymentException("Failed to process payment: " + e.getMessage()));
+            idempotencyRegistry.complete(IdempotencyRegistry.PAYMENTS, idempotencyKey, existing.getId());
+            return CompletableFuture.completedFuture(mapToResponse(existing));
+        } catch (PaymentException e) {
+            releaseIfClaimed(claim, idempotencyKey);
+            throw e;
         } catch (Exception e) {
+            releaseIfClaimed(claim, idempotencyKey);
             log.error("Error processing payment", e);
             throw new PaymentException("Failed to process payment: " + e.getMessage());
         }
+        idempotencyRegistry.complete(IdempotencyRegistry.PAYMENTS, idempotencyKey, payment.getId());
+        
+        return chargeAndFinalize(payment);
+    }
+    
+    private Optional<Payment> findExisting(IdempotencyRegistry.Claim claim, String idempotencyKey) {
+        return switch (claim.outcome()) {
+            case NEW -> Optional.empty();
+            case DUPLICATE -> paymentRepository.findById(claim.existingId())
+                .or(() -> paymentRepository.findByIdempotencyKey(idempotencyKey));
+            case UNKNOWN -> paymentRepository.findByIdempotencyKey(idempotencyKey);
+        };
+    }
+    
+    private void releaseIfClaimed(IdempotencyRegistry.Claim claim, String idempotencyKey) {
+        if (claim.isNew()) {
+            idempotencyRegistry.release(IdempotencyRegistry.PAYMENTS, idempotencyKey);
+        }
     }
     
-    private PaymentResponse createAndProcessPayment(PaymentRequest request, String idempotencyKey) {
+    private Payment createPendingPayment(PaymentRequest request, String idempotencyKey) {
         // Validate ride and trip
         Ride ride = rideRepository.findById(request.getRideId())
             .orElseThrow(() -> new PaymentException("Ride not found"));
         
         // Validate trip exists
-        tripRepository.findById(request.getTripId())
-            .orElseThrow(() -> new PaymentException("Trip not found"));
+        if (!tripRepository.existsById(request.getTripId())) {
+            throw new PaymentException("Trip not found");
+        }
         
         // Create payment record
         Payment payment = Payment.builder()
@@ -76,133 +160,203 @@ public class PaymentService {
             .paymentMethod(request.getPaymentMethod())
             .status(PaymentStatus.PENDING)
             .retryCount(0)
+            // Cleared or rescheduled by finalizePayment; if it never runs (crash, rejected
+            // task) the payment comes due for the retrier once the lease expires
+            .nextRetryAt(chargeLeaseExpiry())
             .build();
         
-        payment = paymentRepository.save(payment);
+        return paymentRepository.saveAndFlush(payment);
+    }
+    
+    private CompletableFuture<PaymentResponse> chargeAndFinalize(Payment payment) {
+        GatewayCharge charge = new GatewayCharge(payment.getId(), payment.getIdempotencyKey(),
+            payment.getAmount(), payment.getPaymentMethod());
+        Long paymentId = payment.getId();
         
-        // Process payment with external PSP
-        boolean success = processWithPaymentGateway(payment);
+        CompletableFuture<GatewayResult> response;
+        try {
+            response = gatewayGuard.charge(charge);
+        } catch (Exception e) {
+            response = CompletableFuture.failedFuture(e);
+        }
         
-        if (success) {
-            payment.setStatus(PaymentStatus.SUCCESS);
-            payment.setTransactionId(UUID.randomUUID().toString());
-            log.info("Payment successful for ride {}: ₹{}", request.getRideId(), request.getAmount());
+        // Finalize off the gateway's callback thread: it must never wait on the database
+        return response.handleAsync((result, error) -> finalizePayment(paymentId, result, error), paymentExecutor);
+    }
+    
+    private PaymentResponse finalizePayment(Long paymentId, GatewayResult result, Throwable error) {
+        return transactionTemplate.execute(status -> {
+            Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new PaymentException("Payment not found"));
+            
+            if (payment.getStatus() == PaymentStatus.SUCCESS) {
+                log.warn("Payment {} already successful, ignoring gateway response", paymentId);
+                return mapToResponse(payment);
+            }
+            
+            if (unwrap(error) instanceof GatewayUnavailableException unavailable) {
+                // The PSP was never called: park the payment for the retrier instead of failing it
+                deferPayment(payment, unavailable.getMessage());
+                return mapToResponse(paymentRepository.save(payment));
+            }
+            
+            if (error == null && result.approved()) {
+                payment.setStatus(PaymentStatus.SUCCESS);
+                payment.setTransactionId(result.transactionId());
+                payment.setPspReference(result.pspReference());
+                payment.setFailureReason(null);
+                payment.setNextRetryAt(null);
+                // Posted with the status change, so a payment is in the ledger iff it succeeded
+                ledgerService.postPayment(payment);
+                log.info("Payment successful for ride {}: ₹{}", payment.getRideId(), payment.getAmount());
+            } else {
+                payment.setStatus(PaymentStatus.FAILED);
+                payment.setFailureReason(failureReason(result, error));
+                if (result != null) {
+                    payment.setPspReference(result.pspReference());
+                }
+                scheduleRetry(payment);
+                log.error("Payment failed for ride {}: {}", payment.getRideId(), payment.getFailureReason());
+            }
             
+            payment = paymentRepository.save(payment);
+            sendPaymentNotifications(payment);
+            return mapToResponse(payment);
+        });
+    }
+    
+    private LocalDateTime chargeLeaseExpiry() {
+        return LocalDateTime.now().plus(Duration.ofMillis(gatewayTimeoutMs + chargeLeaseMarginMs));
+    }
+    
+    private void scheduleRetry(Payment payment) {
+        int attempts = payment.getRetryCount() != null ? payment.getRetryCount() : 0;
+        if (attempts >= maxRetryAttempts) {
+            payment.setNextRetryAt(null);
+            return;
+        }
+        RetryBackoff backoff = new RetryBackoff(Duration.ofMillis(retryBaseDelayMs), Duration.ofMillis(retryMaxDelayMs));
+        payment.setNextRetryAt(LocalDateTime.now().plus(backoff.delayFor(attempts, ThreadLocalRandom.current())));
+    }
+    
+    private void deferPayment(Payment payment, String reason) {
+        int attempts = payment.getRetryCount() != null ? payment.getRetryCount() : 0;
+        RetryBackoff backoff = new RetryBackoff(Duration.ofMillis(retryBaseDelayMs), Duration.ofMillis(retryMaxDelayMs));
+        Duration delay = backoff.delayFor(attempts, ThreadLocalRandom.current());
+        Duration circuitOpenFor = gatewayGuard.retryAfter();
+        payment.setStatus(PaymentStatus.PENDING);
+        payment.setFailureReason(reason);
+        payment.setNextRetryAt(LocalDateTime.now().plus(delay.compareTo(circuitOpenFor) >= 0 ? delay : circuitOpenFor));
+        log.warn("Payment {} queued for retry at {}: {}", payment.getId(), payment.getNextRetryAt(), reason);
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    private static String failureReason(GatewayResult result, Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof TimeoutException) {
+            return "Payment gateway timed out";
+        }
+        if (cause != null) {
+            log.error("Error calling payment gateway", cause);
+            return "Payment gateway error";
+        }
+        return result.declineReason() != null ? result.declineReason() : "Payment gateway declined";
+    }
+    
+    private void sendPaymentNotifications(Payment payment) {
+        if (payment.getStatus() == PaymentStatus.SUCCESS) {
             // Send payment success notification
-            notificationService.notifyRider(ride.getRiderId(), "PAYMENT_SUCCESS", Map.of(
-                "rideId", ride.getId(),
-                "paymentId", payment.getId(),
-                "amount", payment.getAmount(),
-                "transactionId", payment.getTransactionId(),
-                "message", "Payment successful! Amount: ₹" + payment.getAmount()
-            ));
+            notificationService.notifyRider(payment.getRiderId(), new NotificationEvent.PaymentSucceeded(
+                payment.getRideId(), payment.getId(), payment.getAmount(), payment.getTransactionId(),
+                "Payment successful! Amount: ₹" + payment.getAmount()));
             
-            notificationService.notifyDriver(ride.getDriverId(), "PAYMENT_RECEIVED", Map.of(
-                "rideId", ride.getId(),
-                "paymentId", payment.getId(),
-                "amount", payment.getAmount(),
-                "message", "Payment received for ride #" + ride.getId()
-            ));
+            notificationService.notifyDriver(payment.getDriverId(), new NotificationEvent.PaymentReceived(
+                payment.getRideId(), payment.getId(), payment.getAmount(),
+                "Payment received for ride #" + payment.getRideId()));
         } else {
-            payment.setStatus(PaymentStatus.FAILED);
-            payment.setFailureReason("Payment gateway declined");
-            log.error("Payment failed for ride {}", request.getRideId());
-            
             // Send payment failure notification
-            notificationService.notifyRider(ride.getRiderId(), "PAYMENT_FAILED", Map.of(
-                "rideId", ride.getId(),
-                "paymentId", payment.getId(),
-                "amount", payment.getAmount(),
-                "reason", payment.getFailureReason(),
-                "message", "Payment failed. Please try again."
-            ));
+            notificationService.notifyRider(payment.getRiderId(), new NotificationEvent.PaymentFailed(
+                payment.getRideId(), payment.getId(), payment.getAmount(), payment.getFailureReason(),
+                "Payment failed. Please try again."));
         }
+    }
+    
+    @Trace
+    public CompletableFuture<PaymentResponse> retryPayment(Long paymentId) {
+        RetryClaim claim = transactionTemplate.execute(status -> claimRetry(paymentId, null));
         
-        payment = paymentRepository.save(payment);
-        return mapToResponse(payment);
+        if (!claim.charge()) {
+            return CompletableFuture.completedFuture(mapToResponse(claim.payment()));
+        }
+        return chargeAndFinalize(claim.payment());
     }
     
+    /**
+     * Retry entry point for {@link PaymentRetryScheduler}: charges only if the payment is
+     * still FAILED, PENDING after the gateway refused it, or abandoned mid-charge (PENDING or
+     * PROCESSING), and its backoff or lease has elapsed at {@code dueBy}. Empty when it is not, or when a concurrent retry claimed it first.
+     */
     @Trace
-    private boolean processWithPaymentGateway(Payment payment) {
+    public Optional<CompletableFuture<PaymentResponse>> retryIfDue(Long paymentId, LocalDateTime dueBy) {
+        RetryClaim claim;
         try {
-            // Simulate payment gateway call
-            // In production, integrate with actual PSP (Stripe, Razorpay, etc.)
-            Thread.sleep(500); // Simulate network latency
-            
-            // Simulate 95% success rate
-            boolean success = Math.random() < 0.95;
-            
-            if (success) {
-                log.debug("Payment gateway approved transaction for payment {}", payment.getId());
-            } else {
-                log.warn("Payment gateway declined transaction for payment {}", payment.getId());
-            }
-            
-            return success;
-        } catch (Exception e) {
-            log.error("Error calling payment gateway", e);
-            return false;
+            claim = transactionTemplate.execute(status -> claimRetry(paymentId, dueBy));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return Optional.empty();
         }
+        return claim.charge() ? Optional.of(chargeAndFinalize(claim.payment())) : Optional.empty();
     }
     
-    @Trace
-    @Transactional
-    public PaymentResponse retryPayment(Long paymentId) {
+    private RetryClaim claimRetry(Long paymentId, LocalDateTime dueBy) {
         Payment payment = paymentRepository.findById(paymentId)
             .orElseThrow(() -> new PaymentException("Payment not found"));
         
         if (payment.getStatus() == PaymentStatus.SUCCESS) {
             log.warn("Payment already successful, skipping retry");
-            return mapToResponse(payment);
+            return new RetryClaim(payment, false);
         }
         
-        if (payment.getRetryCount() >= maxRetryAttempts) {
-            throw new PaymentException("Max retry attempts exceeded");
+        // A claimed retry holds a charge lease; one that outlived it died with the node running
+        // it and is claimed again
+        boolean reclaimed = payment.getStatus() == PaymentStatus.PROCESSING;
+        if (reclaimed && !leaseExpired(payment)) {
+            return new RetryClaim(payment, false);
         }
         
-        payment.setRetryCount(payment.getRetryCount() + 1);
-        payment.setStatus(PaymentStatus.PROCESSING);
-        payment = paymentRepository.save(payment);
-        
-        boolean success = processWithPaymentGateway(payment);
-        
-        Ride ride = rideRepository.findById(payment.getRideId())
-            .orElseThrow(() -> new PaymentException("Ride not found"));
+        // PENDING without a failure reason is the first charge. It is still waiting on the
+        // gateway until its lease expires; after that it is charged again under the same PSP
+        // idempotency key
+        boolean deferred = payment.getStatus() == PaymentStatus.PENDING;
+        if (deferred && payment.getFailureReason() == null && !leaseExpired(payment)) {
+            return new RetryClaim(payment, false);
+        }
         
-        if (success) {
-            payment.setStatus(PaymentStatus.SUCCESS);
-            payment.setTransactionId(UUID.randomUUID().toString());
-            
-            // Send payment success notification
-            notificationService.notifyRider(ride.getRiderId(), "PAYMENT_SUCCESS", Map.of(
-                "rideId", ride.getId(),
-                "paymentId", payment.getId(),
-                "amount", payment.getAmount(),
-                "transactionId", payment.getTransactionId(),
-                "message", "Payment successful! Amount: ₹" + payment.getAmount()
-            ));
-            
-            notificationService.notifyDriver(ride.getDriverId(), "PAYMENT_RECEIVED", Map.of(
-                "rideId", ride.getId(),
-                "paymentId", payment.getId(),
-                "amount", payment.getAmount(),
-                "message", "Payment received for ride #" + ride.getId()
-            ));
-        } else {
-            payment.setStatus(PaymentStatus.FAILED);
-            
-            // Send payment failure notification
-            notificationService.notifyRider(ride.getRiderId(), "PAYMENT_FAILED", Map.of(
-                "rideId", ride.getId(),
-                "paymentId", payment.getId(),
-                "amount", payment.getAmount(),
-                "reason", payment.getFailureReason(),
-                "message", "Payment failed. Please try again."
-            ));
+        if (dueBy != null && ((!deferred && !reclaimed && payment.getStatus() != PaymentStatus.FAILED)
+                || payment.getNextRetryAt() == null || payment.getNextRetryAt().isAfter(dueBy))) {
+            return new RetryClaim(payment, false);
         }
         
-        payment = paymentRepository.save(payment);
-        return mapToResponse(payment);
+        // A deferred charge never reached the PSP, so it does not use up an attempt; a reclaimed
+        // one was counted when it was first claimed
+        if (!deferred && !reclaimed) {
+            if (payment.getRetryCount() >= maxRetryAttempts) {
+                throw new PaymentException("Max retry attempts exceeded");
+            }
+            payment.setRetryCount(payment.getRetryCount() + 1);
+        }
+        payment.setStatus(PaymentStatus.PROCESSING);
+        payment.setNextRetryAt(chargeLeaseExpiry());
+        return new RetryClaim(paymentRepository.saveAndFlush(payment), true);
+    }
+    
+    private static boolean leaseExpired(Payment payment) {
+        return payment.getNextRetryAt() != null && !payment.getNextRetryAt().isAfter(LocalDateTime.now());
+    }
+    
+    private record RetryClaim(Payment payment, boolean charge) {
     }
     
     @Trace
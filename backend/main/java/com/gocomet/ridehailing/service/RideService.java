@@ -3,70 +3,97 @@ package com.gocomet.ridehailing.service;
 import com.gocomet.ridehailing.exception.RideException;
 import com.gocomet.ridehailing.model.dto.CreateRideRequest;
 import com.gocomet.ridehailing.model.dto.Location;
+import com.gocomet.ridehailing.model.dto.NotificationEvent;
+import com.gocomet.ridehailing.model.dto.RideCursor;
+import com.gocomet.ridehailing.model.dto.RidePage;
 import com.gocomet.ridehailing.model.dto.RideResponse;
 import com.gocomet.ridehailing.model.entity.Driver;
 import com.gocomet.ridehailing.model.entity.Ride;
 import com.gocomet.ridehailing.model.entity.Rider;
 import com.gocomet.ridehailing.model.enums.DriverStatus;
 import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.notification.DriverLocationStreamer;
+import com.gocomet.ridehailing.pricing.Money;
 import com.gocomet.ridehailing.repository.DriverRepository;
 import com.gocomet.ridehailing.repository.RideRepository;
 import com.gocomet.ridehailing.repository.RiderRepository;
+import com.gocomet.ridehailing.util.AfterCommit;
 import com.newrelic.api.agent.Trace;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import com.gocomet.ridehailing.model.enums.VehicleTier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RideService {
     
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final List<RideStatus> NON_CANCELLABLE = List.of(RideStatus.COMPLETED, RideStatus.CANCELLED);
+    
     private final RideRepository rideRepository;
     private final DriverRepository driverRepository;
     private final RiderRepository riderRepository;
     private final DriverMatchingService driverMatchingService;
     private final SurgePricingService surgePricingService;
-    private final FareCalculationService fareCalculationService;
+    private final SurgeHeatmapService surgeHeatmapService;
+    private final FareQuoteService fareQuoteService;
     private final NotificationService notificationService;
     private final LocationCacheService locationCacheService;
+    private final DriverLocationStreamer driverLocationStreamer;
+    private final IdempotencyRegistry idempotencyRegistry;
+    private final TransactionTemplate transactionTemplate;
     
     @org.springframework.beans.factory.annotation.Value("${app.matching.search-radius-km:5.0}")
     private Double searchRadiusKm;
     
+    // Not @Transactional: the insert and its notification run in a transaction of their own, so
+    // a unique-key collision rolls back just that and can fall back to the existing ride
     @Trace
-    @Transactional
     public RideResponse createRide(CreateRideRequest request) {
+        // Generate or use provided idempotency key
+        String idempotencyKey = request.getIdempotencyKey();
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            idempotencyKey = generateIdempotencyKey(request);
+        }
+        
+        IdempotencyRegistry.Claim claim = idempotencyRegistry.claim(IdempotencyRegistry.RIDES, idempotencyKey);
+        boolean recorded = false;
         try {
-            // Generate or use provided idempotency key
-            String idempotencyKey = request.getIdempotencyKey();
-            if (idempotencyKey == null || idempotencyKey.isEmpty()) {
-                idempotencyKey = generateIdempotencyKey(request);
-            }
-            
-            // Check for duplicate request
-            Optional<Ride> existingRide = rideRepository.findByIdempotencyKey(idempotencyKey);
+            // Check for duplicate request; a key Redis has never seen skips the lookup
+            Optional<Ride> existingRide = findExisting(claim, idempotencyKey);
             if (existingRide.isPresent()) {
                 log.info("Duplicate ride request detected: {}", idempotencyKey);
                 return mapToResponse(existingRide.get());
             }
             
-            // Calculate surge multiplier
-            Double surgeMultiplier = surgePricingService.calculateSurgeMultiplier(request.getRegion());
+            // Surge multiplier from the precomputed heatmap cell, falling back to the region-level count
+            Double surgeMultiplier = surgeHeatmapService
+                .multiplierAt(request.getPickupLatitude(), request.getPickupLongitude())
+                .orElseGet(() -> surgePricingService.calculateSurgeMultiplier(request.getRegion()));
             
-            // Calculate estimated fare
-            Double estimatedFare = fareCalculationService.calculateEstimatedFare(
+            // Estimate fare from the tier/region tariff (same path as the quote API)
+            Money estimatedFare = fareQuoteService.estimateFare(
+                request.getRegion(),
+                request.getVehicleTier(),
                 request.getPickupLatitude(),
                 request.getPickupLongitude(),
                 request.getDestinationLatitude(),
@@ -93,36 +120,70 @@ public class RideService {
                 .surgeMultiplier(surgeMultiplier)
                 .build();
             
-            ride = rideRepository.save(ride);
-            log.info("Ride created: {} for rider: {}", ride.getId(), ride.getRiderId());
+            RideResponse response;
+            try {
+                response = transactionTemplate.execute(status -> {
+                    // Flushed here so a duplicate key fails before the notification is queued
+                    RideResponse created = mapToResponse(rideRepository.saveAndFlush(ride));
+                    notificationService.broadcastRideUpdate(created);
+                    return created;
+                });
+            } catch (DataIntegrityViolationException e) {
+                // The registry entry expired or was lost; the unique key caught the duplicate
+                Ride existing = rideRepository.findByIdempotencyKey(idempotencyKey).orElseThrow(() -> e);
+                idempotencyRegistry.complete(IdempotencyRegistry.RIDES, idempotencyKey, existing.getId());
+                return mapToResponse(existing);
+            }
+            idempotencyRegistry.complete(IdempotencyRegistry.RIDES, idempotencyKey, response.getId());
+            recorded = true;
+            log.info("Ride created: {} for rider: {}", response.getId(), response.getRiderId());
             
             // Start async driver matching
-            Long rideId = ride.getId();
-            matchDriverAsync(rideId, request);
-            
-            RideResponse response = mapToResponse(ride);
-            notificationService.broadcastRideUpdate(response);
+            matchDriverAsync(response.getId(), request);
             
             return response;
         } catch (Exception e) {
+            if (claim.isNew() && !recorded) {
+                idempotencyRegistry.release(IdempotencyRegistry.RIDES, idempotencyKey);
+            }
             log.error("Error creating ride", e);
             throw new RideException("Failed to create ride: " + e.getMessage());
         }
     }
     
+    private Optional<Ride> findExisting(IdempotencyRegistry.Claim claim, String idempotencyKey) {
+        return switch (claim.outcome()) {
+            case NEW -> Optional.empty();
+            case DUPLICATE -> rideRepository.findById(claim.existingId())
+                .or(() -> rideRepository.findByIdempotencyKey(idempotencyKey));
+            case UNKNOWN -> rideRepository.findByIdempotencyKey(idempotencyKey);
+        };
+    }
+    
     @Async("taskExecutor")
     @Trace
     public CompletableFuture<Void> matchDriverAsync(Long rideId, CreateRideRequest request) {
         try {
             log.info("Starting driver matching for ride {}", rideId);
             
-            Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new RideException("Ride not found"));
-            
-            // Update status to searching
-            ride.setStatus(RideStatus.SEARCHING);
-            rideRepository.save(ride);
-            notificationService.broadcastRideUpdate(mapToResponse(ride));
+            // REQUESTED -> SEARCHING; a ride cancelled before matching started is left alone
+            Boolean searching = transactionTemplate.execute(status -> {
+                if (rideRepository.transitionSearching(
+                        rideId, RideStatus.REQUESTED, RideStatus.SEARCHING, LocalDateTime.now()) == 0) {
+                    if (!rideRepository.existsById(rideId)) {
+                        throw new RideException("Ride not found");
+                    }
+                    return false;
+                }
+                Ride ride = rideRepository.findById(rideId)
+                    .orElseThrow(() -> new RideException("Ride not found"));
+                notificationService.broadcastRideUpdate(mapToResponse(ride));
+                return true;
+            });
+            if (!Boolean.TRUE.equals(searching)) {
+                log.info("Ride {} is no longer requested, skipping driver matching", rideId);
+                return CompletableFuture.completedFuture(null);
+            }
             
             // Find best driver
             Optional<Driver> bestDriverOpt = driverMatchingService.findBestDriver(
@@ -143,32 +204,23 @@ public class RideService {
                     request.getRegion()
                 );
                 
-                ride.setStatus(RideStatus.FAILED);
-                ride.setFailureReason(failureReason);
-                rideRepository.save(ride);
-                notificationService.notifyRider(ride.getRiderId(), "RIDE_FAILED", 
-                    failureReason);
-                notificationService.broadcastRideUpdate(mapToResponse(ride));
+                failRide(rideId, failureReason, true);
                 return CompletableFuture.completedFuture(null);
             }
             
             Driver driver = bestDriverOpt.get();
             
-            // Assign driver
-            assignDriver(rideId, driver.getId());
+            // A call through this skips the @Transactional proxy: without an explicit transaction the
+            // ride, the driver's status and the notifications would each commit on their own
+            transactionTemplate.executeWithoutResult(status -> assignDriver(rideId, driver.getId()));
             
             log.info("Driver {} matched with ride {}", driver.getId(), rideId);
             return CompletableFuture.completedFuture(null);
         } catch (Exception e) {
             log.error("Error in async driver matching", e);
             try {
-                Ride ride = rideRepository.findById(rideId).orElse(null);
-                if (ride != null) {
-                    ride.setStatus(RideStatus.FAILED);
-                    ride.setFailureReason("Driver matching error: " + e.getMessage());
-                    rideRepository.save(ride);
-                    notificationService.broadcastRideUpdate(mapToResponse(ride));
-                }
+                // Guarded on SEARCHING, so a transition that won meanwhile (e.g. a rider cancel) stands
+                failRide(rideId, "Driver matching error: " + e.getMessage(), false);
             } catch (Exception ex) {
                 log.error("Error updating ride status after matching failure", ex);
             }
@@ -176,6 +228,22 @@ public class RideService {
         }
     }
     
+    // SEARCHING -> FAILED together with its notifications; a no-op if the ride has moved on
+    private void failRide(Long rideId, String failureReason, boolean notifyRider) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (rideRepository.transitionFailing(
+                    rideId, RideStatus.SEARCHING, RideStatus.FAILED, failureReason, LocalDateTime.now()) == 0) {
+                return;
+            }
+            Ride ride = rideRepository.findById(rideId)
+                .orElseThrow(() -> new RideException("Ride not found"));
+            if (notifyRider) {
+                notificationService.notifyRider(ride.getRiderId(), new NotificationEvent.RideFailed(rideId, failureReason));
+            }
+            notificationService.broadcastRideUpdate(mapToResponse(ride));
+        });
+    }
+    
     private String determineFailureReason(Double pickupLat, Double pickupLon, 
                                          VehicleTier vehicleTier, String region) {
         // Check if any drivers exist in database for this tier and region
@@ -229,57 +297,53 @@ public class RideService {
     @Trace
     @Transactional
     public void assignDriver(Long rideId, Long driverId) {
-        // Get ride with lock
-        Ride ride = rideRepository.findByIdWithLock(rideId)
-            .orElseThrow(() -> new RideException("Ride not found"));
-        
-        if (ride.getStatus() != RideStatus.SEARCHING) {
-            throw new RideException("Ride is not in searching state");
+        // SEARCHING -> MATCHED in one conditional UPDATE; a concurrent cancel simply wins
+        if (rideRepository.transitionAssigningDriver(
+                rideId, driverId, RideStatus.SEARCHING, RideStatus.MATCHED, LocalDateTime.now()) == 0) {
+            throw rejectedTransition(rideId, "Ride is not in searching state");
         }
         
         // Update driver status
         driverRepository.updateDriverStatus(driverId, DriverStatus.BUSY);
         
-        // Update ride
-        ride.setDriverId(driverId);
-        ride.setStatus(RideStatus.MATCHED);
-        ride.setMatchedAt(LocalDateTime.now());
-        rideRepository.save(ride);
+        Ride ride = rideRepository.findById(rideId)
+            .orElseThrow(() -> new RideException("Ride not found"));
         
-        // Send notifications
+        // Send notifications (outbox rows, published once the match commits)
         notificationService.sendRideMatchedNotification(ride, driverId);
         notificationService.broadcastRideUpdate(mapToResponse(ride));
+        
+        // Stream the driver's position to the rider once the match is visible
+        Long riderId = ride.getRiderId();
+        double pickupLatitude = ride.getPickupLatitude();
+        double pickupLongitude = ride.getPickupLongitude();
+        AfterCommit.run(() -> driverLocationStreamer.track(rideId, riderId, driverId, pickupLatitude, pickupLongitude));
     }
     
     @Trace
     @Transactional
     public RideResponse acceptRide(Long rideId, Long driverId) {
         try {
-            // Get ride with lock
-            Ride ride = rideRepository.findByIdWithLock(rideId)
-                .orElseThrow(() -> new RideException("Ride not found"));
-            
-            // Validate
-            if (ride.getStatus() != RideStatus.MATCHED) {
-                throw new RideException("Ride is not in matched state");
-            }
-            
-            if (!ride.getDriverId().equals(driverId)) {
+            // MATCHED -> ACCEPTED, only for the assigned driver
+            if (rideRepository.transitionAccepting(
+                    rideId, driverId, RideStatus.MATCHED, RideStatus.ACCEPTED, LocalDateTime.now()) == 0) {
+                Ride current = rideRepository.findById(rideId)
+                    .orElseThrow(() -> new RideException("Ride not found"));
+                if (current.getStatus() != RideStatus.MATCHED) {
+                    throw new RideException("Ride is not in matched state");
+                }
                 throw new RideException("This ride is not assigned to you");
             }
             
-            // Update ride status
-            ride.setStatus(RideStatus.ACCEPTED);
-            ride.setAcceptedAt(LocalDateTime.now());
-            ride = rideRepository.save(ride);
-            
             // Update driver status
             driverRepository.updateDriverStatus(driverId, DriverStatus.ON_RIDE);
             
+            Ride ride = rideRepository.findById(rideId)
+                .orElseThrow(() -> new RideException("Ride not found"));
+            RideResponse response = mapToResponse(ride);
+            
             // Send notifications
             notificationService.sendRideAcceptedNotification(ride);
-            
-            RideResponse response = mapToResponse(ride);
             notificationService.broadcastRideUpdate(response);
             
             log.info("Ride {} accepted by driver {}", rideId, driverId);
@@ -290,79 +354,87 @@ public class RideService {
         }
     }
     
+    // Only called after a transition matched no row: work out why for the error message
+    private RideException rejectedTransition(Long rideId, String message) {
+        return rideRepository.existsById(rideId) ? new RideException(message) : new RideException("Ride not found");
+    }
+    
+    /**
+     * One newest-first page of rides, filtered by rider, else driver, else status. The filter
+     * and the {@code (createdAt, id) < cursor} bound run in SQL on matching indexes, so the
+     * cost of a page does not grow with the table. A null cursor starts from the newest ride.
+     */
     @Trace
-    public List<RideResponse> getAllRides(String status, int limit) {
+    @Transactional(readOnly = true)
+    public RidePage listRides(String status, Long riderId, Long driverId, String cursor, int limit) {
+        RideCursor after;
         try {
-            List<Ride> rides;
-            if (status != null && !status.isEmpty()) {
-                try {
-                    RideStatus rideStatus = RideStatus.valueOf(status.toUpperCase());
-                    // Filter by status - get all rides and filter by status
-                    rides = rideRepository.findAll().stream()
-                        .filter(r -> r.getStatus() == rideStatus)
-                        .collect(Collectors.toList());
-                } catch (IllegalArgumentException e) {
-                    log.warn("Invalid ride status: {}", status);
-                    rides = rideRepository.findAll();
-                }
-            } else {
-                rides = rideRepository.findAll();
-            }
-            
-            // Sort by created date descending and limit
-            rides = rides.stream()
-                .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                .limit(limit)
-                .collect(Collectors.toList());
-            
-            return rides.stream()
-                .map(this::mapRideToResponse)
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("Error getting all rides", e);
-            throw new RideException("Failed to retrieve rides: " + e.getMessage());
+            after = cursor == null || cursor.isEmpty() ? RideCursor.START : RideCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new RideException("Invalid cursor");
+        }
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells whether there is a next page
+        Pageable page = PageRequest.of(0, size + 1);
+        RideStatus rideStatus = riderId == null && driverId == null ? parseStatus(status) : null;
+        
+        List<Ride> rides;
+        if (riderId != null) {
+            rides = rideRepository.findPageByRiderId(riderId, after.createdAt(), after.id(), page);
+        } else if (driverId != null) {
+            rides = rideRepository.findPageByDriverId(driverId, after.createdAt(), after.id(), page);
+        } else if (rideStatus != null) {
+            rides = rideRepository.findPageByStatus(rideStatus, after.createdAt(), after.id(), page);
+        } else {
+            rides = rideRepository.findPage(after.createdAt(), after.id(), page);
         }
+        
+        String nextCursor = null;
+        if (rides.size() > size) {
+            rides = rides.subList(0, size);
+            Ride last = rides.get(size - 1);
+            nextCursor = new RideCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new RidePage(mapToResponses(rides), nextCursor);
     }
     
-    @Trace
-    public List<RideResponse> getRidesByRiderId(Long riderId) {
+    private static RideStatus parseStatus(String status) {
+        if (status == null || status.isEmpty()) {
+            return null;
+        }
         try {
-            List<Ride> rides = rideRepository.findByRiderIdOrderByCreatedAtDesc(riderId);
-            return rides.stream()
-                .map(this::mapRideToResponse)
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("Error getting rides for rider: {}", riderId, e);
-            throw new RideException("Failed to retrieve rides: " + e.getMessage());
+            return RideStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid ride status: {}", status);
+            return null;
         }
     }
     
+    /**
+     * Rides matched to the driver and waiting for them to accept.
+     */
     @Trace
-    public List<RideResponse> getRidesByDriverId(Long driverId) {
-        try {
-            List<Ride> rides = rideRepository.findByDriverIdOrderByCreatedAtDesc(driverId);
-            return rides.stream()
-                .map(this::mapRideToResponse)
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("Error getting rides for driver: {}", driverId, e);
-            throw new RideException("Failed to retrieve rides: " + e.getMessage());
-        }
+    @Transactional(readOnly = true)
+    public List<RideResponse> getPendingRides(Long driverId) {
+        return mapToResponses(rideRepository.findByDriverIdAndStatus(driverId, RideStatus.MATCHED));
     }
     
     @Trace
+    @Transactional(readOnly = true)
     public Driver getDriverById(Long driverId) {
         return driverRepository.findById(driverId)
             .orElseThrow(() -> new RideException("Driver not found"));
     }
     
     @Trace
+    @Transactional(readOnly = true)
     public Rider getRiderById(Long riderId) {
         return riderRepository.findById(riderId)
             .orElseThrow(() -> new RideException("Rider not found"));
     }
     
     @Trace
+    @Transactional(readOnly = true)
     public RideResponse getRideById(Long rideId) {
         Ride ride = rideRepository.findById(rideId)
             .orElseThrow(() -> new RideException("Ride not found"));
@@ -372,33 +444,75 @@ public class RideService {
     @Trace
     @Transactional
     public RideResponse cancelRide(Long rideId, String reason) {
-        Ride ride = rideRepository.findByIdWithLock(rideId)
-            .orElseThrow(() -> new RideException("Ride not found"));
-        
-        if (ride.getStatus() == RideStatus.COMPLETED || ride.getStatus() == RideStatus.CANCELLED) {
-            throw new RideException("Cannot cancel ride in " + ride.getStatus() + " status");
+        if (rideRepository.transitionCancelling(
+                rideId, NON_CANCELLABLE, RideStatus.CANCELLED, LocalDateTime.now()) == 0) {
+            Ride current = rideRepository.findById(rideId)
+                .orElseThrow(() -> new RideException("Ride not found"));
+            throw new RideException("Cannot cancel ride in " + current.getStatus() + " status");
         }
         
+        // Read back after the update: driverId is whatever it was when the cancel won
+        Ride ride = rideRepository.findById(rideId)
+            .orElseThrow(() -> new RideException("Ride not found"));
+        
         // If driver was assigned, free them up
         if (ride.getDriverId() != null) {
             driverRepository.updateDriverStatus(ride.getDriverId(), DriverStatus.AVAILABLE);
+            Long driverId = ride.getDriverId();
+            AfterCommit.run(() -> driverLocationStreamer.stop(rideId, driverId));
         }
         
-        ride.setStatus(RideStatus.CANCELLED);
-        ride.setCancelledAt(LocalDateTime.now());
-        ride = rideRepository.save(ride);
-        
         log.info("Ride {} cancelled. Reason: {}", rideId, reason);
         
         return mapToResponse(ride);
     }
     
-    public RideResponse mapRideToResponse(Ride ride) {
-        return mapToResponse(ride);
+    private RideResponse mapToResponse(Ride ride) {
+        RideResponse.DriverInfo driverInfo = null;
+        if (ride.getDriverId() != null) {
+            driverInfo = driverRepository.findById(ride.getDriverId())
+                .map(driver -> toDriverInfo(driver, locationCacheService.getDriverLocation(driver.getId()).orElse(null)))
+                .orElse(null);
+        }
+        return toResponse(ride, driverInfo);
     }
     
-    private RideResponse mapToResponse(Ride ride) {
-        RideResponse.RideResponseBuilder builder = RideResponse.builder()
+    /**
+     * Maps a page of rides with a fixed number of round trips however long the page is: one
+     * IN query for the assigned drivers and one MGET for their locations.
+     */
+    private List<RideResponse> mapToResponses(List<Ride> rides) {
+        List<Long> driverIds = rides.stream()
+            .map(Ride::getDriverId)
+            .filter(Objects::nonNull)
+            .distinct()
+            .collect(Collectors.toList());
+        Map<Long, RideResponse.DriverInfo> driverInfos = new HashMap<>();
+        if (!driverIds.isEmpty()) {
+            List<Driver> drivers = driverRepository.findAllByIds(driverIds);
+            Map<Long, Location> locations = locationCacheService.getDriverLocations(
+                drivers.stream().map(Driver::getId).collect(Collectors.toList()));
+            for (Driver driver : drivers) {
+                driverInfos.put(driver.getId(), toDriverInfo(driver, locations.get(driver.getId())));
+            }
+        }
+        return rides.stream()
+            .map(ride -> toResponse(ride, ride.getDriverId() != null ? driverInfos.get(ride.getDriverId()) : null))
+            .collect(Collectors.toList());
+    }
+    
+    private static RideResponse.DriverInfo toDriverInfo(Driver driver, Location location) {
+        return RideResponse.DriverInfo.builder()
+            .name(driver.getName())
+            .phoneNumber(driver.getPhoneNumber())
+            .vehicleNumber(driver.getVehicleNumber())
+            .rating(driver.getRating())
+            .currentLocation(location)
+            .build();
+    }
+    
+    private static RideResponse toResponse(Ride ride, RideResponse.DriverInfo driverInfo) {
+        return RideResponse.builder()
             .id(ride.getId())
             .riderId(ride.getRiderId())
             .driverId(ride.getDriverId())
@@ -414,28 +528,16 @@ public class RideService {
             .estimatedFare(ride.getEstimatedFare())
             .surgeMultiplier(ride.getSurgeMultiplier())
             .region(ride.getRegion())
+            .tenantId(ride.getTenantId())
             .createdAt(ride.getCreatedAt())
             .matchedAt(ride.getMatchedAt())
             .acceptedAt(ride.getAcceptedAt())
             .startedAt(ride.getStartedAt())
             .endedAt(ride.getEndedAt())
-            .failureReason(ride.getFailureReason());
-        
-        // Add driver info if available
-        if (ride.getDriverId() != null) {
-            driverRepository.findById(ride.getDriverId()).ifPresent(driver -> {
-                RideResponse.DriverInfo driverInfo = RideResponse.DriverInfo.builder()
-                    .name(driver.getName())
-                    .phoneNumber(driver.getPhoneNumber())
-                    .vehicleNumber(driver.getVehicleNumber())
-                    .rating(driver.getRating())
-                    .currentLocation(locationCacheService.getDriverLocation(driver.getId()).orElse(null))
-                    .build();
-                builder.driverInfo(driverInfo);
-            });
-        }
-        
-        return builder.build();
+            .failureReason(ride.getFailureReason())
+            .version(ride.getVersion())
+            .driverInfo(driverInfo)
+            .build();
     }
     
     private String generateIdempotencyKey(CreateRideRequest request) {
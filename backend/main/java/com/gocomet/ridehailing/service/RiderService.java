@@ -20,6 +20,7 @@ public class RiderService {
     private final RiderRepository riderRepository;
 
     @Trace
+    @Transactional(readOnly = true)
     public RiderDTO getRiderById(Long riderId) {
         Rider rider = riderRepository.findById(riderId)
                 .orElseThrow(() -> new RiderException("Rider not found with ID: " + riderId));
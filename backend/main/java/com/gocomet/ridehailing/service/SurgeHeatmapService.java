@@ -0,0 +1,169 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.dto.Location;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.pricing.SurgeHeatmap;
+import com.gocomet.ridehailing.repository.RideRepository;
+import com.gocomet.ridehailing.util.GeoHash;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Service
+@Slf4j
+public class SurgeHeatmapService {
+
+    private static final List<RideStatus> ACTIVE_STATUSES = List.of(
+        RideStatus.REQUESTED,
+        RideStatus.SEARCHING,
+        RideStatus.MATCHED,
+        RideStatus.ACCEPTED,
+        RideStatus.IN_PROGRESS
+    );
+
+    private final RideRepository rideRepository;
+    private final Timer buildTimer;
+
+    @Value("${app.surge.base-multiplier:1.0}")
+    private Double baseMultiplier;
+
+    @Value("${app.surge.max-multiplier:3.0}")
+    private Double maxMultiplier;
+
+    @Value("${app.surge.heatmap.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.surge.heatmap.precision:6}")
+    private int precision;
+
+    @Value("${app.surge.heatmap.window-minutes:5}")
+    private long windowMinutes;
+
+    @Value("${app.surge.heatmap.cell-demand-threshold:3}")
+    private double cellDemandThreshold;
+
+    @Value("${app.surge.heatmap.step:0.1}")
+    private double step;
+
+    @Value("${app.surge.heatmap.neighbour-weight:0.5}")
+    private double neighbourWeight;
+
+    @Value("${app.surge.heatmap.max-staleness-ms:60000}")
+    private long maxStalenessMs;
+
+    private volatile SurgeHeatmap current;
+
+    public SurgeHeatmapService(RideRepository rideRepository, MeterRegistry meterRegistry) {
+        this.rideRepository = rideRepository;
+        this.buildTimer = Timer.builder("surge.heatmap.build")
+            .description("Time to rebuild the surge heatmap snapshot")
+            .register(meterRegistry);
+        Gauge.builder("surge.heatmap.cells", this, s -> s.current.getCellCount())
+            .description("Number of surging cells in the current snapshot")
+            .register(meterRegistry);
+    }
+
+    // Until the first rebuild, serve an empty snapshot at the configured precision
+    @PostConstruct
+    public void init() {
+        current = SurgeHeatmap.empty(precision, baseMultiplier);
+    }
+
+    @Scheduled(fixedDelayString = "${app.surge.heatmap.refresh-ms:15000}",
+               initialDelayString = "${app.surge.heatmap.initial-delay-ms:5000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            SurgeHeatmap snapshot = buildTimer.record(this::build);
+            current = snapshot;
+            log.debug("Surge heatmap rebuilt: {} surging cells at precision {}",
+                snapshot.getCellCount(), snapshot.getPrecision());
+        } catch (Exception e) {
+            // Keep serving the previous snapshot until it goes stale
+            log.error("Error rebuilding surge heatmap", e);
+        }
+    }
+
+    SurgeHeatmap build() {
+        LocalDateTime since = LocalDateTime.now().minusMinutes(windowMinutes);
+        List<Location> pickups = rideRepository.findActivePickupsSince(ACTIVE_STATUSES, since);
+
+        // Raw demand per cell
+        Map<String, Integer> demand = new HashMap<>();
+        for (Location pickup : pickups) {
+            String cell = GeoHash.encode(pickup.getLatitude(), pickup.getLongitude(), precision);
+            demand.merge(cell, 1, Integer::sum);
+        }
+
+        // Smooth across the 8 neighbours so surge does not jump at cell borders
+        Set<String> candidates = new HashSet<>(demand.keySet());
+        Map<String, List<String>> neighbourCache = new HashMap<>();
+        for (String cell : demand.keySet()) {
+            List<String> neighbours = GeoHash.neighbours(cell);
+            neighbourCache.put(cell, neighbours);
+            candidates.addAll(neighbours);
+        }
+
+        TreeMap<String, Double> multipliers = new TreeMap<>();
+        for (String cell : candidates) {
+            List<String> neighbours = neighbourCache.computeIfAbsent(cell, GeoHash::neighbours);
+            double neighbourSum = 0;
+            for (String neighbour : neighbours) {
+                neighbourSum += demand.getOrDefault(neighbour, 0);
+            }
+            double neighbourMean = neighbours.isEmpty() ? 0 : neighbourSum / neighbours.size();
+            double smoothed = (1 - neighbourWeight) * demand.getOrDefault(cell, 0)
+                + neighbourWeight * neighbourMean;
+
+            double multiplier = toMultiplier(smoothed);
+            if (multiplier > baseMultiplier) {
+                multipliers.put(cell, multiplier);
+            }
+        }
+
+        return new SurgeHeatmap(precision, baseMultiplier, Instant.now(), multipliers);
+    }
+
+    private double toMultiplier(double smoothedDemand) {
+        if (smoothedDemand <= cellDemandThreshold) {
+            return baseMultiplier;
+        }
+        double multiplier = baseMultiplier + (smoothedDemand - cellDemandThreshold) * step;
+        // Round to one decimal so quotes and fares stay stable between rebuilds
+        multiplier = Math.round(multiplier * 10.0) / 10.0;
+        return Math.min(multiplier, maxMultiplier);
+    }
+
+    /**
+     * Lock-free read of the cell multiplier. Empty when the snapshot is missing or
+     * stale, in which case callers fall back to the region-level multiplier.
+     */
+    public OptionalDouble multiplierAt(double latitude, double longitude) {
+        SurgeHeatmap snapshot = current;
+        if (!enabled || !snapshot.isFresh(Instant.now(), maxStalenessMs)) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(snapshot.multiplierAt(latitude, longitude));
+    }
+
+    public SurgeHeatmap getSnapshot() {
+        return current;
+    }
+}
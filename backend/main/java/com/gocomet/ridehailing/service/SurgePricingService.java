@@ -29,7 +29,7 @@ public class SurgePricingService {
     private Integer demandThreshold;
     
     @Trace
-    @Cacheable(value = "surgeMultiplier", key = "#region", unless = "#result == 1.0")
+    @Cacheable(value = "surgeMultiplier", key = "#region", sync = true)
     public Double calculateSurgeMultiplier(String region) {
         try {
             // Count active rides in the last 5 minutes
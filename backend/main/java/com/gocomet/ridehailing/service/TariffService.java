@@ -0,0 +1,131 @@
+package com.gocomet.ridehailing.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gocomet.ridehailing.config.TariffProperties;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.pricing.Tariff;
+import com.gocomet.ridehailing.pricing.TariffTable;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+public class TariffService {
+
+    private final TariffProperties properties;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final AtomicLong versions = new AtomicLong();
+
+    @Value("${app.fare.base-fare:50.0}")
+    private Double baseFare;
+
+    @Value("${app.fare.per-km-rate:12.0}")
+    private Double perKmRate;
+
+    @Value("${app.fare.per-minute-rate:2.0}")
+    private Double perMinuteRate;
+
+    @Value("${app.fare.minimum-fare:70.0}")
+    private Double minimumFare;
+
+    private volatile TariffTable table;
+    private volatile long fileLastModified = -1;
+
+    public TariffService(TariffProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${app.tariffs.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        File file = tariffFile();
+        if (file != null && file.lastModified() != fileLastModified) {
+            reload();
+        }
+    }
+
+    public synchronized void reload() {
+        try {
+            TariffProperties source = properties;
+            File file = tariffFile();
+            if (file != null) {
+                // Stat before reading so a write racing with the read triggers another reload
+                fileLastModified = file.lastModified();
+                if (file.isFile()) {
+                    source = objectMapper.readValue(file, TariffProperties.class);
+                }
+            }
+
+            TariffTable compiled = compile(source);
+            table = compiled;
+            log.info("Tariff table v{} loaded: {} region overrides", compiled.getVersion(), compiled.getRegionCount());
+        } catch (Exception e) {
+            // A bad file must never take pricing down; keep serving the previous table
+            if (table == null) {
+                table = compile(properties);
+            }
+            log.error("Error reloading tariffs, keeping table v{}", table.getVersion(), e);
+        }
+    }
+
+    TariffTable compile(TariffProperties source) {
+        Tariff global = Tariff.ofRupees(baseFare, perKmRate, perMinuteRate, minimumFare);
+        VehicleTier[] tiers = VehicleTier.values();
+
+        Tariff[] defaults = new Tariff[tiers.length];
+        for (VehicleTier tier : tiers) {
+            defaults[tier.ordinal()] = merge(global, source.getDefaults().get(tier));
+        }
+
+        Map<String, Tariff[]> byRegion = new HashMap<>();
+        source.getRegions().forEach((region, overrides) -> {
+            Tariff[] row = new Tariff[tiers.length];
+            for (VehicleTier tier : tiers) {
+                row[tier.ordinal()] = merge(defaults[tier.ordinal()], overrides.get(tier));
+            }
+            byRegion.put(region, row);
+        });
+
+        return new TariffTable(versions.incrementAndGet(), defaults, byRegion);
+    }
+
+    private static Tariff merge(Tariff fallback, TariffProperties.Rates rates) {
+        if (rates == null) {
+            return fallback;
+        }
+        return new Tariff(
+            rates.getBaseFare() != null ? Money.toPaise(rates.getBaseFare()) : fallback.baseFarePaise(),
+            rates.getPerKmRate() != null ? Money.toPaise(rates.getPerKmRate()) : fallback.perKmPaise(),
+            rates.getPerMinuteRate() != null ? Money.toPaise(rates.getPerMinuteRate()) : fallback.perMinutePaise(),
+            rates.getMinimumFare() != null ? Money.toPaise(rates.getMinimumFare()) : fallback.minimumFarePaise()
+        );
+    }
+
+    private File tariffFile() {
+        String path = properties.getFile();
+        return path == null || path.isBlank() ? null : new File(path);
+    }
+
+    public TariffTable getTable() {
+        return table;
+    }
+
+    public Tariff tariffFor(String region, VehicleTier tier) {
+        return table.lookup(region, tier);
+    }
+}
@@ -0,0 +1,252 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.dto.Location;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accumulates driven distance for in-progress trips from the driver location stream.
+ *
+ * <p>Each accepted fix adds the haversine segment from the previous accepted fix, so the
+ * total at trip end is a single read. Fixes closer than the jitter radius are dropped
+ * without moving the anchor (slow real movement still adds up once it clears the radius),
+ * and fixes implying an impossible speed are treated as GPS jumps. State is per node and
+ * in memory; {@link TripService#endTrip} falls back to the client distance when a trip
+ * was not tracked here.
+ *
+ * <p>Location pings are spread across instances, so the node holding a trip may see only
+ * part of its route and would under-bill it. The driver's shared fix count (see
+ * {@link LocationCacheService#incrementLocationFixCount}) is sampled at start and end; if
+ * this node saw fewer than {@code min-coverage} of the fixes sent in between, the tracked
+ * distance is discarded in favour of the client figure.
+ */
+@Service
+@Slf4j
+public class TripDistanceTracker {
+
+    private final Map<Long, Accumulator> byDriver = new ConcurrentHashMap<>();
+
+    private final double minSegmentKm;
+    private final double maxSpeedKmh;
+    private final int maxConsecutiveRejects;
+    private final long idleEvictionMs;
+    private final double minCoverage;
+
+    private final Counter acceptedPoints;
+    private final Counter jitterPoints;
+    private final Counter speedOutlierPoints;
+    private final Counter outOfOrderPoints;
+    private final Counter partialCoverage;
+
+    public TripDistanceTracker(MeterRegistry meterRegistry,
+                               @Value("${app.trip.distance.min-segment-meters:10}") double minSegmentMeters,
+                               @Value("${app.trip.distance.max-speed-kmh:160}") double maxSpeedKmh,
+                               @Value("${app.trip.distance.max-consecutive-rejects:5}") int maxConsecutiveRejects,
+                               @Value("${app.trip.distance.idle-eviction-minutes:360}") long idleEvictionMinutes,
+                               @Value("${app.trip.distance.min-coverage:0.9}") double minCoverage) {
+        this.minSegmentKm = minSegmentMeters / 1000.0;
+        this.maxSpeedKmh = maxSpeedKmh;
+        this.maxConsecutiveRejects = maxConsecutiveRejects;
+        this.idleEvictionMs = idleEvictionMinutes * 60_000;
+        this.minCoverage = minCoverage;
+        this.acceptedPoints = pointCounter(meterRegistry, "accepted");
+        this.jitterPoints = pointCounter(meterRegistry, "jitter");
+        this.speedOutlierPoints = pointCounter(meterRegistry, "speed_outlier");
+        this.outOfOrderPoints = pointCounter(meterRegistry, "out_of_order");
+        this.partialCoverage = Counter.builder("trip.distance.partial_coverage")
+            .description("Tracked distances discarded because this node missed too many of the trip's fixes")
+            .register(meterRegistry);
+        Gauge.builder("trip.distance.active", byDriver, Map::size)
+            .description("Trips with an in-memory distance accumulator")
+            .register(meterRegistry);
+    }
+
+    private static Counter pointCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("trip.distance.points")
+            .description("Driver location fixes seen for in-progress trips")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /** {@code driverFixCount} is the driver's shared fix count now, if known. */
+    public void startTrip(Long tripId, Long driverId, double latitude, double longitude, long timestampMs,
+                          OptionalLong driverFixCount) {
+        byDriver.put(driverId, new Accumulator(tripId, latitude, longitude, timestampMs, driverFixCount));
+        log.debug("Tracking distance for trip {} (driver {})", tripId, driverId);
+    }
+
+    public void pauseTrip(Long tripId, Long driverId) {
+        Accumulator acc = accumulator(tripId, driverId);
+        if (acc != null) {
+            synchronized (acc) {
+                acc.paused = true;
+            }
+        }
+    }
+
+    public void resumeTrip(Long tripId, Long driverId) {
+        Accumulator acc = accumulator(tripId, driverId);
+        if (acc != null) {
+            synchronized (acc) {
+                // Movement while paused is not billed: the next fix only re-anchors
+                acc.paused = false;
+                acc.anchored = false;
+            }
+        }
+    }
+
+    /**
+     * Feeds one location fix. A driver without an in-progress trip costs one map miss.
+     */
+    public void recordLocation(Long driverId, double latitude, double longitude, long timestampMs) {
+        Accumulator acc = byDriver.get(driverId);
+        if (acc == null) {
+            return;
+        }
+        synchronized (acc) {
+            acc.lastSeenMs = Math.max(acc.lastSeenMs, timestampMs);
+            acc.fixesSeen++;
+            if (acc.paused) {
+                return;
+            }
+            if (!acc.anchored) {
+                acc.moveTo(latitude, longitude, timestampMs);
+                acc.anchored = true;
+                return;
+            }
+            addFix(acc, latitude, longitude, timestampMs);
+        }
+    }
+
+    /**
+     * Closes the trip at its end point and returns the driven distance in km, or empty if
+     * this node never saw the trip start, never received a usable fix for it, or missed too
+     * many of the fixes counted in {@code driverFixCount} since the start.
+     */
+    public OptionalDouble completeTrip(Long tripId, Long driverId, double endLatitude, double endLongitude,
+                                       long timestampMs, OptionalLong driverFixCount) {
+        Accumulator acc = accumulator(tripId, driverId);
+        if (acc == null) {
+            return OptionalDouble.empty();
+        }
+        synchronized (acc) {
+            if (acc.acceptedFixes == 0) {
+                return OptionalDouble.empty();
+            }
+            if (missedTooMany(acc, driverFixCount)) {
+                partialCoverage.increment();
+                log.warn("Trip {} was tracked from {} of its driver's fixes, not billing the tracked distance",
+                    tripId, acc.fixesSeen);
+                return OptionalDouble.empty();
+            }
+            if (acc.anchored && !acc.paused) {
+                addFix(acc, endLatitude, endLongitude, timestampMs);
+            }
+            return OptionalDouble.of(acc.totalKm);
+        }
+    }
+
+    public void stopTracking(Long tripId, Long driverId) {
+        Accumulator acc = accumulator(tripId, driverId);
+        if (acc != null) {
+            byDriver.remove(driverId, acc);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.trip.distance.eviction-interval-ms:300000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMs;
+        byDriver.entrySet().removeIf(entry -> {
+            if (entry.getValue().lastSeenMs < cutoff) {
+                log.warn("Dropping idle distance accumulator for trip {}", entry.getValue().tripId);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void addFix(Accumulator acc, double latitude, double longitude, long timestampMs) {
+        long elapsedMs = timestampMs - acc.anchorTimestampMs;
+        if (elapsedMs <= 0) {
+            outOfOrderPoints.increment();
+            return;
+        }
+
+        double segmentKm = Location.calculateDistance(acc.anchorLatitude, acc.anchorLongitude, latitude, longitude);
+        if (segmentKm < minSegmentKm) {
+            jitterPoints.increment();
+            return;
+        }
+
+        double speedKmh = segmentKm / (elapsedMs / 3_600_000.0);
+        if (speedKmh > maxSpeedKmh) {
+            speedOutlierPoints.increment();
+            // A run of "outliers" means the anchor was the bad fix, or we lost signal for
+            // a while; restart from here rather than refusing every later point
+            if (++acc.consecutiveRejects >= maxConsecutiveRejects) {
+                acc.moveTo(latitude, longitude, timestampMs);
+            }
+            return;
+        }
+
+        acc.totalKm += segmentKm;
+        acc.acceptedFixes++;
+        acc.moveTo(latitude, longitude, timestampMs);
+        acceptedPoints.increment();
+    }
+
+    // A couple of fixes either side of the start/end samples can be in flight, so small gaps pass
+    private boolean missedTooMany(Accumulator acc, OptionalLong driverFixCount) {
+        if (acc.fixCountAtStart.isEmpty() || driverFixCount.isEmpty()) {
+            return false;
+        }
+        long sent = driverFixCount.getAsLong() - acc.fixCountAtStart.getAsLong();
+        long missed = sent - acc.fixesSeen;
+        return missed > Math.max(2, sent * (1 - minCoverage));
+    }
+
+    private Accumulator accumulator(Long tripId, Long driverId) {
+        Accumulator acc = byDriver.get(driverId);
+        return acc != null && acc.tripId.equals(tripId) ? acc : null;
+    }
+
+    private static final class Accumulator {
+        private final Long tripId;
+        private final OptionalLong fixCountAtStart;
+        private double anchorLatitude;
+        private double anchorLongitude;
+        private long anchorTimestampMs;
+        private long lastSeenMs;
+        private double totalKm;
+        private int consecutiveRejects;
+        private int acceptedFixes;
+        private long fixesSeen;
+        private boolean anchored = true;
+        private boolean paused;
+
+        private Accumulator(Long tripId, double latitude, double longitude, long timestampMs,
+                            OptionalLong fixCountAtStart) {
+            this.tripId = tripId;
+            this.fixCountAtStart = fixCountAtStart;
+            this.lastSeenMs = timestampMs;
+            moveTo(latitude, longitude, timestampMs);
+        }
+
+        private void moveTo(double latitude, double longitude, long timestampMs) {
+            this.anchorLatitude = latitude;
+            this.anchorLongitude = longitude;
+            this.anchorTimestampMs = timestampMs;
+            this.consecutiveRejects = 0;
+        }
+    }
+}
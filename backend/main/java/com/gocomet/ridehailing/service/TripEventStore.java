@@ -0,0 +1,218 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.exception.TripException;
+import com.gocomet.ridehailing.model.entity.Trip;
+import com.gocomet.ridehailing.model.entity.TripEvent;
+import com.gocomet.ridehailing.model.enums.TripEventType;
+import com.gocomet.ridehailing.model.enums.TripStatus;
+import com.gocomet.ridehailing.repository.TripEventRepository;
+import com.gocomet.ridehailing.repository.TripRepository;
+import com.gocomet.ridehailing.trip.TripState;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Appends trip events and keeps the folded state of active trips in memory.
+ *
+ * <p>A transition is one INSERT into {@code trip_events}; the trip row is only rewritten
+ * as a snapshot every {@code snapshot-every} events and when the trip ends. The unique
+ * (trip, sequence) key rejects a writer that folded a stale state.
+ *
+ * <p>The in-memory state is per node, and another instance may have appended since it was
+ * cached, so a load reads the events after the cached sequence (an index probe that is empty
+ * when this node wrote last) and folds them in before using it.
+ */
+@Service
+@Slf4j
+public class TripEventStore {
+
+    private static final List<TripStatus> ACTIVE_STATUSES =
+        List.of(TripStatus.STARTED, TripStatus.PAUSED, TripStatus.RESUMED);
+
+    private final TripRepository tripRepository;
+    private final TripEventRepository tripEventRepository;
+    private final Map<Long, TripState> activeTrips = new ConcurrentHashMap<>();
+
+    @Value("${app.trip.events.snapshot-every:20}")
+    private long snapshotEvery = 20;
+
+    public TripEventStore(TripRepository tripRepository, TripEventRepository tripEventRepository,
+                          MeterRegistry meterRegistry) {
+        this.tripRepository = tripRepository;
+        this.tripEventRepository = tripEventRepository;
+        Gauge.builder("trip.events.active", activeTrips, Map::size)
+            .description("Active trips with folded state in memory")
+            .register(meterRegistry);
+    }
+
+    /** Records the STARTED event for a freshly inserted trip row, saved with snapshot 1. */
+    @Transactional
+    public TripState recordStart(Trip trip) {
+        TripEvent event = TripEvent.builder()
+            .tripId(trip.getId())
+            .sequence(1L)
+            .type(TripEventType.STARTED)
+            .occurredAt(trip.getStartTime())
+            .build();
+        insert(event);
+
+        TripState state = TripState.fromSnapshot(trip);
+        cacheAfterCommit(state);
+        return state;
+    }
+
+    @Transactional(readOnly = true)
+    public TripState load(Long tripId) {
+        TripState cached = activeTrips.get(tripId);
+        if (cached != null) {
+            TripState current = catchUp(cached);
+            if (current != null) {
+                return current;
+            }
+        }
+        Trip snapshot = tripRepository.findById(tripId)
+            .orElseThrow(() -> new TripException("Trip not found"));
+        long after = snapshot.getSnapshotSequence() != null ? snapshot.getSnapshotSequence() : 0L;
+        TripState state = TripState.fold(snapshot, tripEventRepository.findTail(tripId, after));
+        if (state.isActive()) {
+            activeTrips.putIfAbsent(tripId, state);
+        }
+        return state;
+    }
+
+    // Null if the missed events do not fold onto the cached state; the caller re-folds from the snapshot
+    private TripState catchUp(TripState cached) {
+        List<TripEvent> missed = tripEventRepository.findTail(cached.tripId(), cached.sequence());
+        if (missed.isEmpty()) {
+            return cached;
+        }
+        TripState state = cached;
+        try {
+            for (TripEvent event : missed) {
+                state = state.apply(event);
+            }
+        } catch (IllegalStateException e) {
+            activeTrips.remove(cached.tripId(), cached);
+            return null;
+        }
+        if (state.isActive()) {
+            activeTrips.replace(state.tripId(), cached, state);
+        } else {
+            activeTrips.remove(state.tripId(), cached);
+        }
+        return state;
+    }
+
+    /**
+     * Appends the next event after {@code current} and returns the new state. Terminal
+     * events always snapshot so finished trips are a single row read.
+     */
+    @Transactional
+    public TripState append(TripState current, TripEventType type, LocalDateTime occurredAt,
+                            TripEvent.TripEventBuilder payload) {
+        TripEvent event = payload
+            .tripId(current.tripId())
+            .sequence(current.sequence() + 1)
+            .type(type)
+            .occurredAt(occurredAt)
+            .build();
+
+        TripState next;
+        try {
+            next = current.apply(event);
+        } catch (IllegalStateException e) {
+            throw new TripException(e.getMessage());
+        }
+        insert(event);
+
+        if (!next.isActive() || next.sequence() - next.snapshotSequence() >= snapshotEvery) {
+            Trip row = tripRepository.findById(current.tripId())
+                .orElseThrow(() -> new TripException("Trip not found"));
+            next.applyTo(row);
+            tripRepository.save(row);
+            next = next.withSnapshotAt(next.sequence());
+        }
+
+        cacheAfterCommit(next);
+        return next;
+    }
+
+    private void insert(TripEvent event) {
+        try {
+            // Flush now so a lost race surfaces here rather than at commit
+            tripEventRepository.saveAndFlush(event);
+        } catch (DataIntegrityViolationException e) {
+            activeTrips.remove(event.getTripId());
+            throw new TripException("Trip " + event.getTripId() + " was updated concurrently, please retry");
+        }
+    }
+
+    private void cacheAfterCommit(TripState state) {
+        Runnable publish = () -> {
+            if (state.isActive()) {
+                activeTrips.put(state.tripId(), state);
+            } else {
+                activeTrips.remove(state.tripId());
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    publish.run();
+                } else {
+                    activeTrips.remove(state.tripId());
+                }
+            }
+        });
+    }
+
+    /** Rebuilds every active trip from its snapshot plus tail: two queries, however many trips. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+
+        Map<Long, List<TripEvent>> tails = new HashMap<>();
+        for (TripEvent event : tripEventRepository.findActiveTails(ACTIVE_STATUSES)) {
+            tails.computeIfAbsent(event.getTripId(), id -> new ArrayList<>()).add(event);
+        }
+
+        int rebuilt = 0;
+        for (Trip snapshot : tripRepository.findByStatusIn(ACTIVE_STATUSES)) {
+            try {
+                TripState state = TripState.fold(snapshot, tails.getOrDefault(snapshot.getId(), List.of()));
+                if (state.isActive()) {
+                    activeTrips.put(state.tripId(), state);
+                    rebuilt++;
+                }
+            } catch (IllegalStateException e) {
+                // Leave it to be folded lazily; one bad log must not block startup
+                log.error("Could not rebuild trip {}", snapshot.getId(), e);
+            }
+        }
+
+        log.info("Rebuilt {} active trips from snapshots and {} tail events in {}ms",
+            rebuilt, tails.values().stream().mapToInt(List::size).sum(), System.currentTimeMillis() - start);
+    }
+}
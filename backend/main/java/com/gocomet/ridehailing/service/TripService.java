@@ -2,12 +2,19 @@ package com.gocomet.ridehailing.service;
 
 import com.gocomet.ridehailing.exception.TripException;
 import com.gocomet.ridehailing.model.dto.EndTripRequest;
+import com.gocomet.ridehailing.model.dto.Location;
 import com.gocomet.ridehailing.model.entity.Ride;
 import com.gocomet.ridehailing.model.entity.Trip;
+import com.gocomet.ridehailing.model.entity.TripEvent;
 import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.TripEventType;
 import com.gocomet.ridehailing.model.enums.TripStatus;
+import com.gocomet.ridehailing.notification.DriverLocationStreamer;
+import com.gocomet.ridehailing.pricing.Money;
 import com.gocomet.ridehailing.repository.RideRepository;
 import com.gocomet.ridehailing.repository.TripRepository;
+import com.gocomet.ridehailing.trip.TripState;
+import com.gocomet.ridehailing.util.AfterCommit;
 import com.newrelic.api.agent.Trace;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,28 +22,36 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.OptionalDouble;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TripService {
     
+    private static final List<RideStatus> STARTABLE = List.of(RideStatus.ACCEPTED, RideStatus.DRIVER_ARRIVED);
+    
     private final TripRepository tripRepository;
     private final RideRepository rideRepository;
     private final FareCalculationService fareCalculationService;
+    private final TariffService tariffService;
     private final NotificationService notificationService;
+    private final TripDistanceTracker tripDistanceTracker;
+    private final TripEventStore tripEventStore;
+    private final DriverLocationStreamer driverLocationStreamer;
+    private final LocationCacheService locationCacheService;
     
     @Trace
     @Transactional
     public Trip startTrip(Long rideId) {
         try {
-            // Get ride with lock
-            Ride ride = rideRepository.findByIdWithLock(rideId)
+            Ride ride = rideRepository.findById(rideId)
                 .orElseThrow(() -> new TripException("Ride not found"));
             
-            // Validate ride status
-            if (ride.getStatus() != RideStatus.ACCEPTED && ride.getStatus() != RideStatus.DRIVER_ARRIVED) {
+            // Claim the ride first: of two concurrent starts only one matches the guarded UPDATE
+            LocalDateTime startedAt = LocalDateTime.now();
+            if (rideRepository.transitionStarting(rideId, STARTABLE, RideStatus.IN_PROGRESS, startedAt) == 0) {
                 throw new TripException("Cannot start trip. Ride must be in ACCEPTED or DRIVER_ARRIVED status");
             }
             
@@ -53,16 +68,19 @@ public class TripService {
                 .status(TripStatus.STARTED)
                 .startLatitude(ride.getPickupLatitude())
                 .startLongitude(ride.getPickupLongitude())
-                .startTime(LocalDateTime.now())
+                .startTime(startedAt)
                 .surgeMultiplier(ride.getSurgeMultiplier())
+                .pausedDurationSeconds(0L)
+                .snapshotSequence(1L)
                 .build();
             
             trip = tripRepository.save(trip);
-            
-            // Update ride status
-            ride.setStatus(RideStatus.IN_PROGRESS);
-            ride.setStartedAt(LocalDateTime.now());
-            rideRepository.save(ride);
+            tripEventStore.recordStart(trip);
+            tripDistanceTracker.startTrip(trip.getId(), trip.getDriverId(),
+                trip.getStartLatitude(), trip.getStartLongitude(), System.currentTimeMillis(),
+                locationCacheService.getLocationFixCount(trip.getDriverId()));
+            Long driverId = trip.getDriverId();
+            AfterCommit.run(() -> driverLocationStreamer.tripStarted(rideId, driverId));
             
             // Send notifications
             notificationService.sendTripStartedNotification(ride);
@@ -78,88 +96,88 @@ public class TripService {
     @Trace
     @Transactional
     public Trip pauseTrip(Long tripId) {
-        Trip trip = tripRepository.findByIdWithLock(tripId)
-            .orElseThrow(() -> new TripException("Trip not found"));
+        TripState state = tripEventStore.load(tripId);
         
-        if (trip.getStatus() != TripStatus.STARTED) {
+        if (state.status() != TripStatus.STARTED && state.status() != TripStatus.RESUMED) {
             throw new TripException("Trip is not in progress");
         }
         
-        trip.setStatus(TripStatus.PAUSED);
-        trip.setPausedAt(LocalDateTime.now());
-        trip = tripRepository.save(trip);
+        state = tripEventStore.append(state, TripEventType.PAUSED, LocalDateTime.now(), TripEvent.builder());
+        tripDistanceTracker.pauseTrip(tripId, state.driverId());
         
         log.info("Trip {} paused", tripId);
-        return trip;
+        return state.toTrip();
     }
     
     @Trace
     @Transactional
     public Trip resumeTrip(Long tripId) {
-        Trip trip = tripRepository.findByIdWithLock(tripId)
-            .orElseThrow(() -> new TripException("Trip not found"));
+        TripState state = tripEventStore.load(tripId);
         
-        if (trip.getStatus() != TripStatus.PAUSED) {
+        if (state.status() != TripStatus.PAUSED) {
             throw new TripException("Trip is not paused");
         }
         
-        // Calculate paused duration
-        if (trip.getPausedAt() != null) {
-            long pausedSeconds = ChronoUnit.SECONDS.between(trip.getPausedAt(), LocalDateTime.now());
-            long currentPaused = trip.getPausedDurationSeconds() != null ? trip.getPausedDurationSeconds() : 0L;
-            trip.setPausedDurationSeconds(currentPaused + pausedSeconds);
-        }
-        
-        trip.setStatus(TripStatus.RESUMED);
-        trip.setPausedAt(null);
-        trip = tripRepository.save(trip);
+        // Paused time is folded from the PAUSED/RESUMED event pair
+        state = tripEventStore.append(state, TripEventType.RESUMED, LocalDateTime.now(), TripEvent.builder());
+        tripDistanceTracker.resumeTrip(tripId, state.driverId());
         
         log.info("Trip {} resumed", tripId);
-        return trip;
+        return state.toTrip();
     }
     
     @Trace
     @Transactional
     public Trip endTrip(EndTripRequest request) {
         try {
-            // Get trip with lock
-            Trip trip = tripRepository.findByIdWithLock(request.getTripId())
-                .orElseThrow(() -> new TripException("Trip not found"));
+            TripState state = tripEventStore.load(request.getTripId());
             
             // Validate trip status
-            if (trip.getStatus() != TripStatus.STARTED && trip.getStatus() != TripStatus.RESUMED) {
+            if (state.status() != TripStatus.STARTED && state.status() != TripStatus.RESUMED) {
                 throw new TripException("Trip is not in progress");
             }
             
-            // Update trip details
-            trip.setStatus(TripStatus.ENDED);
-            trip.setEndTime(LocalDateTime.now());
-            trip.setEndLatitude(request.getEndLatitude());
-            trip.setEndLongitude(request.getEndLongitude());
-            trip.setDistanceKm(request.getDistanceKm());
-            
-            // Calculate trip duration (excluding paused time)
-            long totalSeconds = ChronoUnit.SECONDS.between(trip.getStartTime(), trip.getEndTime());
-            long pausedSeconds = trip.getPausedDurationSeconds() != null ? trip.getPausedDurationSeconds() : 0L;
-            long activeSeconds = totalSeconds - pausedSeconds;
-            trip.setDurationMinutes(activeSeconds / 60);
-            
-            // Calculate fare
-            Double finalFare = fareCalculationService.calculateFinalFare(
-                trip.getDistanceKm(),
-                trip.getDurationMinutes(),
-                trip.getSurgeMultiplier()
+            LocalDateTime endTime = LocalDateTime.now();
+            
+            // Bill the distance accumulated from the location stream; the client figure is a fallback
+            OptionalDouble trackedKm = tripDistanceTracker.completeTrip(state.tripId(), state.driverId(),
+                request.getEndLatitude(), request.getEndLongitude(), System.currentTimeMillis(),
+                locationCacheService.getLocationFixCount(state.driverId()));
+            double distanceKm = resolveDistanceKm(state, request, trackedKm);
+            
+            // Active duration excludes every pause
+            long durationMinutes = state.durationMinutes(endTime);
+            
+            Ride ride = rideRepository.findById(state.rideId())
+                .orElseThrow(() -> new TripException("Ride not found"));
+            
+            // Calculate fare with the ride's region/tier tariff
+            Money finalFare = fareCalculationService.calculateFinalFare(
+                tariffService.tariffFor(ride.getRegion(), ride.getVehicleTier()),
+                distanceKm,
+                durationMinutes,
+                state.surgeMultiplier()
             );
             
-            trip.setTotalFare(finalFare);
-            trip = tripRepository.save(trip);
+            state = tripEventStore.append(state, TripEventType.ENDED, endTime, TripEvent.builder()
+                .latitude(request.getEndLatitude())
+                .longitude(request.getEndLongitude())
+                .distanceKm(distanceKm)
+                .fare(finalFare));
+            Trip trip = state.toTrip();
             
             // Update ride status
-            Ride ride = rideRepository.findById(trip.getRideId())
-                .orElseThrow(() -> new TripException("Ride not found"));
-            ride.setStatus(RideStatus.COMPLETED);
-            ride.setEndedAt(LocalDateTime.now());
-            rideRepository.save(ride);
+            if (rideRepository.transitionEnding(
+                    ride.getId(), RideStatus.IN_PROGRESS, RideStatus.COMPLETED, endTime) == 0) {
+                throw new TripException("Ride is not in progress");
+            }
+            
+            // Keep the accumulator until the end is committed so a rolled-back endTrip can be retried
+            Long tripId = state.tripId();
+            Long driverId = state.driverId();
+            AfterCommit.run(() -> tripDistanceTracker.stopTracking(tripId, driverId));
+            Long rideId = ride.getId();
+            AfterCommit.run(() -> driverLocationStreamer.stop(rideId, driverId));
             
             // Send notifications
             notificationService.sendTripEndedNotification(ride, finalFare);
@@ -174,15 +192,34 @@ public class TripService {
         }
     }
     
+    private double resolveDistanceKm(TripState state, EndTripRequest request, OptionalDouble trackedKm) {
+        Double clientKm = request.getDistanceKm();
+        double distanceKm;
+        if (trackedKm.isPresent()) {
+            distanceKm = trackedKm.getAsDouble();
+            if (clientKm != null && Math.abs(clientKm - distanceKm) > Math.max(0.5, distanceKm * 0.25)) {
+                log.warn("Trip {} distance mismatch: tracked {}km, client reported {}km",
+                    state.tripId(), distanceKm, clientKm);
+            }
+        } else if (clientKm != null) {
+            log.info("No tracked distance for trip {}, using client distance", state.tripId());
+            distanceKm = clientKm;
+        } else {
+            distanceKm = Location.calculateDistance(state.startLatitude(), state.startLongitude(),
+                request.getEndLatitude(), request.getEndLongitude());
+        }
+        return Math.round(distanceKm * 1000.0) / 1000.0; // Whole metres
+    }
+    
     @Trace
     public Trip getTripById(Long tripId) {
-        return tripRepository.findById(tripId)
-            .orElseThrow(() -> new TripException("Trip not found"));
+        return tripEventStore.load(tripId).toTrip();
     }
     
     @Trace
     public Trip getTripByRideId(Long rideId) {
-        return tripRepository.findByRideId(rideId)
+        Trip trip = tripRepository.findByRideId(rideId)
             .orElseThrow(() -> new TripException("Trip not found for ride"));
+        return tripEventStore.load(trip.getId()).toTrip();
     }
 }
@@ -0,0 +1,168 @@
+package com.gocomet.ridehailing.trip;
+
+import com.gocomet.ridehailing.model.entity.Trip;
+import com.gocomet.ridehailing.model.entity.TripEvent;
+import com.gocomet.ridehailing.model.enums.TripEventType;
+import com.gocomet.ridehailing.model.enums.TripStatus;
+import com.gocomet.ridehailing.pricing.Money;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Trip as a pure fold over its event log: a snapshot (the trip row) plus the events
+ * appended after it. Pause accounting and duration are derived here rather than
+ * maintained in mutable columns.
+ */
+@Builder(toBuilder = true)
+public record TripState(
+    Long tripId,
+    Long rideId,
+    Long driverId,
+    Long riderId,
+    Double startLatitude,
+    Double startLongitude,
+    Double surgeMultiplier,
+    LocalDateTime createdAt,
+    TripStatus status,
+    long sequence,
+    long snapshotSequence,
+    LocalDateTime startTime,
+    LocalDateTime pausedAt,
+    long pausedSeconds,
+    LocalDateTime endTime,
+    Double endLatitude,
+    Double endLongitude,
+    Double distanceKm,
+    Money totalFare
+) {
+
+    public static TripState fromSnapshot(Trip trip) {
+        long snapshot = trip.getSnapshotSequence() != null ? trip.getSnapshotSequence() : 0L;
+        return TripState.builder()
+            .tripId(trip.getId())
+            .rideId(trip.getRideId())
+            .driverId(trip.getDriverId())
+            .riderId(trip.getRiderId())
+            .startLatitude(trip.getStartLatitude())
+            .startLongitude(trip.getStartLongitude())
+            .surgeMultiplier(trip.getSurgeMultiplier())
+            .createdAt(trip.getCreatedAt())
+            .status(trip.getStatus())
+            .sequence(snapshot)
+            .snapshotSequence(snapshot)
+            .startTime(trip.getStartTime())
+            .pausedAt(trip.getPausedAt())
+            .pausedSeconds(trip.getPausedDurationSeconds() != null ? trip.getPausedDurationSeconds() : 0L)
+            .endTime(trip.getEndTime())
+            .endLatitude(trip.getEndLatitude())
+            .endLongitude(trip.getEndLongitude())
+            .distanceKm(trip.getDistanceKm())
+            .totalFare(trip.getTotalFare())
+            .build();
+    }
+
+    public static TripState fold(Trip snapshot, List<TripEvent> tail) {
+        TripState state = fromSnapshot(snapshot);
+        for (TripEvent event : tail) {
+            state = state.apply(event);
+        }
+        return state;
+    }
+
+    public TripState apply(TripEvent event) {
+        if (event.getSequence() != sequence + 1) {
+            throw new IllegalStateException("Trip " + tripId + " expected event " + (sequence + 1)
+                + " but got " + event.getSequence());
+        }
+        TripStateBuilder next = toBuilder().sequence(event.getSequence());
+        LocalDateTime at = event.getOccurredAt();
+        switch (event.getType()) {
+            case STARTED -> next.status(TripStatus.STARTED).startTime(at);
+            case PAUSED -> {
+                requireStatus(event.getType(), TripStatus.STARTED, TripStatus.RESUMED);
+                next.status(TripStatus.PAUSED).pausedAt(at);
+            }
+            case RESUMED -> {
+                requireStatus(event.getType(), TripStatus.PAUSED);
+                next.status(TripStatus.RESUMED)
+                    .pausedSeconds(pausedSeconds + ChronoUnit.SECONDS.between(pausedAt, at))
+                    .pausedAt(null);
+            }
+            case ENDED -> {
+                requireStatus(event.getType(), TripStatus.STARTED, TripStatus.RESUMED);
+                next.status(TripStatus.ENDED)
+                    .endTime(at)
+                    .endLatitude(event.getLatitude())
+                    .endLongitude(event.getLongitude())
+                    .distanceKm(event.getDistanceKm())
+                    .totalFare(event.getFare());
+            }
+        }
+        return next.build();
+    }
+
+    private void requireStatus(TripEventType type, TripStatus... allowed) {
+        for (TripStatus s : allowed) {
+            if (status == s) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Cannot apply " + type + " to trip " + tripId + " in status " + status);
+    }
+
+    public boolean isActive() {
+        return status == TripStatus.STARTED || status == TripStatus.PAUSED || status == TripStatus.RESUMED;
+    }
+
+    /** Driving time up to {@code at} (or the end time), excluding every pause. */
+    public long activeSeconds(LocalDateTime at) {
+        LocalDateTime until = endTime != null ? endTime : at;
+        long openPause = pausedAt != null ? ChronoUnit.SECONDS.between(pausedAt, until) : 0L;
+        return ChronoUnit.SECONDS.between(startTime, until) - pausedSeconds - openPause;
+    }
+
+    public long durationMinutes(LocalDateTime at) {
+        return activeSeconds(at) / 60;
+    }
+
+    public TripState withSnapshotAt(long snapshotSequence) {
+        return toBuilder().snapshotSequence(snapshotSequence).build();
+    }
+
+    /** Writes the folded state onto the trip row, making it the new snapshot. */
+    public void applyTo(Trip trip) {
+        trip.setStatus(status);
+        trip.setPausedAt(pausedAt);
+        trip.setPausedDurationSeconds(pausedSeconds);
+        trip.setEndTime(endTime);
+        trip.setEndLatitude(endLatitude);
+        trip.setEndLongitude(endLongitude);
+        trip.setDistanceKm(distanceKm);
+        trip.setTotalFare(totalFare);
+        if (endTime != null) {
+            trip.setDurationMinutes(durationMinutes(endTime));
+        }
+        trip.setSnapshotSequence(sequence);
+    }
+
+    /** Detached view for API responses; never attached to a persistence context. */
+    public Trip toTrip() {
+        Trip trip = Trip.builder()
+            .id(tripId)
+            .rideId(rideId)
+            .driverId(driverId)
+            .riderId(riderId)
+            .startLatitude(startLatitude)
+            .startLongitude(startLongitude)
+            .startTime(startTime)
+            .surgeMultiplier(surgeMultiplier)
+            .createdAt(createdAt)
+            .durationMinutes(0L)
+            .build();
+        applyTo(trip);
+        return trip;
+    }
+}
@@ -0,0 +1,153 @@
+package com.gocomet.ridehailing.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal geohash encoder/decoder used to bucket coordinates into grid cells
+ * (surge heatmap, quote cache keys).
+ */
+public final class GeoHash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int[] DECODE = new int[128];
+
+    static {
+        java.util.Arrays.fill(DECODE, -1);
+        for (int i = 0; i < BASE32.length; i++) {
+            DECODE[BASE32[i]] = i;
+        }
+    }
+
+    private GeoHash() {
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90.0, maxLat = 90.0;
+        double minLon = -180.0, maxLon = 180.0;
+        char[] hash = new char[precision];
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+        int idx = 0;
+
+        while (idx < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash[idx++] = BASE32[ch];
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return new String(hash);
+    }
+
+    /**
+     * Returns the cell bounds as {minLat, maxLat, minLon, maxLon}.
+     */
+    public static double[] decodeBounds(String geohash) {
+        double minLat = -90.0, maxLat = 90.0;
+        double minLon = -180.0, maxLon = 180.0;
+        boolean evenBit = true;
+
+        for (int i = 0; i < geohash.length(); i++) {
+            char c = geohash.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid geohash character: " + c);
+            }
+            for (int mask = 16; mask > 0; mask >>= 1) {
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if ((value & mask) != 0) {
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if ((value & mask) != 0) {
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[] {minLat, maxLat, minLon, maxLon};
+    }
+
+    /**
+     * Returns the cell centre as {latitude, longitude}.
+     */
+    public static double[] decodeCenter(String geohash) {
+        double[] bounds = decodeBounds(geohash);
+        return new double[] {(bounds[0] + bounds[1]) / 2, (bounds[2] + bounds[3]) / 2};
+    }
+
+    /**
+     * Returns the (up to) eight cells surrounding the given cell at the same precision.
+     */
+    public static List<String> neighbours(String geohash) {
+        double[] bounds = decodeBounds(geohash);
+        double latHeight = bounds[1] - bounds[0];
+        double lonWidth = bounds[3] - bounds[2];
+        double centerLat = (bounds[0] + bounds[1]) / 2;
+        double centerLon = (bounds[2] + bounds[3]) / 2;
+
+        List<String> result = new ArrayList<>(8);
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLon = -1; dLon <= 1; dLon++) {
+                if (dLat == 0 && dLon == 0) {
+                    continue;
+                }
+                double lat = centerLat + dLat * latHeight;
+                if (lat > 90.0 || lat < -90.0) {
+                    continue;
+                }
+                double lon = centerLon + dLon * lonWidth;
+                if (lon > 180.0) {
+                    lon -= 360.0;
+                } else if (lon < -180.0) {
+                    lon += 360.0;
+                }
+                result.add(encode(lat, lon, geohash.length()));
+            }
+        }
+        return result;
+    }
+
+    public static boolean isValid(String geohash) {
+        if (geohash == null || geohash.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < geohash.length(); i++) {
+            char c = geohash.charAt(i);
+            if (c >= DECODE.length || DECODE[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
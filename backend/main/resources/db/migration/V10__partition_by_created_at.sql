@@ -0,0 +1,88 @@
+-- Rides, trips and payments become range-partitioned by month of created_at, so hot queries
+-- on recent rows touch the current partitions and their small indexes. PartitionMaintenanceJob
+-- creates partitions ahead of time and archives old ones; the DEFAULT partition only catches
+-- rows if it falls behind.
+--
+-- A unique constraint on a partitioned table must include created_at, which would let the
+-- same idempotency key (or ride id, for trips) into two months. Those keys are claimed in
+-- partitioned_unique_keys instead, by an insert trigger, so a duplicate still fails with a
+-- unique violation.
+--
+-- partition_by_month copies an existing table into its partitioned replacement, with its
+-- non-unique indexes recreated on the new parent, and returns whether it converted anything.
+-- On a fresh schema this migration runs before Hibernate creates the tables, so
+-- PartitionMaintenanceJob calls the same function at startup. Instances starting together
+-- queue on the advisory lock; the later ones find the table already partitioned.
+
+CREATE TABLE IF NOT EXISTS partitioned_unique_keys (
+    scope VARCHAR(32) NOT NULL,
+    unique_key VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (scope, unique_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_partitioned_unique_keys_created ON partitioned_unique_keys (scope, created_at);
+
+-- TG_ARGV[0] is the scope, TG_ARGV[1] the column holding the key
+CREATE OR REPLACE FUNCTION claim_partitioned_unique_key() RETURNS TRIGGER AS $$
+DECLARE
+    claimed TEXT := to_jsonb(NEW) ->> TG_ARGV[1];
+BEGIN
+    IF claimed IS NOT NULL THEN
+        INSERT INTO partitioned_unique_keys (scope, unique_key, created_at) VALUES (TG_ARGV[0], claimed, NEW.created_at);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION partition_by_month(tbl TEXT, key_scope TEXT, key_column TEXT) RETURNS BOOLEAN AS $$
+DECLARE
+    legacy TEXT := tbl || '_unpartitioned';
+    index_defs TEXT[];
+    def TEXT;
+    from_month DATE;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('partition_by_month'), hashtext(tbl));
+    IF NOT EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = tbl)
+            OR EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(tbl)) THEN
+        RETURN FALSE;
+    END IF;
+
+    -- Definitions name the table, not its oid, so they apply to the replacement; unique
+    -- indexes (primary key, idempotency keys) are replaced below
+    SELECT array_agg(pg_get_indexdef(indexrelid)) INTO index_defs
+    FROM pg_index WHERE indrelid = tbl::regclass AND NOT indisunique;
+
+    EXECUTE format('UPDATE %I SET created_at = now() WHERE created_at IS NULL', tbl);
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, legacy);
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (created_at)',
+        tbl, legacy);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN created_at SET NOT NULL', tbl);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', tbl || '_default', tbl);
+
+    EXECUTE format('SELECT date_trunc(''month'', MIN(created_at))::date FROM %I', legacy) INTO from_month;
+    from_month := LEAST(COALESCE(from_month, CURRENT_DATE), date_trunc('month', CURRENT_DATE)::date);
+    WHILE from_month <= date_trunc('month', CURRENT_DATE + INTERVAL '3 months') LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            tbl || to_char(from_month, '"_p"YYYY_MM'), tbl, from_month, (from_month + INTERVAL '1 month')::date);
+        from_month := (from_month + INTERVAL '1 month')::date;
+    END LOOP;
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I', tbl, legacy);
+    EXECUTE format('INSERT INTO partitioned_unique_keys (scope, unique_key, created_at) '
+        || 'SELECT %L, %I::text, created_at FROM %I WHERE %I IS NOT NULL', key_scope, key_column, legacy, key_column);
+    EXECUTE format('DROP TABLE %I', legacy);
+
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, created_at)', tbl);
+    FOREACH def IN ARRAY COALESCE(index_defs, '{}') LOOP
+        EXECUTE def;
+    END LOOP;
+    EXECUTE format('CREATE TRIGGER %I AFTER INSERT ON %I FOR EACH ROW EXECUTE FUNCTION claim_partitioned_unique_key(%L, %L)',
+        tbl || '_unique_key', tbl, key_scope, key_column);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT partition_by_month('rides', 'rides.idempotency_key', 'idempotency_key');
+SELECT partition_by_month('trips', 'trips.ride_id', 'ride_id');
+SELECT partition_by_month('payments', 'payments.idempotency_key', 'idempotency_key');
@@ -0,0 +1,11 @@
+-- Charges in flight (a PENDING first charge, a PROCESSING retry) now hold a lease in
+-- next_retry_at. Rows written before that have none and would never come due: a charge that
+-- started before the upgrade has finished or been lost by now, so make them due immediately.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'payments') THEN
+        UPDATE payments SET next_retry_at = now()
+        WHERE status IN ('PENDING', 'PROCESSING') AND next_retry_at IS NULL;
+    END IF;
+END $$;
@@ -0,0 +1,4 @@
+-- Relayed rows are kept until the broker has them. dispatched_at marks a row handed to the
+-- fan-out queue; one still there after the redelivery window is offered again.
+
+ALTER TABLE notification_outbox ADD COLUMN IF NOT EXISTS dispatched_at TIMESTAMP;
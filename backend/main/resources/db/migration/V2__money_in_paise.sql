@@ -0,0 +1,28 @@
+-- Monetary columns move from DECIMAL rupees to BIGINT paise.
+-- Each block is guarded so the script is a no-op on a fresh schema that
+-- Hibernate creates with the new columns.
+
+CREATE OR REPLACE FUNCTION pg_temp.rupees_to_paise(tbl TEXT, old_col TEXT, new_col TEXT) RETURNS VOID AS $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = tbl AND column_name = old_col) THEN
+        EXECUTE format('ALTER TABLE %I ADD COLUMN IF NOT EXISTS %I BIGINT', tbl, new_col);
+        EXECUTE format('UPDATE %I SET %I = ROUND(%I::numeric * 100) WHERE %I IS NOT NULL',
+                       tbl, new_col, old_col, old_col);
+        EXECUTE format('ALTER TABLE %I DROP COLUMN %I', tbl, old_col);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT pg_temp.rupees_to_paise('rides', 'estimated_fare', 'estimated_fare_paise');
+SELECT pg_temp.rupees_to_paise('trips', 'base_fare', 'base_fare_paise');
+SELECT pg_temp.rupees_to_paise('trips', 'total_fare', 'total_fare_paise');
+SELECT pg_temp.rupees_to_paise('payments', 'amount', 'amount_paise');
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'payments' AND column_name = 'amount_paise') THEN
+        ALTER TABLE payments ALTER COLUMN amount_paise SET NOT NULL;
+    END IF;
+END $$;
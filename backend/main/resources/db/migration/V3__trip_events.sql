@@ -0,0 +1,21 @@
+-- Append-only trip lifecycle log; the trips row becomes a periodic snapshot.
+
+CREATE TABLE IF NOT EXISTS trip_events (
+    id BIGSERIAL PRIMARY KEY,
+    trip_id BIGINT NOT NULL,
+    seq_no BIGINT NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    occurred_at TIMESTAMP NOT NULL,
+    latitude DOUBLE PRECISION,
+    longitude DOUBLE PRECISION,
+    distance_km DOUBLE PRECISION,
+    fare_paise BIGINT,
+    CONSTRAINT uk_trip_event_sequence UNIQUE (trip_id, seq_no)
+);
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'trips') THEN
+        ALTER TABLE trips ADD COLUMN IF NOT EXISTS snapshot_sequence BIGINT;
+    END IF;
+END $$;
@@ -0,0 +1,12 @@
+-- Per-payment retry backoff for the background retry scheduler.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'payments') THEN
+        ALTER TABLE payments ADD COLUMN IF NOT EXISTS next_retry_at TIMESTAMP;
+        CREATE INDEX IF NOT EXISTS idx_payment_retry_due ON payments (status, next_retry_at);
+        -- Payments that already failed become due immediately
+        UPDATE payments SET next_retry_at = updated_at
+        WHERE status = 'FAILED' AND next_retry_at IS NULL;
+    END IF;
+END $$;
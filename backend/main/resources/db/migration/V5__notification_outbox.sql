@@ -0,0 +1,8 @@
+-- Transactional outbox for WebSocket notifications; rows are deleted once relayed.
+
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    destination VARCHAR(200) NOT NULL,
+    payload VARCHAR(16384) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,38 @@
+-- Double-entry settlement ledger and per-driver daily balances rolled up from it.
+
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    id BIGSERIAL PRIMARY KEY,
+    reference VARCHAR(64) NOT NULL,
+    account VARCHAR(32) NOT NULL,
+    direction VARCHAR(8) NOT NULL,
+    amount_paise BIGINT NOT NULL,
+    driver_id BIGINT,
+    entry_date DATE NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_ledger_entry_leg UNIQUE (reference, account, direction)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_driver ON ledger_entries (driver_id, entry_date);
+
+CREATE TABLE IF NOT EXISTS driver_daily_balances (
+    id BIGSERIAL PRIMARY KEY,
+    driver_id BIGINT NOT NULL,
+    balance_date DATE NOT NULL,
+    earnings_paise BIGINT NOT NULL,
+    commission_paise BIGINT NOT NULL,
+    payment_count INTEGER NOT NULL,
+    paid_out_paise BIGINT NOT NULL,
+    CONSTRAINT uk_driver_daily_balance UNIQUE (driver_id, balance_date)
+);
+
+-- Payout only visits balances with something left to pay, not every driver-day ever
+CREATE INDEX IF NOT EXISTS idx_driver_balance_unpaid ON driver_daily_balances (id)
+    WHERE earnings_paise > paid_out_paise;
+
+CREATE TABLE IF NOT EXISTS ledger_checkpoints (
+    name VARCHAR(64) PRIMARY KEY,
+    last_entry_id BIGINT NOT NULL
+);
+
+INSERT INTO ledger_checkpoints (name, last_entry_id) VALUES ('driver-daily-rollup', 0)
+ON CONFLICT (name) DO NOTHING;
@@ -0,0 +1,3 @@
+-- Ride updates carry a coalesce key so superseded states can be dropped before send.
+
+ALTER TABLE notification_outbox ADD COLUMN IF NOT EXISTS coalesce_key VARCHAR(64);
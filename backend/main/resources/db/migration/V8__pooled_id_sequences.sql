@@ -0,0 +1,22 @@
+-- Rides, trips, payments, drivers and riders take ids from sequences, allocated 50 at a
+-- time by the application (pooled-lo), instead of identity columns, so inserts can be
+-- batched. Each sequence starts past the table's current max id and becomes the column
+-- default, so ad-hoc inserts still get an id that no allocated block will reuse.
+-- On a fresh schema only the sequences are created; Hibernate creates the tables.
+
+CREATE OR REPLACE FUNCTION pg_temp.move_id_to_sequence(tbl TEXT, seq TEXT) RETURNS VOID AS $$
+BEGIN
+    EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', seq);
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = tbl) THEN
+        EXECUTE format('SELECT setval(%L, COALESCE((SELECT MAX(id) FROM %I), 0) + 1, false)', seq, tbl);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', tbl);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', tbl, seq);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT pg_temp.move_id_to_sequence('rides', 'rides_seq');
+SELECT pg_temp.move_id_to_sequence('trips', 'trips_seq');
+SELECT pg_temp.move_id_to_sequence('payments', 'payments_seq');
+SELECT pg_temp.move_id_to_sequence('drivers', 'drivers_seq');
+SELECT pg_temp.move_id_to_sequence('riders', 'riders_seq');
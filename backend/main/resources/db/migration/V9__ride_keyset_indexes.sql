@@ -0,0 +1,19 @@
+-- Ride listings page newest first by (created_at, id) under a rider, driver or status
+-- filter. Each filter gets a composite index ending in (created_at DESC, id DESC); they
+-- supersede the single-column ones. On a fresh schema Hibernate creates them with the table.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'rides') THEN
+        CREATE INDEX IF NOT EXISTS idx_ride_rider_created ON rides (rider_id, created_at DESC, id DESC);
+        CREATE INDEX IF NOT EXISTS idx_ride_driver_created ON rides (driver_id, created_at DESC, id DESC);
+        CREATE INDEX IF NOT EXISTS idx_ride_status_created ON rides (status, created_at DESC, id DESC);
+        CREATE INDEX IF NOT EXISTS idx_ride_created_id ON rides (created_at DESC, id DESC);
+
+        DROP INDEX IF EXISTS idx_ride_rider;
+        DROP INDEX IF EXISTS idx_ride_driver;
+        DROP INDEX IF EXISTS idx_ride_status;
+        DROP INDEX IF EXISTS idx_ride_created;
+    END IF;
+END;
+$$;
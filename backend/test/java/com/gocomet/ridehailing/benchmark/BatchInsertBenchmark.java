@@ -0,0 +1,152 @@
+package com.gocomet.ridehailing.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ride insert throughput on H2, replaying the statements Hibernate issues for a bulk save.
+ * Before: IDENTITY ids, so every row is its own INSERT with the generated key read back
+ * (Hibernate cannot batch those). After: ids from a sequence in blocks of 50 (pooled-lo),
+ * one sequence call per block and the rows sent as JDBC batches of 50.
+ *
+ * <p>H2 runs in process, so on its own this only shows the per-statement overhead.
+ * {@code roundTripMicros} adds a simulated network round trip to every statement sent, which
+ * is where batching pays off against Postgres.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    private static final int ROWS_PER_SAVE = 500;
+    private static final int BLOCK = 50;
+
+    @State(Scope.Thread)
+    public static class Database {
+        @Param({"identity", "pooled-lo"})
+        String ids;
+
+        @Param({"0", "200"})
+        long roundTripMicros;
+
+        Connection connection;
+        PreparedStatement insertIdentity;
+        PreparedStatement insertWithId;
+        PreparedStatement nextBlock;
+        long nextId;
+        long blockEnd;
+        long keys;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            connection = DriverManager.getConnection("jdbc:h2:mem:insert_bench_" + System.nanoTime(), "sa", "");
+            try (Statement ddl = connection.createStatement()) {
+                String id = ids.equals("identity") ? "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY"
+                    : "id BIGINT PRIMARY KEY";
+                ddl.execute("CREATE TABLE rides (" + id + ", idempotency_key VARCHAR(64), rider_id BIGINT, "
+                    + "status VARCHAR(20), region VARCHAR(50), pickup_latitude DOUBLE, pickup_longitude DOUBLE, "
+                    + "estimated_fare_paise BIGINT, version BIGINT, created_at TIMESTAMP)");
+                ddl.execute("CREATE SEQUENCE rides_seq START WITH 1 INCREMENT BY " + BLOCK);
+            }
+            connection.setAutoCommit(false);
+            String columns = "idempotency_key, rider_id, status, region, pickup_latitude, pickup_longitude, "
+                + "estimated_fare_paise, version, created_at";
+            insertIdentity = connection.prepareStatement("INSERT INTO rides (" + columns + ") "
+                + "VALUES (?, ?, 'REQUESTED', 'DELHI', 28.61, 77.20, 25000, 0, CURRENT_TIMESTAMP)",
+                Statement.RETURN_GENERATED_KEYS);
+            insertWithId = connection.prepareStatement("INSERT INTO rides (id, " + columns + ") "
+                + "VALUES (?, ?, ?, 'REQUESTED', 'DELHI', 28.61, 77.20, 25000, 0, CURRENT_TIMESTAMP)");
+            nextBlock = connection.prepareStatement("SELECT NEXT VALUE FOR rides_seq");
+        }
+
+        @TearDown(Level.Iteration)
+        public void truncate() throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("TRUNCATE TABLE rides");
+            }
+            connection.commit();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+
+        long allocate() throws SQLException {
+            if (nextId == blockEnd) {
+                roundTrip();
+                try (ResultSet rs = nextBlock.executeQuery()) {
+                    rs.next();
+                    // pooled-lo: the sequence value is the first id of the block
+                    nextId = rs.getLong(1);
+                    blockEnd = nextId + BLOCK;
+                }
+            }
+            return nextId++;
+        }
+
+        void roundTrip() {
+            long until = System.nanoTime() + roundTripMicros * 1000;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_SAVE)
+    public void saveRides(Database db, Blackhole blackhole) throws SQLException {
+        if (db.ids.equals("identity")) {
+            for (int i = 0; i < ROWS_PER_SAVE; i++) {
+                db.insertIdentity.setString(1, "ride-" + db.keys++);
+                db.insertIdentity.setLong(2, i);
+                db.roundTrip();
+                db.insertIdentity.executeUpdate();
+                try (ResultSet generated = db.insertIdentity.getGeneratedKeys()) {
+                    generated.next();
+                    blackhole.consume(generated.getLong(1));
+                }
+            }
+        } else {
+            for (int i = 0; i < ROWS_PER_SAVE; i++) {
+                long id = db.allocate();
+                db.insertWithId.setLong(1, id);
+                db.insertWithId.setString(2, "ride-" + db.keys++);
+                db.insertWithId.setLong(3, i);
+                db.insertWithId.addBatch();
+                blackhole.consume(id);
+                if ((i + 1) % BLOCK == 0) {
+                    db.roundTrip();
+                    db.insertWithId.executeBatch();
+                }
+            }
+            if (ROWS_PER_SAVE % BLOCK != 0) {
+                db.roundTrip();
+                db.insertWithId.executeBatch();
+            }
+        }
+        db.roundTrip();
+        db.connection.commit();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(BatchInsertBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,123 @@
+package com.gocomet.ridehailing.benchmark;
+
+import com.gocomet.ridehailing.notification.BrokerTransport;
+import com.gocomet.ridehailing.notification.ClusterBrokerRelay;
+import com.gocomet.ridehailing.notification.InMemoryBrokerTransport;
+import com.gocomet.ridehailing.notification.RedisBrokerTransport;
+import com.gocomet.ridehailing.notification.Topics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cross-node delivery latency: node B publishes a rider notification, node A holds the
+ * rider's session and delivers it to its broker. Each op waits for that delivery.
+ *
+ * <p>{@code memory} is the in-process stand-in (relay overhead only: encode, route, decode).
+ * {@code redis} needs a Redis on localhost:6379 and gives each node its own connection, as
+ * separate instances would: {@code -p transport=redis}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrossNodeDeliveryBenchmark {
+
+    private static final String DESTINATION = Topics.rider(1L);
+    private static final byte[] PAYLOAD = ("{\"eventType\":\"RIDE_MATCHED\",\"data\":{\"rideId\":1,\"driverId\":7,"
+        + "\"message\":\"Driver found! They are on their way.\"},\"timestamp\":1700000000000}").getBytes(StandardCharsets.UTF_8);
+    private static final Map<String, Object> HEADERS = Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON);
+
+    @Param({"memory"})
+    public String transport;
+
+    private final AtomicLong deliveredOnA = new AtomicLong();
+    private final List<Runnable> cleanup = new ArrayList<>();
+    private ClusterBrokerRelay nodeB;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryBrokerTransport.Hub hub = new InMemoryBrokerTransport.Hub();
+        SimpMessagingTemplate brokerA = new SimpMessagingTemplate((message, timeout) -> {
+            deliveredOnA.incrementAndGet();
+            return true;
+        });
+        ClusterBrokerRelay nodeA = new ClusterBrokerRelay(brokerA, transport(hub),
+            new SimpleMeterRegistry(), "ws:");
+        nodeB = new ClusterBrokerRelay(new SimpMessagingTemplate((message, timeout) -> true), transport(hub),
+            new SimpleMeterRegistry(), "ws:");
+
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setSessionId("rider-session");
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setDestination(DESTINATION);
+        nodeA.onSubscribe(new SessionSubscribeEvent(this,
+            MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders())));
+    }
+
+    private BrokerTransport transport(InMemoryBrokerTransport.Hub hub) {
+        if ("memory".equals(transport)) {
+            return new InMemoryBrokerTransport(hub);
+        }
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        RedisBrokerTransport redis = new RedisBrokerTransport(new StringRedisTemplate(connectionFactory), connectionFactory);
+        cleanup.add(() -> {
+            try {
+                redis.destroy();
+            } catch (Exception ignored) {
+                // Benchmark teardown
+            }
+            connectionFactory.destroy();
+        });
+        return redis;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cleanup.forEach(Runnable::run);
+    }
+
+    @Benchmark
+    public long deliverAcrossNodes() {
+        long target = deliveredOnA.get() + 1;
+        nodeB.send(DESTINATION, PAYLOAD, HEADERS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (deliveredOnA.get() < target) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Notification was not delivered on node A");
+            }
+            Thread.onSpinWait();
+        }
+        return target;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(CrossNodeDeliveryBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
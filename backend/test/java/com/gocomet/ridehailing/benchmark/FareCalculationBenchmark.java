@@ -0,0 +1,68 @@
+package com.gocomet.ridehailing.benchmark;
+
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.pricing.Tariff;
+import com.gocomet.ridehailing.service.FareCalculationService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fare computation cost: the paise pipeline against the previous boxed-double one.
+ * Run with {@code -prof gc} to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FareCalculationBenchmark {
+
+    private final Tariff tariff = Tariff.ofRupees(50.0, 12.0, 2.0, 70.0);
+
+    @Param({"0.8", "15.5", "62.37"})
+    private double distanceKm;
+
+    private long minutes = 45;
+    private double surge = 1.5;
+
+    @Benchmark
+    public long finalFarePaise() {
+        return tariff.fare(Tariff.toDecimetres(distanceKm),
+            minutes * Tariff.MILLIS_PER_MINUTE, FareCalculationService.toBasisPoints(surge));
+    }
+
+    @Benchmark
+    public long estimatedFarePaise() {
+        long decimetres = Tariff.toDecimetres(distanceKm);
+        return tariff.fare(decimetres, FareCalculationService.estimateDurationMillis(decimetres),
+            FareCalculationService.toBasisPoints(surge));
+    }
+
+    @Benchmark
+    public Money finalFareMoney() {
+        return Money.ofPaise(finalFarePaise());
+    }
+
+    // The pre-fixed-point implementation, kept as the baseline
+    @Benchmark
+    public Double legacyBoxedDoubleFare() {
+        Double base = 50.0;
+        Double perKm = 12.0;
+        Double perMinute = 2.0;
+        Double fare = Math.max((base + distanceKm * perKm + minutes * perMinute) * surge, 70.0);
+        return Math.round(fare * 100.0) / 100.0;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(FareCalculationBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
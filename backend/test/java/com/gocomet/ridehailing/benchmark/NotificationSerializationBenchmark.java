@@ -0,0 +1,101 @@
+package com.gocomet.ridehailing.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gocomet.ridehailing.model.dto.NotificationEvent;
+import com.gocomet.ridehailing.model.dto.NotificationMessage;
+import com.gocomet.ridehailing.model.dto.RideResponse;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of a notification on its way into the outbox. Before: the payload is a
+ * {@code Map.of(...)} and a ride update is serialized again for every destination it goes
+ * to. After: typed records, and one serialization shared by all destinations.
+ *
+ * <p>Run with {@code -prof gc} for bytes allocated per op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationSerializationBenchmark {
+
+    // Ride, region and tenant topics
+    private static final int DESTINATIONS = 3;
+
+    /** The envelope as it was, with untyped data. */
+    record UntypedMessage(String eventType, Object data, long timestamp) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final Money amount = Money.ofPaise(24550);
+    private RideResponse ride;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        ride = RideResponse.builder()
+            .id(9L).riderId(101L).driverId(7L).status(RideStatus.ACCEPTED)
+            .vehicleTier(VehicleTier.ECONOMY).paymentMethod(PaymentMethod.CASH)
+            .pickupLatitude(28.6315).pickupLongitude(77.2167).pickupAddress("Connaught Place")
+            .destinationLatitude(28.5245).destinationLongitude(77.2066).destinationAddress("Saket")
+            .estimatedFare(amount).surgeMultiplier(1.2).region("DELHI").tenantId("acme")
+            .createdAt(now).matchedAt(now).acceptedAt(now)
+            .build();
+    }
+
+    @Benchmark
+    public String paymentEventAsMap() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(new UntypedMessage("PAYMENT_SUCCESS", Map.of(
+            "rideId", 9L,
+            "paymentId", 31L,
+            "amount", amount,
+            "transactionId", "txn_4f1c2a",
+            "message", "Payment successful! Amount: ₹" + amount
+        ), System.currentTimeMillis()));
+    }
+
+    @Benchmark
+    public String paymentEventAsRecord() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(NotificationMessage.of(new NotificationEvent.PaymentSucceeded(
+            9L, 31L, amount, "txn_4f1c2a", "Payment successful! Amount: ₹" + amount)));
+    }
+
+    @Benchmark
+    public void rideUpdatePerDestination(Blackhole blackhole) throws JsonProcessingException {
+        for (int i = 0; i < DESTINATIONS; i++) {
+            blackhole.consume(objectMapper.writeValueAsString(ride));
+        }
+    }
+
+    @Benchmark
+    public void rideUpdateOnce(Blackhole blackhole) throws JsonProcessingException {
+        String payload = objectMapper.writeValueAsString(ride);
+        for (int i = 0; i < DESTINATIONS; i++) {
+            blackhole.consume(payload);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(NotificationSerializationBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,127 @@
+package com.gocomet.ridehailing.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one page of {@code GET /v1/rides?status=...} on H2 as the rides table grows.
+ * Before: read every ride, filter the status and sort by creation time in memory, then cut
+ * the page. After: the keyset query on the (status, created_at DESC, id DESC) index,
+ * starting from a random point in the listing as a client paging through would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RideListingBenchmark {
+
+    private static final int PAGE = 100;
+    private static final String[] STATUSES = {"COMPLETED", "CANCELLED", "IN_PROGRESS", "FAILED"};
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Param({"10000", "100000"})
+    int rides;
+
+    private Connection connection;
+    private PreparedStatement scanAll;
+    private PreparedStatement keysetPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:listing_bench_" + System.nanoTime(), "sa", "");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE rides (id BIGINT PRIMARY KEY, rider_id BIGINT, status VARCHAR(20), "
+                + "region VARCHAR(50), pickup_address VARCHAR(200), created_at TIMESTAMP)");
+            ddl.execute("CREATE INDEX idx_ride_status_created ON rides (status, created_at DESC, id DESC)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO rides VALUES (?, ?, ?, 'DELHI', 'Connaught Place', ?)")) {
+            for (int id = 1; id <= rides; id++) {
+                insert.setLong(1, id);
+                insert.setLong(2, id % 1000);
+                insert.setString(3, STATUSES[id % STATUSES.length]);
+                insert.setTimestamp(4, Timestamp.valueOf(EPOCH.plusSeconds(id)));
+                insert.addBatch();
+                if (id % 1000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        scanAll = connection.prepareStatement("SELECT id, rider_id, status, region, pickup_address, created_at FROM rides");
+        keysetPage = connection.prepareStatement("SELECT id, rider_id, status, region, pickup_address, created_at "
+            + "FROM rides WHERE status = ? AND (created_at, id) < (?, ?) ORDER BY status, created_at DESC, id DESC LIMIT ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private record Row(long id, long riderId, String status, String region, String pickupAddress, Timestamp createdAt) {
+        static Row of(ResultSet rs) throws SQLException {
+            return new Row(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                rs.getTimestamp(6));
+        }
+    }
+
+    @Benchmark
+    public void scanFilterSort(Blackhole blackhole) throws SQLException {
+        List<Row> matching = new ArrayList<>();
+        try (ResultSet rs = scanAll.executeQuery()) {
+            while (rs.next()) {
+                Row row = Row.of(rs);
+                if (row.status().equals("COMPLETED")) {
+                    matching.add(row);
+                }
+            }
+        }
+        matching.sort(Comparator.comparing(Row::createdAt).reversed());
+        blackhole.consume(matching.subList(0, Math.min(PAGE, matching.size())));
+    }
+
+    @Benchmark
+    public void keyset(Blackhole blackhole) throws SQLException {
+        long from = ThreadLocalRandom.current().nextLong(PAGE * STATUSES.length, rides + 1);
+        keysetPage.setString(1, "COMPLETED");
+        keysetPage.setTimestamp(2, Timestamp.valueOf(EPOCH.plusSeconds(from)));
+        keysetPage.setLong(3, from);
+        keysetPage.setInt(4, PAGE);
+        List<Row> page = new ArrayList<>(PAGE);
+        try (ResultSet rs = keysetPage.executeQuery()) {
+            while (rs.next()) {
+                page.add(Row.of(rs));
+            }
+        }
+        blackhole.consume(page);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(RideListingBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,160 @@
+package com.gocomet.ridehailing.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ride transition throughput on H2 over a small hot set of rides, so threads contend the
+ * way accept/cancel do on a popular pickup. Before: SELECT ... FOR UPDATE, work done while
+ * holding the lock (mapping, notification dispatch), then the full-row UPDATE. After: a
+ * single guarded UPDATE with the work done once it has committed.
+ *
+ * <p>Each call flips the ride MATCHED <-> ACCEPTED so the guard keeps matching. Run with
+ * {@code -t 8} to see the lock hold time show up.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RideTransitionBenchmark {
+
+    private static final int HOT_RIDES = 64;
+
+    // Stand-in for building the response and handing notifications to the executor
+    private static final int WORK_TOKENS = 2_000;
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        String url;
+        private Connection keepAlive;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            url = "jdbc:h2:mem:ride_bench_" + System.nanoTime() + ";LOCK_TIMEOUT=10000";
+            keepAlive = DriverManager.getConnection(url, "sa", "");
+            try (Statement ddl = keepAlive.createStatement()) {
+                ddl.execute("CREATE TABLE rides (id BIGINT PRIMARY KEY, rider_id BIGINT, driver_id BIGINT, "
+                    + "status VARCHAR(20), region VARCHAR(50), matched_at TIMESTAMP, accepted_at TIMESTAMP, "
+                    + "started_at TIMESTAMP, ended_at TIMESTAMP, cancelled_at TIMESTAMP, version BIGINT, "
+                    + "created_at TIMESTAMP, updated_at TIMESTAMP)");
+            }
+            try (PreparedStatement insert = keepAlive.prepareStatement(
+                    "INSERT INTO rides (id, rider_id, driver_id, status, region, version, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, 'MATCHED', 'DELHI', 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)")) {
+                for (int id = 1; id <= HOT_RIDES; id++) {
+                    insert.setLong(1, id);
+                    insert.setLong(2, id);
+                    insert.setLong(3, id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            keepAlive.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        Connection connection;
+        PreparedStatement lockRow;
+        PreparedStatement updateRow;
+        PreparedStatement transition;
+
+        @Setup(Level.Trial)
+        public void setUp(Database db) throws SQLException {
+            connection = DriverManager.getConnection(db.url, "sa", "");
+            connection.setAutoCommit(false);
+            lockRow = connection.prepareStatement("SELECT * FROM rides WHERE id = ? FOR UPDATE");
+            updateRow = connection.prepareStatement("UPDATE rides SET rider_id = ?, driver_id = ?, status = ?, "
+                + "region = ?, matched_at = ?, accepted_at = ?, started_at = ?, ended_at = ?, cancelled_at = ?, "
+                + "version = ?, created_at = ?, updated_at = ? WHERE id = ? AND version = ?");
+            transition = connection.prepareStatement("UPDATE rides SET status = CASE status WHEN 'MATCHED' "
+                + "THEN 'ACCEPTED' ELSE 'MATCHED' END, accepted_at = ?, updated_at = ?, version = version + 1 "
+                + "WHERE id = ? AND driver_id = ? AND status IN ('MATCHED', 'ACCEPTED')");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int lockedReadModifyWrite(Session session) throws SQLException {
+        int rideId = ThreadLocalRandom.current().nextInt(HOT_RIDES) + 1;
+        PreparedStatement lock = session.lockRow;
+        lock.setLong(1, rideId);
+        long version;
+        String status;
+        Timestamp createdAt;
+        try (ResultSet row = lock.executeQuery()) {
+            row.next();
+            version = row.getLong("version");
+            status = "MATCHED".equals(row.getString("status")) ? "ACCEPTED" : "MATCHED";
+            createdAt = row.getTimestamp("created_at");
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        PreparedStatement update = session.updateRow;
+        update.setLong(1, rideId);
+        update.setLong(2, rideId);
+        update.setString(3, status);
+        update.setString(4, "DELHI");
+        update.setTimestamp(5, now);
+        update.setTimestamp(6, now);
+        update.setNull(7, java.sql.Types.TIMESTAMP);
+        update.setNull(8, java.sql.Types.TIMESTAMP);
+        update.setNull(9, java.sql.Types.TIMESTAMP);
+        update.setLong(10, version + 1);
+        update.setTimestamp(11, createdAt);
+        update.setTimestamp(12, now);
+        update.setLong(13, rideId);
+        update.setLong(14, version);
+        int updated = update.executeUpdate();
+        // Notifications used to be dispatched before commit, with the row lock held
+        Blackhole.consumeCPU(WORK_TOKENS);
+        session.connection.commit();
+        return updated;
+    }
+
+    @Benchmark
+    public int conditionalUpdate(Session session) throws SQLException {
+        int rideId = ThreadLocalRandom.current().nextInt(HOT_RIDES) + 1;
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        PreparedStatement update = session.transition;
+        update.setTimestamp(1, now);
+        update.setTimestamp(2, now);
+        update.setLong(3, rideId);
+        update.setLong(4, rideId);
+        int updated = update.executeUpdate();
+        session.connection.commit();
+        // Same work, after commit
+        Blackhole.consumeCPU(WORK_TOKENS);
+        return updated;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(RideTransitionBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
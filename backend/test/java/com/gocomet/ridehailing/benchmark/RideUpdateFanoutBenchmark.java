@@ -0,0 +1,135 @@
+package com.gocomet.ridehailing.benchmark;
+
+import com.gocomet.ridehailing.notification.Topics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of publishing one ride update through the simple broker with 10k subscribed sessions.
+ * Before: every session subscribes to the global ride feed, so each update is copied to all
+ * of them. After: each rider watches their own ride topic and a handful of regional operators
+ * watch their region, so an update reaches only its ride and region.
+ *
+ * <p>{@code frames} is the outbound frame rate; per-op CPU is the inverse of the score.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RideUpdateFanoutBenchmark {
+
+    private static final int SUBSCRIBERS = 10_000;
+    private static final String[] REGIONS = {"DELHI", "MUMBAI", "BANGALORE", "CHENNAI", "KOLKATA",
+        "HYDERABAD", "PUNE", "AHMEDABAD", "JAIPUR", "LUCKNOW"};
+    private static final int OPERATORS_PER_REGION = 2;
+    private static final int SUBSCRIPTION_CACHE_LIMIT = 16_384;
+
+    private static final byte[] PAYLOAD = ("{\"id\":1,\"riderId\":101,\"driverId\":7,\"status\":\"ACCEPTED\","
+        + "\"vehicleTier\":\"ECONOMY\",\"pickupAddress\":\"Connaught Place\",\"destinationAddress\":\"Saket\","
+        + "\"estimatedFare\":245.50,\"surgeMultiplier\":1.2,\"region\":\"DELHI\"}").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"global", "scoped"})
+    public String topology;
+
+    private SimpleBrokerMessageHandler broker;
+    private CountingChannel outbound;
+    private long ride;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Frames {
+        public long frames;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        outbound = new CountingChannel();
+        broker = new SimpleBrokerMessageHandler(new ExecutorSubscribableChannel(), outbound,
+            new ExecutorSubscribableChannel(), List.of("/topic"));
+        // Sized like the application's broker, so warm ride topics are not rescanned
+        ((DefaultSubscriptionRegistry) broker.getSubscriptionRegistry()).setCacheLimit(SUBSCRIPTION_CACHE_LIMIT);
+        broker.start();
+
+        int session = 0;
+        for (; session < SUBSCRIBERS - REGIONS.length * OPERATORS_PER_REGION; session++) {
+            subscribe(session, "global".equals(topology) ? "/topic/rides/updates" : Topics.ride((long) session));
+        }
+        for (String region : REGIONS) {
+            for (int i = 0; i < OPERATORS_PER_REGION; i++, session++) {
+                subscribe(session, "global".equals(topology) ? "/topic/rides/updates" : Topics.region(region));
+            }
+        }
+        outbound.frames = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        broker.stop();
+    }
+
+    private void subscribe(int session, String destination) {
+        SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        connect.setSessionId("s" + session);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setSessionId("s" + session);
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setDestination(destination);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+    }
+
+    private void publish(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        broker.handleMessage(MessageBuilder.createMessage(PAYLOAD, accessor.getMessageHeaders()));
+    }
+
+    @Benchmark
+    public void publishRideUpdate(Frames frames) {
+        long before = outbound.frames;
+        long rideId = ride++ % SUBSCRIBERS;
+        if ("global".equals(topology)) {
+            publish("/topic/rides/updates");
+        } else {
+            publish(Topics.ride(rideId));
+            publish(Topics.region(REGIONS[(int) (rideId % REGIONS.length)]));
+        }
+        frames.frames += outbound.frames - before;
+    }
+
+    /** Stands in for the session channel: counts the frames the broker hands to sessions. */
+    private static final class CountingChannel implements MessageChannel {
+        private long frames;
+
+        @Override
+        public boolean send(Message<?> message, long timeout) {
+            frames++;
+            return true;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(RideUpdateFanoutBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,178 @@
+package com.gocomet.ridehailing.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trip transition throughput on H2: the old locked read + full-row UPDATE against a
+ * single INSERT into the event log. Absolute numbers are H2-in-memory; the ratio and
+ * the behaviour under {@code -t 8} are what matter.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripTransitionBenchmark {
+
+    private static final int TRIPS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        String url;
+        final AtomicLong eventIds = new AtomicLong();
+        private Connection keepAlive;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            url = "jdbc:h2:mem:trip_bench_" + System.nanoTime() + ";LOCK_TIMEOUT=10000";
+            keepAlive = DriverManager.getConnection(url, "sa", "");
+            try (Statement ddl = keepAlive.createStatement()) {
+                ddl.execute("CREATE TABLE trips (id BIGINT PRIMARY KEY, ride_id BIGINT, driver_id BIGINT, rider_id BIGINT, "
+                    + "status VARCHAR(20), start_latitude DOUBLE, start_longitude DOUBLE, end_latitude DOUBLE, "
+                    + "end_longitude DOUBLE, start_time TIMESTAMP, end_time TIMESTAMP, paused_at TIMESTAMP, "
+                    + "paused_duration_seconds BIGINT, distance_km DOUBLE, duration_minutes BIGINT, "
+                    + "base_fare_paise BIGINT, surge_multiplier DOUBLE, total_fare_paise BIGINT, version BIGINT, "
+                    + "created_at TIMESTAMP, updated_at TIMESTAMP)");
+                ddl.execute("CREATE TABLE trip_events (id BIGINT PRIMARY KEY, trip_id BIGINT NOT NULL, "
+                    + "seq_no BIGINT NOT NULL, type VARCHAR(20) NOT NULL, occurred_at TIMESTAMP NOT NULL, "
+                    + "latitude DOUBLE, longitude DOUBLE, distance_km DOUBLE, fare_paise BIGINT, "
+                    + "CONSTRAINT uk_trip_event_sequence UNIQUE (trip_id, seq_no))");
+            }
+            try (PreparedStatement insert = keepAlive.prepareStatement(
+                    "INSERT INTO trips (id, ride_id, driver_id, rider_id, status, start_latitude, start_longitude, "
+                        + "start_time, paused_duration_seconds, surge_multiplier, version, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, 'STARTED', 28.6, 77.2, CURRENT_TIMESTAMP, 0, 1.0, 0, "
+                        + "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)")) {
+                for (int id = 1; id <= TRIPS; id++) {
+                    insert.setLong(1, id);
+                    insert.setLong(2, id);
+                    insert.setLong(3, id);
+                    insert.setLong(4, id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            keepAlive.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        Connection connection;
+        PreparedStatement lockRow;
+        PreparedStatement updateRow;
+        PreparedStatement appendEvent;
+        long[] sequences = new long[TRIPS + 1];
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(Database db) throws SQLException {
+            connection = DriverManager.getConnection(db.url, "sa", "");
+            connection.setAutoCommit(false);
+            lockRow = connection.prepareStatement("SELECT * FROM trips WHERE id = ? FOR UPDATE");
+            updateRow = connection.prepareStatement("UPDATE trips SET ride_id = ?, driver_id = ?, rider_id = ?, "
+                + "status = ?, start_latitude = ?, start_longitude = ?, end_latitude = ?, end_longitude = ?, "
+                + "start_time = ?, end_time = ?, paused_at = ?, paused_duration_seconds = ?, distance_km = ?, "
+                + "duration_minutes = ?, base_fare_paise = ?, surge_multiplier = ?, total_fare_paise = ?, "
+                + "version = ?, created_at = ?, updated_at = ? WHERE id = ? AND version = ?");
+            appendEvent = connection.prepareStatement("INSERT INTO trip_events (id, trip_id, seq_no, type, occurred_at) "
+                + "VALUES (?, ?, ?, ?, ?)");
+            // Threads start at different trips so they mostly don't contend on one row
+            cursor = (int) (Thread.currentThread().getId() * 7919 % TRIPS);
+        }
+
+        int nextTrip() {
+            cursor = cursor % TRIPS + 1;
+            return cursor;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    // Before: SELECT ... FOR UPDATE, then Hibernate's full-column UPDATE with the version check
+    @Benchmark
+    public int rowUpdateTransition(Session session) throws SQLException {
+        int tripId = session.nextTrip();
+        PreparedStatement lock = session.lockRow;
+        lock.setLong(1, tripId);
+        long version;
+        String status;
+        try (ResultSet row = lock.executeQuery()) {
+            row.next();
+            version = row.getLong("version");
+            status = "PAUSED".equals(row.getString("status")) ? "RESUMED" : "PAUSED";
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        PreparedStatement update = session.updateRow;
+        update.setLong(1, tripId);
+        update.setLong(2, tripId);
+        update.setLong(3, tripId);
+        update.setString(4, status);
+        update.setDouble(5, 28.6);
+        update.setDouble(6, 77.2);
+        update.setNull(7, java.sql.Types.DOUBLE);
+        update.setNull(8, java.sql.Types.DOUBLE);
+        update.setTimestamp(9, now);
+        update.setNull(10, java.sql.Types.TIMESTAMP);
+        update.setTimestamp(11, "PAUSED".equals(status) ? now : null);
+        update.setLong(12, 0);
+        update.setDouble(13, 0.0);
+        update.setLong(14, 0);
+        update.setNull(15, java.sql.Types.BIGINT);
+        update.setDouble(16, 1.0);
+        update.setNull(17, java.sql.Types.BIGINT);
+        update.setLong(18, version + 1);
+        update.setTimestamp(19, now);
+        update.setTimestamp(20, now);
+        update.setLong(21, tripId);
+        update.setLong(22, version);
+        int updated = update.executeUpdate();
+        session.connection.commit();
+        return updated;
+    }
+
+    // After: one INSERT; the (trip, sequence) key does the concurrency check
+    @Benchmark
+    public int eventAppendTransition(Database db, Session session) throws SQLException {
+        int tripId = session.nextTrip();
+        long sequence = ++session.sequences[tripId];
+        PreparedStatement append = session.appendEvent;
+        append.setLong(1, db.eventIds.incrementAndGet());
+        append.setLong(2, tripId);
+        // Offset per thread so sessions never collide on a sequence number
+        append.setLong(3, Thread.currentThread().getId() * 1_000_000_000L + sequence);
+        append.setString(4, sequence % 2 == 1 ? "PAUSED" : "RESUMED");
+        append.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+        int inserted = append.executeUpdate();
+        session.connection.commit();
+        return inserted;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(TripTransitionBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
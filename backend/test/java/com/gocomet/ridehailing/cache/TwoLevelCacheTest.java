@@ -0,0 +1,204 @@
+package com.gocomet.ridehailing.cache;
+
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TwoLevelCacheTest {
+
+    @Mock
+    private CacheInvalidationPublisher invalidationPublisher;
+
+    private ConcurrentMapCache remote;
+    private SimpleMeterRegistry meterRegistry;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCache("surgeMultiplier");
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new TwoLevelCache("surgeMultiplier",
+            CacheBuilder.newBuilder().maximumSize(100).<String, Object>build(),
+            remote, invalidationPublisher, meterRegistry);
+    }
+
+    @Test
+    void testGet_PromotesL2HitIntoL1() {
+        // Arrange
+        remote.put("Delhi-NCR", 1.5);
+
+        // Act
+        assertEquals(1.5, cache.get("Delhi-NCR").get());
+        remote.evict("Delhi-NCR");
+
+        // Assert - second read is served locally even though L2 lost the entry
+        assertEquals(1.5, cache.get("Delhi-NCR").get());
+        assertEquals(1.0, meterRegistry.get("cache.tier.hit.ratio").tags("tier", "l2").gauge().value());
+        assertEquals(0.5, meterRegistry.get("cache.tier.hit.ratio").tags("tier", "l1").gauge().value());
+    }
+
+    @Test
+    void testEvict_PublishesInvalidation() {
+        // Act
+        cache.put("Delhi-NCR", 2.0);
+        cache.evict("Delhi-NCR");
+
+        // Assert
+        assertNull(cache.get("Delhi-NCR"));
+        assertNull(remote.get("Delhi-NCR"));
+        verify(invalidationPublisher, times(2)).publishEvict("surgeMultiplier", "Delhi-NCR");
+    }
+
+    @Test
+    void testEvictLocal_LeavesL2Untouched() {
+        // Arrange
+        cache.put("Mumbai", 1.2);
+
+        // Act - as if another node evicted the key
+        cache.evictLocal("Mumbai");
+
+        // Assert
+        assertEquals(1.2, remote.get("Mumbai").get());
+        assertEquals(1.2, cache.get("Mumbai").get());
+    }
+
+    @Test
+    void testGetWithLoader_ConcurrentMissesShareOneLoad() throws Exception {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Act
+        List<Future<Double>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> cache.get("Bangalore", () -> {
+                loads.incrementAndGet();
+                release.await(5, TimeUnit.SECONDS);
+                return 1.8;
+            })));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        // Assert
+        for (Future<Double> result : results) {
+            assertEquals(1.8, result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(1.8, remote.get("Bangalore").get());
+    }
+
+    @Test
+    void testGetWithLoader_SharedLoadFailureReachesEveryCaller() throws Exception {
+        // Arrange
+        IllegalStateException failure = new IllegalStateException("Redis down");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act - the second caller arrives while the first one's load is in flight
+        Future<Double> owner = executor.submit(() -> cache.get("Pune", () -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw failure;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Double> waiter = executor.submit(() -> cache.<Double>get("Pune", () -> 1.0));
+        Thread.sleep(200);
+        release.countDown();
+
+        // Assert
+        for (Future<Double> result : List.of(owner, waiter)) {
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(Cache.ValueRetrievalException.class, thrown.getCause());
+            assertSame(failure, thrown.getCause().getCause());
+        }
+        executor.shutdown();
+        assertNull(remote.get("Pune"));
+    }
+
+    @Test
+    void testGetWithLoader_InterruptedWaiterKeepsItsInterruptFlag() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> cache.get("Chennai", () -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 1.3;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(Cache.ValueRetrievalException.class, () -> cache.get("Chennai", () -> 1.0));
+
+            // Assert
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testGetWithLoader_MissRacingAFinishedLoadDoesNotReload() {
+        // Arrange - while this caller is between its L2 miss and claiming the load, another
+        // caller loads the key and finishes, leaving no load in flight
+        AtomicInteger loads = new AtomicInteger();
+        ConcurrentMapCache racingRemote = new ConcurrentMapCache("surgeMultiplier") {
+            private boolean raced;
+
+            @Override
+            public ValueWrapper get(Object key) {
+                ValueWrapper before = super.get(key);
+                if (!raced) {
+                    raced = true;
+                    cache.get(key, () -> {
+                        loads.incrementAndGet();
+                        return 2.1;
+                    });
+                }
+                return before;
+            }
+        };
+        cache = new TwoLevelCache("surgeMultiplier",
+            CacheBuilder.newBuilder().maximumSize(100).<String, Object>build(),
+            racingRemote, invalidationPublisher, meterRegistry);
+
+        // Act
+        Double value = cache.get("Chennai", () -> {
+            loads.incrementAndGet();
+            return 9.9;
+        });
+
+        // Assert
+        assertEquals(2.1, value);
+        assertEquals(1, loads.get());
+    }
+}
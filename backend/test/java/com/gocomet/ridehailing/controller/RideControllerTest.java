@@ -6,6 +6,7 @@ import com.gocomet.ridehailing.model.dto.RideResponse;
 import com.gocomet.ridehailing.model.enums.PaymentMethod;
 import com.gocomet.ridehailing.model.enums.RideStatus;
 import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
 import com.gocomet.ridehailing.service.RideService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,7 +52,7 @@ class RideControllerTest {
                 .id(1L)
                 .riderId(1L)
                 .status(RideStatus.REQUESTED)
-                .estimatedFare(150.0)
+                .estimatedFare(Money.ofRupees(150.0))
                 .build();
 
         when(rideService.createRide(any(CreateRideRequest.class))).thenReturn(response);
@@ -87,7 +88,7 @@ class RideControllerTest {
                 .id(1L)
                 .riderId(1L)
                 .status(RideStatus.REQUESTED)
-                .estimatedFare(150.0)
+                .estimatedFare(Money.ofRupees(150.0))
                 .build();
 
         when(rideService.getRideById(1L)).thenReturn(response);
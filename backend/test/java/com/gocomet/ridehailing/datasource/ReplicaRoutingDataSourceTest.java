@@ -0,0 +1,141 @@
+package com.gocomet.ridehailing.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaLagMonitor lagMonitor;
+    private ReadYourWrites readYourWrites;
+    private JdbcDataSource primary;
+    private JdbcDataSource replica;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lagMonitor = new ReplicaLagMonitor(mock(JdbcTemplate.class), Duration.ofSeconds(2), 1000, meterRegistry);
+        readYourWrites = new ReadYourWrites(Duration.ofMillis(500), Duration.ofMillis(2500));
+        primary = h2("primary");
+        replica = h2("replica");
+        routing = new ReplicaRoutingDataSource(primary, replica, lagMonitor, readYourWrites, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static JdbcDataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        new JdbcTemplate(dataSource).execute("CREATE TABLE node AS SELECT '" + name + "' AS name");
+        return dataSource;
+    }
+
+    private static MockHttpServletRequest request(String method) {
+        return new MockHttpServletRequest(method, "/v1/rides");
+    }
+
+    @Test
+    void testReadOnlyTransactionsInAGetReadFromTheReplica() {
+        lagMonitor.update(new ReplicaLagMonitor.Sample(100, System.currentTimeMillis(), System.currentTimeMillis()));
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(routing);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request("GET")));
+
+        assertEquals("replica", readOnly.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class)));
+        assertEquals("primary", readWrite.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class)));
+        assertEquals(1.0, meterRegistry.get("db.routing.reads").tag("target", "replica").counter().count());
+    }
+
+    @Test
+    void testWriteRequestsAndBackgroundWorkStayOnThePrimary() {
+        lagMonitor.update(new ReplicaLagMonitor.Sample(0, NOW, NOW));
+
+        assertEquals(ReplicaRoutingDataSource.Target.REPLICA, routing.route(request("GET"), NOW));
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routing.route(request("POST"), NOW));
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routing.route(null, NOW));
+    }
+
+    @Test
+    void testLaggingOrStaleReplicaFallsBackToThePrimary() {
+        lagMonitor.update(new ReplicaLagMonitor.Sample(2500, NOW - 2500, NOW));
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routing.route(request("GET"), NOW));
+
+        lagMonitor.update(new ReplicaLagMonitor.Sample(100, NOW - 100, NOW));
+        assertEquals(ReplicaRoutingDataSource.Target.REPLICA, routing.route(request("GET"), NOW));
+        // No successful check for more than three intervals
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routing.route(request("GET"), NOW + 3001));
+    }
+
+    @Test
+    void testFailedLagCheckFallsBackToThePrimary() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        when(jdbc.queryForObject(anyString(), ArgumentMatchers.<RowMapper<ReplicaLagMonitor.Sample>>any())).thenThrow(new QueryTimeoutException("timeout"));
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(jdbc, Duration.ofSeconds(2), 1000, new SimpleMeterRegistry());
+        monitor.update(new ReplicaLagMonitor.Sample(0, NOW, NOW));
+
+        monitor.poll();
+
+        assertFalse(monitor.canServe(0, NOW));
+    }
+
+    @Test
+    void testClientReadsItsOwnWriteFromThePrimaryUntilReplayed() {
+        MockHttpServletRequest write = request("POST");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(write, response));
+        readYourWrites.recordWrite(NOW);
+        RequestContextHolder.resetRequestAttributes();
+
+        String token = response.getHeader(ReadYourWrites.HEADER);
+        assertEquals(Long.toString(NOW + 500), token);
+        assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).contains("Max-Age=3"));
+
+        MockHttpServletRequest read = request("GET");
+        read.setCookies(new Cookie(ReadYourWrites.COOKIE, token));
+        // Replica is healthy but has not replayed the write yet
+        lagMonitor.update(new ReplicaLagMonitor.Sample(50, NOW + 100, NOW + 150));
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routing.route(read, NOW + 200));
+
+        lagMonitor.update(new ReplicaLagMonitor.Sample(50, NOW + 600, NOW + 650));
+        assertEquals(ReplicaRoutingDataSource.Target.REPLICA, routing.route(read, NOW + 700));
+
+        // A token no write could have produced yet is ignored
+        MockHttpServletRequest forged = request("GET");
+        forged.addHeader(ReadYourWrites.HEADER, Long.toString(NOW + 60_000));
+        assertEquals(ReplicaRoutingDataSource.Target.REPLICA, routing.route(forged, NOW + 700));
+    }
+}
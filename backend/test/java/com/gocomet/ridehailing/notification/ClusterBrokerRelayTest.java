@@ -0,0 +1,115 @@
+package com.gocomet.ridehailing.notification;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterBrokerRelayTest {
+
+    private static final String RIDER = "/topic/rider/1";
+    private static final Map<String, Object> HEADERS =
+        Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON, "outbox-id", "42");
+
+    @Mock
+    private SimpMessagingTemplate templateA;
+
+    @Mock
+    private SimpMessagingTemplate templateB;
+
+    private InMemoryBrokerTransport.Hub hub;
+    private ClusterBrokerRelay nodeA;
+    private ClusterBrokerRelay nodeB;
+
+    @BeforeEach
+    void setUp() {
+        hub = new InMemoryBrokerTransport.Hub();
+        nodeA = node(templateA);
+        nodeB = node(templateB);
+    }
+
+    private ClusterBrokerRelay node(SimpMessagingTemplate template) {
+        return new ClusterBrokerRelay(template, new InMemoryBrokerTransport(hub), new SimpleMeterRegistry(), "ws:");
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String session, String subscription, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(session);
+        accessor.setSubscriptionId(subscription);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static SessionSubscribeEvent subscribe(String session, String subscription, String destination) {
+        return new SessionSubscribeEvent(new Object(), frame(SimpMessageType.SUBSCRIBE, session, subscription, destination));
+    }
+
+    @Test
+    void testSend_DeliveredOnlyByTheNodeHoldingTheSubscriber() {
+        nodeA.onSubscribe(subscribe("a1", "sub-0", RIDER));
+
+        nodeB.send(RIDER, "{\"eventType\":\"RIDE_MATCHED\"}".getBytes(StandardCharsets.UTF_8), HEADERS);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<byte[]>> frame = ArgumentCaptor.forClass(Message.class);
+        verify(templateA).send(eq(RIDER), frame.capture());
+        assertEquals("{\"eventType\":\"RIDE_MATCHED\"}", new String(frame.getValue().getPayload(), StandardCharsets.UTF_8));
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(frame.getValue());
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, accessor.getContentType());
+        assertEquals("42", accessor.getFirstNativeHeader("outbox-id"));
+        verifyNoInteractions(templateB);
+    }
+
+    @Test
+    void testSend_NobodySubscribedGoesNowhere() {
+        nodeA.send(RIDER, new byte[] {1}, HEADERS);
+
+        assertEquals(0, hub.subscribers("ws:" + RIDER));
+        verifyNoInteractions(templateA, templateB);
+    }
+
+    @Test
+    void testSubscriptions_ChannelIsKeptUntilTheLastLocalSubscriberLeaves() {
+        nodeA.onSubscribe(subscribe("a1", "sub-0", RIDER));
+        nodeA.onSubscribe(subscribe("a2", "sub-0", RIDER));
+        nodeB.onSubscribe(subscribe("b1", "sub-0", RIDER));
+        assertEquals(2, hub.subscribers("ws:" + RIDER));
+
+        nodeA.onDisconnect(new SessionDisconnectEvent(new Object(),
+            frame(SimpMessageType.DISCONNECT, "a1", null, null), "a1", CloseStatus.NORMAL));
+        assertEquals(2, hub.subscribers("ws:" + RIDER));
+
+        nodeA.onUnsubscribe(new SessionUnsubscribeEvent(new Object(),
+            frame(SimpMessageType.UNSUBSCRIBE, "a2", "sub-0", null)));
+        assertEquals(1, hub.subscribers("ws:" + RIDER));
+
+        nodeA.send(RIDER, new byte[] {1}, HEADERS);
+
+        verify(templateB).send(eq(RIDER), any());
+        verify(templateA, never()).send(anyString(), any());
+    }
+}
@@ -0,0 +1,118 @@
+package com.gocomet.ridehailing.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DriverLocationStreamerTest {
+
+    private static final long RIDE_ID = 1L;
+    private static final long RIDER_ID = 100L;
+    private static final long DRIVER_ID = 7L;
+
+    // ~111m per 0.001 degree of latitude
+    private static final double PICKUP_LAT = 28.6000;
+    private static final double PICKUP_LON = 77.2000;
+
+    @Mock
+    private FanoutQueue fanoutQueue;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SimpleMeterRegistry meterRegistry;
+    private DriverLocationStreamer streamer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        streamer = new DriverLocationStreamer(fanoutQueue, objectMapper, meterRegistry, 1000, 10000, 0.5, 5, 5000, 30);
+    }
+
+    private double ticks(String result) {
+        return meterRegistry.get("notification.driver_location.ticks").tag("result", result).counter().count();
+    }
+
+    @Test
+    void testUntrackedDriverIsIgnored() {
+        streamer.onLocation(DRIVER_ID, PICKUP_LAT, PICKUP_LON, 0);
+
+        verifyNoInteractions(fanoutQueue);
+    }
+
+    @Test
+    void testPushesCoalescedLowPriorityTickToRider() throws Exception {
+        when(fanoutQueue.offer(any(), any(), any(), anyMap())).thenReturn(true);
+        streamer.track(RIDE_ID, RIDER_ID, DRIVER_ID, PICKUP_LAT, PICKUP_LON);
+
+        streamer.onLocation(DRIVER_ID, PICKUP_LAT + 0.01, PICKUP_LON, 0);
+
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> headers = ArgumentCaptor.forClass(Map.class);
+        verify(fanoutQueue).offer(eq(Topics.rider(RIDER_ID)), eq("driver-location:" + RIDE_ID),
+            payload.capture(), headers.capture());
+        assertEquals(SlowConsumerGuard.LOW_PRIORITY, headers.getValue().get(SlowConsumerGuard.PRIORITY_HEADER));
+        JsonNode message = objectMapper.readTree(payload.getValue());
+        assertEquals("DRIVER_LOCATION", message.get("eventType").asText());
+        assertEquals(RIDE_ID, message.get("data").get("rideId").asLong());
+        assertEquals(1.112, message.get("data").get("pickupDistanceKm").asDouble(), 0.01);
+    }
+
+    @Test
+    void testTickRateRisesAsDriverNearsPickup() {
+        when(fanoutQueue.offer(any(), any(), any(), anyMap())).thenReturn(true);
+        streamer.track(RIDE_ID, RIDER_ID, DRIVER_ID, PICKUP_LAT, PICKUP_LON);
+
+        // ~11km out: one tick per 10s, so a fix every second mostly throttles
+        for (int second = 0; second < 20; second++) {
+            streamer.onLocation(DRIVER_ID, PICKUP_LAT + 0.1, PICKUP_LON, second * 1000L);
+        }
+        assertEquals(2.0, ticks("sent"));
+
+        // ~100m out: every fix goes out
+        for (int second = 20; second < 30; second++) {
+            streamer.onLocation(DRIVER_ID, PICKUP_LAT + 0.0009, PICKUP_LON, second * 1000L);
+        }
+        assertEquals(12.0, ticks("sent"));
+        assertEquals(18.0, ticks("throttled"));
+    }
+
+    @Test
+    void testIntervalIsLinearBetweenNearAndFar() {
+        assertEquals(1000, streamer.intervalFor(0.2));
+        assertEquals(5500, streamer.intervalFor(2.75));
+        assertEquals(10000, streamer.intervalFor(8));
+    }
+
+    @Test
+    void testTripStartSwitchesToFlatRateAndStopEndsStream() {
+        when(fanoutQueue.offer(any(), any(), any(), anyMap())).thenReturn(true);
+        streamer.track(RIDE_ID, RIDER_ID, DRIVER_ID, PICKUP_LAT, PICKUP_LON);
+        streamer.tripStarted(RIDE_ID, DRIVER_ID);
+
+        for (int second = 0; second < 10; second++) {
+            streamer.onLocation(DRIVER_ID, PICKUP_LAT, PICKUP_LON, second * 1000L);
+        }
+        assertEquals(2.0, ticks("sent"));
+
+        // A stale stop for another ride leaves the current one alone
+        streamer.stop(2L, DRIVER_ID);
+        assertEquals(1, streamer.tracked());
+        streamer.stop(RIDE_ID, DRIVER_ID);
+        assertEquals(0, streamer.tracked());
+    }
+}
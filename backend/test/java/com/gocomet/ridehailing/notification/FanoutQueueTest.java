@@ -0,0 +1,138 @@
+package com.gocomet.ridehailing.notification;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FanoutQueueTest {
+
+    private static final Map<String, Object> HEADERS = Map.of();
+
+    @Mock
+    private BrokerRelay brokerRelay;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FanoutQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Long linger: the test flushes by hand
+        queue = new FanoutQueue(brokerRelay, meterRegistry, 3, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.destroy();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    @Test
+    void testOffer_SupersededRideUpdateIsReplacedInPlace() {
+        queue.offer("/topic/regions/DELHI/rides", "ride:1", bytes("ride 1 matched"), HEADERS);
+        queue.offer("/topic/regions/DELHI/rides", "ride:2", bytes("ride 2 matched"), HEADERS);
+        queue.offer("/topic/regions/DELHI/rides", "ride:1", bytes("ride 1 accepted"), HEADERS);
+
+        queue.flush();
+
+        InOrder inOrder = inOrder(brokerRelay);
+        inOrder.verify(brokerRelay).send("/topic/regions/DELHI/rides", bytes("ride 1 accepted"), HEADERS);
+        inOrder.verify(brokerRelay).send("/topic/regions/DELHI/rides", bytes("ride 2 matched"), HEADERS);
+        verifyNoMoreInteractions(brokerRelay);
+        assertEquals(1.0, count("notification.fanout.coalesced"));
+        assertEquals(2.0, count("notification.fanout.sent"));
+    }
+
+    @Test
+    void testOffer_UnkeyedMessagesAreAllSentInOrder() {
+        queue.offer("/topic/rider/1", null, bytes("RIDE_MATCHED"), HEADERS);
+        queue.offer("/topic/rider/1", null, bytes("RIDE_ACCEPTED"), HEADERS);
+
+        queue.flush();
+
+        InOrder inOrder = inOrder(brokerRelay);
+        inOrder.verify(brokerRelay).send("/topic/rider/1", bytes("RIDE_MATCHED"), HEADERS);
+        inOrder.verify(brokerRelay).send("/topic/rider/1", bytes("RIDE_ACCEPTED"), HEADERS);
+    }
+
+    @Test
+    void testOffer_FullQueueRefusesButStillCoalesces() {
+        assertTrue(queue.offer("/topic/rider/1", null, bytes("a"), HEADERS));
+        assertTrue(queue.offer("/topic/rider/2", null, bytes("b"), HEADERS));
+        assertTrue(queue.offer("/topic/regions/DELHI/rides", "ride:1", bytes("c"), HEADERS));
+
+        assertFalse(queue.offer("/topic/rider/3", null, bytes("d"), HEADERS));
+        // Replacing a queued message needs no extra room
+        assertTrue(queue.offer("/topic/regions/DELHI/rides", "ride:1", bytes("e"), HEADERS));
+        assertEquals(1.0, count("notification.fanout.dropped"));
+        assertEquals(3, queue.pending());
+
+        queue.flush();
+
+        assertEquals(0, queue.pending());
+        assertTrue(queue.offer("/topic/rider/3", null, bytes("d"), HEADERS));
+    }
+
+    @Test
+    void testFlush_SendFailureDoesNotStopTheBatch() {
+        doThrow(new IllegalStateException("closed")).when(brokerRelay)
+            .send(eq("/topic/rider/1"), any(byte[].class), anyMap());
+        queue.offer("/topic/rider/1", null, bytes("a"), HEADERS);
+        queue.offer("/topic/rider/2", null, bytes("b"), HEADERS);
+
+        queue.flush();
+
+        verify(brokerRelay).send("/topic/rider/2", bytes("b"), HEADERS);
+        assertEquals(0, queue.pending());
+    }
+
+    @Test
+    void testFlush_AcknowledgesSentAndSupersededMessagesButNotFailedOnes() {
+        lenient().doThrow(new IllegalStateException("closed")).when(brokerRelay)
+            .send(eq("/topic/rider/1"), any(byte[].class), anyMap());
+        List<String> acked = new ArrayList<>();
+        queue.offer("/topic/regions/DELHI/rides", "ride:1", bytes("matched"), HEADERS, () -> acked.add("matched"));
+        queue.offer("/topic/regions/DELHI/rides", "ride:1", bytes("accepted"), HEADERS, () -> acked.add("accepted"));
+        queue.offer("/topic/rider/1", null, bytes("a"), HEADERS, () -> acked.add("a"));
+
+        assertTrue(acked.isEmpty());
+        queue.flush();
+
+        assertEquals(List.of("matched", "accepted"), acked);
+    }
+
+    @Test
+    void testOffer_LingerFlushesAutomatically() {
+        queue.destroy();
+        queue = new FanoutQueue(brokerRelay, new SimpleMeterRegistry(), 100, 1);
+
+        queue.offer("/topic/rider/1", null, bytes("a"), HEADERS);
+
+        verify(brokerRelay, timeout(1000)).send(anyString(), any(byte[].class), anyMap());
+    }
+}
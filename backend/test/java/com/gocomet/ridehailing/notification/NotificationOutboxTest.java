@@ -0,0 +1,90 @@
+package com.gocomet.ridehailing.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gocomet.ridehailing.model.dto.NotificationEvent;
+import com.gocomet.ridehailing.model.dto.NotificationMessage;
+import com.gocomet.ridehailing.model.entity.OutboxMessage;
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.repository.OutboxMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationOutboxTest {
+
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private OutboxRelay outboxRelay;
+
+    @InjectMocks
+    private NotificationOutbox notificationOutbox;
+
+    @SuppressWarnings("unchecked")
+    private List<OutboxMessage> savedRows() {
+        ArgumentCaptor<Iterable<OutboxMessage>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(outboxMessageRepository).saveAll(saved.capture());
+        List<OutboxMessage> rows = new ArrayList<>();
+        saved.getValue().forEach(rows::add);
+        return rows;
+    }
+
+    @Test
+    void testEnqueue_StoresSerializedEnvelope() throws Exception {
+        notificationOutbox.enqueue("/topic/rider/3",
+            new NotificationMessage("TRIP_ENDED", new NotificationEvent.TripEnded(7L, Money.ofPaise(12345), "Done"), 1000L));
+
+        List<OutboxMessage> saved = savedRows();
+        assertEquals(1, saved.size());
+        assertEquals("/topic/rider/3", saved.get(0).getDestination());
+        assertEquals(objectMapper.readTree("{\"eventType\":\"TRIP_ENDED\",\"data\":{\"rideId\":7,\"fare\":123.45,\"message\":\"Done\"},\"timestamp\":1000}"),
+            objectMapper.readTree(saved.get(0).getPayload()));
+        // No transaction: nothing to wait for
+        verify(outboxRelay).signal();
+    }
+
+    @Test
+    void testEnqueue_SerializesOnceForEveryDestination() throws Exception {
+        notificationOutbox.enqueue(List.of("/topic/rides/9", "/topic/regions/DELHI/rides"), Map.of("id", 9), "ride:9");
+
+        verify(objectMapper, times(1)).writeValueAsString(any());
+        List<OutboxMessage> saved = savedRows();
+        assertEquals(List.of("/topic/rides/9", "/topic/regions/DELHI/rides"),
+            saved.stream().map(OutboxMessage::getDestination).toList());
+        assertSame(saved.get(0).getPayload(), saved.get(1).getPayload());
+        assertEquals("ride:9", saved.get(1).getCoalesceKey());
+    }
+
+    @Test
+    void testEnqueue_SignalsRelayOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            notificationOutbox.enqueue("/topic/driver/4", NotificationMessage.of(new NotificationEvent.RideAccepted(4L, "Accepted")));
+
+            verify(outboxRelay, never()).signal();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(outboxRelay).signal();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
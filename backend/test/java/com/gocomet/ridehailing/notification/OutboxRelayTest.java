@@ -0,0 +1,169 @@
+package com.gocomet.ridehailing.notification;
+
+import com.gocomet.ridehailing.model.entity.OutboxMessage;
+import com.gocomet.ridehailing.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Mock
+    private FanoutQueue fanoutQueue;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxMessageRepository, fanoutQueue,
+            new TransactionTemplate(transactionManager), meterRegistry, 2, 30_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.destroy();
+    }
+
+    private static OutboxMessage message(long id, String destination, String payload) {
+        return OutboxMessage.builder()
+            .id(id)
+            .destination(destination)
+            .payload(payload)
+            .createdAt(LocalDateTime.now())
+            .build();
+    }
+
+    @Test
+    void testDrain_PublishesInOrderThenMarksEachBatchDispatched() {
+        when(fanoutQueue.offer(any(), any(), any(), anyMap(), any())).thenReturn(true);
+        when(outboxMessageRepository.lockNextBatch(any(), any(Pageable.class)))
+            .thenReturn(List.of(message(1, "/topic/rider/1", "{\"a\":1}"), message(2, "/topic/driver/2", "{\"b\":2}")))
+            .thenReturn(List.of(message(3, "/topic/regions/DELHI/rides", "{\"c\":3}")));
+
+        relay.drain();
+
+        InOrder inOrder = inOrder(fanoutQueue, outboxMessageRepository);
+        inOrder.verify(fanoutQueue).offer(eq("/topic/rider/1"), isNull(), any(), anyMap(), any());
+        inOrder.verify(fanoutQueue).offer(eq("/topic/driver/2"), isNull(), any(), anyMap(), any());
+        inOrder.verify(outboxMessageRepository).markDispatched(eq(List.of(1L, 2L)), any());
+        inOrder.verify(fanoutQueue).offer(eq("/topic/regions/DELHI/rides"), isNull(), any(), anyMap(), any());
+        inOrder.verify(outboxMessageRepository).markDispatched(eq(List.of(3L)), any());
+        // A short batch means the outbox is drained
+        verify(outboxMessageRepository, times(2)).lockNextBatch(any(), any(Pageable.class));
+        // Nothing is deleted before the broker has it
+        verify(outboxMessageRepository, never()).deleteByIdIn(any());
+        assertEquals(3.0, meterRegistry.get("notification.outbox.published").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDrain_ForwardsSerializedBytesWithOutboxIdAndCoalesceKey() {
+        when(fanoutQueue.offer(any(), any(), any(), anyMap(), any())).thenReturn(true);
+        OutboxMessage update = message(7, "/topic/regions/DELHI/rides", "{\"id\":9}");
+        update.setCoalesceKey("ride:9");
+        when(outboxMessageRepository.lockNextBatch(any(), any(Pageable.class))).thenReturn(List.of(update));
+
+        relay.drain();
+
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<Map<String, Object>> headers = ArgumentCaptor.forClass(Map.class);
+        verify(fanoutQueue).offer(eq("/topic/regions/DELHI/rides"), eq("ride:9"), payload.capture(), headers.capture(), any());
+        assertEquals("{\"id\":9}", new String(payload.getValue(), StandardCharsets.UTF_8));
+        assertEquals("7", headers.getValue().get(OutboxRelay.OUTBOX_ID_HEADER));
+    }
+
+    @Test
+    void testDrain_FullFanoutQueueKeepsTheRestForLater() {
+        when(outboxMessageRepository.lockNextBatch(any(), any(Pageable.class)))
+            .thenReturn(List.of(message(1, "/topic/rider/1", "{}"), message(2, "/topic/rider/1", "{}")));
+        when(fanoutQueue.offer(any(), any(), any(), anyMap(), any())).thenReturn(true, false);
+
+        relay.drain();
+
+        verify(outboxMessageRepository).markDispatched(eq(List.of(1L)), any());
+        // Stops instead of spinning on a full queue
+        verify(outboxMessageRepository, times(1)).lockNextBatch(any(), any(Pageable.class));
+    }
+
+    @Test
+    void testDrain_NothingAcceptedMarksNothing() {
+        when(outboxMessageRepository.lockNextBatch(any(), any(Pageable.class)))
+            .thenReturn(List.of(message(1, "/topic/rider/1", "{}")));
+        when(fanoutQueue.offer(any(), any(), any(), anyMap(), any())).thenReturn(false);
+
+        relay.drain();
+
+        verify(outboxMessageRepository, never()).markDispatched(any(), any());
+    }
+
+    @Test
+    void testDrain_RedeliversRowsDispatchedLongerThanTheWindowAgo() {
+        when(outboxMessageRepository.lockNextBatch(any(), any(Pageable.class))).thenReturn(List.of());
+        LocalDateTime before = LocalDateTime.now();
+
+        relay.drain();
+
+        ArgumentCaptor<LocalDateTime> staleBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxMessageRepository).lockNextBatch(staleBefore.capture(), any(Pageable.class));
+        assertFalse(staleBefore.getValue().isBefore(before.minusSeconds(30)));
+        assertFalse(staleBefore.getValue().isAfter(LocalDateTime.now().minusSeconds(30)));
+    }
+
+    @Test
+    void testDrain_DeletesOnlyRowsTheBrokerAccepted() {
+        BrokerRelay brokerRelay = mock(BrokerRelay.class);
+        lenient().doThrow(new IllegalStateException("closed")).when(brokerRelay)
+            .send(eq("/topic/driver/2"), any(byte[].class), anyMap());
+        FanoutQueue realQueue = new FanoutQueue(brokerRelay, meterRegistry, 100, 60_000);
+        OutboxRelay realRelay = new OutboxRelay(outboxMessageRepository, realQueue,
+            new TransactionTemplate(transactionManager), meterRegistry, 2, 30_000);
+        when(outboxMessageRepository.lockNextBatch(any(), any(Pageable.class)))
+            .thenReturn(List.of(message(1, "/topic/rider/1", "{}"), message(2, "/topic/driver/2", "{}")))
+            .thenReturn(List.of());
+        try {
+            realRelay.drain();
+            // A crash here would leave both rows in the outbox, dispatched but not sent
+            verify(outboxMessageRepository, never()).deleteByIdIn(any());
+
+            realQueue.flush();
+            realRelay.drain();
+
+            // The failed send stays in the outbox and is offered again after the window
+            verify(outboxMessageRepository).deleteByIdIn(List.of(1L));
+            verify(outboxMessageRepository, times(1)).deleteByIdIn(any());
+        } finally {
+            realRelay.destroy();
+            realQueue.destroy();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.gocomet.ridehailing.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gocomet.ridehailing.model.dto.RideResponse;
+import com.gocomet.ridehailing.model.dto.RideUpdate;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideDeltaEncoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private SimpleMeterRegistry meterRegistry;
+    private RideDeltaEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        encoder = new RideDeltaEncoder(objectMapper, meterRegistry, 2, 100);
+    }
+
+    private static RideResponse ride(long version, RideStatus status) {
+        return RideResponse.builder()
+            .id(9L).riderId(101L).status(status).vehicleTier(VehicleTier.ECONOMY)
+            .pickupAddress("Connaught Place").destinationAddress("Saket")
+            .pickupLatitude(28.63).pickupLongitude(77.21).destinationLatitude(28.52).destinationLongitude(77.20)
+            .estimatedFare(Money.ofPaise(24550)).surgeMultiplier(1.0).region("DELHI")
+            .createdAt(LocalDateTime.of(2024, 1, 1, 10, 0))
+            .version(version)
+            .build();
+    }
+
+    @Test
+    void testEncode_FirstUpdateIsSnapshotThenOnlyChangedFields() {
+        RideUpdate first = encoder.encode(ride(0, RideStatus.REQUESTED)).orElseThrow();
+        assertEquals(RideUpdate.Type.SNAPSHOT, first.type());
+        assertEquals(0, first.seq());
+
+        RideResponse matched = ride(2, RideStatus.MATCHED);
+        matched.setDriverId(7L);
+        RideUpdate delta = encoder.encode(matched).orElseThrow();
+
+        assertEquals(RideUpdate.Type.DELTA, delta.type());
+        assertEquals(2, delta.seq());
+        assertEquals(0L, delta.baseSeq());
+        assertEquals(3, delta.changes().size());
+        assertEquals("MATCHED", delta.changes().get("status").asText());
+        assertEquals(7, delta.changes().get("driverId").asLong());
+        assertEquals(2, delta.changes().get("version").asLong());
+    }
+
+    @Test
+    void testEncode_DeltasAreCumulativeAgainstTheSnapshot() {
+        encoder.encode(ride(0, RideStatus.REQUESTED));
+        RideResponse matched = ride(1, RideStatus.MATCHED);
+        matched.setDriverId(7L);
+        encoder.encode(matched);
+
+        RideResponse accepted = ride(2, RideStatus.ACCEPTED);
+        accepted.setDriverId(7L);
+        RideUpdate delta = encoder.encode(accepted).orElseThrow();
+
+        // Still carries driverId: a client may only ever see this delta on top of the snapshot
+        assertEquals(0L, delta.baseSeq());
+        assertEquals(7, delta.changes().get("driverId").asLong());
+        assertEquals("ACCEPTED", delta.changes().get("status").asText());
+    }
+
+    @Test
+    void testEncode_SnapshotAgainAfterTheInterval() {
+        encoder.encode(ride(0, RideStatus.REQUESTED));
+        encoder.encode(ride(1, RideStatus.SEARCHING));
+        encoder.encode(ride(2, RideStatus.SEARCHING));
+
+        RideUpdate third = encoder.encode(ride(3, RideStatus.SEARCHING)).orElseThrow();
+        RideUpdate fourth = encoder.encode(ride(4, RideStatus.SEARCHING)).orElseThrow();
+
+        assertEquals(RideUpdate.Type.SNAPSHOT, third.type());
+        assertEquals(RideUpdate.Type.DELTA, fourth.type());
+        assertEquals(3L, fourth.baseSeq());
+    }
+
+    @Test
+    void testEncode_StaleUpdateIsDroppedWithoutMovingTheBase() {
+        encoder.encode(ride(5, RideStatus.MATCHED));
+
+        Optional<RideUpdate> stale = encoder.encode(ride(4, RideStatus.SEARCHING));
+        Optional<RideUpdate> repeated = encoder.encode(ride(5, RideStatus.MATCHED));
+        Optional<RideUpdate> staleTerminal = encoder.encode(ride(3, RideStatus.CANCELLED));
+        RideUpdate next = encoder.encode(ride(6, RideStatus.ACCEPTED)).orElseThrow();
+
+        assertTrue(stale.isEmpty());
+        assertTrue(repeated.isEmpty());
+        assertTrue(staleTerminal.isEmpty());
+        assertEquals(RideUpdate.Type.DELTA, next.type());
+        assertEquals(5L, next.baseSeq());
+        assertEquals(3.0, meterRegistry.get("notification.ride_update.stale").counter().count());
+    }
+
+    @Test
+    void testEncode_TerminalUpdateForgetsTheRide() {
+        encoder.encode(ride(0, RideStatus.REQUESTED));
+        RideUpdate completed = encoder.encode(ride(1, RideStatus.FAILED)).orElseThrow();
+        RideUpdate after = encoder.encode(ride(2, RideStatus.FAILED)).orElseThrow();
+
+        assertEquals(RideUpdate.Type.DELTA, completed.type());
+        assertEquals(RideUpdate.Type.SNAPSHOT, after.type());
+    }
+}
@@ -0,0 +1,102 @@
+package com.gocomet.ridehailing.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gocomet.ridehailing.model.dto.RideResponse;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RideSummaryPublisherTest {
+
+    @Mock
+    private FanoutQueue fanoutQueue;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private RideSummaryPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new RideSummaryPublisher(fanoutQueue, objectMapper, new SimpleMeterRegistry(), 2);
+    }
+
+    private static RideResponse ride(long id, RideStatus status) {
+        return RideResponse.builder().id(id).riderId(100 + id).status(status).region("DELHI").build();
+    }
+
+    private JsonNode published() throws Exception {
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(fanoutQueue).offer(eq(Topics.RIDE_SUMMARY), isNull(), payload.capture(), anyMap());
+        return objectMapper.readTree(payload.getValue());
+    }
+
+    @Test
+    void testPublish_KeepsLatestStatePerRideAndCountsEveryTransition() throws Exception {
+        when(fanoutQueue.offer(any(), any(), any(), anyMap())).thenReturn(true);
+        publisher.record(ride(1, RideStatus.MATCHED));
+        publisher.record(ride(1, RideStatus.ACCEPTED));
+        publisher.record(ride(2, RideStatus.MATCHED));
+
+        publisher.publish();
+
+        JsonNode summary = published();
+        assertEquals(2, summary.get("transitions").get("MATCHED").asInt());
+        assertEquals(1, summary.get("transitions").get("ACCEPTED").asInt());
+        assertEquals(2, summary.get("rides").size());
+        for (JsonNode entry : summary.get("rides")) {
+            if (entry.get("id").asLong() == 1) {
+                assertEquals("ACCEPTED", entry.get("status").asText());
+            }
+        }
+    }
+
+    @Test
+    void testPublish_RidesBeyondTheCapAreCountedNotListed() throws Exception {
+        when(fanoutQueue.offer(any(), any(), any(), anyMap())).thenReturn(true);
+        publisher.record(ride(1, RideStatus.MATCHED));
+        publisher.record(ride(2, RideStatus.MATCHED));
+        publisher.record(ride(3, RideStatus.MATCHED));
+        // Already listed, so it still takes the newer state
+        publisher.record(ride(1, RideStatus.CANCELLED));
+
+        publisher.publish();
+
+        JsonNode summary = published();
+        assertEquals(2, summary.get("rides").size());
+        assertEquals(1, summary.get("truncated").asInt());
+        assertEquals(3, summary.get("transitions").get("MATCHED").asInt());
+    }
+
+    @Test
+    void testPublish_QuietWindowSendsNothing() {
+        publisher.publish();
+
+        verifyNoInteractions(fanoutQueue);
+    }
+
+    @Test
+    void testPublish_EachWindowStartsEmpty() throws Exception {
+        when(fanoutQueue.offer(any(), any(), any(), anyMap())).thenReturn(true);
+        publisher.record(ride(1, RideStatus.MATCHED));
+        publisher.publish();
+        published();
+
+        publisher.publish();
+
+        verifyNoMoreInteractions(fanoutQueue);
+    }
+}
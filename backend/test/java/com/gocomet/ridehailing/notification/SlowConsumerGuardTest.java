@@ -0,0 +1,131 @@
+package com.gocomet.ridehailing.notification;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SlowConsumerGuardTest {
+
+    @Mock
+    private WebSocketHandler handler;
+
+    @Mock
+    private WebSocketSession session;
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private SlowConsumerGuard guard;
+    private WebSocketSession counting;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(session.getId()).thenReturn("s1");
+        meterRegistry = new SimpleMeterRegistry();
+        guard = new SlowConsumerGuard(meterRegistry, 2, 4, 1000, clock::get);
+
+        guard.decorate(handler).afterConnectionEstablished(session);
+        ArgumentCaptor<WebSocketSession> decorated = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(decorated.capture());
+        counting = decorated.getValue();
+    }
+
+    private static Message<byte[]> message(boolean lowPriority) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("s1");
+        if (lowPriority) {
+            accessor.setNativeHeader(SlowConsumerGuard.PRIORITY_HEADER, SlowConsumerGuard.LOW_PRIORITY);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    @Test
+    void testDepth_FramesWrittenToTheSocketDrainTheQueue() throws Exception {
+        assertNotNull(guard.preSend(message(false), null));
+        assertNotNull(guard.preSend(message(true), null));
+        assertEquals(2, guard.depth("s1"));
+
+        counting.sendMessage(new TextMessage("MESSAGE\ndestination:/topic/rider/1\n\n{}\u0000"));
+        // Heartbeats are not queued messages
+        counting.sendMessage(new TextMessage("\n"));
+
+        assertEquals(1, guard.depth("s1"));
+        verify(session, times(2)).sendMessage(any());
+    }
+
+    @Test
+    void testPreSend_BackloggedSessionDropsLowPriorityButKeepsCritical() {
+        guard.preSend(message(false), null);
+        guard.preSend(message(false), null);
+
+        assertNull(guard.preSend(message(true), null));
+        assertNotNull(guard.preSend(message(false), null));
+
+        assertEquals(1.0, count("websocket.session.dropped"));
+        assertEquals(3, guard.depth("s1"));
+    }
+
+    @Test
+    void testPreSend_SessionAtTheCriticalCapIsClosed() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(guard.preSend(message(false), null));
+        }
+
+        assertNull(guard.preSend(message(false), null));
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1.0, count("websocket.session.evicted"));
+        // Forgotten: nothing more is counted against it
+        assertNotNull(guard.preSend(message(true), null));
+    }
+
+    @Test
+    void testPreSend_SessionBackloggedPastTheGraceIsClosed() throws Exception {
+        guard.preSend(message(false), null);
+        guard.preSend(message(false), null);
+        assertNull(guard.preSend(message(true), null));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        assertNull(guard.preSend(message(false), null));
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void testPreSend_CatchingUpResetsTheGrace() throws Exception {
+        guard.preSend(message(false), null);
+        guard.preSend(message(false), null);
+        guard.preSend(message(true), null);
+        counting.sendMessage(new TextMessage("MESSAGE\n\n{}\u0000"));
+        counting.sendMessage(new TextMessage("MESSAGE\n\n{}\u0000"));
+        assertNotNull(guard.preSend(message(false), null));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        guard.preSend(message(false), null);
+
+        assertNotNull(guard.preSend(message(false), null));
+        verify(session, never()).close(any());
+    }
+}
@@ -0,0 +1,54 @@
+package com.gocomet.ridehailing.notification;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopicSubscriptionFilterTest {
+
+    private final TopicSubscriptionFilter filter = new TopicSubscriptionFilter();
+
+    private static Message<byte[]> frame(StompCommand command, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("s1");
+        accessor.setDestination(destination);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    @Test
+    void testPreSend_ScopedTopicsAreAllowed() {
+        for (String destination : new String[] {
+                Topics.ride(42L), Topics.region("DELHI"), Topics.tenant("acme"),
+                Topics.rider(7L), Topics.driver(9L), Topics.RIDE_SUMMARY}) {
+            Message<byte[]> message = frame(StompCommand.SUBSCRIBE, destination);
+            assertSame(message, filter.preSend(message, null), destination);
+        }
+    }
+
+    @Test
+    void testPreSend_GlobalFeedAndWildcardsAreRefused() {
+        for (String destination : new String[] {
+                "/topic/rides/updates", "/topic/regions/*/rides", "/topic/**", "/topic/rider/abc"}) {
+            assertThrows(MessagingException.class,
+                () -> filter.preSend(frame(StompCommand.SUBSCRIBE, destination), null), destination);
+        }
+    }
+
+    @Test
+    void testPreSend_OtherCommandsPassThrough() {
+        Message<byte[]> message = frame(StompCommand.SEND, "/app/anything");
+        assertSame(message, filter.preSend(message, null));
+    }
+
+    @Test
+    void testRegion_UnsafeCharactersAreReplaced() {
+        assertEquals("/topic/regions/Navi_Mumbai_/rides", Topics.region("Navi Mumbai/"));
+        assertTrue(Topics.isSubscribable(Topics.region("Navi Mumbai/")));
+    }
+}
@@ -0,0 +1,116 @@
+package com.gocomet.ridehailing.payment;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.gocomet.ridehailing.payment.CircuitBreaker.State.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<String> transitions = new ArrayList<>();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        // Window of 4, opens at 50% failures once 4 calls are in, 10s open, 2 trial calls
+        breaker = new CircuitBreaker(4, 4, 0.5, Duration.ofSeconds(10), 2, now::get,
+            (from, to) -> transitions.add(from + "->" + to));
+    }
+
+    private void call(boolean fails) {
+        assertTrue(breaker.tryAcquirePermission());
+        if (fails) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    @Test
+    void testOpensOnlyOnceMinimumCallsAreRecorded() {
+        call(true);
+        call(true);
+        call(true);
+        assertEquals(CLOSED, breaker.getState());
+
+        call(false);
+
+        assertEquals(OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(Duration.ofSeconds(10), breaker.retryAfter());
+        assertEquals(List.of("CLOSED->OPEN"), transitions);
+    }
+
+    @Test
+    void testOldOutcomesSlideOutOfTheWindow() {
+        call(true);
+        call(false);
+        call(false);
+        call(false);
+        // Evicts the failure: still 1 of 4
+        call(true);
+        assertEquals(CLOSED, breaker.getState());
+
+        call(true);
+
+        assertEquals(OPEN, breaker.getState());
+    }
+
+    @Test
+    void testHalfOpenClosesAfterTrialCallsSucceed() {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+        // Only two trial calls at a time
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertEquals(CLOSED, breaker.getState());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+        // A fresh window: one failure does not reopen
+        call(true);
+        assertEquals(CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testHalfOpenFailureReopens() {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        call(true);
+
+        assertEquals(OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testReleasedPermissionFreesATrialSlot() {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+
+        breaker.releasePermission();
+
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,105 @@
+package com.gocomet.ridehailing.payment;
+
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.pricing.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GatewayGuardTest {
+
+    private static final GatewayCharge CHARGE = new GatewayCharge(1L, "pay-1", Money.ofRupees(100.0), PaymentMethod.UPI);
+
+    @Mock
+    private PaymentGatewayClient gateway;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreaker circuitBreaker;
+    private GatewayGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreaker(2, 2, 1.0, Duration.ofSeconds(30), 1, System::nanoTime, (from, to) -> { });
+        guard = new GatewayGuard(gateway, circuitBreaker, meterRegistry, 2, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.destroy();
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("payment.gateway.rejected").tag("reason", reason).counter().count();
+    }
+
+    private static Throwable cause(CompletableFuture<?> future) {
+        return assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS)).getCause();
+    }
+
+    @Test
+    void testFullBulkheadRejectsWithoutCallingGateway() throws Exception {
+        CompletableFuture<GatewayResult> pending = new CompletableFuture<>();
+        when(gateway.charge(any())).thenReturn(pending);
+        guard.destroy();
+        meterRegistry = new SimpleMeterRegistry();
+        guard = new GatewayGuard(gateway, circuitBreaker, meterRegistry, 2, 5_000);
+
+        CompletableFuture<GatewayResult> first = guard.charge(CHARGE);
+        CompletableFuture<GatewayResult> second = guard.charge(CHARGE);
+        CompletableFuture<GatewayResult> third = guard.charge(CHARGE);
+
+        assertInstanceOf(GatewayUnavailableException.class, cause(third));
+        assertEquals(1.0, rejected("bulkhead_full"));
+        assertEquals(2.0, meterRegistry.get("payment.gateway.bulkhead.in_flight").gauge().value());
+
+        // Answers free the slots again
+        pending.complete(GatewayResult.approved("txn", "psp"));
+        assertTrue(first.get(1, TimeUnit.SECONDS).approved());
+        assertTrue(second.get(1, TimeUnit.SECONDS).approved());
+        assertEquals(0.0, meterRegistry.get("payment.gateway.bulkhead.in_flight").gauge().value());
+        verify(gateway, timeout(1000).times(2)).charge(CHARGE);
+    }
+
+    @Test
+    void testTimeoutsOpenTheCircuit() {
+        when(gateway.charge(any())).thenReturn(new CompletableFuture<>());
+
+        assertInstanceOf(TimeoutException.class, cause(guard.charge(CHARGE)));
+        assertInstanceOf(TimeoutException.class, cause(guard.charge(CHARGE)));
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1.0, meterRegistry.get("payment.gateway.circuit.state").tag("state", "open").gauge().value());
+        assertInstanceOf(GatewayUnavailableException.class, cause(guard.charge(CHARGE)));
+        assertEquals(1.0, rejected("circuit_open"));
+        verify(gateway, times(2)).charge(CHARGE);
+        assertTrue(guard.retryAfter().compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void testDeclinesDoNotCountAgainstTheGateway() throws Exception {
+        when(gateway.charge(any()))
+            .thenReturn(CompletableFuture.completedFuture(GatewayResult.declined("psp", "Insufficient funds")));
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(guard.charge(CHARGE).get(1, TimeUnit.SECONDS).approved());
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,54 @@
+package com.gocomet.ridehailing.payment;
+
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.pricing.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatedPaymentGatewayTest {
+
+    private static final GatewayCharge CHARGE = new GatewayCharge(1L, "pay-1", Money.ofRupees(100.0), PaymentMethod.UPI);
+
+    private SimulatedPaymentGateway gateway;
+
+    @AfterEach
+    void tearDown() {
+        gateway.destroy();
+    }
+
+    @Test
+    void testLatencyDistribution_MatchesConfiguredQuantiles() {
+        gateway = new SimulatedPaymentGateway(300, 1500, 1.0, 0.0);
+
+        assertEquals(300, gateway.sampleLatencyMs(0.0));
+        assertEquals(1500, gateway.sampleLatencyMs(2.3263), 1);
+        assertTrue(gateway.sampleLatencyMs(-3.0) < 300);
+    }
+
+    @Test
+    void testCharge_CompletesWithoutBlockingCaller() throws Exception {
+        gateway = new SimulatedPaymentGateway(20, 40, 1.0, 0.0);
+
+        CompletableFuture<GatewayResult> response = gateway.charge(CHARGE);
+
+        assertFalse(response.isDone());
+        GatewayResult result = response.get(2, TimeUnit.SECONDS);
+        assertTrue(result.approved());
+        assertNotNull(result.transactionId());
+    }
+
+    @Test
+    void testCharge_LostRequestNeverCompletes() {
+        gateway = new SimulatedPaymentGateway(1, 1, 1.0, 1.0);
+
+        CompletableFuture<GatewayResult> response = gateway.charge(CHARGE);
+
+        assertThrows(TimeoutException.class, () -> response.get(100, TimeUnit.MILLISECONDS));
+    }
+}
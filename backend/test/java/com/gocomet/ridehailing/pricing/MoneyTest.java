@@ -0,0 +1,122 @@
+package com.gocomet.ridehailing.pricing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gocomet.ridehailing.service.FareCalculationService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    private static final int SAMPLES = 20_000;
+
+    @Test
+    void testToPaise_RoundsHalfUpOnTheDecimalValue() {
+        assertEquals(29, Money.toPaise(0.285));   // binary double is 0.28499999...
+        assertEquals(13, Money.toPaise(0.125));
+        assertEquals(101, Money.toPaise(1.005));
+        assertEquals(48_900, Money.toPaise(489.0));
+        assertEquals(0, Money.toPaise(0.004));
+    }
+
+    @Test
+    void testMulDivHalfUp() {
+        assertEquals(1, Money.mulDivHalfUp(1, 1, 2));
+        assertEquals(0, Money.mulDivHalfUp(4, 1, 10));
+        assertEquals(1, Money.mulDivHalfUp(5, 1, 10));
+        assertEquals(15_000, Money.applyBasisPoints(10_000, 15_000));
+        assertThrows(ArithmeticException.class, () -> Money.mulDivHalfUp(Long.MAX_VALUE / 2, 3, 1));
+    }
+
+    @Test
+    void testJsonRoundTrip_UsesRupeesWithTwoDecimals() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertEquals("{\"fare\":489.00}", mapper.writeValueAsString(Map.of("fare", Money.ofPaise(48_900))));
+        assertEquals(Money.ofPaise(1_235), mapper.readValue("12.345", Money.class));
+        assertEquals(Money.ofPaise(150_00), mapper.readValue("150", Money.class));
+    }
+
+    @Test
+    void testFinalFare_MatchesExactDecimalReference() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            double[] rates = randomRates(random);
+            Tariff tariff = Tariff.ofRupees(rates[0], rates[1], rates[2], rates[3]);
+            double distanceKm = random.nextInt(100_000) / 1000.0;  // whole metres, like the trip API
+            long minutes = random.nextInt(180);
+            double surge = (10 + random.nextInt(21)) / 10.0;
+
+            long actual = tariff.fare(Tariff.toDecimetres(distanceKm),
+                minutes * Tariff.MILLIS_PER_MINUTE, FareCalculationService.toBasisPoints(surge));
+
+            BigDecimal expected = BigDecimal.valueOf(rates[0])
+                .add(BigDecimal.valueOf(rates[1]).multiply(BigDecimal.valueOf(distanceKm)))
+                .add(BigDecimal.valueOf(rates[2]).multiply(BigDecimal.valueOf(minutes)))
+                .multiply(BigDecimal.valueOf(surge))
+                .max(BigDecimal.valueOf(rates[3]))
+                .setScale(2, RoundingMode.HALF_UP);
+
+            assertEquals(expected.movePointRight(2).longValueExact(), actual,
+                () -> "distance=" + distanceKm + " minutes=" + minutes + " surge=" + surge);
+            // The old double path can only disagree on a binary-representation tie
+            assertTrue(Math.abs(actual - legacyFinalFarePaise(rates, distanceKm, minutes, surge)) <= 1);
+        }
+    }
+
+    @Test
+    void testEstimatedFare_WithinOnePaisaOfLegacyDoubleMath() {
+        Random random = new Random(7);
+        for (int i = 0; i < SAMPLES; i++) {
+            double[] rates = randomRates(random);
+            Tariff tariff = Tariff.ofRupees(rates[0], rates[1], rates[2], rates[3]);
+            double distanceKm = random.nextDouble() * 80.0;  // haversine output, not quantised
+            double surge = (10 + random.nextInt(21)) / 10.0;
+
+            long decimetres = Tariff.toDecimetres(distanceKm);
+            long actual = tariff.fare(decimetres, FareCalculationService.estimateDurationMillis(decimetres),
+                FareCalculationService.toBasisPoints(surge));
+
+            double minutes = FareCalculationService.estimateMinutes(distanceKm);
+            double legacy = Math.max((rates[0] + distanceKm * rates[1] + minutes * rates[2]) * surge, rates[3]);
+            long legacyPaise = Math.round(legacy * 100.0);
+
+            assertTrue(Math.abs(actual - legacyPaise) <= 1,
+                () -> "distance=" + distanceKm + " surge=" + surge + " actual=" + actual + " legacy=" + legacyPaise);
+        }
+    }
+
+    @Test
+    void testSettlementTotal_HasNoDrift() {
+        Random random = new Random(3);
+        Money total = Money.ZERO;
+        BigDecimal reference = BigDecimal.ZERO;
+        for (int i = 0; i < SAMPLES; i++) {
+            Money amount = Money.ofPaise(7_000 + random.nextInt(200_000));
+            total = total.plus(amount);
+            reference = reference.add(amount.toRupees());
+        }
+
+        assertEquals(reference, total.toRupees());
+        assertEquals(Money.ofPaise(total.getPaise()), Money.ofRupees(reference));
+    }
+
+    private static double[] randomRates(Random random) {
+        return new double[] {
+            (2_000 + random.nextInt(20_000)) / 100.0,   // base
+            (500 + random.nextInt(2_500)) / 100.0,      // per km
+            random.nextInt(500) / 100.0,                // per minute
+            (5_000 + random.nextInt(20_000)) / 100.0    // minimum
+        };
+    }
+
+    private static long legacyFinalFarePaise(double[] rates, double distanceKm, long minutes, double surge) {
+        double fare = Math.max((rates[0] + distanceKm * rates[1] + minutes * rates[2]) * surge, rates[3]);
+        return Money.toPaise(Math.round(fare * 100.0) / 100.0);
+    }
+}
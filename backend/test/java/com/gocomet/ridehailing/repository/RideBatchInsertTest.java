@@ -0,0 +1,76 @@
+package com.gocomet.ridehailing.repository;
+
+import com.gocomet.ridehailing.model.entity.Ride;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ride ids come from a pooled sequence, so a bulk save is a handful of sequence calls and
+ * batched INSERTs rather than one round trip per row.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class RideBatchInsertTest {
+
+    private static final int RIDES = 120;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testSaveAll_BatchesInserts() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        List<Ride> rides = new ArrayList<>();
+        for (int i = 0; i < RIDES; i++) {
+            rides.add(ride());
+        }
+        statistics.clear();
+
+        rideRepository.saveAll(rides);
+        entityManager.flush();
+
+        assertEquals(RIDES, statistics.getEntityInsertCount());
+        // 3 sequence calls for 120 ids and 3 INSERT batches of up to 50
+        assertTrue(statistics.getPrepareStatementCount() <= 6,
+            "prepared " + statistics.getPrepareStatementCount() + " statements");
+        long first = rides.get(0).getId();
+        for (int i = 0; i < RIDES; i++) {
+            assertEquals(first + i, rides.get(i).getId());
+        }
+    }
+
+    private static Ride ride() {
+        return Ride.builder()
+            .idempotencyKey(UUID.randomUUID().toString())
+            .riderId(1L)
+            .status(RideStatus.REQUESTED)
+            .vehicleTier(VehicleTier.ECONOMY)
+            .paymentMethod(PaymentMethod.UPI)
+            .pickupLatitude(28.6139)
+            .pickupLongitude(77.2090)
+            .pickupAddress("Connaught Place")
+            .destinationLatitude(28.5355)
+            .destinationLongitude(77.3910)
+            .destinationAddress("Noida Sector 18")
+            .region("DELHI")
+            .surgeMultiplier(1.0)
+            .build();
+    }
+}
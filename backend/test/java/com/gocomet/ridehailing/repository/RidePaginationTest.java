@@ -0,0 +1,114 @@
+package com.gocomet.ridehailing.repository;
+
+import com.gocomet.ridehailing.model.dto.RideCursor;
+import com.gocomet.ridehailing.model.entity.Ride;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Walks the keyset pages end to end: every ride exactly once, newest first, including rides
+ * that share a creation time.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class RidePaginationTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        // 30 rides over 10 distinct timestamps, three per timestamp; rider 1 and 2 alternate
+        for (int i = 0; i < 30; i++) {
+            Ride ride = rideRepository.save(ride(1L + i % 2, i % 3 == 0 ? RideStatus.COMPLETED : RideStatus.CANCELLED));
+            entityManager.flush();
+            entityManager.createQuery("UPDATE Ride r SET r.createdAt = :createdAt WHERE r.id = :id")
+                .setParameter("createdAt", BASE.plusMinutes(i / 3))
+                .setParameter("id", ride.getId())
+                .executeUpdate();
+        }
+        entityManager.clear();
+    }
+
+    @Test
+    void testPagesCoverEveryRideOnceNewestFirst() {
+        List<Ride> seen = new ArrayList<>();
+        RideCursor cursor = RideCursor.START;
+        List<Ride> page;
+        do {
+            page = rideRepository.findPage(cursor.createdAt(), cursor.id(), PageRequest.of(0, 4));
+            seen.addAll(page);
+            if (!page.isEmpty()) {
+                Ride last = page.get(page.size() - 1);
+                // Round-trips through the client token
+                cursor = RideCursor.decode(new RideCursor(last.getCreatedAt(), last.getId()).encode());
+            }
+        } while (page.size() == 4);
+
+        assertEquals(30, seen.size());
+        Set<Long> ids = new HashSet<>();
+        seen.forEach(ride -> ids.add(ride.getId()));
+        assertEquals(30, ids.size());
+        for (int i = 1; i < seen.size(); i++) {
+            Ride previous = seen.get(i - 1);
+            Ride current = seen.get(i);
+            int byTime = previous.getCreatedAt().compareTo(current.getCreatedAt());
+            assertTrue(byTime > 0 || (byTime == 0 && previous.getId() > current.getId()));
+        }
+    }
+
+    @Test
+    void testFiltersApplyBeforeTheLimit() {
+        List<Ride> riderPage = rideRepository.findPageByRiderId(2L, RideCursor.START.createdAt(),
+            RideCursor.START.id(), PageRequest.of(0, 100));
+        assertEquals(15, riderPage.size());
+        assertTrue(riderPage.stream().allMatch(ride -> ride.getRiderId() == 2L));
+
+        List<Ride> completed = rideRepository.findPageByStatus(RideStatus.COMPLETED, BASE.plusMinutes(5),
+            Long.MAX_VALUE, PageRequest.of(0, 100));
+        // Completed rides are i = 0, 3, ..., 27, one per minute; a cursor id of MAX_VALUE
+        // includes minute 5 itself
+        assertEquals(6, completed.size());
+        assertTrue(completed.stream().allMatch(ride -> ride.getStatus() == RideStatus.COMPLETED));
+    }
+
+    private static Ride ride(Long riderId, RideStatus status) {
+        return Ride.builder()
+            .idempotencyKey(UUID.randomUUID().toString())
+            .riderId(riderId)
+            .status(status)
+            .vehicleTier(VehicleTier.ECONOMY)
+            .paymentMethod(PaymentMethod.UPI)
+            .pickupLatitude(28.6139)
+            .pickupLongitude(77.2090)
+            .pickupAddress("Connaught Place")
+            .destinationLatitude(28.5355)
+            .destinationLongitude(77.3910)
+            .destinationAddress("Noida Sector 18")
+            .region("DELHI")
+            .surgeMultiplier(1.0)
+            .build();
+    }
+}
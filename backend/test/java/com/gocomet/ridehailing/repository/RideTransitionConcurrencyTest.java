@@ -0,0 +1,146 @@
+package com.gocomet.ridehailing.repository;
+
+import com.gocomet.ridehailing.model.entity.Ride;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Races the conditional transitions against a real database: every thread issues its
+ * UPDATE in its own transaction and exactly one may see a row count of 1.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RideTransitionConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @AfterEach
+    void tearDown() {
+        rideRepository.deleteAll();
+    }
+
+    @Test
+    void testConcurrentAccept_ExactlyOneWins() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            Ride ride = rideRepository.save(ride(RideStatus.MATCHED, 7L));
+
+            int winners = race(THREADS, i -> () -> rideRepository.transitionAccepting(
+                ride.getId(), 7L, RideStatus.MATCHED, RideStatus.ACCEPTED, LocalDateTime.now()));
+
+            assertEquals(1, winners, "round " + round);
+            Ride stored = rideRepository.findById(ride.getId()).orElseThrow();
+            assertEquals(RideStatus.ACCEPTED, stored.getStatus());
+            assertEquals(ride.getVersion() + 1, stored.getVersion());
+        }
+    }
+
+    @Test
+    void testAcceptRacingCancel_OnlyOneTransitionApplies() throws Exception {
+        List<RideStatus> terminal = List.of(RideStatus.COMPLETED, RideStatus.CANCELLED, RideStatus.ACCEPTED);
+        for (int round = 0; round < ROUNDS; round++) {
+            Ride ride = rideRepository.save(ride(RideStatus.MATCHED, 7L));
+
+            // Even threads accept, odd threads cancel; cancel here also refuses an accepted ride
+            int winners = race(THREADS, i -> () -> i % 2 == 0
+                ? rideRepository.transitionAccepting(
+                    ride.getId(), 7L, RideStatus.MATCHED, RideStatus.ACCEPTED, LocalDateTime.now())
+                : rideRepository.transitionCancelling(
+                    ride.getId(), terminal, RideStatus.CANCELLED, LocalDateTime.now()));
+
+            assertEquals(1, winners, "round " + round);
+            Ride stored = rideRepository.findById(ride.getId()).orElseThrow();
+            if (stored.getStatus() == RideStatus.ACCEPTED) {
+                assertNotNull(stored.getAcceptedAt());
+                assertNull(stored.getCancelledAt());
+            } else {
+                assertEquals(RideStatus.CANCELLED, stored.getStatus());
+                assertNull(stored.getAcceptedAt());
+                assertNotNull(stored.getCancelledAt());
+            }
+        }
+    }
+
+    @Test
+    void testAccept_WrongDriverUpdatesNothing() {
+        Ride ride = rideRepository.save(ride(RideStatus.MATCHED, 7L));
+
+        assertEquals(0, rideRepository.transitionAccepting(
+            ride.getId(), 8L, RideStatus.MATCHED, RideStatus.ACCEPTED, LocalDateTime.now()));
+        assertEquals(RideStatus.MATCHED, rideRepository.findById(ride.getId()).orElseThrow().getStatus());
+    }
+
+    private interface Attempt {
+        Callable<Integer> forThread(int index);
+    }
+
+    private static int race(int threads, Attempt attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<Integer> call = attempt.forThread(i);
+                results.add(pool.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return call.call();
+                }));
+            }
+            ready.await();
+            go.countDown();
+            int winners = 0;
+            for (Future<Integer> result : results) {
+                winners += result.get(30, TimeUnit.SECONDS);
+            }
+            return winners;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Ride ride(RideStatus status, Long driverId) {
+        return Ride.builder()
+            .idempotencyKey(UUID.randomUUID().toString())
+            .riderId(1L)
+            .driverId(driverId)
+            .status(status)
+            .vehicleTier(VehicleTier.ECONOMY)
+            .paymentMethod(PaymentMethod.UPI)
+            .pickupLatitude(28.6139)
+            .pickupLongitude(77.2090)
+            .pickupAddress("Connaught Place")
+            .destinationLatitude(28.5355)
+            .destinationLongitude(77.3910)
+            .destinationAddress("Noida Sector 18")
+            .region("DELHI")
+            .surgeMultiplier(1.0)
+            .build();
+    }
+}
@@ -0,0 +1,167 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.entity.DriverDailyBalance;
+import com.gocomet.ridehailing.model.entity.Payment;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.PaymentStatus;
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.repository.DriverDailyBalanceRepository;
+import com.gocomet.ridehailing.repository.LedgerEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Posts payments, rolls them up and pays them out against a real database, with a chunk
+ * size small enough that every step spans several chunks.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DriverSettlementJobTest {
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private DriverDailyBalanceRepository driverDailyBalanceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private LedgerService ledgerService;
+    private DriverSettlementJob job;
+    private long nextPaymentId = 1;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        ledgerService = new LedgerService(ledgerEntryRepository, driverDailyBalanceRepository, 0.20);
+        job = new DriverSettlementJob(jdbcTemplate, transactionTemplate, new SimpleMeterRegistry(), 2, 2, Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM ledger_entries");
+        jdbcTemplate.update("DELETE FROM driver_daily_balances");
+        jdbcTemplate.update("DELETE FROM ledger_checkpoints");
+    }
+
+    private void pay(long driverId, double rupees) {
+        Payment payment = Payment.builder()
+            .id(nextPaymentId++)
+            .driverId(driverId)
+            .amount(Money.ofRupees(rupees))
+            .paymentMethod(PaymentMethod.UPI)
+            .status(PaymentStatus.SUCCESS)
+            .build();
+        transactionTemplate.executeWithoutResult(status -> ledgerService.postPayment(payment));
+    }
+
+    private DriverDailyBalance balance(long driverId) {
+        List<DriverDailyBalance> balances = driverDailyBalanceRepository
+            .findByDriverIdAndBalanceDateBetweenOrderByBalanceDate(driverId, LocalDate.now(), LocalDate.now());
+        assertEquals(1, balances.size());
+        return balances.get(0);
+    }
+
+    private long sum(String direction) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(amount_paise), 0) FROM ledger_entries WHERE direction = ?", Long.class, direction);
+    }
+
+    @Test
+    void testRollUp_AggregatesPerDriverAcrossChunks() {
+        pay(7L, 100.0);
+        pay(7L, 250.0);
+        pay(8L, 99.99);
+        pay(7L, 50.0);
+
+        job.rollUp();
+
+        DriverDailyBalance first = balance(7L);
+        assertEquals(Money.ofRupees(320.0), first.getEarnings());
+        assertEquals(Money.ofRupees(80.0), first.getCommission());
+        assertEquals(3, first.getPaymentCount());
+        assertEquals(Money.ZERO, first.getPaidOut());
+        assertEquals(Money.ofRupees(79.99), balance(8L).getEarnings());
+        assertEquals(Money.ofRupees(20.0), balance(8L).getCommission());
+    }
+
+    @Test
+    void testRollUp_OnlyAddsEntriesPastTheCheckpoint() {
+        pay(7L, 100.0);
+        job.rollUp();
+        job.rollUp();
+
+        pay(7L, 100.0);
+        job.rollUp();
+
+        assertEquals(Money.ofRupees(160.0), balance(7L).getEarnings());
+        assertEquals(2, balance(7L).getPaymentCount());
+    }
+
+    @Test
+    void testRollUp_HoldsBackEntriesYoungerThanTheLag() {
+        job = new DriverSettlementJob(jdbcTemplate, transactionTemplate, new SimpleMeterRegistry(), 2, 2,
+            Duration.ofMinutes(5));
+        pay(7L, 100.0);
+
+        job.rollUp();
+
+        assertTrue(driverDailyBalanceRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void testSettleBefore_PaysOutOnceAndKeepsLedgerBalanced() {
+        pay(7L, 100.0);
+        pay(8L, 200.0);
+        pay(9L, 300.0);
+        job.rollUp();
+
+        assertEquals(0, job.settleBefore(LocalDate.now()));
+        assertEquals(3, job.settleBefore(LocalDate.now().plusDays(1)));
+        assertEquals(0, job.settleBefore(LocalDate.now().plusDays(1)));
+
+        assertEquals(Money.ofRupees(160.0), balance(8L).getPaidOut());
+        assertEquals(sum("DEBIT"), sum("CREDIT"));
+        // Payable is drawn down to zero for every driver
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT SUM(CASE direction WHEN 'CREDIT' THEN amount_paise " +
+            "ELSE -amount_paise END) FROM ledger_entries WHERE account = 'DRIVER_PAYABLE'", Long.class));
+
+        // A late payment for a settled day is paid on the next run
+        pay(8L, 50.0);
+        job.rollUp();
+        assertEquals(1, job.settleBefore(LocalDate.now().plusDays(1)));
+        assertEquals(Money.ofRupees(200.0), balance(8L).getPaidOut());
+    }
+
+    @Test
+    void testPostPayment_IgnoresSecondPosting() {
+        Payment payment = Payment.builder().id(42L).driverId(7L).amount(Money.ofRupees(100.0)).build();
+
+        transactionTemplate.executeWithoutResult(status -> ledgerService.postPayment(payment));
+        transactionTemplate.executeWithoutResult(status -> ledgerService.postPayment(payment));
+
+        assertEquals(3, ledgerEntryRepository.findByReference("payment:42").size());
+    }
+}
@@ -1,5 +1,8 @@
 package com.gocomet.ridehailing.service;
 
+import com.gocomet.ridehailing.config.TariffProperties;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Money;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -8,23 +11,27 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class FareCalculationServiceTest {
 
+    private TariffService tariffService;
     private FareCalculationService fareCalculationService;
 
     @BeforeEach
     void setUp() {
-        fareCalculationService = new FareCalculationService();
+        tariffService = new TariffService(new TariffProperties());
         
         // Set test values
-        ReflectionTestUtils.setField(fareCalculationService, "baseFare", 50.0);
-        ReflectionTestUtils.setField(fareCalculationService, "perKmRate", 12.0);
-        ReflectionTestUtils.setField(fareCalculationService, "perMinuteRate", 2.0);
-        ReflectionTestUtils.setField(fareCalculationService, "minimumFare", 70.0);
+        ReflectionTestUtils.setField(tariffService, "baseFare", 50.0);
+        ReflectionTestUtils.setField(tariffService, "perKmRate", 12.0);
+        ReflectionTestUtils.setField(tariffService, "perMinuteRate", 2.0);
+        ReflectionTestUtils.setField(tariffService, "minimumFare", 70.0);
+        tariffService.init();
+        
+        fareCalculationService = new FareCalculationService(tariffService);
     }
 
     @Test
     void testCalculateEstimatedFare_NoSurge() {
         // Act
-        Double fare = fareCalculationService.calculateEstimatedFare(
+        Money fare = fareCalculationService.calculateEstimatedFare(
             28.6139, 77.2090,  // Pickup
             28.5355, 77.3910,  // Destination
             1.0                // No surge
@@ -32,13 +39,13 @@ class FareCalculationServiceTest {
 
         // Assert
         assertNotNull(fare);
-        assertTrue(fare >= 70.0); // Should be at least minimum fare
+        assertTrue(fare.compareTo(Money.ofRupees(70.0)) >= 0); // Should be at least minimum fare
     }
 
     @Test
     void testCalculateEstimatedFare_WithSurge() {
         // Act
-        Double fare = fareCalculationService.calculateEstimatedFare(
+        Money fare = fareCalculationService.calculateEstimatedFare(
             28.6139, 77.2090,
             28.5355, 77.3910,
             2.0  // 2x surge
@@ -46,19 +53,19 @@ class FareCalculationServiceTest {
 
         // Assert
         assertNotNull(fare);
-        Double normalFare = fareCalculationService.calculateEstimatedFare(
+        Money normalFare = fareCalculationService.calculateEstimatedFare(
             28.6139, 77.2090,
             28.5355, 77.3910,
             1.0
         );
         
-        assertTrue(fare > normalFare);
+        assertTrue(fare.compareTo(normalFare) > 0);
     }
 
     @Test
     void testCalculateFinalFare() {
         // Act
-        Double fare = fareCalculationService.calculateFinalFare(
+        Money fare = fareCalculationService.calculateFinalFare(
             15.5,  // distance in km
             45L,   // duration in minutes
             1.5    // surge multiplier
@@ -68,14 +75,13 @@ class FareCalculationServiceTest {
         assertNotNull(fare);
         
         // Expected: (50 + (15.5 * 12) + (45 * 2)) * 1.5 = (50 + 186 + 90) * 1.5 = 489
-        double expectedFare = (50 + (15.5 * 12) + (45 * 2)) * 1.5;
-        assertEquals(Math.round(expectedFare * 100.0) / 100.0, fare);
+        assertEquals(Money.ofPaise(48_900), fare);
     }
 
     @Test
     void testMinimumFare() {
         // Act - very short trip
-        Double fare = fareCalculationService.calculateFinalFare(
+        Money fare = fareCalculationService.calculateFinalFare(
             0.5,   // 500 meters
             2L,    // 2 minutes
             1.0
@@ -83,6 +89,18 @@ class FareCalculationServiceTest {
 
         // Assert
         assertNotNull(fare);
-        assertEquals(70.0, fare); // Should be minimum fare
+        assertEquals(Money.ofRupees(70.0), fare); // Should be minimum fare
+    }
+
+    @Test
+    void testDefaultFareFollowsTheTariffTable() {
+        TariffProperties.Rates economy = new TariffProperties.Rates();
+        economy.setPerKmRate(20.0);
+        TariffProperties properties = new TariffProperties();
+        properties.getDefaults().put(VehicleTier.ECONOMY, economy);
+        ReflectionTestUtils.setField(tariffService, "table", tariffService.compile(properties));
+
+        // 50 + 15.5 * 20 + 45 * 2
+        assertEquals(Money.ofRupees(450.0), fareCalculationService.calculateFinalFare(15.5, 45L, 1.0));
     }
 }
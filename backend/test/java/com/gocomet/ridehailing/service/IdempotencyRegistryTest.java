@@ -0,0 +1,92 @@
+package com.gocomet.ridehailing.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyRegistryTest {
+
+    private static final String KEY = "idempotency:ride:abc";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new IdempotencyRegistry(redisTemplate, meterRegistry, Duration.ofHours(24), Duration.ofSeconds(30));
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    private double claims(String result) {
+        return meterRegistry.get("idempotency.claims").tag("scope", "ride").tag("result", result).counter().count();
+    }
+
+    @Test
+    void testClaim_FirstRequestReservesKey() {
+        when(valueOperations.setIfAbsent(KEY, "pending", Duration.ofSeconds(30))).thenReturn(true);
+
+        IdempotencyRegistry.Claim claim = registry.claim(IdempotencyRegistry.RIDES, "abc");
+
+        assertTrue(claim.isNew());
+        verify(valueOperations, never()).get(anyString());
+        assertEquals(1.0, claims("new"));
+    }
+
+    @Test
+    void testClaim_DuplicateResolvesToRecordedId() {
+        when(valueOperations.setIfAbsent(KEY, "pending", Duration.ofSeconds(30))).thenReturn(false);
+        when(valueOperations.get(KEY)).thenReturn("42");
+
+        IdempotencyRegistry.Claim claim = registry.claim(IdempotencyRegistry.RIDES, "abc");
+
+        assertEquals(IdempotencyRegistry.Outcome.DUPLICATE, claim.outcome());
+        assertEquals(42L, claim.existingId());
+        assertEquals(1.0, claims("duplicate"));
+    }
+
+    @Test
+    void testClaim_PendingReservationIsUnknown() {
+        when(valueOperations.setIfAbsent(KEY, "pending", Duration.ofSeconds(30))).thenReturn(false);
+        when(valueOperations.get(KEY)).thenReturn("pending");
+
+        assertEquals(IdempotencyRegistry.Outcome.UNKNOWN, registry.claim(IdempotencyRegistry.RIDES, "abc").outcome());
+        assertEquals(1.0, claims("pending"));
+    }
+
+    @Test
+    void testClaim_RedisDownFailsOpen() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+            .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertEquals(IdempotencyRegistry.Outcome.UNKNOWN, registry.claim(IdempotencyRegistry.RIDES, "abc").outcome());
+        assertEquals(1.0, claims("unavailable"));
+    }
+
+    @Test
+    void testComplete_ReplacesReservationWithId() {
+        registry.complete(IdempotencyRegistry.RIDES, "abc", 42L);
+
+        verify(valueOperations).set(KEY, "42", Duration.ofHours(24));
+    }
+}
@@ -10,6 +10,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,7 +33,7 @@ class LocationCacheServiceTest {
 
     @BeforeEach
     void setUp() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
     }
 
     @Test
@@ -78,6 +81,26 @@ class LocationCacheServiceTest {
         assertFalse(result.isPresent());
     }
 
+    @Test
+    void testGetDriverLocations_OneRoundTrip() {
+        // Arrange
+        Location location = Location.builder()
+            .latitude(28.6139)
+            .longitude(77.2090)
+            .build();
+        when(valueOperations.multiGet(List.of("driver:location:1", "driver:location:2", "driver:location:3")))
+            .thenReturn(Arrays.asList(location, null, Map.of("latitude", 28.5, "longitude", 77.1)));
+
+        // Act
+        Map<Long, Location> result = locationCacheService.getDriverLocations(List.of(1L, 2L, 3L));
+
+        // Assert
+        assertEquals(2, result.size());
+        assertSame(location, result.get(1L));
+        assertEquals(28.5, result.get(3L).getLatitude());
+        verify(valueOperations, never()).get(any());
+    }
+
     @Test
     void testRemoveDriverLocation() {
         // Act
@@ -0,0 +1,181 @@
+package com.gocomet.ridehailing.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionMaintenanceJobTest {
+
+    private static final YearMonth CURRENT = YearMonth.of(2026, 10);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path archiveDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PartitionMaintenanceJob job;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        job = new PartitionMaintenanceJob(jdbcTemplate, transactionTemplate, meterRegistry, 2, 6, archiveDir.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactionsInline() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+    }
+
+    private void partitioned(String table, String... partitions) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(table))).thenReturn(1);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq(table))).thenReturn(List.of(partitions));
+    }
+
+    @Test
+    void testSkipsTablesThatDoNotExistYet() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq("rides"))).thenReturn(0);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq("rides"), any(), any())).thenReturn(false);
+
+        job.maintain("rides", CURRENT);
+
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class), any());
+    }
+
+    @Test
+    void testConvertsPlainTableThenMaintainsIt() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq("trips"))).thenReturn(0);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq("trips"), eq("trips.ride_id"), eq("ride_id")))
+            .thenReturn(true);
+        // The conversion made the first months; the job only fills in what is missing
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("trips")))
+            .thenReturn(List.of("trips_default", "trips_p2026_10", "trips_p2026_11"));
+        runTransactionsInline();
+
+        job.maintain("trips", CURRENT);
+
+        verify(jdbcTemplate).execute(
+            "ALTER TABLE trips ATTACH PARTITION trips_p2026_12 FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        verify(jdbcTemplate, times(2)).execute(anyString());
+    }
+
+    @Test
+    void testCreatesMissingPartitionsAhead() {
+        partitioned("rides", "rides_default", "rides_p2026_09", "rides_p2026_10");
+        runTransactionsInline();
+
+        job.maintain("rides", CURRENT);
+
+        verify(jdbcTemplate).execute(
+            "ALTER TABLE rides ATTACH PARTITION rides_p2026_11 FOR VALUES FROM ('2026-11-01') TO ('2026-12-01')");
+        verify(jdbcTemplate).execute(
+            "ALTER TABLE rides ATTACH PARTITION rides_p2026_12 FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        // Nothing in DEFAULT for those months, so nothing to delete from it
+        verify(jdbcTemplate, never()).update(startsWith("DELETE FROM rides_default"));
+        assertEquals(2.0, meterRegistry.get("db.partitions.created").counter().count());
+    }
+
+    @Test
+    void testRowsThatFellIntoDefaultMoveToTheNewPartition() {
+        // Down over the month boundary: October's rides went to DEFAULT
+        partitioned("rides", "rides_default", "rides_p2026_11", "rides_p2026_12");
+        runTransactionsInline();
+        String october = "created_at >= '2026-10-01' AND created_at < '2026-11-01'";
+        when(jdbcTemplate.update("INSERT INTO rides_p2026_10 SELECT * FROM rides_default WHERE " + october)).thenReturn(42);
+
+        job.maintain("rides", CURRENT);
+
+        InOrder inOrder = inOrder(transactionTemplate, jdbcTemplate);
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(jdbcTemplate).execute(
+            "CREATE TABLE rides_p2026_10 (LIKE rides INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        inOrder.verify(jdbcTemplate).update("INSERT INTO rides_p2026_10 SELECT * FROM rides_default WHERE " + october);
+        inOrder.verify(jdbcTemplate).update("DELETE FROM rides_default WHERE " + october);
+        inOrder.verify(jdbcTemplate).execute(
+            "ALTER TABLE rides ATTACH PARTITION rides_p2026_10 FOR VALUES FROM ('2026-10-01') TO ('2026-11-01')");
+        assertEquals(1.0, meterRegistry.get("db.partitions.created").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testArchivesExpiredPartitionsBeforeDroppingThem() throws Exception {
+        partitioned("trips", "trips_p2026_03", "trips_p2026_04", "trips_p2026_10", "trips_p2026_11", "trips_p2026_12");
+        CopyManager copyManager = mock(CopyManager.class);
+        when(copyManager.copyOut(anyString(), any(OutputStream.class))).thenAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("id,ride_id\n1,10\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        Connection connection = mock(Connection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0, ConnectionCallback.class).doInConnection(connection));
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        job.maintain("trips", CURRENT);
+
+        // Retention is six months: March goes, April (the oldest kept month) stays
+        verify(copyManager).copyOut(eq("COPY trips_p2026_03 TO STDOUT WITH (FORMAT csv, HEADER)"), any(OutputStream.class));
+        verify(jdbcTemplate).execute("DROP TABLE trips_p2026_03");
+        verify(jdbcTemplate).update("DELETE FROM partitioned_unique_keys WHERE scope = ? AND created_at < ?",
+            "trips.ride_id", LocalDateTime.of(2026, 4, 1, 0, 0));
+        verify(jdbcTemplate, never()).execute("DROP TABLE trips_p2026_04");
+
+        Path archive = archiveDir.resolve("trips").resolve("trips_p2026_03.csv.gz");
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            assertEquals("id,ride_id\n1,10\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(Files.exists(archive.resolveSibling("trips_p2026_03.csv.gz.partial")));
+        assertEquals(1.0, meterRegistry.get("db.partitions.archived.rows").counter().count());
+    }
+
+    @Test
+    void testOnlyMonthlyPartitionsAreRecognised() {
+        assertEquals(Optional.of(YearMonth.of(2026, 3)), PartitionMaintenanceJob.monthOf("rides", "rides_p2026_03"));
+        assertEquals(Optional.empty(), PartitionMaintenanceJob.monthOf("rides", "rides_default"));
+        assertEquals(Optional.empty(), PartitionMaintenanceJob.monthOf("rides", "rides_pending"));
+        assertEquals("payments_p2027_01", PartitionMaintenanceJob.partitionName("payments", YearMonth.of(2027, 1)));
+    }
+}
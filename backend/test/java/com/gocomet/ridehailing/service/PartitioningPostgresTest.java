@@ -0,0 +1,209 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.entity.Ride;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the migrations, Hibernate's schema update and the partition job against a real Postgres,
+ * in the order each kind of install sees them. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PartitioningPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @TempDir
+    Path archiveDir;
+
+    @Test
+    void testFreshInstallIsPartitionedAtFirstStartup() {
+        DataSource dataSource = database("fresh_install");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        // Flyway runs before Hibernate, so the migrations find no tables to convert
+        migrate(dataSource);
+        EntityManagerFactory entityManagerFactory = hibernate(dataSource);
+        try {
+            assertFalse(partitioned(jdbc, "rides"));
+
+            maintenanceJob(jdbc).maintain();
+
+            assertPartitioned(jdbc);
+            persist(entityManagerFactory, ride("fresh-1"));
+            assertDuplicateRejected(entityManagerFactory, "fresh-1");
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+
+    @Test
+    void testUpgradeConvertsExistingTablesAndKeepsTheirKeysUnique() {
+        DataSource dataSource = database("upgrade");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        // An install from before the migrations: Hibernate created the tables and they hold rows
+        EntityManagerFactory before = hibernate(dataSource);
+        persist(before, ride("legacy-1"));
+        before.close();
+        assertFalse(partitioned(jdbc, "rides"));
+
+        migrate(dataSource);
+        EntityManagerFactory entityManagerFactory = hibernate(dataSource);
+        try {
+            assertPartitioned(jdbc);
+            maintenanceJob(jdbc).maintain();
+
+            assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM rides", Integer.class));
+            assertDuplicateRejected(entityManagerFactory, "legacy-1");
+            persist(entityManagerFactory, ride("upgrade-2"));
+            assertDuplicateRejected(entityManagerFactory, "upgrade-2");
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+
+    @Test
+    void testRowsInDefaultMoveToTheMonthsPartitionWhenItIsCreated() {
+        DataSource dataSource = database("default_rows");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        migrate(dataSource);
+        EntityManagerFactory entityManagerFactory = hibernate(dataSource);
+        try {
+            maintenanceJob(jdbc).maintain();
+            // As if the job had been down when the month began: this month's rows land in DEFAULT
+            String partition = PartitionMaintenanceJob.partitionName("rides", YearMonth.now());
+            jdbc.execute("DROP TABLE " + partition);
+            persist(entityManagerFactory, ride("default-1"));
+            assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM rides_default", Integer.class));
+
+            maintenanceJob(jdbc).maintain();
+
+            assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM rides_default", Integer.class));
+            assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM " + partition, Integer.class));
+            assertDuplicateRejected(entityManagerFactory, "default-1");
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+
+    private static DataSource database(String name) {
+        new JdbcTemplate(dataSource(POSTGRES.getDatabaseName())).execute("CREATE DATABASE " + name);
+        return dataSource(name);
+    }
+
+    private static DataSource dataSource(String database) {
+        String url = "jdbc:postgresql://" + POSTGRES.getHost() + ":" + POSTGRES.getFirstMappedPort() + "/" + database;
+        return new DriverManagerDataSource(url, POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+
+    // As configured in application.yml
+    private static void migrate(DataSource dataSource) {
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+    }
+
+    // The schema update Spring Boot runs at startup (ddl-auto: update)
+    private static EntityManagerFactory hibernate(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("com.gocomet.ridehailing.model.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+            AvailableSettings.HBM2DDL_AUTO, "update",
+            AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName(),
+            AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName(),
+            AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo"));
+        factory.afterPropertiesSet();
+        return factory.getObject();
+    }
+
+    private PartitionMaintenanceJob maintenanceJob(JdbcTemplate jdbc) {
+        TransactionTemplate transactionTemplate =
+            new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
+        return new PartitionMaintenanceJob(jdbc, transactionTemplate, new SimpleMeterRegistry(), 3, 6,
+            archiveDir.toString());
+    }
+
+    private static boolean partitioned(JdbcTemplate jdbc, String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM pg_partitioned_table WHERE partrelid = to_regclass(?)",
+            Integer.class, table) == 1;
+    }
+
+    private static void assertPartitioned(JdbcTemplate jdbc) {
+        for (String table : PartitionMaintenanceJob.TABLES.keySet()) {
+            assertTrue(partitioned(jdbc, table), table + " is partitioned");
+            assertEquals(1, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM pg_trigger WHERE tgrelid = to_regclass(?) AND tgname = ?",
+                Integer.class, table, table + "_unique_key"), table + " claims its unique key");
+        }
+    }
+
+    private static void persist(EntityManagerFactory entityManagerFactory, Ride ride) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.persist(ride);
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static void assertDuplicateRejected(EntityManagerFactory entityManagerFactory, String idempotencyKey) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.persist(ride(idempotencyKey));
+            assertThrows(ConstraintViolationException.class, entityManager::flush);
+        } finally {
+            entityManager.getTransaction().rollback();
+            entityManager.close();
+        }
+    }
+
+    private static Ride ride(String idempotencyKey) {
+        return Ride.builder()
+            .idempotencyKey(idempotencyKey)
+            .riderId(1L)
+            .status(RideStatus.REQUESTED)
+            .vehicleTier(VehicleTier.ECONOMY)
+            .paymentMethod(PaymentMethod.UPI)
+            .pickupLatitude(28.6139)
+            .pickupLongitude(77.2090)
+            .pickupAddress("Connaught Place")
+            .destinationLatitude(28.5355)
+            .destinationLongitude(77.3910)
+            .destinationAddress("Noida Sector 18")
+            .region("DELHI")
+            .surgeMultiplier(1.0)
+            .build();
+    }
+}
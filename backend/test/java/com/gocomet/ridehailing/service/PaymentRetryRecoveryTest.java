@@ -0,0 +1,121 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.entity.Payment;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.PaymentStatus;
+import com.gocomet.ridehailing.payment.GatewayCharge;
+import com.gocomet.ridehailing.payment.GatewayGuard;
+import com.gocomet.ridehailing.payment.GatewayResult;
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.repository.PaymentRepository;
+import com.gocomet.ridehailing.repository.RideRepository;
+import com.gocomet.ridehailing.repository.TripRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Charges whose node died mid-flight, found by the retrier's real due-payment query once
+ * their lease has expired: a first charge left PENDING and a retry left PROCESSING.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentRetryRecoveryTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private GatewayGuard gatewayGuard;
+    private PaymentRetryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        // The real guard calls the gateway on its own pool; answering here, with finalization on
+        // the calling thread, makes a pass settle before retryDuePayments returns
+        gatewayGuard = mock(GatewayGuard.class);
+        when(gatewayGuard.charge(any(GatewayCharge.class)))
+            .thenReturn(CompletableFuture.completedFuture(GatewayResult.approved("txn", "psp")));
+        PaymentService paymentService = new PaymentService(paymentRepository, rideRepository, tripRepository,
+            mock(NotificationService.class), gatewayGuard, mock(IdempotencyRegistry.class), mock(LedgerService.class),
+            new TransactionTemplate(transactionManager), Runnable::run);
+        scheduler = new PaymentRetryScheduler(paymentRepository, paymentService, new SimpleMeterRegistry(), 10, 10, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM payments");
+    }
+
+    private Payment payment(String key, PaymentStatus status, int retryCount, LocalDateTime leaseExpiry) {
+        return paymentRepository.save(Payment.builder()
+            .idempotencyKey(key)
+            .rideId(1L)
+            .tripId(2L)
+            .riderId(3L)
+            .driverId(4L)
+            .amount(Money.ofRupees(250.0))
+            .paymentMethod(PaymentMethod.UPI)
+            .status(status)
+            .retryCount(retryCount)
+            .nextRetryAt(leaseExpiry)
+            .build());
+    }
+
+    @Test
+    void testStrandedChargesAreRecoveredOnceTheirLeaseExpires() {
+        LocalDateTime expired = LocalDateTime.now().minusSeconds(1);
+        Payment firstCharge = payment("pay-first", PaymentStatus.PENDING, 0, expired);
+        Payment retry = payment("pay-retry", PaymentStatus.PROCESSING, 3, expired);
+        Payment inFlight = payment("pay-in-flight", PaymentStatus.PROCESSING, 1, LocalDateTime.now().plusMinutes(1));
+
+        scheduler.retryDuePayments();
+
+        ArgumentCaptor<GatewayCharge> charges = ArgumentCaptor.forClass(GatewayCharge.class);
+        verify(gatewayGuard, times(2)).charge(charges.capture());
+        assertEquals(List.of("pay-first", "pay-retry"),
+            charges.getAllValues().stream().map(GatewayCharge::idempotencyKey).sorted().toList());
+
+        Payment recoveredFirst = paymentRepository.findById(firstCharge.getId()).orElseThrow();
+        assertEquals(PaymentStatus.SUCCESS, recoveredFirst.getStatus());
+        assertEquals(0, recoveredFirst.getRetryCount());
+        assertNull(recoveredFirst.getNextRetryAt());
+
+        // Reclaiming the stranded retry does not count as another attempt, even at the limit
+        Payment recoveredRetry = paymentRepository.findById(retry.getId()).orElseThrow();
+        assertEquals(PaymentStatus.SUCCESS, recoveredRetry.getStatus());
+        assertEquals(3, recoveredRetry.getRetryCount());
+
+        assertEquals(PaymentStatus.PROCESSING, paymentRepository.findById(inFlight.getId()).orElseThrow().getStatus());
+    }
+}
@@ -0,0 +1,116 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.dto.PaymentResponse;
+import com.gocomet.ridehailing.model.enums.PaymentStatus;
+import com.gocomet.ridehailing.payment.RetryBackoff;
+import com.gocomet.ridehailing.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentRetrySchedulerTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private PaymentRetryScheduler scheduler(int batchSize, int maxInFlight) {
+        return new PaymentRetryScheduler(paymentRepository, paymentService, meterRegistry, batchSize, maxInFlight, 3);
+    }
+
+    private static CompletableFuture<PaymentResponse> settled(PaymentStatus status) {
+        return CompletableFuture.completedFuture(PaymentResponse.builder().status(status).build());
+    }
+
+    private double attempts(String outcome) {
+        return meterRegistry.get("payment.retry.attempts").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    void testRetryDuePayments_PagesByIdAndCountsOutcomes() {
+        when(paymentRepository.findDueForRetry(eq(PaymentStatus.FAILED), eq(PaymentStatus.PENDING),
+            eq(PaymentStatus.PROCESSING), eq(3), any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(paymentRepository.findDueForRetry(eq(PaymentStatus.FAILED), eq(PaymentStatus.PENDING),
+            eq(PaymentStatus.PROCESSING), eq(3), any(LocalDateTime.class), eq(2L), any(Pageable.class))).thenReturn(List.of(3L));
+        when(paymentService.retryIfDue(eq(1L), any())).thenReturn(Optional.of(settled(PaymentStatus.SUCCESS)));
+        when(paymentService.retryIfDue(eq(2L), any())).thenReturn(Optional.of(settled(PaymentStatus.FAILED)));
+        when(paymentService.retryIfDue(eq(3L), any())).thenReturn(Optional.empty());
+
+        scheduler(2, 10).retryDuePayments();
+
+        assertEquals(1.0, attempts("success"));
+        assertEquals(1.0, attempts("declined"));
+        assertEquals(0.0, attempts("error"));
+        assertEquals(0.0, meterRegistry.get("payment.retry.in_flight").gauge().value());
+    }
+
+    @Test
+    void testRetryDuePayments_StopsAtInFlightCap() {
+        when(paymentRepository.findDueForRetry(eq(PaymentStatus.FAILED), eq(PaymentStatus.PENDING),
+            eq(PaymentStatus.PROCESSING), eq(3), any(LocalDateTime.class), anyLong(), any(Pageable.class))).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(paymentService.retryIfDue(anyLong(), any())).thenAnswer(invocation -> Optional.of(new CompletableFuture<>()));
+
+        PaymentRetryScheduler scheduler = scheduler(100, 2);
+        scheduler.retryDuePayments();
+
+        verify(paymentService, times(2)).retryIfDue(anyLong(), any());
+        assertEquals(2.0, meterRegistry.get("payment.retry.in_flight").gauge().value());
+
+        // Still saturated on the next poll: nothing new goes out
+        scheduler.retryDuePayments();
+        verify(paymentService, times(2)).retryIfDue(anyLong(), any());
+    }
+
+    @Test
+    void testRetryDuePayments_ClaimErrorReleasesPermit() {
+        when(paymentRepository.findDueForRetry(eq(PaymentStatus.FAILED), eq(PaymentStatus.PENDING),
+            eq(PaymentStatus.PROCESSING), eq(3), any(LocalDateTime.class), anyLong(), any(Pageable.class))).thenReturn(List.of(1L));
+        when(paymentService.retryIfDue(eq(1L), any())).thenThrow(new IllegalStateException("db down"));
+
+        scheduler(100, 1).retryDuePayments();
+
+        assertEquals(1.0, attempts("error"));
+        assertEquals(0.0, meterRegistry.get("payment.retry.in_flight").gauge().value());
+    }
+
+    @Test
+    void testBackoff_GrowsExponentiallyWithinJitterBounds() {
+        RetryBackoff backoff = new RetryBackoff(Duration.ofSeconds(2), Duration.ofSeconds(60));
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long first = backoff.delayFor(0, random).toMillis();
+            long third = backoff.delayFor(2, random).toMillis();
+            long late = backoff.delayFor(20, random).toMillis();
+            assertTrue(first >= 1000 && first <= 2000, "attempt 0: " + first);
+            assertTrue(third >= 4000 && third <= 8000, "attempt 2: " + third);
+            assertTrue(late >= 30000 && late <= 60000, "capped: " + late);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.exception.PaymentException;
+import com.gocomet.ridehailing.model.dto.NotificationEvent;
+import com.gocomet.ridehailing.model.dto.PaymentRequest;
+import com.gocomet.ridehailing.model.dto.PaymentResponse;
+import com.gocomet.ridehailing.model.entity.Payment;
+import com.gocomet.ridehailing.model.entity.Ride;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.PaymentStatus;
+import com.gocomet.ridehailing.payment.CircuitBreaker;
+import com.gocomet.ridehailing.payment.GatewayCharge;
+import com.gocomet.ridehailing.payment.GatewayGuard;
+import com.gocomet.ridehailing.payment.GatewayResult;
+import com.gocomet.ridehailing.payment.PaymentGatewayClient;
+import com.gocomet.ridehailing.pricing.Money;
+import com.gocomet.ridehailing.repository.PaymentRepository;
+import com.gocomet.ridehailing.repository.RideRepository;
+import com.gocomet.ridehailing.repository.TripRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private PaymentGatewayClient paymentGateway;
+
+    @Mock
+    private IdempotencyRegistry idempotencyRegistry;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CircuitBreaker circuitBreaker;
+    private GatewayGuard gatewayGuard;
+    private PaymentService paymentService;
+    private PaymentRequest request;
+    private Payment stored;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new CircuitBreaker(4, 2, 0.5, Duration.ofSeconds(30), 1, System::nanoTime, (from, to) -> { });
+        gatewayGuard = new GatewayGuard(paymentGateway, circuitBreaker, new SimpleMeterRegistry(), 4, 200);
+        // Run finalization on the calling thread so the test can read the result directly
+        paymentService = new PaymentService(paymentRepository, rideRepository, tripRepository,
+            notificationService, gatewayGuard, idempotencyRegistry, ledgerService, new TransactionTemplate(transactionManager),
+            Runnable::run);
+
+        request = PaymentRequest.builder()
+            .rideId(1L)
+            .tripId(2L)
+            .amount(Money.ofRupees(250.0))
+            .paymentMethod(PaymentMethod.UPI)
+            .idempotencyKey("pay-1")
+            .build();
+        stored = Payment.builder()
+            .id(5L)
+            .idempotencyKey("pay-1")
+            .rideId(1L)
+            .tripId(2L)
+            .riderId(3L)
+            .driverId(4L)
+            .amount(Money.ofRupees(250.0))
+            .paymentMethod(PaymentMethod.UPI)
+            .status(PaymentStatus.PENDING)
+            .retryCount(0)
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gatewayGuard.destroy();
+    }
+
+    private void stubNewPayment() {
+        when(idempotencyRegistry.claim(IdempotencyRegistry.PAYMENTS, "pay-1"))
+            .thenReturn(new IdempotencyRegistry.Claim(IdempotencyRegistry.Outcome.NEW, null));
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(Ride.builder().id(1L).riderId(3L).driverId(4L).build()));
+        when(tripRepository.existsById(2L)).thenReturn(true);
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            payment.setId(5L);
+            return payment;
+        });
+        when(paymentRepository.findById(5L)).thenReturn(Optional.of(stored));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void testProcessPayment_PersistsPendingThenFinalizesOnApproval() throws Exception {
+        stubNewPayment();
+        CompletableFuture<GatewayResult> gatewayResponse = new CompletableFuture<>();
+        when(paymentGateway.charge(any(GatewayCharge.class))).thenReturn(gatewayResponse);
+
+        CompletableFuture<PaymentResponse> result = paymentService.processPayment(request);
+
+        // Nothing is finalized while the gateway is still thinking
+        assertFalse(result.isDone());
+        verify(paymentRepository).saveAndFlush(argThat(p -> p.getStatus() == PaymentStatus.PENDING));
+        verify(paymentRepository, never()).save(any(Payment.class));
+
+        gatewayResponse.complete(GatewayResult.approved("txn-1", "psp-1"));
+        PaymentResponse response = result.get(1, TimeUnit.SECONDS);
+
+        assertEquals(PaymentStatus.SUCCESS, response.getStatus());
+        assertEquals("txn-1", response.getTransactionId());
+        verify(paymentGateway).charge(new GatewayCharge(5L, "pay-1", Money.ofRupees(250.0), PaymentMethod.UPI));
+        verify(ledgerService).postPayment(stored);
+        verify(notificationService).notifyRider(eq(3L), any(NotificationEvent.PaymentSucceeded.class));
+        verify(notificationService).notifyDriver(eq(4L), any(NotificationEvent.PaymentReceived.class));
+        verify(paymentRepository, never()).findByIdempotencyKey(any());
+        verify(idempotencyRegistry).complete(IdempotencyRegistry.PAYMENTS, "pay-1", 5L);
+    }
+
+    @Test
+    void testProcessPayment_GatewayTimeoutMarksFailed() throws Exception {
+        stubNewPayment();
+        when(paymentGateway.charge(any(GatewayCharge.class))).thenReturn(new CompletableFuture<>());
+
+        PaymentResponse response = paymentService.processPayment(request).get(2, TimeUnit.SECONDS);
+
+        assertEquals(PaymentStatus.FAILED, response.getStatus());
+        assertEquals("Payment gateway timed out", response.getFailureReason());
+        verifyNoInteractions(ledgerService);
+        verify(notificationService).notifyRider(eq(3L), any(NotificationEvent.PaymentFailed.class));
+        verify(notificationService, never()).notifyDriver(anyLong(), any());
+    }
+
+    @Test
+    void testProcessPayment_OpenCircuitQueuesPendingForRetry() throws Exception {
+        stubNewPayment();
+        for (int i = 0; i < 2; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onFailure();
+        }
+
+        PaymentResponse response = paymentService.processPayment(request).get(1, TimeUnit.SECONDS);
+
+        assertEquals(PaymentStatus.PENDING, response.getStatus());
+        assertEquals("Payment gateway circuit open", response.getFailureReason());
+        assertEquals(0, stored.getRetryCount());
+        // Not before the circuit would let a trial call through
+        assertTrue(stored.getNextRetryAt().isAfter(LocalDateTime.now().plusSeconds(25)));
+        verifyNoInteractions(paymentGateway);
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void testRetryIfDue_DeferredPaymentDoesNotUseAnAttempt() throws Exception {
+        stored.setRetryCount(1);
+        stored.setFailureReason("Payment gateway circuit open");
+        stored.setNextRetryAt(LocalDateTime.now().minusSeconds(1));
+        when(paymentRepository.findById(5L)).thenReturn(Optional.of(stored));
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentGateway.charge(any(GatewayCharge.class)))
+            .thenReturn(CompletableFuture.completedFuture(GatewayResult.approved("txn-2", "psp-2")));
+
+        PaymentResponse response = paymentService.retryIfDue(5L, LocalDateTime.now()).orElseThrow()
+            .get(1, TimeUnit.SECONDS);
+
+        assertEquals(PaymentStatus.SUCCESS, response.getStatus());
+        assertEquals(1, stored.getRetryCount());
+        assertNull(stored.getNextRetryAt());
+    }
+
+    @Test
+    void testProcessPayment_PendingRowHoldsLeaseUntilFinalized() {
+        when(idempotencyRegistry.claim(IdempotencyRegistry.PAYMENTS, "pay-1"))
+            .thenReturn(new IdempotencyRegistry.Claim(IdempotencyRegistry.Outcome.NEW, null));
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(Ride.builder().id(1L).riderId(3L).driverId(4L).build()));
+        when(tripRepository.existsById(2L)).thenReturn(true);
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        // The gateway never answers and the payment is never finalized
+        when(paymentGateway.charge(any(GatewayCharge.class))).thenReturn(new CompletableFuture<>());
+        LocalDateTime before = LocalDateTime.now();
+
+        paymentService.processPayment(request);
+        // The guard calls the gateway on its own pool
+        verify(paymentGateway, timeout(1000)).charge(any(GatewayCharge.class));
+
+        // Gateway timeout (5s) plus the finalization margin (30s)
+        ArgumentCaptor<Payment> pending = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentRepository).saveAndFlush(pending.capture());
+        assertEquals(PaymentStatus.PENDING, pending.getValue().getStatus());
+        assertFalse(pending.getValue().getNextRetryAt().isBefore(before.plusSeconds(35)));
+        assertTrue(pending.getValue().getNextRetryAt().isBefore(before.plusSeconds(40)));
+    }
+
+    @Test
+    void testRetryIfDue_AbandonedFirstChargeIsChargedAgainAfterLease() throws Exception {
+        stored.setNextRetryAt(LocalDateTime.now().minusSeconds(1));
+        when(paymentRepository.findById(5L)).thenReturn(Optional.of(stored));
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentGateway.charge(any(GatewayCharge.class)))
+            .thenReturn(CompletableFuture.completedFuture(GatewayResult.approved("txn-1", "psp-1")));
+
+        PaymentResponse response = paymentService.retryIfDue(5L, LocalDateTime.now()).orElseThrow()
+            .get(1, TimeUnit.SECONDS);
+
+        // Same PSP idempotency key, and the first charge does not count as a retry
+        ArgumentCaptor<GatewayCharge> charge = ArgumentCaptor.forClass(GatewayCharge.class);
+        verify(paymentGateway).charge(charge.capture());
+        assertEquals("pay-1", charge.getValue().idempotencyKey());
+        assertEquals(PaymentStatus.SUCCESS, response.getStatus());
+        assertEquals(0, stored.getRetryCount());
+    }
+
+    @Test
+    void testRetryPayment_FirstChargeStillInFlightIsNotChargedAgain() throws Exception {
+        stored.setNextRetryAt(LocalDateTime.now().plusSeconds(30));
+        when(paymentRepository.findById(5L)).thenReturn(Optional.of(stored));
+
+        PaymentResponse response = paymentService.retryPayment(5L).get(1, TimeUnit.SECONDS);
+
+        assertEquals(PaymentStatus.PENDING, response.getStatus());
+        verifyNoInteractions(paymentGateway);
+        verify(paymentRepository, never()).saveAndFlush(any(Payment.class));
+    }
+
+    @Test
+    void testProcessPayment_DuplicateKeyReturnsExistingWithoutCharging() throws Exception {
+        stored.setStatus(PaymentStatus.SUCCESS);
+        when(idempotencyRegistry.claim(IdempotencyRegistry.PAYMENTS, "pay-1"))
+            .thenReturn(new IdempotencyRegistry.Claim(IdempotencyRegistry.Outcome.DUPLICATE, 5L));
+        when(paymentRepository.findById(5L)).thenReturn(Optional.of(stored));
+
+        PaymentResponse response = paymentService.processPayment(request).get(1, TimeUnit.SECONDS);
+
+        assertEquals(5L, response.getId());
+        assertEquals(PaymentStatus.SUCCESS, response.getStatus());
+        verifyNoInteractions(paymentGateway);
+        verify(paymentRepository, never()).saveAndFlush(any(Payment.class));
+        verify(paymentRepository, never()).findByIdempotencyKey(any());
+    }
+
+    @Test
+    void testProcessPayment_RegistryUnavailableFallsBackToDatabase() throws Exception {
+        stored.setStatus(PaymentStatus.SUCCESS);
+        when(idempotencyRegistry.claim(IdempotencyRegistry.PAYMENTS, "pay-1"))
+            .thenReturn(new IdempotencyRegistry.Claim(IdempotencyRegistry.Outcome.UNKNOWN, null));
+        when(paymentRepository.findByIdempotencyKey("pay-1")).thenReturn(Optional.of(stored));
+
+        PaymentResponse response = paymentService.processPayment(request).get(1, TimeUnit.SECONDS);
+
+        assertEquals(5L, response.getId());
+        verifyNoInteractions(paymentGateway);
+    }
+
+    @Test
+    void testRetryIfDue_SkipsPaymentStillBackingOff() {
+        stored.setStatus(PaymentStatus.FAILED);
+        stored.setRetryCount(1);
+        stored.setNextRetryAt(LocalDateTime.now().plusMinutes(1));
+        when(paymentRepository.findById(5L)).thenReturn(Optional.of(stored));
+
+        assertTrue(paymentService.retryIfDue(5L, LocalDateTime.now()).isEmpty());
+        verifyNoInteractions(paymentGateway);
+        verify(paymentRepository, never()).saveAndFlush(any(Payment.class));
+    }
+
+    @Test
+    void testRetryPayment_MaxAttemptsExceeded() {
+        stored.setStatus(PaymentStatus.FAILED);
+        stored.setRetryCount(3);
+        when(paymentRepository.findById(5L)).thenReturn(Optional.of(stored));
+
+        PaymentException ex = assertThrows(PaymentException.class, () -> paymentService.retryPayment(5L));
+        assertEquals("Max retry attempts exceeded", ex.getMessage());
+        verifyNoInteractions(paymentGateway);
+    }
+
+    @Test
+    void testRetryPayment_DeclineKeepsRetryCount() throws Exception {
+        stored.setStatus(PaymentStatus.FAILED);
+        stored.setRetryCount(1);
+        when(paymentRepository.findById(5L)).thenReturn(Optional.of(stored));
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentGateway.charge(any(GatewayCharge.class)))
+            .thenReturn(CompletableFuture.completedFuture(GatewayResult.declined("psp-2", "Insufficient funds")));
+
+        PaymentResponse response = paymentService.retryPayment(5L).get(1, TimeUnit.SECONDS);
+
+        assertEquals(PaymentStatus.FAILED, response.getStatus());
+        assertEquals("Insufficient funds", response.getFailureReason());
+        assertEquals(2, stored.getRetryCount());
+        assertNotNull(stored.getNextRetryAt());
+        verify(notificationService).notifyRider(eq(3L), any(NotificationEvent.PaymentFailed.class));
+    }
+}
@@ -0,0 +1,156 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.dto.Location;
+import com.gocomet.ridehailing.model.dto.RidePage;
+import com.gocomet.ridehailing.model.dto.RideResponse;
+import com.gocomet.ridehailing.model.entity.Driver;
+import com.gocomet.ridehailing.model.entity.Ride;
+import com.gocomet.ridehailing.model.enums.DriverStatus;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.notification.DriverLocationStreamer;
+import com.gocomet.ridehailing.repository.DriverRepository;
+import com.gocomet.ridehailing.repository.RideRepository;
+import com.gocomet.ridehailing.repository.RiderRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * A page of rides with assigned drivers costs the same number of round trips whatever its
+ * size: the page query, one IN query for the drivers and one location fetch.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class RideListingQueryCountTest {
+
+    private static final int DRIVERS = 20;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private RiderRepository riderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private LocationCacheService locationCacheService;
+    private RideService rideService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        locationCacheService = mock(LocationCacheService.class);
+        rideService = new RideService(rideRepository, driverRepository, riderRepository,
+            mock(DriverMatchingService.class), mock(SurgePricingService.class), mock(SurgeHeatmapService.class),
+            mock(FareQuoteService.class), mock(NotificationService.class), locationCacheService,
+            mock(DriverLocationStreamer.class), mock(IdempotencyRegistry.class), mock(TransactionTemplate.class));
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        List<Driver> drivers = new ArrayList<>();
+        for (int i = 0; i < DRIVERS; i++) {
+            drivers.add(driverRepository.save(driver(i)));
+        }
+        Map<Long, Location> locations = new HashMap<>();
+        drivers.forEach(driver -> locations.put(driver.getId(), Location.builder().latitude(28.6).longitude(77.2).build()));
+        when(locationCacheService.getDriverLocations(anyList())).thenReturn(locations);
+
+        // Every fourth ride is still unassigned
+        for (int i = 0; i < 200; i++) {
+            Long driverId = i % 4 == 0 ? null : drivers.get(i % DRIVERS).getId();
+            rideRepository.save(ride(driverId));
+        }
+        entityManager.flush();
+        // Nothing served from the persistence context: every driver lookup would hit the database
+        entityManager.clear();
+    }
+
+    @Test
+    void testPageCostsConstantQueriesRegardlessOfSize() {
+        for (int limit : new int[] {10, 100, 200}) {
+            statistics.clear();
+            clearInvocations(locationCacheService);
+
+            RidePage page = rideService.listRides(null, null, null, null, limit);
+            entityManager.clear();
+
+            assertEquals(limit, page.rides().size());
+            // The page itself and one IN query for its drivers
+            assertEquals(2, statistics.getPrepareStatementCount(), "statements for a page of " + limit);
+            verify(locationCacheService, times(1)).getDriverLocations(anyList());
+            verify(locationCacheService, never()).getDriverLocation(anyLong());
+        }
+    }
+
+    @Test
+    void testDriverInfoIsAttachedToAssignedRides() {
+        RidePage page = rideService.listRides(null, null, null, null, 40);
+
+        for (RideResponse ride : page.rides()) {
+            if (ride.getDriverId() == null) {
+                assertNull(ride.getDriverInfo());
+            } else {
+                assertNotNull(ride.getDriverInfo());
+                assertTrue(ride.getDriverInfo().getName().startsWith("Driver "));
+                assertNotNull(ride.getDriverInfo().getCurrentLocation());
+            }
+        }
+        assertTrue(page.rides().stream().anyMatch(ride -> ride.getDriverInfo() == null));
+    }
+
+    private static Driver driver(int i) {
+        return Driver.builder()
+            .phoneNumber("+91-90000" + String.format("%05d", i))
+            .name("Driver " + i)
+            .email("driver" + i + "@example.com")
+            .licenseNumber("DL-" + i)
+            .vehicleNumber("DL01AB" + String.format("%04d", i))
+            .vehicleTier(VehicleTier.ECONOMY)
+            .status(DriverStatus.AVAILABLE)
+            .region("DELHI")
+            .rating(4.8)
+            .totalRides(0)
+            .build();
+    }
+
+    private static Ride ride(Long driverId) {
+        return Ride.builder()
+            .idempotencyKey(UUID.randomUUID().toString())
+            .riderId(1L)
+            .driverId(driverId)
+            .status(driverId == null ? RideStatus.SEARCHING : RideStatus.MATCHED)
+            .vehicleTier(VehicleTier.ECONOMY)
+            .paymentMethod(PaymentMethod.UPI)
+            .pickupLatitude(28.6139)
+            .pickupLongitude(77.2090)
+            .pickupAddress("Connaught Place")
+            .destinationLatitude(28.5355)
+            .destinationLongitude(77.3910)
+            .destinationAddress("Noida Sector 18")
+            .region("DELHI")
+            .surgeMultiplier(1.0)
+            .build();
+    }
+}
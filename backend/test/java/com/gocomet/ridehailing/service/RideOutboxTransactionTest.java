@@ -0,0 +1,194 @@
+package com.gocomet.ridehailing.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gocomet.ridehailing.exception.RideException;
+import com.gocomet.ridehailing.model.dto.CreateRideRequest;
+import com.gocomet.ridehailing.model.dto.RideResponse;
+import com.gocomet.ridehailing.model.dto.RideUpdate;
+import com.gocomet.ridehailing.model.entity.Driver;
+import com.gocomet.ridehailing.model.entity.OutboxMessage;
+import com.gocomet.ridehailing.model.entity.Ride;
+import com.gocomet.ridehailing.model.enums.DriverStatus;
+import com.gocomet.ridehailing.model.enums.PaymentMethod;
+import com.gocomet.ridehailing.model.enums.RideStatus;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.notification.DriverLocationStreamer;
+import com.gocomet.ridehailing.notification.NotificationOutbox;
+import com.gocomet.ridehailing.notification.OutboxRelay;
+import com.gocomet.ridehailing.notification.RideDeltaEncoder;
+import com.gocomet.ridehailing.notification.RideSummaryPublisher;
+import com.gocomet.ridehailing.notification.Topics;
+import com.gocomet.ridehailing.repository.DriverRepository;
+import com.gocomet.ridehailing.repository.OutboxMessageRepository;
+import com.gocomet.ridehailing.repository.RideRepository;
+import com.gocomet.ridehailing.repository.RiderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Ride transitions and the outbox rows announcing them commit together: when a transition
+ * rolls back, none of its notifications are left behind for the relay.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RideOutboxTransactionTest {
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private RiderRepository riderRepository;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RideDeltaEncoder rideDeltaEncoder;
+    private DriverMatchingService driverMatchingService;
+    private IdempotencyRegistry idempotencyRegistry;
+    private RideService rideService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        NotificationOutbox outbox = new NotificationOutbox(outboxMessageRepository, objectMapper, mock(OutboxRelay.class));
+        rideDeltaEncoder = mock(RideDeltaEncoder.class);
+        NotificationService notificationService =
+            new NotificationService(outbox, mock(RideSummaryPublisher.class), rideDeltaEncoder);
+        driverMatchingService = mock(DriverMatchingService.class);
+        idempotencyRegistry = mock(IdempotencyRegistry.class);
+        rideService = new RideService(rideRepository, driverRepository, riderRepository, driverMatchingService,
+            mock(SurgePricingService.class), mock(SurgeHeatmapService.class), mock(FareQuoteService.class),
+            notificationService, mock(LocationCacheService.class), mock(DriverLocationStreamer.class),
+            idempotencyRegistry, new TransactionTemplate(transactionManager));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM notification_outbox");
+        jdbcTemplate.update("DELETE FROM rides");
+        jdbcTemplate.update("DELETE FROM drivers");
+    }
+
+    private List<String> outboxDestinations() {
+        return outboxMessageRepository.findAll().stream()
+            .map(OutboxMessage::getDestination)
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void testFailedAssignmentLeavesNoMatchNotifications() {
+        // Arrange
+        Driver driver = driverRepository.save(Driver.builder()
+            .phoneNumber("+91-9000000001")
+            .name("Ravi")
+            .email("ravi@example.com")
+            .licenseNumber("DL-1")
+            .vehicleNumber("DL01AB0001")
+            .vehicleTier(VehicleTier.ECONOMY)
+            .status(DriverStatus.AVAILABLE)
+            .region("DELHI")
+            .rating(4.8)
+            .totalRides(0)
+            .build());
+        Ride ride = rideRepository.save(Ride.builder()
+            .idempotencyKey("ride-outbox-1")
+            .riderId(5L)
+            .status(RideStatus.REQUESTED)
+            .vehicleTier(VehicleTier.ECONOMY)
+            .paymentMethod(PaymentMethod.UPI)
+            .pickupLatitude(28.6139)
+            .pickupLongitude(77.2090)
+            .pickupAddress("Connaught Place")
+            .destinationLatitude(28.5355)
+            .destinationLongitude(77.3910)
+            .destinationAddress("Noida Sector 18")
+            .region("DELHI")
+            .build());
+        when(driverMatchingService.findBestDriver(anyDouble(), anyDouble(), any(), anyString()))
+            .thenReturn(Optional.of(driver));
+        // SEARCHING is announced, the MATCHED broadcast fails after the match notifications were
+        // queued, the FAILED one goes through
+        Optional<RideUpdate> update = Optional.of(RideUpdate.snapshot(RideResponse.builder().id(ride.getId()).build(), 0));
+        when(rideDeltaEncoder.encode(any(RideResponse.class)))
+            .thenReturn(update)
+            .thenThrow(new IllegalStateException("encoder down"))
+            .thenReturn(update);
+
+        // Act
+        rideService.matchDriverAsync(ride.getId(), CreateRideRequest.builder()
+            .pickupLatitude(28.6139)
+            .pickupLongitude(77.2090)
+            .vehicleTier(VehicleTier.ECONOMY)
+            .region("DELHI")
+            .build());
+
+        // Assert - the assignment rolled back as a whole: ride, driver status and notifications
+        Ride failed = rideRepository.findById(ride.getId()).orElseThrow();
+        assertEquals(RideStatus.FAILED, failed.getStatus());
+        assertNull(failed.getDriverId());
+        assertEquals(DriverStatus.AVAILABLE, driverRepository.findById(driver.getId()).orElseThrow().getStatus());
+        List<String> destinations = outboxDestinations();
+        assertFalse(destinations.contains(Topics.rider(5L)));
+        assertFalse(destinations.contains(Topics.driver(driver.getId())));
+        // The committed SEARCHING and FAILED transitions each announced themselves
+        assertEquals(2, destinations.stream().filter(Topics.ride(ride.getId())::equals).count());
+    }
+
+    @Test
+    void testRideWhoseNotificationFailsIsNotCreated() {
+        // Arrange
+        when(idempotencyRegistry.claim(eq(IdempotencyRegistry.RIDES), anyString()))
+            .thenReturn(new IdempotencyRegistry.Claim(IdempotencyRegistry.Outcome.NEW, null));
+        when(rideDeltaEncoder.encode(any(RideResponse.class))).thenThrow(new IllegalStateException("encoder down"));
+
+        // Act
+        assertThrows(RideException.class, () -> rideService.createRide(CreateRideRequest.builder()
+            .idempotencyKey("ride-outbox-2")
+            .riderId(5L)
+            .pickupLatitude(28.6139)
+            .pickupLongitude(77.2090)
+            .pickupAddress("Connaught Place")
+            .destinationLatitude(28.5355)
+            .destinationLongitude(77.3910)
+            .destinationAddress("Noida Sector 18")
+            .vehicleTier(VehicleTier.ECONOMY)
+            .paymentMethod(PaymentMethod.UPI)
+            .region("DELHI")
+            .build()));
+
+        // Assert
+        assertTrue(rideRepository.findByIdempotencyKey("ride-outbox-2").isEmpty());
+        assertTrue(outboxDestinations().isEmpty());
+        verify(idempotencyRegistry).release(IdempotencyRegistry.RIDES, "ride-outbox-2");
+    }
+}
@@ -1,10 +1,15 @@
 package com.gocomet.ridehailing.service;
 
+import com.gocomet.ridehailing.exception.RideException;
 import com.gocomet.ridehailing.model.dto.CreateRideRequest;
+import com.gocomet.ridehailing.model.dto.RideCursor;
+import com.gocomet.ridehailing.model.dto.RidePage;
 import com.gocomet.ridehailing.model.dto.RideResponse;
 import com.gocomet.ridehailing.model.entity.Driver;
 import com.gocomet.ridehailing.model.entity.Ride;
 import com.gocomet.ridehailing.model.enums.*;
+import com.gocomet.ridehailing.notification.DriverLocationStreamer;
+import com.gocomet.ridehailing.pricing.Money;
 import com.gocomet.ridehailing.repository.DriverRepository;
 import com.gocomet.ridehailing.repository.RideRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,13 +17,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,7 +47,10 @@ class RideServiceTest {
     private SurgePricingService surgePricingService;
 
     @Mock
-    private FareCalculationService fareCalculationService;
+    private SurgeHeatmapService surgeHeatmapService;
+
+    @Mock
+    private FareQuoteService fareQuoteService;
 
     @Mock
     private NotificationService notificationService;
@@ -45,6 +58,18 @@ class RideServiceTest {
     @Mock
     private LocationCacheService locationCacheService;
 
+    @Mock
+    private DriverLocationStreamer driverLocationStreamer;
+
+    @Mock
+    private IdempotencyRegistry idempotencyRegistry;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
     @InjectMocks
     private RideService rideService;
 
@@ -53,6 +78,8 @@ class RideServiceTest {
 
     @BeforeEach
     void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+
         validRequest = CreateRideRequest.builder()
                 .riderId(1L)
                 .pickupLatitude(28.6139)
@@ -80,7 +107,7 @@ class RideServiceTest {
                 .destinationLongitude(77.3910)
                 .destinationAddress("Noida Sector 18")
                 .region("Delhi-NCR")
-                .estimatedFare(150.0)
+                .estimatedFare(Money.ofRupees(150.0))
                 .surgeMultiplier(1.0)
                 .createdAt(LocalDateTime.now())
                 .build();
@@ -90,10 +117,11 @@ class RideServiceTest {
     void testCreateRide_Success() {
         // Arrange
         when(surgePricingService.calculateSurgeMultiplier(anyString())).thenReturn(1.0);
-        when(fareCalculationService.calculateEstimatedFare(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
-                .thenReturn(150.0);
-        when(rideRepository.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
-        when(rideRepository.save(any(Ride.class))).thenReturn(mockRide);
+        when(fareQuoteService.estimateFare(anyString(), any(VehicleTier.class), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(Money.ofRupees(150.0));
+        when(idempotencyRegistry.claim(eq(IdempotencyRegistry.RIDES), anyString()))
+                .thenReturn(new IdempotencyRegistry.Claim(IdempotencyRegistry.Outcome.NEW, null));
+        when(rideRepository.saveAndFlush(any(Ride.class))).thenReturn(mockRide);
 
         // Act
         RideResponse response = rideService.createRide(validRequest);
@@ -102,17 +130,22 @@ class RideServiceTest {
         assertNotNull(response);
         assertEquals(1L, response.getId());
         assertEquals(RideStatus.REQUESTED, response.getStatus());
-        assertEquals(150.0, response.getEstimatedFare());
+        assertEquals(Money.ofRupees(150.0), response.getEstimatedFare());
         
-        verify(rideRepository, times(1)).save(any(Ride.class));
+        verify(rideRepository, times(1)).saveAndFlush(any(Ride.class));
         verify(surgePricingService, times(1)).calculateSurgeMultiplier(anyString());
-        verify(fareCalculationService, times(1)).calculateEstimatedFare(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble());
+        verify(fareQuoteService, times(1)).estimateFare(anyString(), any(VehicleTier.class), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble());
+        // A key the registry had never seen costs no idempotency lookup in the database
+        verify(rideRepository, never()).findByIdempotencyKey(anyString());
+        verify(idempotencyRegistry).complete(eq(IdempotencyRegistry.RIDES), anyString(), eq(1L));
     }
 
     @Test
     void testCreateRide_IdempotencyCheck() {
         // Arrange
-        when(rideRepository.findByIdempotencyKey(anyString())).thenReturn(Optional.of(mockRide));
+        when(idempotencyRegistry.claim(IdempotencyRegistry.RIDES, "existing-key"))
+                .thenReturn(new IdempotencyRegistry.Claim(IdempotencyRegistry.Outcome.DUPLICATE, 1L));
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(mockRide));
 
         // Act
         validRequest.setIdempotencyKey("existing-key");
@@ -120,7 +153,25 @@ class RideServiceTest {
 
         // Assert
         assertNotNull(response);
-        verify(rideRepository, never()).save(any(Ride.class));
+        assertEquals(1L, response.getId());
+        verify(rideRepository, never()).saveAndFlush(any(Ride.class));
+        verify(rideRepository, never()).findByIdempotencyKey(anyString());
+    }
+
+    @Test
+    void testCreateRide_RegistryUnavailableFallsBackToDatabase() {
+        // Arrange
+        when(idempotencyRegistry.claim(IdempotencyRegistry.RIDES, "existing-key"))
+                .thenReturn(new IdempotencyRegistry.Claim(IdempotencyRegistry.Outcome.UNKNOWN, null));
+        when(rideRepository.findByIdempotencyKey("existing-key")).thenReturn(Optional.of(mockRide));
+
+        // Act
+        validRequest.setIdempotencyKey("existing-key");
+        RideResponse response = rideService.createRide(validRequest);
+
+        // Assert
+        assertEquals(1L, response.getId());
+        verify(rideRepository, never()).saveAndFlush(any(Ride.class));
     }
 
     @Test
@@ -137,14 +188,44 @@ class RideServiceTest {
         assertEquals(RideStatus.REQUESTED, response.getStatus());
     }
 
+    @Test
+    void testListRides_FullPageReturnsCursorOfLastRide() {
+        // Arrange: one row past the limit means there is a next page
+        Ride second = Ride.builder().id(2L).riderId(1L).status(RideStatus.REQUESTED)
+                .createdAt(mockRide.getCreatedAt().minusMinutes(1)).build();
+        Ride third = Ride.builder().id(3L).riderId(1L).status(RideStatus.REQUESTED)
+                .createdAt(mockRide.getCreatedAt().minusMinutes(2)).build();
+        when(rideRepository.findPageByRiderId(eq(1L), any(LocalDateTime.class), eq(Long.MAX_VALUE), any()))
+                .thenReturn(new java.util.ArrayList<>(java.util.List.of(mockRide, second, third)));
+
+        // Act
+        RidePage page = rideService.listRides(null, 1L, null, null, 2);
+
+        // Assert
+        assertEquals(2, page.rides().size());
+        RideCursor next = RideCursor.decode(page.nextCursor());
+        assertEquals(2L, next.id());
+        assertEquals(second.getCreatedAt(), next.createdAt());
+        verify(rideRepository, never()).findAll();
+    }
+
+    @Test
+    void testListRides_InvalidCursor() {
+        RideException ex = assertThrows(RideException.class,
+            () -> rideService.listRides(null, null, null, "not-a-cursor", 10));
+        assertEquals("Invalid cursor", ex.getMessage());
+        verifyNoInteractions(rideRepository);
+    }
+
     @Test
     void testAcceptRide_Success() {
         // Arrange
-        mockRide.setStatus(RideStatus.MATCHED);
+        mockRide.setStatus(RideStatus.ACCEPTED);
         mockRide.setDriverId(1L);
         
-        when(rideRepository.findByIdWithLock(1L)).thenReturn(Optional.of(mockRide));
-        when(rideRepository.save(any(Ride.class))).thenReturn(mockRide);
+        when(rideRepository.transitionAccepting(eq(1L), eq(1L), eq(RideStatus.MATCHED), eq(RideStatus.ACCEPTED),
+            any(LocalDateTime.class))).thenReturn(1);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(mockRide));
         when(driverRepository.updateDriverStatus(1L, DriverStatus.ON_RIDE)).thenReturn(1);
 
         // Act
@@ -152,21 +233,37 @@ class RideServiceTest {
 
         // Assert
         assertNotNull(response);
-        verify(rideRepository, times(1)).save(any(Ride.class));
+        assertEquals(RideStatus.ACCEPTED, response.getStatus());
+        verify(rideRepository, never()).save(any(Ride.class));
         verify(driverRepository, times(1)).updateDriverStatus(1L, DriverStatus.ON_RIDE);
         verify(notificationService, times(1)).sendRideAcceptedNotification(any(Ride.class));
     }
 
+    @Test
+    void testAcceptRide_NotAssignedDriver() {
+        // Arrange: the guarded UPDATE matches nothing, the ride is matched to someone else
+        mockRide.setStatus(RideStatus.MATCHED);
+        mockRide.setDriverId(2L);
+        
+        when(rideRepository.transitionAccepting(eq(1L), eq(1L), eq(RideStatus.MATCHED), eq(RideStatus.ACCEPTED),
+            any(LocalDateTime.class))).thenReturn(0);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(mockRide));
+
+        // Act & Assert
+        RideException ex = assertThrows(RideException.class, () -> rideService.acceptRide(1L, 1L));
+        assertTrue(ex.getMessage().contains("This ride is not assigned to you"));
+        verify(driverRepository, never()).updateDriverStatus(any(), any());
+        verifyNoInteractions(notificationService);
+    }
+
     @Test
     void testCancelRide_Success() {
         // Arrange
         mockRide.setDriverId(1L);
-        when(rideRepository.findByIdWithLock(1L)).thenReturn(Optional.of(mockRide));
-        when(rideRepository.save(any(Ride.class))).thenAnswer(invocation -> {
-            Ride ride = invocation.getArgument(0);
-            ride.setStatus(RideStatus.CANCELLED);
-            return ride;
-        });
+        mockRide.setStatus(RideStatus.CANCELLED);
+        when(rideRepository.transitionCancelling(eq(1L), any(), eq(RideStatus.CANCELLED), any(LocalDateTime.class)))
+            .thenReturn(1);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(mockRide));
 
         // Act
         RideResponse response = rideService.cancelRide(1L, "User cancelled");
@@ -175,5 +272,87 @@ class RideServiceTest {
         assertNotNull(response);
         assertEquals(RideStatus.CANCELLED, response.getStatus());
         verify(driverRepository, times(1)).updateDriverStatus(1L, DriverStatus.AVAILABLE);
+        verify(driverLocationStreamer).stop(1L, 1L);
+    }
+
+    @Test
+    void testCancelRide_AlreadyCompleted() {
+        // Arrange
+        mockRide.setStatus(RideStatus.COMPLETED);
+        when(rideRepository.transitionCancelling(eq(1L), any(), eq(RideStatus.CANCELLED), any(LocalDateTime.class)))
+            .thenReturn(0);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(mockRide));
+
+        // Act & Assert
+        RideException ex = assertThrows(RideException.class, () -> rideService.cancelRide(1L, "User cancelled"));
+        assertEquals("Cannot cancel ride in COMPLETED status", ex.getMessage());
+        verify(driverRepository, never()).updateDriverStatus(any(), any());
+    }
+
+    @Test
+    void testMatchDriver_AssignmentCommitsAsOneTransaction() {
+        // Arrange
+        mockRide.setStatus(RideStatus.MATCHED);
+        mockRide.setDriverId(7L);
+        Driver driver = Driver.builder().id(7L).name("Ravi").build();
+        when(rideRepository.transitionSearching(eq(1L), eq(RideStatus.REQUESTED), eq(RideStatus.SEARCHING),
+            any(LocalDateTime.class))).thenReturn(1);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(mockRide));
+        when(driverMatchingService.findBestDriver(anyDouble(), anyDouble(), any(), anyString()))
+            .thenReturn(Optional.of(driver));
+        when(rideRepository.transitionAssigningDriver(eq(1L), eq(7L), eq(RideStatus.SEARCHING), eq(RideStatus.MATCHED),
+            any(LocalDateTime.class))).thenReturn(1);
+
+        // Act
+        rideService.matchDriverAsync(1L, validRequest).join();
+
+        // Assert - SEARCHING and the assignment each commit once, with their notifications inside
+        verify(transactionManager, times(2)).commit(any());
+        verify(transactionManager, never()).rollback(any());
+        verify(driverRepository).updateDriverStatus(7L, DriverStatus.BUSY);
+        verify(notificationService).sendRideMatchedNotification(mockRide, 7L);
+        verify(rideRepository, never()).save(any(Ride.class));
+    }
+
+    @Test
+    void testMatchDriver_FailedAssignmentRollsBackAndFailsRideConditionally() {
+        // Arrange - the driver update fails after the ride was moved to MATCHED
+        mockRide.setStatus(RideStatus.SEARCHING);
+        Driver driver = Driver.builder().id(7L).name("Ravi").build();
+        TransactionStatus assignment = mock(TransactionStatus.class);
+        when(transactionManager.getTransaction(any())).thenReturn(null, assignment, null);
+        when(rideRepository.transitionSearching(eq(1L), eq(RideStatus.REQUESTED), eq(RideStatus.SEARCHING),
+            any(LocalDateTime.class))).thenReturn(1);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(mockRide));
+        when(driverMatchingService.findBestDriver(anyDouble(), anyDouble(), any(), anyString()))
+            .thenReturn(Optional.of(driver));
+        when(rideRepository.transitionAssigningDriver(eq(1L), eq(7L), eq(RideStatus.SEARCHING), eq(RideStatus.MATCHED),
+            any(LocalDateTime.class))).thenReturn(1);
+        when(driverRepository.updateDriverStatus(7L, DriverStatus.BUSY)).thenThrow(new IllegalStateException("db down"));
+        when(rideRepository.transitionFailing(eq(1L), eq(RideStatus.SEARCHING), eq(RideStatus.FAILED),
+            eq("Driver matching error: db down"), any(LocalDateTime.class))).thenReturn(1);
+
+        // Act
+        assertTrue(rideService.matchDriverAsync(1L, validRequest).isCompletedExceptionally());
+
+        // Assert
+        verify(transactionManager).rollback(assignment);
+        verify(notificationService, never()).sendRideMatchedNotification(any(), any());
+        verify(rideRepository, never()).save(any(Ride.class));
+    }
+
+    @Test
+    void testMatchDriver_RideCancelledBeforeSearchingIsLeftAlone() {
+        // Arrange
+        when(rideRepository.transitionSearching(eq(1L), eq(RideStatus.REQUESTED), eq(RideStatus.SEARCHING),
+            any(LocalDateTime.class))).thenReturn(0);
+        when(rideRepository.existsById(1L)).thenReturn(true);
+
+        // Act
+        rideService.matchDriverAsync(1L, validRequest).join();
+
+        // Assert
+        verifyNoInteractions(driverMatchingService, notificationService);
+        verify(rideRepository, never()).transitionFailing(any(), any(), any(), any(), any());
     }
 }
@@ -0,0 +1,111 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.model.dto.Location;
+import com.gocomet.ridehailing.pricing.SurgeHeatmap;
+import com.gocomet.ridehailing.repository.RideRepository;
+import com.gocomet.ridehailing.util.GeoHash;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalDouble;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SurgeHeatmapServiceTest {
+
+    @Mock
+    private RideRepository rideRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SurgeHeatmapService surgeHeatmapService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        surgeHeatmapService = new SurgeHeatmapService(rideRepository, meterRegistry);
+
+        ReflectionTestUtils.setField(surgeHeatmapService, "baseMultiplier", 1.0);
+        ReflectionTestUtils.setField(surgeHeatmapService, "maxMultiplier", 3.0);
+        ReflectionTestUtils.setField(surgeHeatmapService, "enabled", true);
+        ReflectionTestUtils.setField(surgeHeatmapService, "precision", 6);
+        ReflectionTestUtils.setField(surgeHeatmapService, "windowMinutes", 5L);
+        ReflectionTestUtils.setField(surgeHeatmapService, "cellDemandThreshold", 3.0);
+        ReflectionTestUtils.setField(surgeHeatmapService, "step", 0.1);
+        ReflectionTestUtils.setField(surgeHeatmapService, "neighbourWeight", 0.5);
+        ReflectionTestUtils.setField(surgeHeatmapService, "maxStalenessMs", 60000L);
+        surgeHeatmapService.init();
+    }
+
+    @Test
+    void testInitialSnapshotUsesConfiguredPrecision() {
+        ReflectionTestUtils.setField(surgeHeatmapService, "precision", 5);
+        surgeHeatmapService.init();
+
+        assertEquals(5, surgeHeatmapService.getSnapshot().getPrecision());
+        assertEquals(0, surgeHeatmapService.getSnapshot().getCellCount());
+    }
+
+    @Test
+    void testRefresh_HotCellSurgesAndSpillsIntoNeighbours() {
+        // Arrange - 20 pickups in one cell around Connaught Place
+        List<Location> pickups = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            pickups.add(new Location(28.6315, 77.2167, LocalDateTime.now()));
+        }
+        when(rideRepository.findActivePickupsSince(anyList(), any(LocalDateTime.class))).thenReturn(pickups);
+
+        // Act
+        surgeHeatmapService.refresh();
+
+        // Assert
+        SurgeHeatmap snapshot = surgeHeatmapService.getSnapshot();
+        String hotCell = GeoHash.encode(28.6315, 77.2167, 6);
+        String neighbour = GeoHash.neighbours(hotCell).get(0);
+
+        // Smoothed demand: 0.5 * 20 = 10 -> 1.0 + (10 - 3) * 0.1 = 1.7
+        assertEquals(1.7, snapshot.multiplierForCell(hotCell).getAsDouble(), 1e-9);
+        // Neighbour sees 0.5 * 20 / 8 = 1.25, below threshold
+        assertFalse(snapshot.multiplierForCell(neighbour).isPresent());
+
+        OptionalDouble atPickup = surgeHeatmapService.multiplierAt(28.6315, 77.2167);
+        assertTrue(atPickup.isPresent());
+        assertEquals(1.7, atPickup.getAsDouble(), 1e-9);
+        assertEquals(1.0, surgeHeatmapService.multiplierAt(19.0760, 72.8777).getAsDouble());
+
+        assertEquals(1.0, meterRegistry.get("surge.heatmap.cells").gauge().value());
+        assertEquals(1, meterRegistry.get("surge.heatmap.build").timer().count());
+    }
+
+    @Test
+    void testMultiplierAt_EmptyBeforeFirstBuild() {
+        assertFalse(surgeHeatmapService.multiplierAt(28.6315, 77.2167).isPresent());
+    }
+
+    @Test
+    void testTilePrefixLookup() {
+        List<Location> pickups = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            pickups.add(new Location(28.6315, 77.2167, LocalDateTime.now()));
+        }
+        when(rideRepository.findActivePickupsSince(anyList(), any(LocalDateTime.class))).thenReturn(pickups);
+
+        surgeHeatmapService.refresh();
+
+        SurgeHeatmap snapshot = surgeHeatmapService.getSnapshot();
+        String tile = GeoHash.encode(28.6315, 77.2167, 4);
+        assertFalse(snapshot.cellsWithPrefix(tile).isEmpty());
+        assertTrue(snapshot.cellsWithPrefix("zzzz").isEmpty());
+    }
+}
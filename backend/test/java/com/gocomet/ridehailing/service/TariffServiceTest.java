@@ -0,0 +1,98 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.config.TariffProperties;
+import com.gocomet.ridehailing.model.enums.VehicleTier;
+import com.gocomet.ridehailing.pricing.Tariff;
+import com.gocomet.ridehailing.pricing.TariffTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffServiceTest {
+
+    private TariffProperties properties;
+    private TariffService tariffService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TariffProperties();
+
+        TariffProperties.Rates premium = new TariffProperties.Rates();
+        premium.setBaseFare(80.0);
+        premium.setPerKmRate(18.0);
+        properties.getDefaults().put(VehicleTier.PREMIUM, premium);
+
+        TariffProperties.Rates mumbaiPremium = new TariffProperties.Rates();
+        mumbaiPremium.setPerKmRate(20.0);
+        Map<VehicleTier, TariffProperties.Rates> mumbai = new EnumMap<>(VehicleTier.class);
+        mumbai.put(VehicleTier.PREMIUM, mumbaiPremium);
+        properties.getRegions().put("Mumbai", mumbai);
+
+        tariffService = new TariffService(properties);
+        ReflectionTestUtils.setField(tariffService, "baseFare", 50.0);
+        ReflectionTestUtils.setField(tariffService, "perKmRate", 12.0);
+        ReflectionTestUtils.setField(tariffService, "perMinuteRate", 2.0);
+        ReflectionTestUtils.setField(tariffService, "minimumFare", 70.0);
+        tariffService.init();
+    }
+
+    @Test
+    void testLookup_MergesRegionOverTierOverGlobal() {
+        // Tier without overrides uses the global rates
+        assertEquals(Tariff.ofRupees(50.0, 12.0, 2.0, 70.0), tariffService.tariffFor("Delhi-NCR", VehicleTier.ECONOMY));
+
+        // Tier default overrides only the fields it sets
+        assertEquals(Tariff.ofRupees(80.0, 18.0, 2.0, 70.0), tariffService.tariffFor("Delhi-NCR", VehicleTier.PREMIUM));
+
+        // Region override layers on top of the tier default
+        assertEquals(Tariff.ofRupees(80.0, 20.0, 2.0, 70.0), tariffService.tariffFor("Mumbai", VehicleTier.PREMIUM));
+        assertEquals(Tariff.ofRupees(50.0, 12.0, 2.0, 70.0), tariffService.tariffFor("Mumbai", VehicleTier.SUV));
+    }
+
+    @Test
+    void testReload_SwapsWholeTableFromFile(@TempDir Path dir) throws Exception {
+        // Arrange
+        TariffTable before = tariffService.getTable();
+        File file = dir.resolve("tariffs.json").toFile();
+        Files.writeString(file.toPath(),
+            "{\"defaults\": {\"SUV\": {\"baseFare\": 100.0, \"perKmRate\": 20.0}}}");
+        properties.setFile(file.getAbsolutePath());
+
+        // Act
+        tariffService.reloadIfChanged();
+
+        // Assert
+        TariffTable after = tariffService.getTable();
+        assertNotSame(before, after);
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(Tariff.ofRupees(100.0, 20.0, 2.0, 70.0), after.lookup("Delhi-NCR", VehicleTier.SUV));
+        // The file replaces the configured definitions wholesale
+        assertEquals(Tariff.ofRupees(50.0, 12.0, 2.0, 70.0), after.lookup("Mumbai", VehicleTier.PREMIUM));
+        // The previously published table is untouched
+        assertEquals(Tariff.ofRupees(80.0, 20.0, 2.0, 70.0), before.lookup("Mumbai", VehicleTier.PREMIUM));
+    }
+
+    @Test
+    void testReload_InvalidFileKeepsPreviousTable(@TempDir Path dir) throws Exception {
+        // Arrange
+        TariffTable before = tariffService.getTable();
+        File file = dir.resolve("tariffs.json").toFile();
+        Files.writeString(file.toPath(), "{ not json");
+        properties.setFile(file.getAbsolutePath());
+
+        // Act
+        tariffService.reloadIfChanged();
+
+        // Assert
+        assertSame(before, tariffService.getTable());
+    }
+}
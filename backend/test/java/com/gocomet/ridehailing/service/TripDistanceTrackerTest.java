@@ -0,0 +1,150 @@
+package com.gocomet.ridehailing.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripDistanceTrackerTest {
+
+    private static final long TRIP_ID = 1L;
+    private static final long DRIVER_ID = 7L;
+
+    // ~111m per 0.001 degree of latitude
+    private static final double LAT = 28.6000;
+    private static final double LON = 77.2000;
+    private static final double STEP = 0.001;
+    private static final OptionalLong NO_COUNT = OptionalLong.empty();
+
+    private SimpleMeterRegistry meterRegistry;
+    private TripDistanceTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new TripDistanceTracker(meterRegistry, 10, 160, 3, 360, 0.9);
+        tracker.startTrip(TRIP_ID, DRIVER_ID, LAT, LON, 0, NO_COUNT);
+    }
+
+    @Test
+    void testAccumulatesSegmentsAndEndPoint() {
+        tracker.recordLocation(DRIVER_ID, LAT + STEP, LON, 10_000);
+        tracker.recordLocation(DRIVER_ID, LAT + 2 * STEP, LON, 20_000);
+
+        OptionalDouble km = tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + 3 * STEP, LON, 30_000, NO_COUNT);
+
+        assertTrue(km.isPresent());
+        assertEquals(0.3336, km.getAsDouble(), 0.001);
+        assertEquals(3.0, meterRegistry.get("trip.distance.points").tag("result", "accepted").counter().count());
+    }
+
+    @Test
+    void testJitterDoesNotAccumulate() {
+        tracker.recordLocation(DRIVER_ID, LAT + STEP, LON, 10_000);
+        // 100 fixes wobbling ~3m around the same spot
+        for (int i = 0; i < 100; i++) {
+            double wobble = (i % 2 == 0 ? 1 : -1) * 0.00003;
+            tracker.recordLocation(DRIVER_ID, LAT + STEP + wobble, LON + wobble, 11_000 + i * 1_000L);
+        }
+
+        OptionalDouble km = tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + STEP, LON, 200_000, NO_COUNT);
+
+        assertEquals(0.1112, km.getAsDouble(), 0.001);
+        // The wobbles plus the end point, which lands back on the anchor
+        assertEquals(101.0, meterRegistry.get("trip.distance.points").tag("result", "jitter").counter().count());
+    }
+
+    @Test
+    void testSlowMovementStillAddsUp() {
+        // 5m per fix is under the jitter radius, but the anchor stays put until it clears it
+        for (int i = 1; i <= 40; i++) {
+            tracker.recordLocation(DRIVER_ID, LAT + i * 0.000045, LON, i * 1_000L);
+        }
+
+        OptionalDouble km = tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + 40 * 0.000045, LON, 41_000, NO_COUNT);
+
+        assertEquals(0.2, km.getAsDouble(), 0.01);
+    }
+
+    @Test
+    void testGpsJumpIsDropped() {
+        tracker.recordLocation(DRIVER_ID, LAT + STEP, LON, 10_000);
+        // 5km away one second later
+        tracker.recordLocation(DRIVER_ID, LAT + 45 * STEP, LON, 11_000);
+        tracker.recordLocation(DRIVER_ID, LAT + 2 * STEP, LON, 20_000);
+
+        OptionalDouble km = tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + 2 * STEP, LON, 30_000, NO_COUNT);
+
+        assertEquals(0.2224, km.getAsDouble(), 0.001);
+        assertEquals(1.0, meterRegistry.get("trip.distance.points").tag("result", "speed_outlier").counter().count());
+    }
+
+    @Test
+    void testReanchorsAfterRepeatedOutliers() {
+        tracker.recordLocation(DRIVER_ID, LAT + STEP, LON, 10_000);
+        // Signal lost, then the driver reappears far away and keeps reporting from there
+        for (int i = 0; i < 3; i++) {
+            tracker.recordLocation(DRIVER_ID, LAT + 100 * STEP + i * 0.0001, LON, 11_000 + i * 1_000L);
+        }
+        tracker.recordLocation(DRIVER_ID, LAT + 101 * STEP, LON, 40_000);
+
+        OptionalDouble km = tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + 101 * STEP, LON, 50_000, NO_COUNT);
+
+        // First segment plus the ~80m after re-anchoring; the jump itself is not billed
+        assertEquals(0.1112 + 0.0890, km.getAsDouble(), 0.002);
+    }
+
+    @Test
+    void testMovementWhilePausedIsNotBilled() {
+        tracker.recordLocation(DRIVER_ID, LAT + STEP, LON, 10_000);
+        tracker.pauseTrip(TRIP_ID, DRIVER_ID);
+        tracker.recordLocation(DRIVER_ID, LAT + 5 * STEP, LON, 60_000);
+        tracker.resumeTrip(TRIP_ID, DRIVER_ID);
+        tracker.recordLocation(DRIVER_ID, LAT + 6 * STEP, LON, 70_000);
+        tracker.recordLocation(DRIVER_ID, LAT + 7 * STEP, LON, 80_000);
+
+        OptionalDouble km = tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + 7 * STEP, LON, 90_000, NO_COUNT);
+
+        assertEquals(0.2224, km.getAsDouble(), 0.001);
+    }
+
+    @Test
+    void testUntrackedTripIsEmpty() {
+        assertTrue(tracker.completeTrip(2L, DRIVER_ID, LAT, LON, 10_000, NO_COUNT).isEmpty());
+        // Started but no fixes ever arrived: let the caller fall back
+        assertTrue(tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + STEP, LON, 10_000, NO_COUNT).isEmpty());
+
+        tracker.stopTracking(TRIP_ID, DRIVER_ID);
+        tracker.recordLocation(DRIVER_ID, LAT + STEP, LON, 20_000);
+        assertTrue(tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + STEP, LON, 30_000, NO_COUNT).isEmpty());
+    }
+
+    @Test
+    void testPartialCoverageFallsBack() {
+        tracker.startTrip(TRIP_ID, DRIVER_ID, LAT, LON, 0, OptionalLong.of(100));
+        // The driver sent 20 fixes; the other 16 went to another node
+        for (int i = 1; i <= 4; i++) {
+            tracker.recordLocation(DRIVER_ID, LAT + i * STEP, LON, i * 10_000L);
+        }
+
+        assertTrue(tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + 20 * STEP, LON, 200_000, OptionalLong.of(120))
+            .isEmpty());
+        assertEquals(1.0, meterRegistry.get("trip.distance.partial_coverage").counter().count());
+    }
+
+    @Test
+    void testFixesInFlightAtTheEndsStillCount() {
+        tracker.startTrip(TRIP_ID, DRIVER_ID, LAT, LON, 0, OptionalLong.of(100));
+        for (int i = 1; i <= 4; i++) {
+            tracker.recordLocation(DRIVER_ID, LAT + i * STEP, LON, i * 10_000L);
+        }
+
+        OptionalDouble km = tracker.completeTrip(TRIP_ID, DRIVER_ID, LAT + 5 * STEP, LON, 50_000, OptionalLong.of(106));
+
+        assertEquals(0.5560, km.getAsDouble(), 0.001);
+    }
+}
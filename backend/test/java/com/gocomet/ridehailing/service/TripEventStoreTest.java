@@ -0,0 +1,163 @@
+package com.gocomet.ridehailing.service;
+
+import com.gocomet.ridehailing.exception.TripException;
+import com.gocomet.ridehailing.model.entity.Trip;
+import com.gocomet.ridehailing.model.entity.TripEvent;
+import com.gocomet.ridehailing.model.enums.TripEventType;
+import com.gocomet.ridehailing.model.enums.TripStatus;
+import com.gocomet.ridehailing.repository.TripEventRepository;
+import com.gocomet.ridehailing.repository.TripRepository;
+import com.gocomet.ridehailing.trip.TripState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TripEventStoreTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 18, 12, 0);
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @Mock
+    private TripEventRepository tripEventRepository;
+
+    private TripEventStore store;
+    private Trip row;
+
+    @BeforeEach
+    void setUp() {
+        store = new TripEventStore(tripRepository, tripEventRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "snapshotEvery", 3L);
+        row = Trip.builder()
+            .id(1L)
+            .rideId(10L)
+            .driverId(20L)
+            .riderId(30L)
+            .status(TripStatus.STARTED)
+            .startLatitude(28.6139)
+            .startLongitude(77.2090)
+            .startTime(T0)
+            .pausedDurationSeconds(0L)
+            .snapshotSequence(1L)
+            .build();
+    }
+
+    @Test
+    void testTransitionsAppendWithoutTouchingTheTripRow() {
+        TripState state = store.recordStart(row);
+
+        state = store.append(state, TripEventType.PAUSED, T0.plusMinutes(5), TripEvent.builder());
+        state = store.append(state, TripEventType.RESUMED, T0.plusMinutes(7), TripEvent.builder());
+
+        assertEquals(3, state.sequence());
+        assertEquals(TripStatus.RESUMED, state.status());
+        verify(tripEventRepository, times(3)).saveAndFlush(any(TripEvent.class));
+        verify(tripRepository, never()).save(any());
+        // Cached: no reads needed for the next transition
+        assertSame(state, store.load(1L));
+        verify(tripRepository, never()).findById(any());
+    }
+
+    @Test
+    void testSnapshotsEveryNEventsAndAtEnd() {
+        when(tripRepository.findById(1L)).thenReturn(Optional.of(row));
+        TripState state = store.recordStart(row);
+
+        state = store.append(state, TripEventType.PAUSED, T0.plusMinutes(5), TripEvent.builder());
+        state = store.append(state, TripEventType.RESUMED, T0.plusMinutes(7), TripEvent.builder());
+        state = store.append(state, TripEventType.PAUSED, T0.plusMinutes(9), TripEvent.builder());
+
+        assertEquals(4L, row.getSnapshotSequence());
+        assertEquals(TripStatus.PAUSED, row.getStatus());
+        assertEquals(120L, row.getPausedDurationSeconds());
+
+        state = store.append(state, TripEventType.RESUMED, T0.plusMinutes(10), TripEvent.builder());
+        state = store.append(state, TripEventType.ENDED, T0.plusMinutes(30), TripEvent.builder().distanceKm(8.0));
+
+        assertEquals(TripStatus.ENDED, row.getStatus());
+        assertEquals(6L, row.getSnapshotSequence());
+        assertEquals(27L, row.getDurationMinutes());
+        verify(tripRepository, times(2)).save(row);
+    }
+
+    @Test
+    void testLostRaceIsRejectedAndEvicted() {
+        TripState state = store.recordStart(row);
+        when(tripEventRepository.saveAndFlush(any(TripEvent.class)))
+            .thenThrow(new DataIntegrityViolationException("uk_trip_event_sequence"));
+
+        assertThrows(TripException.class,
+            () -> store.append(state, TripEventType.PAUSED, T0.plusMinutes(5), TripEvent.builder()));
+
+        // The next load re-folds from the database
+        when(tripRepository.findById(1L)).thenReturn(Optional.of(row));
+        when(tripEventRepository.findTail(1L, 1L)).thenReturn(List.of(
+            TripEvent.builder().tripId(1L).sequence(2L).type(TripEventType.PAUSED).occurredAt(T0.plusMinutes(4)).build()));
+        assertEquals(TripStatus.PAUSED, store.load(1L).status());
+    }
+
+    @Test
+    void testCachedStateCatchesUpWithEventsAnotherNodeAppended() {
+        TripState cached = store.recordStart(row);
+        // Another instance ended the trip
+        when(tripEventRepository.findTail(1L, 1L)).thenReturn(List.of(
+            TripEvent.builder().tripId(1L).sequence(2L).type(TripEventType.ENDED).occurredAt(T0.plusMinutes(6)).build()));
+
+        TripState loaded = store.load(1L);
+
+        assertEquals(TripStatus.ENDED, loaded.status());
+        assertEquals(2L, loaded.sequence());
+        assertThrows(TripException.class,
+            () -> store.append(loaded, TripEventType.PAUSED, T0.plusMinutes(7), TripEvent.builder()));
+        verify(tripEventRepository, times(1)).saveAndFlush(any(TripEvent.class));
+        // No longer active, so the next load reads the row rather than the stale cache
+        when(tripRepository.findById(1L)).thenReturn(Optional.of(row));
+        store.load(1L);
+        verify(tripRepository).findById(1L);
+        assertNotSame(cached, loaded);
+    }
+
+    @Test
+    void testInvalidTransitionIsNotAppended() {
+        TripState state = store.recordStart(row);
+
+        assertThrows(TripException.class,
+            () -> store.append(state, TripEventType.RESUMED, T0.plusMinutes(5), TripEvent.builder()));
+        verify(tripEventRepository, times(1)).saveAndFlush(any(TripEvent.class));
+    }
+
+    @Test
+    void testRebuildFoldsSnapshotsAndTails() {
+        Trip other = Trip.builder().id(2L).rideId(11L).driverId(21L).riderId(31L).status(TripStatus.STARTED)
+            .startLatitude(0.0).startLongitude(0.0).startTime(T0).pausedDurationSeconds(0L).snapshotSequence(1L).build();
+        when(tripRepository.findByStatusIn(anyCollection())).thenReturn(List.of(row, other));
+        when(tripEventRepository.findActiveTails(anyCollection())).thenReturn(List.of(
+            TripEvent.builder().tripId(1L).sequence(2L).type(TripEventType.PAUSED).occurredAt(T0.plusMinutes(3)).build(),
+            TripEvent.builder().tripId(2L).sequence(2L).type(TripEventType.ENDED).occurredAt(T0.plusMinutes(9)).build()));
+
+        store.rebuild();
+
+        assertEquals(TripStatus.PAUSED, store.load(1L).status());
+        verify(tripRepository, never()).findById(1L);
+        // Ended in its tail, so it is not kept as active
+        when(tripRepository.findById(2L)).thenReturn(Optional.of(other));
+        store.load(2L);
+        verify(tripRepository).findById(2L);
+    }
+}
@@ -0,0 +1,116 @@
+package com.gocomet.ridehailing.trip;
+
+import com.gocomet.ridehailing.model.entity.Trip;
+import com.gocomet.ridehailing.model.entity.TripEvent;
+import com.gocomet.ridehailing.model.enums.TripEventType;
+import com.gocomet.ridehailing.model.enums.TripStatus;
+import com.gocomet.ridehailing.pricing.Money;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripStateTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 18, 12, 0);
+
+    @Test
+    void testFold_AccountsEveryPause() {
+        TripState state = TripState.fold(startedTrip(), List.of(
+            event(2, TripEventType.PAUSED, T0.plusMinutes(10)),
+            event(3, TripEventType.RESUMED, T0.plusMinutes(15)),
+            event(4, TripEventType.PAUSED, T0.plusMinutes(20)),
+            event(5, TripEventType.RESUMED, T0.plusMinutes(22))
+        ));
+
+        assertEquals(TripStatus.RESUMED, state.status());
+        assertEquals(5, state.sequence());
+        assertEquals(7 * 60, state.pausedSeconds());
+        assertNull(state.pausedAt());
+        assertEquals(23, state.durationMinutes(T0.plusMinutes(30)));
+    }
+
+    @Test
+    void testOpenPauseIsExcludedFromDuration() {
+        TripState state = TripState.fold(startedTrip(), List.of(
+            event(2, TripEventType.PAUSED, T0.plusMinutes(10))
+        ));
+
+        assertEquals(TripStatus.PAUSED, state.status());
+        assertEquals(10, state.durationMinutes(T0.plusMinutes(40)));
+    }
+
+    @Test
+    void testEndedEventCarriesFareAndDistance() {
+        TripEvent ended = TripEvent.builder()
+            .sequence(2L)
+            .type(TripEventType.ENDED)
+            .occurredAt(T0.plusMinutes(45))
+            .latitude(28.5355)
+            .longitude(77.3910)
+            .distanceKm(15.5)
+            .fare(Money.ofPaise(48_900))
+            .build();
+
+        TripState state = TripState.fold(startedTrip(), List.of(ended));
+        Trip row = state.toTrip();
+
+        assertFalse(state.isActive());
+        assertEquals(TripStatus.ENDED, row.getStatus());
+        assertEquals(45L, row.getDurationMinutes());
+        assertEquals(15.5, row.getDistanceKm());
+        assertEquals(Money.ofPaise(48_900), row.getTotalFare());
+        assertEquals(2L, row.getSnapshotSequence());
+    }
+
+    @Test
+    void testRejectsGapsAndInvalidTransitions() {
+        TripState state = TripState.fromSnapshot(startedTrip());
+
+        assertThrows(IllegalStateException.class,
+            () -> state.apply(event(3, TripEventType.PAUSED, T0.plusMinutes(1))));
+        assertThrows(IllegalStateException.class,
+            () -> state.apply(event(2, TripEventType.RESUMED, T0.plusMinutes(1))));
+    }
+
+    @Test
+    void testFoldFromLaterSnapshotMatchesFullFold() {
+        List<TripEvent> events = List.of(
+            event(2, TripEventType.PAUSED, T0.plusMinutes(5)),
+            event(3, TripEventType.RESUMED, T0.plusMinutes(8)),
+            event(4, TripEventType.PAUSED, T0.plusMinutes(12))
+        );
+        TripState full = TripState.fold(startedTrip(), events);
+
+        Trip snapshot = startedTrip();
+        TripState.fold(snapshot, events.subList(0, 2)).applyTo(snapshot);
+        TripState resumed = TripState.fold(snapshot, events.subList(2, 3));
+
+        assertEquals(full.status(), resumed.status());
+        assertEquals(full.pausedSeconds(), resumed.pausedSeconds());
+        assertEquals(full.pausedAt(), resumed.pausedAt());
+        assertEquals(full.durationMinutes(T0.plusMinutes(60)), resumed.durationMinutes(T0.plusMinutes(60)));
+    }
+
+    private static Trip startedTrip() {
+        return Trip.builder()
+            .id(1L)
+            .rideId(10L)
+            .driverId(20L)
+            .riderId(30L)
+            .status(TripStatus.STARTED)
+            .startLatitude(28.6139)
+            .startLongitude(77.2090)
+            .startTime(T0)
+            .pausedDurationSeconds(0L)
+            .surgeMultiplier(1.0)
+            .snapshotSequence(1L)
+            .build();
+    }
+
+    private static TripEvent event(long sequence, TripEventType type, LocalDateTime at) {
+        return TripEvent.builder().tripId(1L).sequence(sequence).type(type).occurredAt(at).build();
+    }
+}
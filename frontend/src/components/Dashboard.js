@@ -102,10 +102,10 @@ function Dashboard() {
       () => {
         console.log('[Dashboard] ✅ WebSocket connected');
         
-        // Subscribe to ride updates
-        wsService.subscribe('/topic/rides/updates', (rideUpdate) => {
-          console.log('[Dashboard] 📨 Received ride update:', rideUpdate);
-          updateRideInList(rideUpdate);
+        // Subscribe to the aggregated ride summary (one message per interval)
+        wsService.subscribe('/topic/rides/summary', (summary) => {
+          console.log('[Dashboard] 📨 Received ride summary:', summary.rides.length, 'rides');
+          summary.rides.forEach(updateRideInList);
         });
       },
       (error) => {
@@ -115,7 +115,7 @@ function Dashboard() {
 
     return () => {
       console.log('[Dashboard] 🧹 WebSocket cleanup');
-      wsService.unsubscribe('/topic/rides/updates');
+      wsService.unsubscribe('/topic/rides/summary');
     };
   }, []);
 
@@ -124,9 +124,9 @@ function Dashboard() {
     setRides(prevRides => {
       const existingIndex = prevRides.findIndex(r => r.id === rideData.id);
       if (existingIndex >= 0) {
-        // Update existing ride
+        // Update existing ride; summary entries omit driver details, so keep what we have
         const updated = [...prevRides];
-        updated[existingIndex] = rideData;
+        updated[existingIndex] = { ...prevRides[existingIndex], ...rideData };
         console.log('[Dashboard] ✅ Updated existing ride');
         return updated;
       } else {
@@ -4,6 +4,8 @@ const API_BASE_URL = process.env.REACT_APP_API_URL || 'http://localhost:8080';
 
 const api = axios.create({
   baseURL: API_BASE_URL,
+  // Sends the read-after cookie, so reads right after our own writes see them
+  withCredentials: true,
   headers: {
     'Content-Type': 'application/json',
   },
@@ -1,5 +1,6 @@
 import { Client } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
+import { getRideById } from './api';
 
 class WebSocketService {
   constructor() {
@@ -81,6 +82,59 @@ class WebSocketService {
     }
   }
 
+  /**
+   * Follows one ride on /topic/rides/{id}. Frames are SNAPSHOTs (the whole ride) or DELTAs
+   * (fields changed since the snapshot at baseSeq). A delta on a base we don't hold means a
+   * missed snapshot: reload the ride over REST, whose version is a valid base.
+   */
+  subscribeRide(rideId, onRide, initialRide = null) {
+    let base = initialRide ? { seq: initialRide.version, ride: initialRide } : null;
+    let seq = base ? base.seq : -1;
+
+    const reload = async () => {
+      try {
+        const response = await getRideById(rideId);
+        const ride = response.data;
+        if (ride && ride.version >= seq) {
+          base = { seq: ride.version, ride };
+          seq = ride.version;
+          onRide(ride);
+        }
+      } catch (error) {
+        console.error('Could not reload ride', rideId, error);
+      }
+    };
+
+    return this.subscribe(`/topic/rides/${rideId}`, (frame) => {
+      if (frame.seq <= seq) {
+        return; // Duplicate or superseded
+      }
+      if (frame.type === 'SNAPSHOT') {
+        base = { seq: frame.seq, ride: frame.ride };
+        seq = frame.seq;
+        onRide(frame.ride);
+      } else if (base && base.seq === frame.baseSeq) {
+        seq = frame.seq;
+        onRide({ ...base.ride, ...frame.changes });
+      } else {
+        reload();
+      }
+    });
+  }
+
+  /**
+   * Follows the assigned driver's position for one ride. The server pushes DRIVER_LOCATION
+   * events on the rider topic, more often as the driver nears pickup, so there is no need to
+   * poll the ride endpoint for it.
+   */
+  subscribeDriverLocation(riderId, rideId, onLocation) {
+    return this.subscribe(`/topic/rider/${riderId}`, (message) => {
+      if (message.eventType === 'DRIVER_LOCATION' && message.data.rideId === rideId) {
+        onLocation(message.data);
+      }
+    });
+  }
+
   isConnected() {
     return this.connected;
   }